@@ -0,0 +1,312 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BinaryColumnarCommunicationProcessor.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.wekapyroproxy;
+
+import weka.classifiers.functions.PyroProxy;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Turns Instances/Instance into a compact binary, column-oriented payload
+ * (all values little-endian), avoiding the overhead of JSON for large datasets.
+ * Missing values are sent as NaN.
+ * <br>
+ * Send (train and predict):
+ * <pre>
+ * bytes   magic "WBC1"
+ * int32   number of rows (R)
+ * int32   number of columns (C), excluding the class
+ * int32   1 if class column present, otherwise 0
+ * int32   length of model name in bytes (N)
+ * byte[N] model name (UTF-8)
+ * float64[C*R] the columns, one block of R values per column
+ * float64[R]   the class values (only if present)
+ * </pre>
+ *
+ * Predict (receive):
+ * <pre>
+ * bytes   magic "WBC1"
+ * int32   number of rows (R)
+ * int32   number of values per row (V), eg 1 for numeric class
+ * float64[R*V] the predictions, row by row
+ * </pre>
+ * A string returned instead gets interpreted as error message.
+ * <br><br>
+ * With numpy, the columns can be decoded using (offset being the position
+ * after the model name):
+ * <pre>
+ * X = np.frombuffer(data, dtype='&lt;f8', count=C*R, offset=offset).reshape((C, R)).T
+ * </pre>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BinaryColumnarCommunicationProcessor
+  extends AbstractCommunicationProcessor {
+
+  private static final long serialVersionUID = 5312876304954810377L;
+
+  /** the magic bytes. */
+  public final static byte[] MAGIC = "WBC1".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Turns Instances/Instance into a compact binary, column-oriented payload "
+	+ "(all values little-endian), avoiding the overhead of JSON for large datasets.\n"
+	+ "Missing values are sent as NaN.\n"
+	+ "Layout of data sent: magic 'WBC1', int32 #rows, int32 #columns (excluding class), "
+	+ "int32 class present (1/0), int32 length of model name, model name (UTF-8), "
+	+ "float64 column blocks, float64 class block (if present).\n"
+	+ "Layout of predictions received: magic 'WBC1', int32 #rows, int32 #values per row, "
+	+ "float64 predictions row by row. A string is interpreted as error message.";
+  }
+
+  /**
+   * Performs the initialization.
+   *
+   * @param owner 	the owning classifier
+   * @param data	the training data
+   * @throws Exception	if initialization fails
+   */
+  @Override
+  protected void doInitialize(PyroProxy owner, Instances data) throws Exception {
+    int		i;
+
+    for (i = 0; i < data.numAttributes(); i++) {
+      if (!data.attribute(i).isNumeric())
+        throw new IllegalStateException("Attribute #" + (i+1) + " (" + data.attribute(i).name() + ") is not numeric!");
+    }
+  }
+
+  /**
+   * Generates the binary payload for the instances.
+   *
+   * @param owner 	the owning classifier
+   * @param insts	the instances to convert
+   * @param classIncluded	whether to include the class values
+   * @return		the payload
+   */
+  protected byte[] toPayload(PyroProxy owner, Instance[] insts, boolean classIncluded) {
+    ByteBuffer		buffer;
+    DoubleBuffer	values;
+    byte[]		name;
+    Instance		inst;
+    int			numRows;
+    int			numCols;
+    int			classIndex;
+    int			row;
+    int			col;
+    int			i;
+    long		size;
+
+    name       = owner.getModelName().getBytes(StandardCharsets.UTF_8);
+    numRows    = insts.length;
+    numCols    = (numRows == 0) ? 0 : insts[0].numAttributes();
+    classIndex = (numRows == 0) ? -1 : insts[0].classIndex();
+    if (classIndex > -1)
+      numCols--;
+    else
+      classIncluded = false;
+    size = MAGIC.length + 4 * 4 + name.length + ((long) numCols + (classIncluded ? 1 : 0)) * numRows * 8;
+    if (size > Integer.MAX_VALUE)
+      throw new IllegalStateException("Payload too large: " + size + " bytes");
+
+    buffer = ByteBuffer.allocate((int) size);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(MAGIC);
+    buffer.putInt(numRows);
+    buffer.putInt(numCols);
+    buffer.putInt(classIncluded ? 1 : 0);
+    buffer.putInt(name.length);
+    buffer.put(name);
+
+    // column blocks
+    values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    for (row = 0; row < numRows; row++) {
+      inst = insts[row];
+      col  = 0;
+      for (i = 0; i < inst.numAttributes(); i++) {
+        if (i == classIndex)
+          continue;
+        values.put(col * numRows + row, inst.value(i));
+        col++;
+      }
+      if (classIncluded)
+        values.put(numCols * numRows + row, inst.value(classIndex));
+    }
+
+    return buffer.array();
+  }
+
+  /**
+   * Performs the dataset conversion.
+   *
+   * @param owner 	the owning classifier
+   * @param data	the dataset to convert
+   * @return		the converted dataset
+   * @throws Exception	if build fails
+   */
+  @Override
+  protected Object doConvertDataset(PyroProxy owner, Instances data) throws Exception {
+    Instance[]	insts;
+    byte[]	result;
+    long	start;
+    int		i;
+
+    start = System.currentTimeMillis();
+    insts = new Instance[data.numInstances()];
+    for (i = 0; i < insts.length; i++)
+      insts[i] = data.instance(i);
+    result = toPayload(owner, insts, true);
+    if (isLoggingEnabled())
+      getLogger().info("duration/convertDataset: " + ((double) (System.currentTimeMillis() - start) / 1000.0) + ", bytes: " + result.length);
+
+    return result;
+  }
+
+  /**
+   * Converts the instance into a different format.
+   *
+   * @param owner 	the owning classifier
+   * @param inst	the instance to convert
+   * @return		the generated data structure
+   * @throws Exception	if conversion fails
+   */
+  @Override
+  protected Object doConvertInstance(PyroProxy owner, Instance inst) throws Exception {
+    return toPayload(owner, new Instance[]{inst}, false);
+  }
+
+  /**
+   * Turns the received object into bytes. Handles byte arrays and the
+   * base64-encoded dictionaries that the serpent serializer generates.
+   *
+   * @param data	the data to convert
+   * @return		the bytes
+   * @throws Exception	if not binary data or an error message was received
+   */
+  protected byte[] toBytes(Object data) throws Exception {
+    Map		map;
+
+    if (data instanceof byte[])
+      return (byte[]) data;
+
+    if (data instanceof Map) {
+      map = (Map) data;
+      if ("base64".equals(map.get("encoding")) && (map.get("data") instanceof String))
+        return Base64.getDecoder().decode((String) map.get("data"));
+    }
+
+    if (data instanceof String)
+      throw new Exception((String) data);
+
+    throw new Exception("Unhandled prediction type: " + data.getClass().getName());
+  }
+
+  /**
+   * Parses the predictions from the binary payload.
+   *
+   * @param data	the data to parse
+   * @return		the predictions
+   * @throws Exception	if parsing fails
+   */
+  protected double[][] fromPayload(Object data) throws Exception {
+    double[][]		result;
+    ByteBuffer		buffer;
+    DoubleBuffer	values;
+    byte[]		magic;
+    int			numRows;
+    int			numValues;
+    int			i;
+
+    buffer = ByteBuffer.wrap(toBytes(data));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    magic  = new byte[MAGIC.length];
+    buffer.get(magic);
+    for (i = 0; i < MAGIC.length; i++) {
+      if (magic[i] != MAGIC[i])
+        throw new Exception("Invalid magic bytes in predictions!");
+    }
+    numRows   = buffer.getInt();
+    numValues = buffer.getInt();
+    if (buffer.remaining() != (long) numRows * numValues * 8)
+      throw new Exception("Expected " + ((long) numRows * numValues * 8) + " bytes of predictions, but found: " + buffer.remaining());
+    values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    result = new double[numRows][numValues];
+    for (i = 0; i < numRows; i++)
+      values.get(result[i]);
+
+    return result;
+  }
+
+  /**
+   * Parses the prediction.
+   *
+   * @param owner 	the owning classifier
+   * @param prediction	the prediction to parse
+   * @return		the class distribution
+   * @throws Exception	if conversion fails
+   */
+  @Override
+  protected double[] doParsePrediction(PyroProxy owner, Object prediction) throws Exception {
+    double[][]	result;
+
+    result = fromPayload(prediction);
+    if (result.length != 1)
+      throw new Exception("Expected a single prediction, but received: " + result.length);
+
+    return result[0];
+  }
+
+  /**
+   * Returns whether batch predictions are supported.
+   *
+   * @return		true if supported
+   */
+  public boolean supportsBatchPredictions() {
+    return true;
+  }
+
+  /**
+   * Parses the predictions.
+   *
+   * @param owner 	the owning classifier
+   * @param predictions	the predictions to parse
+   * @return		the class distribution
+   * @throws Exception	if conversion fails
+   */
+  @Override
+  protected double[][] doParsePredictions(PyroProxy owner, Object predictions) throws Exception {
+    return fromPayload(predictions);
+  }
+}
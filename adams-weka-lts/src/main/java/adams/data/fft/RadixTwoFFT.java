@@ -0,0 +1,208 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RadixTwoFFT.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.fft;
+
+import java.io.Serializable;
+
+/**
+ * In-place radix-2 Fast Fourier Transform for a fixed, power of 2 size,
+ * operating on interleaved buffers (real and imaginary part of each value
+ * next to each other). The bit-reversal permutation and the twiddle factors
+ * get computed once and are shared by all transforms.
+ * <br>
+ * Uses the same conventions as JSci's FourierMath: the forward transform
+ * uses e^(2*pi*i*k*n/N), the inverse transform e^(-2*pi*i*k*n/N) and
+ * divides by N.
+ * <br>
+ * Instances are immutable and can be shared between threads, as long as
+ * each thread uses its own buffer.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class RadixTwoFFT
+  implements Serializable {
+
+  private static final long serialVersionUID = -4518806395208764133L;
+
+  /** the number of complex values. */
+  protected final int m_Size;
+
+  /** the bit-reversed indices. */
+  protected final int[] m_Reversed;
+
+  /** the cosines of the twiddle factors. */
+  protected final double[] m_Cos;
+
+  /** the sines of the twiddle factors. */
+  protected final double[] m_Sin;
+
+  /**
+   * Initializes the transform.
+   *
+   * @param size	the number of complex values, must be a power of 2
+   */
+  public RadixTwoFFT(int size) {
+    int		numBits;
+    int		i;
+    int		n;
+    int		rev;
+
+    if (!isPowerOf2(size))
+      throw new IllegalArgumentException("Size must be a power of 2: " + size);
+
+    m_Size = size;
+
+    numBits = Integer.numberOfTrailingZeros(size);
+    m_Reversed = new int[size];
+    for (i = 0; i < size; i++) {
+      rev = 0;
+      for (n = 0; n < numBits; n++)
+	rev |= ((i >> n) & 1) << (numBits - 1 - n);
+      m_Reversed[i] = rev;
+    }
+
+    m_Cos = new double[size / 2];
+    m_Sin = new double[size / 2];
+    for (i = 0; i < size / 2; i++) {
+      m_Cos[i] = Math.cos(2.0 * Math.PI * i / size);
+      m_Sin[i] = Math.sin(2.0 * Math.PI * i / size);
+    }
+  }
+
+  /**
+   * Checks whether the number is a power of 2.
+   *
+   * @param n		the number to check
+   * @return		true if a power of 2
+   */
+  public static boolean isPowerOf2(int n) {
+    return (n > 0) && ((n & (n - 1)) == 0);
+  }
+
+  /**
+   * Returns the number of complex values.
+   *
+   * @return		the size
+   */
+  public int getSize() {
+    return m_Size;
+  }
+
+  /**
+   * Returns a new interleaved buffer of the correct size.
+   *
+   * @return		the buffer
+   */
+  public double[] newBuffer() {
+    return new double[2 * m_Size];
+  }
+
+  /**
+   * Transforms the interleaved buffer in-place.
+   *
+   * @param buffer	the interleaved real/imaginary values
+   * @param inverse	whether to perform the inverse transform
+   */
+  public void transform(double[] buffer, boolean inverse) {
+    int		i;
+    int		j;
+    int		n;
+    int		k;
+    int		m;
+    int		half;
+    int		step;
+    int		len;
+    double	sign;
+    double	wr;
+    double	wi;
+    double	tr;
+    double	ti;
+    double	norm;
+
+    if (buffer.length != 2 * m_Size)
+      throw new IllegalArgumentException("Buffer must have length " + (2 * m_Size) + ", got: " + buffer.length);
+
+    // bit-reversal
+    for (i = 0; i < m_Size; i++) {
+      j = m_Reversed[i];
+      if (i < j) {
+	tr                = buffer[2 * i];
+	ti                = buffer[2 * i + 1];
+	buffer[2 * i]     = buffer[2 * j];
+	buffer[2 * i + 1] = buffer[2 * j + 1];
+	buffer[2 * j]     = tr;
+	buffer[2 * j + 1] = ti;
+      }
+    }
+
+    // butterflies
+    sign = inverse ? -1.0 : 1.0;
+    for (len = 2; len <= m_Size; len <<= 1) {
+      half = len / 2;
+      step = m_Size / len;
+      for (i = 0; i < m_Size; i += len) {
+	for (n = 0; n < half; n++) {
+	  wr = m_Cos[n * step];
+	  wi = sign * m_Sin[n * step];
+	  k  = 2 * (i + n);
+	  m  = k + 2 * half;
+	  tr = wr * buffer[m] - wi * buffer[m + 1];
+	  ti = wr * buffer[m + 1] + wi * buffer[m];
+	  buffer[m]     = buffer[k] - tr;
+	  buffer[m + 1] = buffer[k + 1] - ti;
+	  buffer[k]     += tr;
+	  buffer[k + 1] += ti;
+	}
+      }
+    }
+
+    // normalize
+    if (inverse) {
+      norm = 1.0 / m_Size;
+      for (i = 0; i < buffer.length; i++)
+	buffer[i] *= norm;
+    }
+  }
+
+  /**
+   * Copies the real values into the interleaved buffer, pads it with zeroes
+   * and transforms it in-place.
+   *
+   * @param values	the real values, at most {@link #getSize()} values
+   * @param buffer	the interleaved buffer to use
+   * @param inverse	whether to perform the inverse transform
+   */
+  public void transformReal(double[] values, double[] buffer, boolean inverse) {
+    int		i;
+
+    if (values.length > m_Size)
+      throw new IllegalArgumentException("At most " + m_Size + " values supported, got: " + values.length);
+
+    for (i = 0; i < values.length; i++) {
+      buffer[2 * i]     = values[i];
+      buffer[2 * i + 1] = 0.0;
+    }
+    for (i = 2 * values.length; i < buffer.length; i++)
+      buffer[i] = 0.0;
+
+    transform(buffer, inverse);
+  }
+}
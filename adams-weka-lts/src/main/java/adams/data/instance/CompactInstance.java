@@ -0,0 +1,454 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompactInstance.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.data.instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Instance container that stores the attribute indices and internal values
+ * in primitive arrays (sorted by attribute index) rather than in a set of
+ * {@link InstancePoint} objects, reducing the memory footprint of large
+ * instances (eg spectra) considerably.
+ * <br>
+ * The points returned by the iterator and {@link #toList()} get created on
+ * the fly, i.e., modifying them does not alter the container. Like with
+ * {@link Instance}, only one point per attribute index is stored.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class CompactInstance
+  extends Instance {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -2436210447750291784L;
+
+  /** the initial capacity. */
+  public static final int INITIAL_CAPACITY = 16;
+
+  /** the attribute indices (= X). */
+  protected int[] m_Indices;
+
+  /** the internal values (= Y). */
+  protected double[] m_Values;
+
+  /** the number of stored points. */
+  protected int m_Size;
+
+  /**
+   * Ensures that the arrays can store the specified number of points.
+   *
+   * @param capacity	the required capacity
+   */
+  protected void ensureCapacity(int capacity) {
+    int		newCapacity;
+
+    if (m_Indices == null) {
+      m_Indices = new int[Math.max(INITIAL_CAPACITY, capacity)];
+      m_Values  = new double[m_Indices.length];
+    }
+    else if (capacity > m_Indices.length) {
+      newCapacity = Math.max(capacity, m_Indices.length + (m_Indices.length >> 1));
+      m_Indices   = Arrays.copyOf(m_Indices, newCapacity);
+      m_Values    = Arrays.copyOf(m_Values, newCapacity);
+    }
+  }
+
+  /**
+   * Returns the position of the attribute index.
+   *
+   * @param index	the attribute index to look for
+   * @return		the position, or (-(insertion point) - 1) if not present
+   * @see		Arrays#binarySearch(int[], int, int, int)
+   */
+  public int indexOf(int index) {
+    if (m_Size == 0)
+      return -1;
+    return Arrays.binarySearch(m_Indices, 0, m_Size, index);
+  }
+
+  /**
+   * Returns the attribute index (= X) of the point at the specified position.
+   *
+   * @param pos		the position of the point
+   * @return		the attribute index
+   */
+  public int getAttributeIndex(int pos) {
+    if ((pos < 0) || (pos >= m_Size))
+      throw new IndexOutOfBoundsException("Position: " + pos + ", size: " + m_Size);
+    return m_Indices[pos];
+  }
+
+  /**
+   * Returns the internal value (= Y) of the point at the specified position.
+   *
+   * @param pos		the position of the point
+   * @return		the value
+   */
+  public double getValue(int pos) {
+    if ((pos < 0) || (pos >= m_Size))
+      throw new IndexOutOfBoundsException("Position: " + pos + ", size: " + m_Size);
+    return m_Values[pos];
+  }
+
+  /**
+   * Creates a point for the specified position.
+   *
+   * @param pos		the position of the point
+   * @return		the point
+   */
+  protected InstancePoint createPoint(int pos) {
+    InstancePoint	result;
+
+    result = new InstancePoint(m_Indices[pos], m_Values[pos]);
+    result.setParent(this);
+
+    return result;
+  }
+
+  /**
+   * Removes the point at the specified position.
+   *
+   * @param pos		the position of the point
+   */
+  protected void removePoint(int pos) {
+    System.arraycopy(m_Indices, pos + 1, m_Indices, pos, m_Size - pos - 1);
+    System.arraycopy(m_Values, pos + 1, m_Values, pos, m_Size - pos - 1);
+    m_Size--;
+  }
+
+  /**
+   * Adds the attribute value, if no value is stored for this attribute index
+   * yet.
+   *
+   * @param index	the attribute index (= X)
+   * @param value	the internal value (= Y)
+   * @return		true if added
+   */
+  public boolean add(int index, double value) {
+    int		pos;
+
+    // common case: appending in ascending order
+    if ((m_Size == 0) || (index > m_Indices[m_Size - 1])) {
+      pos = m_Size;
+    }
+    else {
+      pos = indexOf(index);
+      if (pos >= 0)
+	return false;
+      pos = -pos - 1;
+    }
+
+    ensureCapacity(m_Size + 1);
+    System.arraycopy(m_Indices, pos, m_Indices, pos + 1, m_Size - pos);
+    System.arraycopy(m_Values, pos, m_Values, pos + 1, m_Size - pos);
+    m_Indices[pos] = index;
+    m_Values[pos]  = value;
+    m_Size++;
+
+    return true;
+  }
+
+  /**
+   * Adds the attribute values. The attribute indices must be in ascending
+   * order.
+   *
+   * @param indices	the attribute indices (= X)
+   * @param values	the internal values (= Y)
+   */
+  @Override
+  protected void addValues(int[] indices, double[] values) {
+    int		i;
+
+    ensureCapacity(m_Size + indices.length);
+    for (i = 0; i < indices.length; i++)
+      add(indices[i], values[i]);
+  }
+
+  /**
+   * Adds the point, if no point with the same attribute index is present.
+   *
+   * @param point	the point to add
+   * @return		true if added
+   */
+  @Override
+  public boolean add(InstancePoint point) {
+    return add(point.getX(), point.getY());
+  }
+
+  /**
+   * Adds all the points.
+   *
+   * @param c		the points to add
+   * @return		true if the container changed
+   */
+  @Override
+  public boolean addAll(Collection<? extends InstancePoint> c) {
+    boolean	result;
+
+    result = false;
+    ensureCapacity(m_Size + c.size());
+    for (InstancePoint point: c)
+      result = add(point) || result;
+
+    return result;
+  }
+
+  /**
+   * Removes the point with the same attribute index.
+   *
+   * @param o		the point to remove
+   * @return		true if removed
+   */
+  @Override
+  public boolean remove(Object o) {
+    int		pos;
+
+    if (!(o instanceof InstancePoint))
+      return false;
+
+    pos = indexOf(((InstancePoint) o).getX());
+    if (pos < 0)
+      return false;
+    removePoint(pos);
+
+    return true;
+  }
+
+  /**
+   * Removes all the points with the same attribute indices.
+   *
+   * @param c		the points to remove
+   * @return		true if the container changed
+   */
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    boolean	result;
+
+    result = false;
+    for (Object o: c)
+      result = remove(o) || result;
+
+    return result;
+  }
+
+  /**
+   * Retains only the points that are contained in the collection.
+   *
+   * @param c		the points to keep
+   * @return		true if the container changed
+   */
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    int		size;
+    int		i;
+
+    size   = m_Size;
+    m_Size = 0;
+    for (i = 0; i < size; i++) {
+      if (c.contains(createPoint(i))) {
+	m_Indices[m_Size] = m_Indices[i];
+	m_Values[m_Size]  = m_Values[i];
+	m_Size++;
+      }
+    }
+
+    return (size != m_Size);
+  }
+
+  /**
+   * Checks whether a point with the same attribute index is present.
+   *
+   * @param o		the point to look for
+   * @return		true if present
+   */
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof InstancePoint))
+      return false;
+    return (indexOf(((InstancePoint) o).getX()) >= 0);
+  }
+
+  /**
+   * Checks whether points with the same attribute indices are present.
+   *
+   * @param c		the points to look for
+   * @return		true if all present
+   */
+  @Override
+  public boolean containsAll(Collection<?> c) {
+    for (Object o: c) {
+      if (!contains(o))
+	return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  @Override
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns whether the container is empty.
+   *
+   * @return		true if no points stored
+   */
+  @Override
+  public boolean isEmpty() {
+    return (m_Size == 0);
+  }
+
+  /**
+   * Removes all the points and report and nulls the header reference.
+   *
+   * @see	#m_DatasetHeader
+   */
+  @Override
+  public void clear() {
+    super.clear();
+
+    m_Indices = null;
+    m_Values  = null;
+    m_Size    = 0;
+  }
+
+  /**
+   * Returns an iterator over the points, in ascending order of attribute
+   * index.
+   *
+   * @return		the iterator
+   */
+  @Override
+  public Iterator<InstancePoint> iterator() {
+    return new Iterator<InstancePoint>() {
+      /** the next position. */
+      protected int m_Next = 0;
+
+      /** the position of the last returned point. */
+      protected int m_Last = -1;
+
+      @Override
+      public boolean hasNext() {
+	return (m_Next < m_Size);
+      }
+
+      @Override
+      public InstancePoint next() {
+	if (m_Next >= m_Size)
+	  throw new NoSuchElementException();
+	m_Last = m_Next;
+	m_Next++;
+	return createPoint(m_Last);
+      }
+
+      @Override
+      public void remove() {
+	if (m_Last == -1)
+	  throw new IllegalStateException();
+	removePoint(m_Last);
+	m_Next = m_Last;
+	m_Last = -1;
+      }
+    };
+  }
+
+  /**
+   * Returns the points as array.
+   *
+   * @return		the points
+   */
+  @Override
+  public Object[] toArray() {
+    return toList().toArray();
+  }
+
+  /**
+   * Returns the points as array.
+   *
+   * @param a		the array to use
+   * @return		the points
+   */
+  @Override
+  public <T> T[] toArray(T[] a) {
+    return toList().toArray(a);
+  }
+
+  /**
+   * Returns the points as list, in ascending order of attribute index.
+   *
+   * @return		the points
+   */
+  @Override
+  public List<InstancePoint> toList() {
+    List<InstancePoint>	result;
+    int			i;
+
+    result = new ArrayList<>(m_Size);
+    for (i = 0; i < m_Size; i++)
+      result.add(createPoint(i));
+
+    return result;
+  }
+
+  /**
+   * Returns the y values as double array.
+   *
+   * @return		the y values
+   */
+  @Override
+  public double[] toDoubleArray() {
+    if (m_Size == 0)
+      return new double[0];
+    return Arrays.copyOf(m_Values, m_Size);
+  }
+
+  /**
+   * Returns the x values (= attribute indices) as int array.
+   *
+   * @return		the x values
+   */
+  @Override
+  public int[] toIndexArray() {
+    if (m_Size == 0)
+      return new int[0];
+    return Arrays.copyOf(m_Indices, m_Size);
+  }
+
+  /**
+   * Trims the arrays to the number of stored points.
+   */
+  public void trimToSize() {
+    if ((m_Indices != null) && (m_Indices.length > m_Size)) {
+      m_Indices = Arrays.copyOf(m_Indices, m_Size);
+      m_Values  = Arrays.copyOf(m_Values, m_Size);
+    }
+  }
+}
@@ -36,7 +36,9 @@ import adams.data.spreadsheet.SpreadSheet;
 import adams.data.spreadsheet.SpreadSheetSupporter;
 import adams.data.weka.ArffUtils;
 import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
 import weka.core.Attribute;
 import weka.core.Instances;
 
@@ -230,10 +232,11 @@ public class Instance
    * @see		Attribute
    */
   public void set(weka.core.Instance inst, int index, int[] additional, Range range, HashSet<Integer> attTypes) {
-    ArrayList<InstancePoint>	list;
-    int				i;
-    Attribute			att;
-    String			fieldStr;
+    TIntList		indices;
+    TDoubleList		values;
+    int			i;
+    Attribute		att;
+    String		fieldStr;
 
     clear();
 
@@ -241,7 +244,8 @@ public class Instance
     m_DatasetHeader = new Instances(inst.dataset(), 0);
 
     range.setMax(inst.numAttributes());
-    list = new ArrayList<InstancePoint>();
+    indices = new TIntArrayList();
+    values  = new TDoubleArrayList();
     for (i = 0; i < inst.numAttributes(); i++) {
       if (i == inst.classIndex())
 	continue;
@@ -249,10 +253,11 @@ public class Instance
 	continue;
       if ((attTypes != null) && (!attTypes.contains(inst.attribute(i).type())))
 	continue;
-      list.add(new InstancePoint(i, inst.value(i)));
+      indices.add(i);
+      values.add(inst.value(i));
     }
 
-    addAll(list);
+    addValues(indices.toArray(), values.toArray());
 
     // create artificial report
     m_Report.addParameter(REPORT_DATASET, m_DatasetHeader.relationName());
@@ -309,6 +314,24 @@ public class Instance
       setID("" + inst.toString().hashCode());
   }
 
+  /**
+   * Adds the attribute values. The attribute indices must be in ascending
+   * order.
+   *
+   * @param indices	the attribute indices (= X)
+   * @param values	the internal values (= Y)
+   */
+  protected void addValues(int[] indices, double[] values) {
+    ArrayList<InstancePoint>	list;
+    int				i;
+
+    list = new ArrayList<>(indices.length);
+    for (i = 0; i < indices.length; i++)
+      list.add(new InstancePoint(indices[i], values[i]));
+
+    addAll(list);
+  }
+
   /**
    * Checks whether a report is present.
    *
@@ -351,6 +374,21 @@ public class Instance
     return result.toArray();
   }
 
+  /**
+   * Returns the x values (= attribute indices) as int array.
+   *
+   * @return		the x values
+   */
+  public int[] toIndexArray() {
+    TIntList	result;
+
+    result = new TIntArrayList();
+    for (InstancePoint p: toList())
+      result.add(p.getX());
+
+    return result.toArray();
+  }
+
   /**
    * Generates a weka instance, if a dataset header is available.
    *
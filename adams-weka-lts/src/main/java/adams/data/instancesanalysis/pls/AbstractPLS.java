@@ -296,6 +296,18 @@ public abstract class AbstractPLS
     return m_Initialized;
   }
 
+  /**
+   * Compiles the trained scheme into a linear scorer that predicts the
+   * class directly from the input attributes, if the scheme supports this.
+   *
+   * @param header	the header of the training data
+   * @return		the scorer, null if not supported or not initialized
+   * @throws Exception	if compiling fails
+   */
+  public LinearPLSScorer compileScorer(Instances header) throws Exception {
+    return null;
+  }
+
   /**
    * Determines the output format based on the input format and returns this.
    *
@@ -94,6 +94,37 @@ public abstract class AbstractSingleClassPLS
     return result;
   }
 
+  /**
+   * Returns the regression coefficients for the (preprocessed) input
+   * attributes, if the predictions are a linear function of these.
+   *
+   * @return		the coefficients, null if not available
+   */
+  protected double[] getRegressionCoefficients() {
+    return null;
+  }
+
+  /**
+   * Compiles the trained scheme into a linear scorer that predicts the
+   * class directly from the input attributes, if the scheme supports this.
+   *
+   * @param header	the header of the training data
+   * @return		the scorer, null if not supported or not initialized
+   * @throws Exception	if compiling fails
+   */
+  @Override
+  public LinearPLSScorer compileScorer(Instances header) throws Exception {
+    double[]	coefficients;
+
+    if (!isInitialized())
+      return null;
+    coefficients = getRegressionCoefficients();
+    if (coefficients == null)
+      return null;
+
+    return LinearPLSScorer.compile(header, m_Missing, m_Filter, coefficients, m_ClassMean, m_ClassStdDev);
+  }
+
   /**
    * Preprocesses the data.
    *
@@ -0,0 +1,301 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LinearPLSScorer.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.instancesanalysis.pls;
+
+import weka.core.BatchPredictor;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.Filter;
+
+import java.io.Serializable;
+
+/**
+ * Immutable scorer for trained PLS models whose predictions are a linear
+ * function of the (preprocessed) input attributes. Replacement of missing
+ * values, centering/standardizing of the attributes, the regression
+ * coefficients and the back-transformation of the class are folded into a
+ * single weight vector and intercept.
+ * <br>
+ * Safe for concurrent use.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LinearPLSScorer
+  implements Serializable, BatchPredictor {
+
+  private static final long serialVersionUID = 2316285938893101542L;
+
+  /** the indices of the input attributes. */
+  protected final int[] m_Indices;
+
+  /** the replacement values for missing values (null if not replaced). */
+  protected final double[] m_Replacements;
+
+  /** the weights for the input attributes. */
+  protected final double[] m_Weights;
+
+  /** the intercept. */
+  protected final double m_Intercept;
+
+  /**
+   * Initializes the scorer.
+   *
+   * @param indices		the indices of the input attributes
+   * @param replacements	the replacement values for missing values, null if not to replace
+   * @param weights		the weights for the input attributes
+   * @param intercept		the intercept
+   */
+  public LinearPLSScorer(int[] indices, double[] replacements, double[] weights, double intercept) {
+    if (indices.length != weights.length)
+      throw new IllegalArgumentException("Number of indices and weights differ: " + indices.length + " != " + weights.length);
+    if ((replacements != null) && (replacements.length != weights.length))
+      throw new IllegalArgumentException("Number of replacements and weights differ: " + replacements.length + " != " + weights.length);
+
+    m_Indices      = indices.clone();
+    m_Replacements = (replacements == null) ? null : replacements.clone();
+    m_Weights      = weights.clone();
+    m_Intercept    = intercept;
+  }
+
+  /**
+   * Returns the number of input attributes.
+   *
+   * @return		the number of inputs
+   */
+  public int getNumInputs() {
+    return m_Weights.length;
+  }
+
+  /**
+   * Returns the intercept.
+   *
+   * @return		the intercept
+   */
+  public double getIntercept() {
+    return m_Intercept;
+  }
+
+  /**
+   * Returns a copy of the weights.
+   *
+   * @return		the weights
+   */
+  public double[] getWeights() {
+    return m_Weights.clone();
+  }
+
+  /**
+   * Computes the prediction for the instance.
+   *
+   * @param inst	the instance to score
+   * @return		the prediction
+   */
+  public double score(Instance inst) {
+    double	result;
+    double	value;
+    int		i;
+
+    result = m_Intercept;
+    for (i = 0; i < m_Weights.length; i++) {
+      value = inst.value(m_Indices[i]);
+      if ((m_Replacements != null) && Utils.isMissingValue(value))
+	value = m_Replacements[i];
+      result += value * m_Weights[i];
+    }
+
+    return result;
+  }
+
+  /**
+   * Computes the predictions for the instances.
+   *
+   * @param data	the instances to score
+   * @return		the predictions
+   */
+  public double[] score(Instances data) {
+    double[]	result;
+    int		i;
+
+    result = new double[data.numInstances()];
+    for (i = 0; i < result.length; i++)
+      result[i] = score(data.instance(i));
+
+    return result;
+  }
+
+  /**
+   * Ignored, all instances get scored in a single pass.
+   *
+   * @param size 	ignored
+   */
+  @Override
+  public void setBatchSize(String size) {
+  }
+
+  /**
+   * Returns the batch size.
+   *
+   * @return 		always "0", as all instances get scored in a single pass
+   */
+  @Override
+  public String getBatchSize() {
+    return "0";
+  }
+
+  /**
+   * Computes the predictions for the instances, one numeric prediction
+   * per row.
+   *
+   * @param insts 	the instances to score
+   * @return 		the predictions
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) {
+    double[][]	result;
+    int		i;
+
+    result = new double[insts.numInstances()][1];
+    for (i = 0; i < result.length; i++)
+      result[i][0] = score(insts.instance(i));
+
+    return result;
+  }
+
+  /**
+   * Returns true, as scoring is a single dot product per instance.
+   *
+   * @return		true
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return true;
+  }
+
+  /**
+   * Pushes the instances through the (already initialized) filter.
+   *
+   * @param filter	the filter to use
+   * @param data	the data to filter
+   * @return		the filtered data
+   * @throws Exception	if filtering fails
+   */
+  protected static Instances probe(Filter filter, Instances data) throws Exception {
+    Instances	result;
+    Instance	inst;
+    int		i;
+
+    for (i = 0; i < data.numInstances(); i++)
+      filter.input(data.instance(i));
+    filter.batchFinished();
+    result = new Instances(filter.getOutputFormat(), data.numInstances());
+    while ((inst = filter.output()) != null)
+      result.add(inst);
+
+    return result;
+  }
+
+  /**
+   * Compiles the trained model into a scorer. The missing value and
+   * preprocessing filters must have processed the training data already
+   * and must be affine per attribute (like ReplaceMissingValues, Center,
+   * Standardize). The coefficients correspond to the non-class attributes
+   * in their order in the header.
+   *
+   * @param header		the training data header (with class attribute)
+   * @param missing		the trained filter for replacing missing values, null if not used
+   * @param preprocessing	the trained preprocessing filter, null if not used
+   * @param coefficients	the regression coefficients in the preprocessed space
+   * @param classMean		the mean to add to the predictions
+   * @param classStdDev		the standard deviation to scale the predictions with
+   * @return			the scorer
+   * @throws Exception		if probing the filters fails
+   */
+  public static LinearPLSScorer compile(Instances header, Filter missing, Filter preprocessing, double[] coefficients, double classMean, double classStdDev) throws Exception {
+    int[]	indices;
+    double[]	replacements;
+    double[]	offsets;
+    double[]	scales;
+    double[]	weights;
+    double	intercept;
+    double[]	values;
+    Instances	data;
+    Instances	filtered;
+    int		i;
+    int		n;
+
+    indices = new int[header.numAttributes() - 1];
+    n = 0;
+    for (i = 0; i < header.numAttributes(); i++) {
+      if (i != header.classIndex())
+	indices[n++] = i;
+    }
+    if (indices.length != coefficients.length)
+      throw new IllegalArgumentException("Number of attributes and coefficients differ: " + indices.length + " != " + coefficients.length);
+
+    // missing values: push an instance with only missing values through
+    replacements = null;
+    if (missing != null) {
+      data = new Instances(header, 1);
+      values = new double[header.numAttributes()];
+      for (i = 0; i < values.length; i++)
+	values[i] = Utils.missingValue();
+      data.add(new DenseInstance(1.0, values));
+      filtered = probe(missing, data);
+      replacements = new double[indices.length];
+      for (i = 0; i < indices.length; i++)
+	replacements[i] = filtered.instance(0).value(indices[i]);
+    }
+
+    // preprocessing: determine offset/scale from zeros and ones
+    offsets = new double[indices.length];
+    scales  = new double[indices.length];
+    if (preprocessing != null) {
+      data = new Instances(header, 2);
+      data.add(new DenseInstance(1.0, new double[header.numAttributes()]));
+      values = new double[header.numAttributes()];
+      for (i = 0; i < values.length; i++)
+	values[i] = 1.0;
+      data.add(new DenseInstance(1.0, values));
+      filtered = probe(preprocessing, data);
+      for (i = 0; i < indices.length; i++) {
+	offsets[i] = filtered.instance(0).value(indices[i]);
+	scales[i]  = filtered.instance(1).value(indices[i]) - offsets[i];
+      }
+    }
+    else {
+      for (i = 0; i < indices.length; i++)
+	scales[i] = 1.0;
+    }
+
+    // fold everything into weights and intercept
+    weights   = new double[indices.length];
+    intercept = 0.0;
+    for (i = 0; i < indices.length; i++) {
+      weights[i] = scales[i] * coefficients[i] * classStdDev;
+      intercept += offsets[i] * coefficients[i];
+    }
+    intercept = intercept * classStdDev + classMean;
+
+    return new LinearPLSScorer(indices, replacements, weights, intercept);
+  }
+}
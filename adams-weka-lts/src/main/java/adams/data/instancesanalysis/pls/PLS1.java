@@ -212,6 +212,19 @@ public class PLS1
     }
   }
 
+  /**
+   * Returns the regression coefficients for the (preprocessed) input
+   * attributes.
+   *
+   * @return		the coefficients, null if not available
+   */
+  @Override
+  protected double[] getRegressionCoefficients() {
+    if (m_r_hat == null)
+      return null;
+    return m_r_hat.getColumnPackedCopy();
+  }
+
   /**
    * Whether the algorithm supports return of loadings.
    *
@@ -245,6 +245,19 @@ public class SIMPLS
     }
   }
 
+  /**
+   * Returns the regression coefficients for the (preprocessed) input
+   * attributes.
+   *
+   * @return		the coefficients, null if not available
+   */
+  @Override
+  protected double[] getRegressionCoefficients() {
+    if (m_B == null)
+      return null;
+    return m_B.getColumnPackedCopy();
+  }
+
   /**
    * Whether the algorithm supports return of loadings.
    *
@@ -0,0 +1,971 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstancesUndoStore.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.weka;
+
+import adams.core.CleanUpHandler;
+import adams.core.io.FileUtils;
+import adams.core.logging.LoggingObject;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.InstanceValuesAccess;
+import weka.core.Instances;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Stores undo snapshots of datasets using copy-on-write: a snapshot only
+ * references the value arrays of the rows, it does not copy them. Weka
+ * instances replace their value array when they get modified, hence a
+ * snapshot only costs memory for the rows that changed since it was taken.
+ * <br>
+ * All snapshots draw from a shared pool of slots (row value arrays and
+ * attribute copies), in which rows are identified by the identity of their
+ * value array. Only slots that are no longer referenced by the live data
+ * are charged against the memory budget, i.e., unchanged rows and
+ * attributes are free, no matter how many snapshots share them.
+ * <br>
+ * Once the memory budget is exceeded, the oldest charged slots and the row
+ * maps of the oldest snapshots get spilled to temporary files. Once the
+ * disk budget is exceeded as well, the oldest snapshots get discarded.
+ * <br>
+ * Rows that aren't plain dense instances (eg sparse ones) don't get shared
+ * and are always charged in full.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InstancesUndoStore
+  extends LoggingObject
+  implements CleanUpHandler {
+
+  private static final long serialVersionUID = -1850277716339069870L;
+
+  /** the default memory budget in bytes. */
+  public static final long DEFAULT_MAX_MEMORY = 256L * 1024 * 1024;
+
+  /** the default disk budget in bytes. */
+  public static final long DEFAULT_MAX_DISK = 2048L * 1024 * 1024;
+
+  /** the key for "no snapshot". */
+  public static final long NO_KEY = -1;
+
+  /** the estimated overhead of an object/array in bytes. */
+  public static final long OBJECT_OVERHEAD = 16;
+
+  /** the estimated size of an attribute copy in bytes. */
+  public static final long ATTRIBUTE_SIZE = 128;
+
+  /**
+   * A temporary file that spilled data got written to.
+   */
+  protected static class SpillFile {
+
+    /** the file. */
+    public File file;
+
+    /** the size on disk. */
+    public long size;
+
+    /** the number of items still using the file. */
+    public int refs;
+  }
+
+  /**
+   * Ancestor for items that can get spilled to disk.
+   */
+  protected static abstract class Spillable {
+
+    /** the key of the snapshot that created the item (determines spill order). */
+    public long origin;
+
+    /** the file the item got spilled to, null if in memory. */
+    public SpillFile file;
+
+    /**
+     * Returns the memory that the item is charged for.
+     *
+     * @return		the memory in bytes
+     */
+    public abstract long memory();
+  }
+
+  /**
+   * A pooled row value array (dense rows), row copy (other rows) or
+   * attribute copy.
+   */
+  protected static class Slot
+    extends Spillable {
+
+    /** the ID of the slot. */
+    public long id;
+
+    /** the value, null if spilled. */
+    public Object value;
+
+    /** the estimated size of the value. */
+    public long size;
+
+    /** the number of references (snapshots or headers). */
+    public int refs;
+
+    /** whether the value is shared with the live data. */
+    public boolean live;
+
+    /**
+     * Returns the memory that the item is charged for.
+     *
+     * @return		the memory in bytes
+     */
+    @Override
+    public long memory() {
+      if ((value == null) || live)
+	return 0;
+      return size;
+    }
+  }
+
+  /**
+   * The attribute slots of a dataset header.
+   */
+  protected static class Header
+    extends Spillable {
+
+    /** the ID of the header. */
+    public long id;
+
+    /** the slot IDs of the attributes, null if spilled. */
+    public long[] atts;
+
+    /** the number of snapshots using the header. */
+    public int refs;
+
+    /**
+     * Returns the memory that the item is charged for.
+     *
+     * @return		the memory in bytes
+     */
+    @Override
+    public long memory() {
+      if (atts == null)
+	return 0;
+      return OBJECT_OVERHEAD + 8L * atts.length;
+    }
+  }
+
+  /**
+   * The row map of a snapshot.
+   */
+  protected static class Rows
+    implements Serializable {
+
+    private static final long serialVersionUID = 2946880224545781264L;
+
+    /** the slot IDs of the rows. */
+    public long[] slots;
+
+    /** the instance weights, null if all 1.0. */
+    public double[] weights;
+
+    /**
+     * Returns the estimated size in memory.
+     *
+     * @return		the size in bytes
+     */
+    public long size() {
+      return 3 * OBJECT_OVERHEAD + 8L * slots.length + ((weights == null) ? 0 : 8L * weights.length);
+    }
+  }
+
+  /**
+   * Container for a single snapshot.
+   */
+  protected static class Entry
+    extends Spillable {
+
+    /** the relation name. */
+    public String relation;
+
+    /** the class index. */
+    public int classIndex;
+
+    /** the header. */
+    public Header header;
+
+    /** the row map, null if spilled. */
+    public Rows rows;
+
+    /**
+     * Returns the memory that the item is charged for.
+     *
+     * @return		the memory in bytes
+     */
+    @Override
+    public long memory() {
+      if (rows == null)
+	return 0;
+      return rows.size();
+    }
+  }
+
+  /** the memory budget in bytes (less than 0 is unlimited). */
+  protected long m_MaxMemory;
+
+  /** the disk budget in bytes (less than 0 is unlimited). */
+  protected long m_MaxDisk;
+
+  /** the key counter. */
+  protected long m_Counter;
+
+  /** the slot/header ID counter. */
+  protected long m_SlotCounter;
+
+  /** the snapshots (insertion order = oldest first). */
+  protected LinkedHashMap<Long,Entry> m_Entries;
+
+  /** the slots. */
+  protected HashMap<Long,Slot> m_Slots;
+
+  /** the in-memory row value arrays and their slots. */
+  protected IdentityHashMap<double[],Slot> m_Identity;
+
+  /** the headers in use. */
+  protected Set<Header> m_Headers;
+
+  /** the header of the last snapshot. */
+  protected Header m_LastHeader;
+
+  /** the (live) attributes of the last snapshot. */
+  protected Attribute[] m_LastAtts;
+
+  /** the attribute weights of the last snapshot. */
+  protected double[] m_LastWeights;
+
+  /** the number of attribute values of the last snapshot. */
+  protected int[] m_LastNumValues;
+
+  /** the estimated memory used by the snapshots. */
+  protected long m_MemoryUsed;
+
+  /** the disk space used by the snapshots. */
+  protected long m_DiskUsed;
+
+  /**
+   * Initializes the store with the default budgets.
+   */
+  public InstancesUndoStore() {
+    this(DEFAULT_MAX_MEMORY, DEFAULT_MAX_DISK);
+  }
+
+  /**
+   * Initializes the store.
+   *
+   * @param maxMemory	the memory budget in bytes, less than 0 for unlimited
+   * @param maxDisk	the disk budget in bytes, less than 0 for unlimited
+   */
+  public InstancesUndoStore(long maxMemory, long maxDisk) {
+    super();
+
+    m_MaxMemory   = maxMemory;
+    m_MaxDisk     = maxDisk;
+    m_Counter     = 0;
+    m_SlotCounter = 0;
+    m_Entries     = new LinkedHashMap<>();
+    m_Slots       = new HashMap<>();
+    m_Identity    = new IdentityHashMap<>();
+    m_Headers     = new HashSet<>();
+    m_MemoryUsed  = 0;
+    m_DiskUsed    = 0;
+  }
+
+  /**
+   * Returns the memory budget.
+   *
+   * @return		the budget in bytes, less than 0 for unlimited
+   */
+  public long getMaxMemory() {
+    return m_MaxMemory;
+  }
+
+  /**
+   * Returns the disk budget.
+   *
+   * @return		the budget in bytes, less than 0 for unlimited
+   */
+  public long getMaxDisk() {
+    return m_MaxDisk;
+  }
+
+  /**
+   * Returns the estimated memory currently used by the snapshots, i.e.,
+   * the memory that isn't shared with the live data.
+   *
+   * @return		the memory in bytes
+   */
+  public synchronized long getMemoryUsed() {
+    return m_MemoryUsed;
+  }
+
+  /**
+   * Returns the disk space currently used by the snapshots.
+   *
+   * @return		the disk space in bytes
+   */
+  public synchronized long getDiskUsed() {
+    return m_DiskUsed;
+  }
+
+  /**
+   * Returns the number of snapshots currently stored.
+   *
+   * @return		the number of snapshots
+   */
+  public synchronized int size() {
+    return m_Entries.size();
+  }
+
+  /**
+   * Returns whether a snapshot is stored under the key.
+   *
+   * @param key		the key to check
+   * @return		true if available
+   */
+  public synchronized boolean contains(long key) {
+    return m_Entries.containsKey(key);
+  }
+
+  /**
+   * Creates a new slot and registers it.
+   *
+   * @param value	the value to store
+   * @param size	the estimated size of the value
+   * @param origin	the key of the snapshot creating the slot
+   * @return		the slot
+   */
+  protected Slot newSlot(Object value, long size, long origin) {
+    Slot	result;
+
+    result        = new Slot();
+    result.id     = m_SlotCounter++;
+    result.origin = origin;
+    result.value  = value;
+    result.size   = size;
+    m_Slots.put(result.id, result);
+    if (value instanceof double[])
+      m_Identity.put((double[]) value, result);
+
+    return result;
+  }
+
+  /**
+   * Returns the header for the data, reusing the header of the previous
+   * snapshot or its attribute slots where the attributes are unchanged.
+   *
+   * @param data	the data to get the header for
+   * @param origin	the key of the snapshot
+   * @return		the header
+   */
+  protected Header header(Instances data, long origin) {
+    Header	result;
+    long[]	last;
+    long[]	atts;
+    boolean	reused;
+    boolean	allReused;
+    Attribute	att;
+    int		i;
+
+    last = null;
+    if ((m_LastHeader != null) && (m_LastHeader.refs > 0) && (m_LastAtts.length == data.numAttributes())) {
+      try {
+	last = atts(m_LastHeader, new HashMap<>());
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to read spilled header, not reusing attributes!", e);
+      }
+    }
+
+    atts      = new long[data.numAttributes()];
+    allReused = true;
+    for (i = 0; i < data.numAttributes(); i++) {
+      att    = data.attribute(i);
+      reused = (last != null)
+	&& (att == m_LastAtts[i])
+	&& (att.weight() == m_LastWeights[i])
+	&& (att.numValues() == m_LastNumValues[i]);
+      if (reused)
+	atts[i] = last[i];
+      else
+	atts[i] = newSlot(att.copy(), ATTRIBUTE_SIZE, origin).id;
+      allReused = allReused && reused;
+    }
+
+    if (allReused) {
+      result = m_LastHeader;
+    }
+    else {
+      result        = new Header();
+      result.id     = m_SlotCounter++;
+      result.origin = origin;
+      result.atts   = atts;
+      for (long id: atts)
+	m_Slots.get(id).refs++;
+      m_Headers.add(result);
+    }
+
+    m_LastHeader    = result;
+    m_LastAtts      = new Attribute[data.numAttributes()];
+    m_LastWeights   = new double[data.numAttributes()];
+    m_LastNumValues = new int[data.numAttributes()];
+    for (i = 0; i < data.numAttributes(); i++) {
+      m_LastAtts[i]      = data.attribute(i);
+      m_LastWeights[i]   = data.attribute(i).weight();
+      m_LastNumValues[i] = data.attribute(i).numValues();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the slot for the row. Dense rows share the slot of their value
+   * array, other rows get copied into a new slot.
+   *
+   * @param inst	the row to get the slot for
+   * @param origin	the key of the snapshot
+   * @return		the slot
+   */
+  protected Slot rowSlot(Instance inst, long origin) {
+    Slot	result;
+    double[]	values;
+    Instance	copy;
+
+    if (InstanceValuesAccess.isDense(inst)) {
+      values = InstanceValuesAccess.values(inst);
+      result = m_Identity.get(values);
+      if (result == null)
+	result = newSlot(values, OBJECT_OVERHEAD + 8L * values.length, origin);
+    }
+    else {
+      copy = (Instance) inst.copy();
+      copy.setDataset(null);
+      result = newSlot(copy, 3 * OBJECT_OVERHEAD + 12L * inst.numValues(), origin);
+    }
+
+    return result;
+  }
+
+  /**
+   * Flags the slots whose value arrays are used by the live data.
+   *
+   * @param data	the live data
+   */
+  protected void markLive(Instances data) {
+    Slot	slot;
+    int		i;
+
+    for (Slot s: m_Identity.values())
+      s.live = false;
+    for (i = 0; i < data.numInstances(); i++) {
+      if (!InstanceValuesAccess.isDense(data.instance(i)))
+	continue;
+      slot = m_Identity.get(InstanceValuesAccess.values(data.instance(i)));
+      if (slot != null)
+	slot.live = true;
+    }
+  }
+
+  /**
+   * Recomputes the memory used by the snapshots.
+   */
+  protected void updateMemoryUsed() {
+    m_MemoryUsed = 0;
+    for (Slot slot: m_Slots.values())
+      m_MemoryUsed += slot.memory();
+    for (Header header: m_Headers)
+      m_MemoryUsed += header.memory();
+    for (Entry entry: m_Entries.values())
+      m_MemoryUsed += entry.memory();
+  }
+
+  /**
+   * Stores a snapshot of the data.
+   *
+   * @param data	the data to store
+   * @return		the key of the snapshot
+   */
+  public synchronized long add(Instances data) {
+    long	result;
+    Entry	entry;
+    Rows	rows;
+    Instance	inst;
+    Slot	slot;
+    int		i;
+
+    result           = m_Counter++;
+    entry            = new Entry();
+    entry.origin     = result;
+    entry.relation   = data.relationName();
+    entry.classIndex = data.classIndex();
+    entry.header     = header(data, result);
+    entry.header.refs++;
+
+    rows       = new Rows();
+    rows.slots = new long[data.numInstances()];
+    for (i = 0; i < data.numInstances(); i++) {
+      inst = data.instance(i);
+      slot = rowSlot(inst, result);
+      slot.refs++;
+      rows.slots[i] = slot.id;
+      if ((inst.weight() != 1.0) && (rows.weights == null)) {
+	rows.weights = new double[data.numInstances()];
+	Arrays.fill(rows.weights, 1.0);
+      }
+      if (rows.weights != null)
+	rows.weights[i] = inst.weight();
+    }
+    entry.rows = rows;
+    m_Entries.put(result, entry);
+
+    markLive(data);
+    updateMemoryUsed();
+    enforceBudgets();
+
+    return result;
+  }
+
+  /**
+   * Reads the spilled file, using the cache.
+   *
+   * @param file	the file to read
+   * @param cache	the cache of files read so far
+   * @param full	whether to read the values as well or just the row maps and headers
+   * @return		the content: row maps, headers, values (null if not full)
+   * @throws Exception	if reading fails
+   */
+  protected Object[] read(SpillFile file, Map<SpillFile,Object[]> cache, boolean full) throws Exception {
+    Object[]		result;
+    ObjectInputStream	ois;
+    FileInputStream	fis;
+
+    result = cache.get(file);
+    if ((result != null) && (!full || (result[2] != null)))
+      return result;
+
+    result = new Object[3];
+    fis    = null;
+    ois    = null;
+    try {
+      fis       = new FileInputStream(file.file);
+      ois       = new ObjectInputStream(new BufferedInputStream(fis));
+      result[0] = ois.readObject();
+      result[1] = ois.readObject();
+      if (full)
+	result[2] = ois.readObject();
+    }
+    finally {
+      FileUtils.closeQuietly(ois);
+      FileUtils.closeQuietly(fis);
+    }
+    cache.put(file, result);
+
+    return result;
+  }
+
+  /**
+   * Returns the row map of the snapshot.
+   *
+   * @param entry	the snapshot
+   * @param cache	the cache of files read so far
+   * @return		the row map
+   * @throws Exception	if reading the spilled row map fails
+   */
+  protected Rows rows(Entry entry, Map<SpillFile,Object[]> cache) throws Exception {
+    if (entry.rows != null)
+      return entry.rows;
+    return ((Map<Long,Rows>) read(entry.file, cache, false)[0]).get(entry.origin);
+  }
+
+  /**
+   * Returns the attribute slot IDs of the header.
+   *
+   * @param header	the header
+   * @param cache	the cache of files read so far
+   * @return		the slot IDs
+   * @throws Exception	if reading the spilled header fails
+   */
+  protected long[] atts(Header header, Map<SpillFile,Object[]> cache) throws Exception {
+    if (header.atts != null)
+      return header.atts;
+    return ((Map<Long,long[]>) read(header.file, cache, false)[1]).get(header.id);
+  }
+
+  /**
+   * Returns the value of the slot.
+   *
+   * @param id		the slot ID
+   * @param cache	the cache of files read so far
+   * @return		the value
+   * @throws Exception	if reading the spilled value fails
+   */
+  protected Object value(long id, Map<SpillFile,Object[]> cache) throws Exception {
+    Slot	slot;
+
+    slot = m_Slots.get(id);
+    if (slot.value != null)
+      return slot.value;
+    return ((Map<Long,Object>) read(slot.file, cache, true)[2]).get(id);
+  }
+
+  /**
+   * Removes the snapshot from the store and returns it.
+   *
+   * @param key		the key of the snapshot
+   * @return		the snapshot, null if no longer available
+   */
+  public synchronized Instances remove(long key) {
+    Instances			result;
+    Entry			entry;
+    Rows			rows;
+    Map<SpillFile,Object[]>	cache;
+    ArrayList<Attribute>	atts;
+    Object			value;
+    Instance			inst;
+    int				i;
+
+    entry = m_Entries.remove(key);
+    if (entry == null)
+      return null;
+
+    result = null;
+    rows   = null;
+    cache  = new HashMap<>();
+    try {
+      rows = rows(entry, cache);
+      atts = new ArrayList<>();
+      for (long id: atts(entry.header, cache))
+	atts.add((Attribute) ((Attribute) value(id, cache)).copy());
+      result = new Instances(entry.relation, atts, rows.slots.length);
+      result.setClassIndex(entry.classIndex);
+      for (i = 0; i < rows.slots.length; i++) {
+	value = value(rows.slots[i], cache);
+	if (value instanceof double[])
+	  inst = InstanceValuesAccess.create(1.0, (double[]) value);
+	else
+	  inst = (Instance) value;
+	// Instances.add only makes a shallow copy of the instance
+	result.add(inst);
+	if (rows.weights != null)
+	  result.instance(i).setWeight(rows.weights[i]);
+      }
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to restore undo snapshot: " + key, e);
+      result = null;
+    }
+
+    release(entry, rows);
+    if (result != null)
+      markLive(result);
+    updateMemoryUsed();
+
+    return result;
+  }
+
+  /**
+   * Decrements the reference counter of the file, deletes it once no
+   * longer used.
+   *
+   * @param file	the file to release
+   */
+  protected void release(SpillFile file) {
+    file.refs--;
+    if (file.refs > 0)
+      return;
+    if (!file.file.delete())
+      getLogger().warning("Failed to delete undo snapshot: " + file.file);
+    m_DiskUsed -= file.size;
+  }
+
+  /**
+   * Decrements the reference counter of the slot, removes it once no
+   * longer used.
+   *
+   * @param id		the ID of the slot
+   */
+  protected void release(long id) {
+    Slot	slot;
+
+    slot = m_Slots.get(id);
+    slot.refs--;
+    if (slot.refs > 0)
+      return;
+    m_Slots.remove(id);
+    if ((slot.value instanceof double[]) && (m_Identity.get(slot.value) == slot))
+      m_Identity.remove(slot.value);
+    if (slot.file != null)
+      release(slot.file);
+  }
+
+  /**
+   * Releases the slots, header and files of the snapshot.
+   *
+   * @param entry	the snapshot to release
+   * @param rows	the row map if already available, otherwise null
+   */
+  protected void release(Entry entry, Rows rows) {
+    Map<SpillFile,Object[]>	cache;
+    Header			header;
+
+    cache = new HashMap<>();
+    try {
+      if (rows == null)
+	rows = rows(entry, cache);
+      for (long id: rows.slots)
+	release(id);
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to read row map of undo snapshot, cannot release rows: " + entry.origin, e);
+    }
+
+    header = entry.header;
+    header.refs--;
+    if (header.refs == 0) {
+      m_Headers.remove(header);
+      try {
+	for (long id: atts(header, cache))
+	  release(id);
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to read spilled header, cannot release attributes: " + header.id, e);
+      }
+      if (header.file != null)
+	release(header.file);
+      if (header == m_LastHeader)
+	m_LastHeader = null;
+    }
+
+    if (entry.file != null)
+      release(entry.file);
+    entry.rows = null;
+    entry.file = null;
+  }
+
+  /**
+   * Writes the oldest items charged against memory to a temporary file
+   * until the memory budget is met.
+   *
+   * @return		true if successfully written
+   */
+  protected boolean spill() {
+    List<Spillable>		items;
+    List<Spillable>		spilled;
+    HashMap<Long,Rows>		rows;
+    HashMap<Long,long[]>	headers;
+    HashMap<Long,Object>	values;
+    SpillFile			file;
+    FileOutputStream		fos;
+    ObjectOutputStream		oos;
+    long			freed;
+    Slot			slot;
+    boolean			result;
+
+    items = new ArrayList<>();
+    for (Slot s: m_Slots.values()) {
+      if (s.memory() > 0)
+	items.add(s);
+    }
+    for (Header h: m_Headers) {
+      if (h.memory() > 0)
+	items.add(h);
+    }
+    for (Entry e: m_Entries.values()) {
+      if (e.memory() > 0)
+	items.add(e);
+    }
+    Collections.sort(items, (o1, o2) -> Long.compare(o1.origin, o2.origin));
+
+    spilled = new ArrayList<>();
+    rows    = new HashMap<>();
+    headers = new HashMap<>();
+    values  = new HashMap<>();
+    freed   = 0;
+    for (Spillable item: items) {
+      if (m_MemoryUsed - freed <= m_MaxMemory)
+	break;
+      freed += item.memory();
+      spilled.add(item);
+      if (item instanceof Slot)
+	values.put(((Slot) item).id, ((Slot) item).value);
+      else if (item instanceof Header)
+	headers.put(((Header) item).id, ((Header) item).atts);
+      else
+	rows.put(item.origin, ((Entry) item).rows);
+    }
+    if (spilled.isEmpty())
+      return true;
+
+    file   = new SpillFile();
+    fos    = null;
+    oos    = null;
+    result = true;
+    try {
+      file.file = File.createTempFile("instances", ".undo");
+      file.file.deleteOnExit();
+      fos = new FileOutputStream(file.file);
+      oos = new ObjectOutputStream(new BufferedOutputStream(fos));
+      oos.writeObject(rows);
+      oos.writeObject(headers);
+      oos.writeObject(values);
+      oos.flush();
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to spill undo snapshots to disk!", e);
+      result = false;
+    }
+    finally {
+      FileUtils.closeQuietly(oos);
+      FileUtils.closeQuietly(fos);
+    }
+
+    if (!result) {
+      if (file.file != null)
+	file.file.delete();
+      return false;
+    }
+
+    file.size  = file.file.length();
+    file.refs  = spilled.size();
+    m_DiskUsed += file.size;
+    for (Spillable item: spilled) {
+      item.file = file;
+      if (item instanceof Slot) {
+	slot = (Slot) item;
+	if (slot.value instanceof double[])
+	  m_Identity.remove(slot.value);
+	slot.value = null;
+      }
+      else if (item instanceof Header) {
+	((Header) item).atts = null;
+      }
+      else {
+	((Entry) item).rows = null;
+      }
+    }
+    updateMemoryUsed();
+
+    return true;
+  }
+
+  /**
+   * Spills the oldest unshared data to disk as long as the memory budget is
+   * exceeded and then discards the oldest snapshots as long as the disk
+   * budget is exceeded.
+   */
+  protected void enforceBudgets() {
+    Iterator<Entry>	iter;
+    Entry		entry;
+
+    if ((m_MaxMemory >= 0) && (m_MemoryUsed > m_MaxMemory)) {
+      if (!spill()) {
+	iter = m_Entries.values().iterator();
+	while ((m_MemoryUsed > m_MaxMemory) && iter.hasNext()) {
+	  entry = iter.next();
+	  getLogger().warning("Discarding undo snapshot: " + entry.origin);
+	  release(entry, null);
+	  iter.remove();
+	  updateMemoryUsed();
+	}
+      }
+    }
+
+    if (m_MaxDisk >= 0) {
+      iter = m_Entries.values().iterator();
+      while ((m_DiskUsed > m_MaxDisk) && iter.hasNext()) {
+	entry = iter.next();
+	if (isLoggingEnabled())
+	  getLogger().info("Disk budget exceeded, discarding undo snapshot: " + entry.origin);
+	release(entry, null);
+	iter.remove();
+      }
+      updateMemoryUsed();
+    }
+  }
+
+  /**
+   * Removes all snapshots.
+   */
+  public synchronized void clear() {
+    Set<SpillFile>	files;
+
+    files = new HashSet<>();
+    for (Slot slot: m_Slots.values()) {
+      if (slot.file != null)
+	files.add(slot.file);
+    }
+    for (Header header: m_Headers) {
+      if (header.file != null)
+	files.add(header.file);
+    }
+    for (Entry entry: m_Entries.values()) {
+      if (entry.file != null)
+	files.add(entry.file);
+    }
+    for (SpillFile file: files) {
+      if (!file.file.delete())
+	getLogger().warning("Failed to delete undo snapshot: " + file.file);
+    }
+
+    m_Entries.clear();
+    m_Slots.clear();
+    m_Identity.clear();
+    m_Headers.clear();
+    m_LastHeader    = null;
+    m_LastAtts      = null;
+    m_LastWeights   = null;
+    m_LastNumValues = null;
+    m_MemoryUsed    = 0;
+    m_DiskUsed      = 0;
+  }
+
+  /**
+   * Cleans up data structures, frees up memory.
+   */
+  @Override
+  public void cleanUp() {
+    clear();
+  }
+}
@@ -20,14 +20,18 @@
 
 package adams.flow.sink;
 
+import adams.core.ObjectCopyHelper;
 import adams.core.QuickInfoHelper;
 import adams.core.Shortening;
 import adams.core.io.FileUtils;
 import adams.core.option.OptionUtils;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.converters.AbstractFileSaver;
+import weka.core.converters.AbstractSaver;
 import weka.core.converters.ConverterUtils;
 import weka.core.converters.ConverterUtils.DataSink;
+import weka.core.converters.IncrementalConverter;
 import weka.core.converters.SimpleArffSaver;
 
 import java.io.File;
@@ -35,7 +39,8 @@ import java.io.File;
 /**
  <!-- globalinfo-start -->
  * Actor for saving a weka.core.Instances object as file.<br>
- * The relation name of the incoming dataset can be used to replace the current filename (path and extension are kept). If the filename points to a directory, the relation name is simply appended.
+ * The relation name of the incoming dataset can be used to replace the current filename (path and extension are kept). If the filename points to a directory, the relation name is simply appended.<br>
+ * weka.core.Instance objects get written incrementally, which requires a saver that supports incremental saving. The file gets finished when the flow wraps up.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -43,6 +48,7 @@ import java.io.File;
  * Input&#47;output:<br>
  * - accepts:<br>
  * &nbsp;&nbsp;&nbsp;weka.core.Instances<br>
+ * &nbsp;&nbsp;&nbsp;weka.core.Instance<br>
  * <br><br>
  <!-- flow-summary-end -->
  *
@@ -124,6 +130,9 @@ public class WekaFileWriter
   /** the custom saver. */
   protected AbstractFileSaver m_CustomSaver;
 
+  /** the saver in use for incremental saving. */
+  protected transient AbstractFileSaver m_IncrementalSaver;
+
   /**
    * Returns a string describing the object.
    *
@@ -135,7 +144,10 @@ public class WekaFileWriter
         "Actor for saving a weka.core.Instances object as file.\n"
       + "The relation name of the incoming dataset can be used to replace the "
       + "current filename (path and extension are kept). If the filename "
-      + "points to a directory, the relation name is simply appended.";
+      + "points to a directory, the relation name is simply appended.\n"
+      + "weka.core.Instance objects get written incrementally, which requires "
+      + "a saver that supports incremental saving. The file gets finished "
+      + "when the flow wraps up.";
   }
 
   /**
@@ -287,10 +299,10 @@ public class WekaFileWriter
   /**
    * Returns the class that the consumer accepts.
    *
-   * @return		<!-- flow-accepts-start -->weka.core.Instances.class<!-- flow-accepts-end -->
+   * @return		<!-- flow-accepts-start -->weka.core.Instances.class, weka.core.Instance.class<!-- flow-accepts-end -->
    */
   public Class[] accepts() {
-    return new Class[]{Instances.class};
+    return new Class[]{Instances.class, Instance.class};
   }
 
   /**
@@ -325,13 +337,24 @@ public class WekaFileWriter
   protected String doExecute() {
     String		result;
     Instances		data;
+    Instance		inst;
     String		filename;
     File		file;
     DataSink		sink;
+    AbstractFileSaver	saver;
 
     result = null;
 
-    data     = (Instances) m_InputToken.getPayload();
+    if (m_InputToken.getPayload() instanceof Instance) {
+      inst = (Instance) m_InputToken.getPayload();
+      data = inst.dataset();
+      if (data == null)
+        return "Instance has no dataset associated!";
+    }
+    else {
+      data = (Instances) m_InputToken.getPayload();
+      inst = null;
+    }
     filename = null;
     try {
       // determine filename
@@ -352,16 +375,33 @@ public class WekaFileWriter
         }
       }
 
-      if (m_UseCustomSaver) {
-	m_CustomSaver.setFile(new File(filename));
-	sink = new DataSink(m_CustomSaver);
+      if (inst != null) {
+        if (m_IncrementalSaver == null) {
+          if (m_UseCustomSaver)
+            saver = ObjectCopyHelper.copyObject(m_CustomSaver);
+          else
+            saver = ConverterUtils.getSaverForFile(filename);
+          if (!(saver instanceof IncrementalConverter))
+            return "Saver does not support incremental saving: " + OptionUtils.getCommandLine(saver);
+          saver.setFile(new File(filename));
+          saver.setRetrieval(AbstractSaver.INCREMENTAL);
+          saver.setStructure(new Instances(data, 0));
+          m_IncrementalSaver = saver;
+        }
+        m_IncrementalSaver.writeIncremental(inst);
       }
       else {
-	sink = new DataSink(filename);
-      }
+        if (m_UseCustomSaver) {
+          m_CustomSaver.setFile(new File(filename));
+          sink = new DataSink(m_CustomSaver);
+        }
+        else {
+          sink = new DataSink(filename);
+        }
 
-      // save file
-      sink.write(data);
+        // save file
+        sink.write(data);
+      }
     }
     catch (Exception e) {
       result = handleException("Failed to save dataset to: " + filename, e);
@@ -369,4 +409,29 @@ public class WekaFileWriter
 
     return result;
   }
+
+  /**
+   * Finishes the incremental saving, if necessary.
+   */
+  protected void finishIncrementalSaver() {
+    if (m_IncrementalSaver != null) {
+      try {
+        m_IncrementalSaver.writeIncremental(null);
+      }
+      catch (Exception e) {
+        handleException("Failed to finish incremental saving!", e);
+      }
+      m_IncrementalSaver = null;
+    }
+  }
+
+  /**
+   * Cleans up after the execution has finished.
+   */
+  @Override
+  public void wrapUp() {
+    finishIncrementalSaver();
+
+    super.wrapUp();
+  }
 }
@@ -20,6 +20,7 @@
 
 package adams.flow.transformer;
 
+import adams.core.Performance;
 import adams.core.QuickInfoHelper;
 import adams.core.Randomizable;
 import adams.core.base.BaseDouble;
@@ -32,19 +33,19 @@ import adams.flow.container.WekaEvaluationContainer;
 import adams.flow.core.EvaluationHelper;
 import adams.flow.core.EvaluationStatistic;
 import adams.flow.core.Token;
+import adams.flow.transformer.wekabootstrapping.BootstrapPredictions;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 import weka.classifiers.Evaluation;
-import weka.classifiers.evaluation.NominalPrediction;
-import weka.classifiers.evaluation.Prediction;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
-import weka.core.Instance;
 import weka.core.Instances;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 /**
@@ -147,6 +148,16 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;default: true
  * </pre>
  * 
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for parallel execution; &gt; 0: specific number
+ * &nbsp;&nbsp;&nbsp;of cores to use (capped by actual number of cores available, 1 = sequential
+ * &nbsp;&nbsp;&nbsp;execution); = 0: number of cores; &lt; 0: number of free cores (eg -2 means
+ * &nbsp;&nbsp;&nbsp;2 free cores; minimum of one core is used); the sub-samples themselves are
+ * &nbsp;&nbsp;&nbsp;always drawn in the same order, i.e., the output does not depend on the number
+ * &nbsp;&nbsp;&nbsp;of threads.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -166,6 +177,49 @@ public class WekaBootstrapping
     ABSOLUTE,
   }
 
+  /**
+   * Container for the results of a single sub-sample.
+   */
+  protected static class SubSampleResult
+    implements Serializable {
+
+    private static final long serialVersionUID = -3604180402431960449L;
+
+    /** the iteration (0-based). */
+    protected int m_Iteration;
+
+    /** the statistics. */
+    protected double[] m_Statistics;
+
+    /** whether the calculation of a statistic failed. */
+    protected boolean[] m_Failed;
+
+    /** the percentiles of the errors. */
+    protected Double[] m_PercentileValues;
+
+    /** the percentiles of the reversed errors. */
+    protected Double[] m_PercentileValuesRev;
+
+    /** the exception if the evaluation failed. */
+    protected Exception m_Error;
+
+    /**
+     * Initializes the container.
+     *
+     * @param iteration		the iteration (0-based)
+     * @param numStatistics	the number of statistics
+     * @param numPercentiles	the number of percentiles
+     */
+    public SubSampleResult(int iteration, int numStatistics, int numPercentiles) {
+      m_Iteration           = iteration;
+      m_Statistics          = new double[numStatistics];
+      m_Failed              = new boolean[numStatistics];
+      m_PercentileValues    = new Double[numPercentiles];
+      m_PercentileValuesRev = new Double[numPercentiles];
+      m_Error               = null;
+    }
+  }
+
   /** the random number seed. */
   protected long m_Seed;
 
@@ -190,6 +244,9 @@ public class WekaBootstrapping
   /** whether to use with replacement or not. */
   protected boolean m_WithReplacement;
 
+  /** the number of threads to use for evaluating the sub-samples. */
+  protected int m_NumThreads;
+
   /**
    * Returns a string describing the object.
    *
@@ -241,6 +298,10 @@ public class WekaBootstrapping
     m_OptionManager.add(
       "with-replacement", "withReplacement",
       true);
+
+    m_OptionManager.add(
+      "num-threads", "numThreads",
+      1);
   }
 
   /**
@@ -482,6 +543,35 @@ public class WekaBootstrapping
     return "If enabled, predictions are drawn using with replacement (i.e., duplicates are possible).";
   }
 
+  /**
+   * Sets the number of threads to use for evaluating the sub-samples.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+    reset();
+  }
+
+  /**
+   * Returns the number of threads to use for evaluating the sub-samples.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return Performance.getNumThreadsHelp() + "; the sub-samples themselves are always drawn in the same order, i.e., the output does not depend on the number of threads.";
+  }
+
   /**
    * Returns a quick info about the actor, which will be displayed in the GUI.
    *
@@ -522,6 +612,134 @@ public class WekaBootstrapping
     return new Class[]{SpreadSheet.class};
   }
 
+
+  /**
+   * Evaluates a single sub-sample.
+   *
+   * @param predictions	the predictions to draw from
+   * @param iteration	the iteration (0-based)
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param direct	whether all statistics can be calculated directly
+   * @param classIndex	the 0-based index of the class label, -1 for numeric class
+   * @param relName	the relation name to use for "fake" evaluations
+   * @return		the result
+   */
+  protected SubSampleResult evaluateSubSample(BootstrapPredictions predictions, int iteration, int[] subset, boolean direct, int classIndex, String relName) {
+    SubSampleResult	result;
+    Evaluation		eval;
+    double[]		errors;
+    double[]		errorsRev;
+    Percentile<Double>	perc;
+    Percentile<Double>	percRev;
+    int			i;
+
+    result = new SubSampleResult(iteration, m_StatisticValues.length, m_Percentiles.length);
+
+    // statistics
+    if (direct) {
+      result.m_Statistics = predictions.calculate(subset, m_StatisticValues, classIndex);
+    }
+    else {
+      // perform "fake" evaluation
+      try {
+	eval = predictions.toEvaluation(subset, relName + "-" + (iteration + 1));
+      }
+      catch (Exception e) {
+	result.m_Error = e;
+	return result;
+      }
+      for (i = 0; i < m_StatisticValues.length; i++) {
+	try {
+	  result.m_Statistics[i] = EvaluationHelper.getValue(eval, m_StatisticValues[i], classIndex);
+	}
+	catch (Exception e) {
+	  getLogger().log(Level.SEVERE, "Failed to calculate statistic in iteration #" + (iteration+1) + ": " + m_StatisticValues[i], e);
+	  result.m_Failed[i] = true;
+	}
+      }
+    }
+
+    // percentiles
+    if (m_Percentiles.length > 0) {
+      errors    = null;
+      errorsRev = null;
+      switch (m_ErrorCalculation) {
+	case ACTUAL_MINUS_PREDICTED:
+	  errors = predictions.errors(subset, false, false);
+	  break;
+	case PREDICTED_MINUS_ACTUAL:
+	  errorsRev = predictions.errors(subset, true, false);
+	  break;
+	case ABSOLUTE:
+	  errors = predictions.errors(subset, false, true);
+	  break;
+	case BOTH:
+	  errors    = predictions.errors(subset, false, false);
+	  errorsRev = predictions.errors(subset, true, false);
+	  break;
+	default:
+	  throw new IllegalStateException("Unhandled error calculation: " + m_ErrorCalculation);
+      }
+      perc    = new Percentile<>();
+      percRev = new Percentile<>();
+      if (errors != null) {
+	for (double error : errors)
+	  perc.add(error);
+      }
+      if (errorsRev != null) {
+	for (double error : errorsRev)
+	  percRev.add(error);
+      }
+      for (i = 0; i < m_Percentiles.length; i++) {
+	if (errors != null)
+	  result.m_PercentileValues[i] = perc.getPercentile(m_Percentiles[i].doubleValue());
+	if (errorsRev != null)
+	  result.m_PercentileValuesRev[i] = percRev.getPercentile(m_Percentiles[i].doubleValue());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the result of a sub-sample to the spreadsheet.
+   *
+   * @param sheet	the spreadsheet to add to
+   * @param res		the result to add
+   */
+  protected void addRow(SpreadSheet sheet, SubSampleResult res) {
+    Row		row;
+    int		i;
+
+    row = sheet.addRow();
+    row.addCell("S").setContent(res.m_Iteration + 1);
+    for (i = 0; i < m_StatisticValues.length; i++) {
+      if (res.m_Failed[i])
+	row.addCell(m_StatisticValues[i].toString()).setMissing();
+      else
+	row.addCell(m_StatisticValues[i].toString()).setContent(res.m_Statistics[i]);
+    }
+    for (i = 0; i < m_Percentiles.length; i++) {
+      switch (m_ErrorCalculation) {
+	case ACTUAL_MINUS_PREDICTED:
+	  row.addCell("perc-AmP-" + i).setContent(res.m_PercentileValues[i]);
+	  break;
+	case PREDICTED_MINUS_ACTUAL:
+	  row.addCell("perc-PmA-" + i).setContent(res.m_PercentileValuesRev[i]);
+	  break;
+	case ABSOLUTE:
+	  row.addCell("perc-Abs-" + i).setContent(res.m_PercentileValues[i]);
+	  break;
+	case BOTH:
+	  row.addCell("perc-AmP-" + i).setContent(res.m_PercentileValues[i]);
+	  row.addCell("perc-PmA-" + i).setContent(res.m_PercentileValuesRev[i]);
+	  break;
+	default:
+	  throw new IllegalStateException("Unhandled error calculation: " + m_ErrorCalculation);
+      }
+    }
+  }
+
   /**
    * Executes the flow item.
    *
@@ -529,29 +747,26 @@ public class WekaBootstrapping
    */
   @Override
   protected String doExecute() {
-    String			result;
-    SpreadSheet			sheet;
-    Row				row;
-    Evaluation			evalAll;
-    Evaluation			eval;
-    WekaEvaluationContainer	cont;
-    TIntList			indices;
-    Random			random;
-    int				i;
-    int				iteration;
-    int				size;
-    List<Prediction> 		preds;
-    Instances			header;
-    Instances			data;
-    ArrayList<Attribute>	atts;
-    Instance 			inst;
-    boolean			numeric;
-    int				classIndex;
-    Double[]  			errors;
-    Double[]  			errorsRev;
-    Percentile<Double>		perc;
-    Percentile<Double>		percRev;
-    TIntList			subset;
+    String				result;
+    SpreadSheet				sheet;
+    Row					row;
+    Evaluation				evalAll;
+    WekaEvaluationContainer		cont;
+    TIntList				indices;
+    Random				random;
+    int					i;
+    int					iteration;
+    int					size;
+    Instances				header;
+    boolean				numeric;
+    int					classIndex;
+    BootstrapPredictions		predictions;
+    boolean				direct;
+    int[]				subset;
+    int					numThreads;
+    ExecutorService			executor;
+    Deque<Future<SubSampleResult>>	pending;
+    SubSampleResult			res;
 
     result = null;
 
@@ -594,120 +809,96 @@ public class WekaBootstrapping
       }
 
       // set up bootstrapping
-      preds   = evalAll.predictions();
-      random  = new Random(m_Seed);
-      indices = new TIntArrayList();
-      size    = (int) Math.round(preds.size() * m_Percentage);
-      header  = evalAll.getHeader();
-      numeric = header.classAttribute().isNumeric();
+      header      = evalAll.getHeader();
+      predictions = new BootstrapPredictions(header, evalAll.predictions());
+      random      = new Random(m_Seed);
+      indices     = new TIntArrayList();
+      size        = (int) Math.round(predictions.size() * m_Percentage);
+      numeric     = header.classAttribute().isNumeric();
       m_ClassIndex.setData(header.classAttribute());
       if (numeric)
 	classIndex = -1;
       else
         classIndex = m_ClassIndex.getIntIndex();
-      for (i = 0; i < preds.size(); i++)
+      for (i = 0; i < predictions.size(); i++)
         indices.add(i);
-
-      // create fake evalutions
-      subset = new TIntArrayList();
-      for (iteration = 0; iteration < m_NumSubSamples; iteration++) {
-	if (isStopped()) {
-	  sheet = null;
-	  break;
-	}
-
-	// determine
-	subset.clear();
-	if (m_WithReplacement) {
-	  for (i = 0; i < size; i++)
-	    subset.add(indices.get(random.nextInt(preds.size())));
-	}
-	else {
-	  indices.shuffle(random);
-	  for (i = 0; i < size; i++)
-	    subset.add(indices.get(i));
-	}
-
-	// create dataset from predictions
-	errors    = new Double[size];
-	errorsRev = new Double[size];
-	atts      = new ArrayList<>();
-	atts.add(header.classAttribute().copy("Actual"));
-	data = new Instances(header.relationName() + "-" + (iteration+1), atts, size);
-	data.setClassIndex(0);
-	for (i = 0; i < subset.size(); i++) {
-	  inst = new DenseInstance(preds.get(subset.get(i)).weight(), new double[]{preds.get(subset.get(i)).actual()});
-	  data.add(inst);
-	  switch (m_ErrorCalculation) {
-	    case ACTUAL_MINUS_PREDICTED:
-	      errors[i] = preds.get(subset.get(i)).actual() - preds.get(subset.get(i)).predicted();
-	      break;
-	    case PREDICTED_MINUS_ACTUAL:
-	      errorsRev[i] = preds.get(subset.get(i)).predicted() - preds.get(subset.get(i)).actual();
-	      break;
-	    case ABSOLUTE:
-	      errors[i] = Math.abs(preds.get(subset.get(i)).actual() - preds.get(subset.get(i)).predicted());
-	      break;
-	    case BOTH:
-	      errors[i] = preds.get(subset.get(i)).actual() - preds.get(subset.get(i)).predicted();
-	      errorsRev[i] = preds.get(subset.get(i)).predicted() - preds.get(subset.get(i)).actual();
-	      break;
-	    default:
-	      throw new IllegalStateException("Unhandled error calculation: " + m_ErrorCalculation);
+      direct = predictions.isSupported(m_StatisticValues);
+      if (isLoggingEnabled())
+	getLogger().info("Calculating statistics " + (direct ? "directly" : "via Evaluation objects"));
+
+      // the sub-samples get drawn sequentially (i.e., deterministic, regardless
+      // of the number of threads), only the evaluation happens in parallel
+      numThreads = Performance.determineNumThreads(m_NumThreads);
+      executor   = null;
+      if (numThreads > 1)
+	executor = Executors.newFixedThreadPool(numThreads);
+      pending = new ArrayDeque<>();
+      try {
+	for (iteration = 0; iteration < m_NumSubSamples; iteration++) {
+	  if (isStopped()) {
+	    sheet = null;
+	    break;
 	  }
-	}
 
-	// perform "fake" evaluation
-	try {
-	  eval = new Evaluation(data);
-	  for (i = 0; i < subset.size(); i++) {
-	    if (numeric)
-	      eval.evaluateModelOnceAndRecordPrediction(new double[]{preds.get(subset.get(i)).predicted()}, data.instance(i));
-	    else
-	      eval.evaluateModelOnceAndRecordPrediction(((NominalPrediction) preds.get(subset.get(i))).distribution().clone(), data.instance(i));
+	  // determine
+	  subset = new int[size];
+	  if (m_WithReplacement) {
+	    for (i = 0; i < size; i++)
+	      subset[i] = indices.get(random.nextInt(predictions.size()));
+	  }
+	  else {
+	    indices.shuffle(random);
+	    for (i = 0; i < size; i++)
+	      subset[i] = indices.get(i);
 	  }
-	}
-	catch (Exception e) {
-	  result = handleException("Failed to create 'fake' Evaluation object (iteration: " + (iteration+1) + ")!", e);
-	  break;
-	}
 
-	// add row
-	row = sheet.addRow();
-	row.addCell("S").setContent(iteration+1);
-	for (EvaluationStatistic s: m_StatisticValues) {
-	  try {
-	    row.addCell(s.toString()).setContent(EvaluationHelper.getValue(eval, s, classIndex));
+	  if (executor == null) {
+	    res = evaluateSubSample(predictions, iteration, subset, direct, classIndex, header.relationName());
+	    if (res.m_Error != null) {
+	      result = handleException("Failed to create 'fake' Evaluation object (iteration: " + (iteration+1) + ")!", res.m_Error);
+	      break;
+	    }
+	    addRow(sheet, res);
 	  }
-	  catch (Exception e) {
-	    getLogger().log(Level.SEVERE, "Failed to calculate statistic in iteration #" + (iteration+1) + ": " + s, e);
-	    row.addCell(s.toString()).setMissing();
+	  else {
+	    final int     fIteration  = iteration;
+	    final int[]   fSubset     = subset;
+	    final boolean fDirect     = direct;
+	    final int     fClassIndex = classIndex;
+	    pending.add(executor.submit(() -> evaluateSubSample(predictions, fIteration, fSubset, fDirect, fClassIndex, header.relationName())));
+	    // limit the number of sub-samples held in memory
+	    while ((result == null) && (pending.size() >= 2 * numThreads)) {
+	      res = pending.poll().get();
+	      if (res.m_Error != null)
+		result = handleException("Failed to create 'fake' Evaluation object (iteration: " + (res.m_Iteration+1) + ")!", res.m_Error);
+	      else
+		addRow(sheet, res);
+	    }
+	    if (result != null)
+	      break;
 	  }
 	}
-	for (i = 0; i < m_Percentiles.length; i++) {
-	  perc = new Percentile<>();
-	  perc.addAll(errors);
-	  percRev = new Percentile<>();
-	  percRev.addAll(errorsRev);
-	  switch (m_ErrorCalculation) {
-	    case ACTUAL_MINUS_PREDICTED:
-	      row.addCell("perc-AmP-" + i).setContent(perc.getPercentile(m_Percentiles[i].doubleValue()));
-	      break;
-	    case PREDICTED_MINUS_ACTUAL:
-	      row.addCell("perc-PmA-" + i).setContent(percRev.getPercentile(m_Percentiles[i].doubleValue()));
-	      break;
-	    case ABSOLUTE:
-	      row.addCell("perc-Abs-" + i).setContent(perc.getPercentile(m_Percentiles[i].doubleValue()));
-	      break;
-	    case BOTH:
-	      row.addCell("perc-AmP-" + i).setContent(perc.getPercentile(m_Percentiles[i].doubleValue()));
-	      row.addCell("perc-PmA-" + i).setContent(percRev.getPercentile(m_Percentiles[i].doubleValue()));
-	      break;
-	    default:
-	      throw new IllegalStateException("Unhandled error calculation: " + m_ErrorCalculation);
+
+	// remaining sub-samples
+	while ((result == null) && (sheet != null) && !pending.isEmpty()) {
+	  if (isStopped()) {
+	    sheet = null;
+	    break;
 	  }
+	  res = pending.poll().get();
+	  if (res.m_Error != null)
+	    result = handleException("Failed to create 'fake' Evaluation object (iteration: " + (res.m_Iteration+1) + ")!", res.m_Error);
+	  else
+	    addRow(sheet, res);
 	}
       }
+      catch (Exception e) {
+	result = handleException("Failed to evaluate sub-samples!", e);
+      }
+      finally {
+	if (executor != null)
+	  executor.shutdownNow();
+      }
 
       if ((result == null) && (sheet != null))
 	m_OutputToken = new Token(sheet);
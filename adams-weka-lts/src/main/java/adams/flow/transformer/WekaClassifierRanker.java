@@ -49,6 +49,9 @@ import adams.multiprocess.AbstractJob;
 import adams.multiprocess.JobList;
 import adams.multiprocess.JobRunner;
 import adams.multiprocess.LocalJobRunner;
+import adams.multiprocess.WekaRacingCrossValidationExecution;
+import adams.multiprocess.WekaRacingCrossValidationExecution.IncumbentProvider;
+import weka.classifiers.DefaultCrossValidationFoldGenerator;
 import weka.classifiers.Evaluation;
 import weka.classifiers.meta.GridSearch;
 import weka.classifiers.meta.MultiSearch;
@@ -155,6 +158,29 @@ import java.util.logging.Level;
  * &nbsp;&nbsp;&nbsp;minimum: -1
  * </pre>
  *
+ * <pre>-racing &lt;boolean&gt; (property: racing)
+ * &nbsp;&nbsp;&nbsp;If enabled (and cross-validation is used), the folds are evaluated one at 
+ * &nbsp;&nbsp;&nbsp;a time and the evaluation of a classifier stops early once the upper confidence 
+ * &nbsp;&nbsp;&nbsp;bound of its mean fold score shows that it cannot make it into the top 
+ * &nbsp;&nbsp;&nbsp;'max' classifiers anymore.
+ * &nbsp;&nbsp;&nbsp;default: false
+ * </pre>
+ *
+ * <pre>-racing-confidence &lt;double&gt; (property: racingConfidence)
+ * &nbsp;&nbsp;&nbsp;The confidence level for the upper bound (Student's t) of the mean fold 
+ * &nbsp;&nbsp;&nbsp;score used in racing.
+ * &nbsp;&nbsp;&nbsp;default: 0.95
+ * &nbsp;&nbsp;&nbsp;minimum: 0.5
+ * &nbsp;&nbsp;&nbsp;maximum: 1.0
+ * </pre>
+ *
+ * <pre>-racing-min-folds &lt;int&gt; (property: racingMinFolds)
+ * &nbsp;&nbsp;&nbsp;The minimum number of folds to evaluate before a classifier can get raced 
+ * &nbsp;&nbsp;&nbsp;out.
+ * &nbsp;&nbsp;&nbsp;default: 2
+ * &nbsp;&nbsp;&nbsp;minimum: 2
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -213,6 +239,24 @@ public class WekaClassifierRanker
     /** the best classifier. */
     protected weka.classifiers.Classifier m_BestClassifier;
 
+    /** the incumbent for racing, null if not racing. */
+    protected IncumbentProvider m_Incumbent;
+
+    /** the confidence level for racing. */
+    protected double m_RacingConfidence;
+
+    /** the minimum number of folds before racing. */
+    protected int m_RacingMinFolds;
+
+    /** whether the classifier was raced out. */
+    protected boolean m_RacedOut;
+
+    /** the number of folds that were evaluated. */
+    protected int m_EvaluatedFolds;
+
+    /** the number of folds that were skipped due to racing. */
+    protected int m_SkippedFolds;
+
     /**
      * Initializes the job.
      *
@@ -243,6 +287,48 @@ public class WekaClassifierRanker
       m_OutputBestSetup = best;
     }
 
+    /**
+     * Enables racing: the cross-validation stops early once the classifier
+     * cannot beat the incumbent anymore.
+     *
+     * @param incumbent	the incumbent to beat
+     * @param confidence	the confidence level for the upper bound
+     * @param minFolds	the minimum number of folds to evaluate
+     */
+    public void setRacing(IncumbentProvider incumbent, double confidence, int minFolds) {
+      m_Incumbent        = incumbent;
+      m_RacingConfidence = confidence;
+      m_RacingMinFolds   = minFolds;
+    }
+
+    /**
+     * Returns whether the classifier was raced out, i.e., the evaluation
+     * only covers some of the folds.
+     *
+     * @return		true if raced out
+     */
+    public boolean isRacedOut() {
+      return m_RacedOut;
+    }
+
+    /**
+     * Returns the number of folds that were evaluated (racing only).
+     *
+     * @return		the number of folds
+     */
+    public int getEvaluatedFolds() {
+      return m_EvaluatedFolds;
+    }
+
+    /**
+     * Returns the number of folds that were skipped due to racing.
+     *
+     * @return		the number of folds
+     */
+    public int getSkippedFolds() {
+      return m_SkippedFolds;
+    }
+
     /**
      * Returns the classifier being used.
      *
@@ -385,6 +471,64 @@ public class WekaClassifierRanker
       return result;
     }
 
+    /**
+     * Computes the performance for the evaluation, oriented such that
+     * larger is better.
+     *
+     * @param eval	the evaluation to use
+     * @return		the score
+     */
+    protected double score(Evaluation eval) {
+      double	result;
+
+      result = new Performance(
+	new Point(new Integer[]{m_Index}),
+	new DefaultEvaluationWrapper(eval, new DefaultEvaluationMetrics()),
+	m_Measure.getMeasure(),
+	m_ClassLabel.getIntIndex(),
+	m_Classifier).getPerformance();
+
+      return m_Measure.isLargerBetter() ? result : -result;
+    }
+
+    /**
+     * Cross-validates the classifier, racing it against the incumbent.
+     *
+     * @return		the evaluation (partial if raced out)
+     * @throws Exception	if evaluation fails
+     */
+    protected Evaluation race() throws Exception {
+      WekaRacingCrossValidationExecution	evalExec;
+      DefaultCrossValidationFoldGenerator	generator;
+      String					msg;
+
+      // same folds as Evaluation.crossValidateModel
+      generator = new DefaultCrossValidationFoldGenerator();
+      generator.setUseViews(true);
+
+      m_ClassLabel.setData(m_Train.classAttribute());
+      evalExec = new WekaRacingCrossValidationExecution();
+      evalExec.setData(m_Train);
+      evalExec.setClassifier(m_Classifier);
+      evalExec.setGenerator(generator);
+      evalExec.setFolds(m_Folds);
+      evalExec.setSeed(m_Seed);
+      evalExec.setDiscardPredictions(true);
+      evalExec.setConfidence(m_RacingConfidence);
+      evalExec.setMinFolds(m_RacingMinFolds);
+      evalExec.setScorer((Evaluation e) -> score(e));
+      evalExec.setIncumbent(m_Incumbent);
+      msg = evalExec.execute();
+      if (msg != null)
+	throw new IllegalStateException(msg);
+
+      m_RacedOut       = evalExec.isRacedOut();
+      m_EvaluatedFolds = evalExec.getNumEvaluatedFolds();
+      m_SkippedFolds   = evalExec.getNumSkippedFolds();
+
+      return evalExec.getEvaluation();
+    }
+
     /**
      * Does the actual execution of the job.
      *
@@ -397,7 +541,10 @@ public class WekaClassifierRanker
 
       eval = new Evaluation(m_Train);
       eval.setDiscardPredictions(true);
-      if (m_Folds >= 2) {
+      if ((m_Folds >= 2) && (m_Incumbent != null)) {
+	eval = race();
+      }
+      else if (m_Folds >= 2) {
 	eval.crossValidateModel(m_Classifier, m_Train, m_Folds, new Random(m_Seed));
       }
       else {
@@ -414,6 +561,8 @@ public class WekaClassifierRanker
 	m_Measure.getMeasure(),
 	m_ClassLabel.getIntIndex(),
 	m_Classifier);
+      if ((m_Incumbent instanceof RacingLeaderboard) && !m_RacedOut)
+	((RacingLeaderboard) m_Incumbent).add(score(eval));
       eval = null;
     }
 
@@ -442,6 +591,7 @@ public class WekaClassifierRanker
       m_Performance = null;
       m_Train       = null;
       m_Test        = null;
+      m_Incumbent   = null;
     }
 
     /**
@@ -473,6 +623,61 @@ public class WekaClassifierRanker
     }
   }
 
+  /**
+   * Keeps track of the scores of the fully evaluated classifiers, providing
+   * the score that a classifier has to beat to make it into the top ones.
+   */
+  public static class RacingLeaderboard
+    implements IncumbentProvider {
+
+    private static final long serialVersionUID = -1850133587716839452L;
+
+    /** the number of top classifiers. */
+    protected int m_Max;
+
+    /** the best scores so far (ascending). */
+    protected List<Double> m_Scores;
+
+    /**
+     * Initializes the leaderboard.
+     *
+     * @param max	the number of top classifiers
+     */
+    public RacingLeaderboard(int max) {
+      m_Max    = max;
+      m_Scores = new ArrayList<>();
+    }
+
+    /**
+     * Adds the score of a fully evaluated classifier.
+     *
+     * @param score	the score (larger is better)
+     */
+    public synchronized void add(double score) {
+      int	pos;
+
+      if (Double.isNaN(score))
+	return;
+      pos = Collections.binarySearch(m_Scores, score);
+      if (pos < 0)
+	pos = -pos - 1;
+      m_Scores.add(pos, score);
+      if (m_Scores.size() > m_Max)
+	m_Scores.remove(0);
+    }
+
+    /**
+     * Returns the score to beat, i.e., the worst of the top scores.
+     *
+     * @return		the score, NaN if not enough classifiers evaluated yet
+     */
+    public synchronized double getIncumbent() {
+      if (m_Scores.size() < m_Max)
+	return Double.NaN;
+      return m_Scores.get(0);
+    }
+  }
+
   /**
    * The performance measure to use.
    *
@@ -528,6 +733,15 @@ public class WekaClassifierRanker
       return m_Measure;
     }
 
+    /**
+     * Returns whether larger values of the measure are better.
+     *
+     * @return		true if larger is better
+     */
+    public boolean isLargerBetter() {
+      return (this == CC) || (this == ACC) || (this == KAPPA);
+    }
+
     /**
      * Returns the display string.
      *
@@ -635,6 +849,15 @@ public class WekaClassifierRanker
   /** whether to output the best setup in case of GridSearch/MultiSearch. */
   protected boolean m_OutputBestSetup;
 
+  /** whether to use racing. */
+  protected boolean m_Racing;
+
+  /** the confidence level for racing. */
+  protected double m_RacingConfidence;
+
+  /** the minimum number of folds before racing. */
+  protected int m_RacingMinFolds;
+
   /** the number of threads to use for parallel execution. */
   protected int m_NumThreads;
 
@@ -703,6 +926,18 @@ public class WekaClassifierRanker
     m_OptionManager.add(
       "num-threads", "numThreads",
       0);
+
+    m_OptionManager.add(
+      "racing", "racing",
+      false);
+
+    m_OptionManager.add(
+      "racing-confidence", "racingConfidence",
+      0.95, 0.5, 1.0);
+
+    m_OptionManager.add(
+      "racing-min-folds", "racingMinFolds",
+      2, 2, null);
   }
 
   /**
@@ -1029,6 +1264,103 @@ public class WekaClassifierRanker
     return "The number of threads to use for evaluating the classifiers in parallel (-1 means one for each core/cpu).";
   }
 
+  /**
+   * Sets whether to stop the cross-validation of classifiers early that
+   * cannot make it into the top ones anymore.
+   *
+   * @param value	true if to race
+   */
+  public void setRacing(boolean value) {
+    m_Racing = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to stop the cross-validation of classifiers early that
+   * cannot make it into the top ones anymore.
+   *
+   * @return		true if to race
+   */
+  public boolean getRacing() {
+    return m_Racing;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingTipText() {
+    return
+      "If enabled (and cross-validation is used), the folds are evaluated one at "
+	+ "a time and the evaluation of a classifier stops early once the upper confidence "
+	+ "bound of its mean fold score shows that it cannot make it into the top "
+	+ "'max' classifiers anymore.";
+  }
+
+  /**
+   * Sets the confidence level for the upper bound used in racing.
+   *
+   * @param value	the confidence (0.5-1)
+   */
+  public void setRacingConfidence(double value) {
+    if (getOptionManager().isValid("racingConfidence", value)) {
+      m_RacingConfidence = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the confidence level for the upper bound used in racing.
+   *
+   * @return		the confidence (0.5-1)
+   */
+  public double getRacingConfidence() {
+    return m_RacingConfidence;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingConfidenceTipText() {
+    return "The confidence level for the upper bound (Student's t) of the mean fold score used in racing.";
+  }
+
+  /**
+   * Sets the minimum number of folds to evaluate before racing.
+   *
+   * @param value	the minimum (at least 2)
+   */
+  public void setRacingMinFolds(int value) {
+    if (getOptionManager().isValid("racingMinFolds", value)) {
+      m_RacingMinFolds = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the minimum number of folds to evaluate before racing.
+   *
+   * @return		the minimum (at least 2)
+   */
+  public int getRacingMinFolds() {
+    return m_RacingMinFolds;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingMinFoldsTipText() {
+    return "The minimum number of folds to evaluate before a classifier can get raced out.";
+  }
+
   /**
    * Initializes the item for flow execution.
    *
@@ -1114,6 +1446,9 @@ public class WekaClassifierRanker
     List<Performance>			ranking;
     List<weka.classifiers.Classifier>	ranked;
     String				msg;
+    RacingLeaderboard			leaderboard;
+    int					evaluatedFolds;
+    int					skippedFolds;
 
     result = null;
 
@@ -1144,9 +1479,14 @@ public class WekaClassifierRanker
       }
 
       // evaluate classifiers
+      leaderboard = null;
+      if (m_Racing && (m_Folds >= 2) && (m_Max > 0) && (m_Max < cls.length))
+	leaderboard = new RacingLeaderboard(m_Max);
       jobs = new JobList<>();
       for (i = 0; i < cls.length; i++) {
 	job = new RankingJob(cls[i], i, train, test, m_Seed, m_Folds, m_Measure, m_ClassLabel, m_OutputBestSetup);
+	if (leaderboard != null)
+	  job.setRacing(leaderboard, m_RacingConfidence, m_RacingMinFolds);
 	jobs.add(job);
       }
       if (m_JobRunnerSetup == null)
@@ -1171,10 +1511,19 @@ public class WekaClassifierRanker
 	// rank classifiers
 	if (LoggingHelper.isAtLeast(getLogger(), Level.FINE))
 	  getLogger().fine("\nEvaluations:");
-	ranking = new ArrayList<Performance>();
+	ranking        = new ArrayList<Performance>();
+	evaluatedFolds = 0;
+	skippedFolds   = 0;
 	for (i = 0; i < m_JobRunner.getJobs().size(); i++) {
 	  job = (RankingJob) m_JobRunner.getJobs().get(i);
-	  if (job.getPerformance() != null) {
+	  evaluatedFolds += job.getEvaluatedFolds();
+	  skippedFolds   += job.getSkippedFolds();
+	  // raced out classifiers cannot make it into the top ones
+	  if ((job.getPerformance() != null) && job.isRacedOut()) {
+	    if (LoggingHelper.isAtLeast(getLogger(), Level.FINE))
+	      getLogger().fine((i+1) + ". raced out after " + job.getEvaluatedFolds() + " folds: " + OptionUtils.getCommandLine(cls[i]));
+	  }
+	  else if (job.getPerformance() != null) {
 	    ranking.add(job.getPerformance());
 	    if (LoggingHelper.isAtLeast(getLogger(), Level.FINE))
 	      getLogger().fine((i+1) + ". " +  m_Measure.toRaw() + "=" + job.getPerformance().getPerformance() + ": " + OptionUtils.getCommandLine(cls[i]));
@@ -1193,6 +1542,8 @@ public class WekaClassifierRanker
 	    }
 	  }
 	}
+	if ((leaderboard != null) && isLoggingEnabled())
+	  getLogger().info("Racing - folds evaluated: " + evaluatedFolds + ", folds skipped: " + skippedFolds);
 	Collections.sort(ranking, new PerformanceComparator(m_Measure.getMeasure(), new DefaultEvaluationMetrics()));
 
 	// generate output
@@ -21,25 +21,29 @@
 package adams.flow.transformer;
 
 import adams.core.ClassCrossReference;
+import adams.core.Performance;
 import adams.core.QuickInfoHelper;
 import adams.core.io.PlaceholderFile;
 import adams.flow.core.Token;
+import adams.flow.transformer.wekadatasetsmerge.JoinIndex;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import weka.core.converters.ConverterUtils.DataSource;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.Remove;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  <!-- globalinfo-start -->
@@ -153,6 +157,15 @@ import java.util.List;
  * &nbsp;&nbsp;&nbsp;default: false
  * </pre>
  * 
+ * <pre>-num-threads &lt;int&gt; (property: numThreads)
+ * &nbsp;&nbsp;&nbsp;The number of threads to use for parallel execution; &gt; 0: specific number
+ * &nbsp;&nbsp;&nbsp;of cores to use (capped by actual number of cores available, 1 = sequential
+ * &nbsp;&nbsp;&nbsp;execution); = 0: number of cores; &lt; 0: number of free cores (eg -2 means
+ * &nbsp;&nbsp;&nbsp;2 free cores; minimum of one core is used); used for filling in the datasets
+ * &nbsp;&nbsp;&nbsp;in parallel when merging on a unique ID.
+ * &nbsp;&nbsp;&nbsp;default: 1
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -197,6 +210,9 @@ implements WekaMergeInstancesActor, ClassCrossReference {
   /** the attribute type of the ID attribute. */
   protected int m_AttType;
 
+  /** the number of threads to use for filling in the datasets. */
+  protected int m_NumThreads;
+
   /** the unique ID attributes. */
   protected List<String> m_UniqueIDAtts;
 
@@ -269,6 +285,10 @@ implements WekaMergeInstancesActor, ClassCrossReference {
     m_OptionManager.add(
 	"strict", "strict",
 	false);
+
+    m_OptionManager.add(
+	"num-threads", "numThreads",
+	1);
   }
 
   /**
@@ -576,6 +596,37 @@ implements WekaMergeInstancesActor, ClassCrossReference {
     return "If enabled, ensures that IDs in unique ID column are truly unique.";
   }
 
+  /**
+   * Sets the number of threads to use for filling in the datasets when
+   * merging on a unique ID.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+    reset();
+  }
+
+  /**
+   * Returns the number of threads to use for filling in the datasets when
+   * merging on a unique ID.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return Performance.getNumThreadsHelp() + "; used for filling in the datasets in parallel when merging on a unique ID.";
+  }
+
   /**
    * Returns a quick info about the actor, which will be displayed in the GUI.
    *
@@ -753,19 +804,14 @@ implements WekaMergeInstancesActor, ClassCrossReference {
   }
 
   /**
-   * Updates the IDs in the hashset with the ones stored in the ID attribute
-   * of the provided dataset.
+   * Checks the ID attribute of the provided dataset and determines the
+   * attribute type of the IDs.
    *
    * @param instIndex 	the dataset index
-   * @param inst	the dataset to obtain the IDs from
-   * @param ids		the hashset to store the IDs in
+   * @param inst	the dataset to check
    */
-  protected void updateIDs(int instIndex, Instances inst, HashSet ids) {
+  protected void checkIDAttribute(int instIndex, Instances inst) {
     Attribute	att;
-    int		i;
-    boolean 	numeric;
-    HashSet 	current;
-    Object	id;
 
     att = inst.attribute(m_UniqueID);
     if (att == null)
@@ -785,20 +831,120 @@ implements WekaMergeInstancesActor, ClassCrossReference {
 	throw new IllegalStateException(
 	    "Attribute '" + m_UniqueID + "' must have same attribute type in all the datasets (#" + (instIndex+1) + ")!");
     }
+  }
 
-    // get IDs
-    numeric = m_AttType == Attribute.NUMERIC;
-    current = new HashSet();
+  /**
+   * Updates the index with the IDs stored in the ID attribute of the
+   * provided dataset.
+   *
+   * @param instIndex 	the dataset index
+   * @param inst	the dataset to obtain the IDs from
+   * @param index	the index to store the IDs in
+   */
+  protected void updateIDs(int instIndex, Instances inst, JoinIndex index) {
+    int		attIndex;
+    int		i;
+    int		slot;
+    double	numID;
+    String	strID;
+
+    attIndex = inst.attribute(m_UniqueID).index();
     for (i = 0; i < inst.numInstances(); i++) {
-      if (numeric)
-	id = inst.instance(i).value(att);
+      if (index.isNumeric()) {
+	numID = inst.instance(i).value(attIndex);
+	slot  = index.indexOf(numID);
+	if (m_Strict && (slot != JoinIndex.MISSING) && (index.getRow(slot, instIndex) != JoinIndex.MISSING))
+	  throw new IllegalStateException("ID '" + numID + "' is not unique in dataset #" + (instIndex+1) + "!");
+	index.add(instIndex, numID, i);
+      }
+      else {
+	strID = inst.instance(i).stringValue(attIndex);
+	slot  = index.indexOf(strID);
+	if (m_Strict && (slot != JoinIndex.MISSING) && (index.getRow(slot, instIndex) != JoinIndex.MISSING))
+	  throw new IllegalStateException("ID '" + strID + "' is not unique in dataset #" + (instIndex+1) + "!");
+	index.add(instIndex, strID, i);
+      }
+    }
+  }
+
+  /**
+   * Fills the values of a single dataset into the preallocated rows.
+   * Only touches the columns of this dataset, i.e., datasets can be
+   * filled in parallel.
+   *
+   * @param instIndex	the index of the dataset
+   * @param orig	the original dataset
+   * @param inst	the processed dataset
+   * @param index	the index with the IDs
+   * @param positions	the row in the merged dataset for each slot
+   * @param indexStart	the first column of this dataset in the merged dataset
+   * @param result	the merged dataset (header)
+   * @param rows	the rows of the merged dataset to fill
+   * @return		the row in the merged dataset for each row of this dataset, null if stopped
+   */
+  protected int[] fill(int instIndex, Instances orig, Instances inst, JoinIndex index, int[] positions, int indexStart, Instances result, double[][] rows) {
+    int[]	rowPositions;
+    int		attIndex;
+    int		n;
+    int		m;
+    int		slot;
+    Instance	row;
+    double[]	values;
+
+    if (isLoggingEnabled())
+      getLogger().info("Adding file #" + (instIndex+1));
+
+    rowPositions = new int[inst.numInstances()];
+    attIndex     = orig.attribute(m_UniqueID).index();
+    for (n = 0; n < inst.numInstances(); n++) {
+      if (isStopped())
+	return null;
+
+      // progress
+      if (isLoggingEnabled() && ((n+1) % 1000 == 0))
+	getLogger().info("#" + (instIndex+1) + ": " + (n+1));
+
+      // determine row
+      row = inst.instance(n);
+      if (index.isNumeric())
+	slot = index.indexOf(row.value(attIndex));
       else
-	id = inst.instance(i).stringValue(att);
-      if (m_Strict && current.contains(id))
-	throw new IllegalStateException("ID '" + id + "' is not unique in dataset #" + (instIndex+1) + "!");
-      current.add(id);
+	slot = index.indexOf(row.stringValue(attIndex));
+      if (slot == JoinIndex.MISSING)
+	throw new IllegalStateException(
+	    "Failed to determine index for row #" + (n+1) + " of dataset #" + (instIndex+1) + "!");
+      rowPositions[n] = positions[slot];
+      values          = rows[positions[slot]];
+
+      // add attribute values
+      for (m = 0; m < inst.numAttributes(); m++) {
+	// missing value?
+	if (row.isMissing(m))
+	  continue;
+
+	switch (inst.attribute(m).type()) {
+	  case Attribute.NUMERIC:
+	  case Attribute.DATE:
+	  case Attribute.NOMINAL:
+	    values[indexStart + m] = row.value(m);
+	    break;
+
+	  case Attribute.STRING:
+	    values[indexStart + m] = result.attribute(indexStart + m).addStringValue(row.stringValue(m));
+	    break;
+
+	  case Attribute.RELATIONAL:
+	    values[indexStart + m] = result.attribute(indexStart + m).addRelation(row.relationalValue(m));
+	    break;
+
+	  default:
+	    throw new IllegalStateException(
+		"Unhandled attribute type: " + inst.attribute(m).type());
+	}
+      }
     }
-    ids.addAll(current);
+
+    return rowPositions;
   }
 
   /**
@@ -806,24 +952,25 @@ implements WekaMergeInstancesActor, ClassCrossReference {
    *
    * @param orig	the original datasets
    * @param inst	the processed datasets to merge into one
-   * @param ids		the IDs for identifying the rows
-   * @return		the merged dataset
+   * @param index	the index with the IDs for identifying the rows
+   * @return		the merged dataset, null if stopped
+   * @throws Exception	if merging fails
    */
-  protected Instances merge(Instances[] orig, Instances[] inst, HashSet ids) {
+  protected Instances merge(Instances[] orig, Instances[] inst, JoinIndex index) throws Exception {
     Instances			result;
     ArrayList<Attribute>	atts;
     int				i;
     int				n;
-    int				m;
-    int				index;
     String			relation;
-    List			sortedIDs;
-    Attribute			att;
     int[]			indexStart;
-    double			value;
-    double[]			values;
-    HashMap<Integer,Integer> 	hashmap;
-    HashSet<Instance> 		hs;
+    int[]			sorted;
+    int[]			positions;
+    double[][]			rows;
+    int[][]			rowPositions;
+    int[]			counts;
+    int				numThreads;
+    ExecutorService		executor;
+    List<Future<int[]>>		jobs;
 
     // create header
     if (isLoggingEnabled())
@@ -840,98 +987,64 @@ implements WekaMergeInstancesActor, ClassCrossReference {
 	relation += "_";
       relation += inst[i].relationName();
     }
-    result = new Instances(relation, atts, ids.size());
+    result = new Instances(relation, atts, index.size());
+
+    // sort IDs
+    if (isLoggingEnabled())
+      getLogger().info("Sorting IDs...");
+    sorted    = index.sortedSlots();
+    positions = new int[sorted.length];
+    for (i = 0; i < sorted.length; i++)
+      positions[sorted[i]] = i;
 
     // fill with missing values
     if (isLoggingEnabled())
       getLogger().info("Filling with missing values...");
-    for (i = 0; i < ids.size(); i++) {
-      if (isStopped())
-	return null;
-      // progress
-      if (isLoggingEnabled() && ((i+1) % 1000 == 0))
-	getLogger().info("" + (i+1));
-      result.add(new DenseInstance(result.numAttributes()));
+    rows = new double[sorted.length][];
+    for (i = 0; i < rows.length; i++) {
+      rows[i] = new double[atts.size()];
+      Arrays.fill(rows[i], Utils.missingValue());
     }
 
-    // sort IDs
-    if (isLoggingEnabled())
-      getLogger().info("Sorting indices...");
-    sortedIDs = new ArrayList(ids);
-    Collections.sort(sortedIDs);
-
-    // generate rows
-    hashmap = new HashMap<>();
-    for (i = 0; i < inst.length; i++) {
-      if (isStopped())
-	return null;
-      if (isLoggingEnabled())
-	getLogger().info("Adding file #" + (i+1));
-      att = orig[i].attribute(m_UniqueID);
-      for (n = 0; n < inst[i].numInstances(); n++) {
-	// progress
-	if (isLoggingEnabled() && ((n+1) % 1000 == 0))
-	  getLogger().info("" + (n+1));
-
-	// determine index of row
-	if (m_AttType == Attribute.NUMERIC)
-	  index = Collections.binarySearch(sortedIDs, inst[i].instance(n).value(att));
-	else
-	  index = Collections.binarySearch(sortedIDs, inst[i].instance(n).stringValue(att));
-	if (index < 0)
-	  throw new IllegalStateException(
-	      "Failed to determine index for row #" + (n+1) + " of dataset #" + (i+1) + "!");
-
-	if (!hashmap.containsKey(index))
-	  hashmap.put(index, 0);
-	hashmap.put(index, hashmap.get(index) + 1);
-
-	// use internal representation for faster access
-	values = result.instance(index).toDoubleArray();
-
-	// add attribute values
-	for (m = 0; m < inst[i].numAttributes(); m++) {
-	  // missing value?
-	  if (inst[i].instance(n).isMissing(m))
-	    continue;
-
-	  switch (inst[i].attribute(m).type()) {
-	  case Attribute.NUMERIC:
-	  case Attribute.DATE:
-	  case Attribute.NOMINAL:
-	    values[indexStart[i] + m] = inst[i].instance(n).value(m);
-	    break;
-
-	  case Attribute.STRING:
-	    value = result.attribute(indexStart[i] + m).addStringValue(inst[i].instance(n).stringValue(m));
-	    values[indexStart[i] + m] = value;
-	    break;
-
-	  case Attribute.RELATIONAL:
-	    value = result.attribute(indexStart[i] + m).addRelation(inst[i].instance(n).relationalValue(m));
-	    values[indexStart[i] + m] = value;
-	    break;
-
-	  default:
-	    throw new IllegalStateException(
-		"Unhandled attribute type: " + inst[i].attribute(m).type());
-	  }
+    // fill in values
+    rowPositions = new int[inst.length][];
+    numThreads   = Math.min(inst.length, Performance.determineNumThreads(m_NumThreads));
+    if (numThreads > 1) {
+      executor = Executors.newFixedThreadPool(numThreads);
+      try {
+	jobs = new ArrayList<>();
+	for (i = 0; i < inst.length; i++) {
+	  final int fIndex = i;
+	  jobs.add(executor.submit(() -> fill(fIndex, orig[fIndex], inst[fIndex], index, positions, indexStart[fIndex], result, rows)));
 	}
-
-	// update row
-	result.set(index, new DenseInstance(1.0, values));
+	for (i = 0; i < inst.length; i++)
+	  rowPositions[i] = jobs.get(i).get();
+      }
+      finally {
+	executor.shutdownNow();
       }
     }
+    else {
+      for (i = 0; i < inst.length; i++)
+	rowPositions[i] = fill(i, orig[i], inst[i], index, positions, indexStart[i], result, rows);
+    }
+    if (isStopped())
+      return null;
 
-    if (getRemove()) {
-      hs = new HashSet<>();
-      for (Integer x: hashmap.keySet()){
-	if (hashmap.get(x) != inst.length)
-	  hs.add(result.get(x));
-      }
-      result.removeAll(hs);
+    // count contributing rows
+    counts = new int[rows.length];
+    for (i = 0; i < inst.length; i++) {
+      for (n = 0; n < rowPositions[i].length; n++)
+	counts[rowPositions[i][n]]++;
     }
-    
+
+    // assemble dataset
+    for (i = 0; i < rows.length; i++) {
+      if (!getRemove() || (counts[i] == inst.length))
+	result.add(new DenseInstance(1.0, rows[i]));
+      rows[i] = null;
+    }
+
     return result;
   }
 
@@ -950,7 +1063,7 @@ implements WekaMergeInstancesActor, ClassCrossReference {
     Instances[]	orig;
     Instances[]	inst;
     Instance[]	rows;
-    HashSet	ids;
+    JoinIndex	index;
     int		max;
     TIntList	uniqueList;
     Remove	remove;
@@ -1044,20 +1157,23 @@ implements WekaMergeInstancesActor, ClassCrossReference {
 	    max = Math.max(max, orig[i].numInstances());
 	}
 	inst = new Instances[orig.length];
-	ids  = new HashSet(max);
+	for (i = 0; i < orig.length; i++)
+	  checkIDAttribute(i, orig[i]);
+	index = new JoinIndex(orig.length, (m_AttType == Attribute.NUMERIC), max);
 	for (i = 0; i < orig.length; i++) {
 	  if (isStopped())
 	    break;
 	  if (isLoggingEnabled())
 	    getLogger().info("Updating IDs #" + (i+1));
-	  updateIDs(i, orig[i], ids);
+	  updateIDs(i, orig[i], index);
 	  if (isLoggingEnabled())
 	    getLogger().info("Preparing dataset #" + (i+1));
 	  inst[i] = prepareData(orig[i], i);
 	}
-	output = merge(orig, inst, ids);
+	if (!isStopped())
+	  output = merge(orig, inst, index);
 	// remove unnecessary unique ID attributes
-	if (m_KeepOnlySingleUniqueID) {
+	if (m_KeepOnlySingleUniqueID && (output != null)) {
 	  uniqueList = new TIntArrayList();
 	  for (String att: m_UniqueIDAtts)
 	    uniqueList.add(output.attribute(att).index());
@@ -0,0 +1,785 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BootstrapPredictions.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.flow.transformer.wekabootstrapping;
+
+import adams.flow.core.EvaluationStatistic;
+import weka.classifiers.Evaluation;
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.evaluation.Prediction;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the predictions of an evaluation in primitive arrays and computes
+ * statistics for sub-samples (given as index arrays) directly from these,
+ * without creating datasets or Evaluation objects. The calculations mirror
+ * the ones of Weka's {@link Evaluation} class, accumulating in the same
+ * order to obtain the same values.
+ * <br>
+ * Statistics that are not supported (see {@link #isSupported(EvaluationStatistic)})
+ * require a "fake" Evaluation to be created via {@link #toEvaluation(int[], String)}.
+ * <br>
+ * Instances of this class are read-only after construction and can be
+ * shared between threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BootstrapPredictions
+  implements Serializable {
+
+  private static final long serialVersionUID = -1480829722838993512L;
+
+  /** the header of the evaluation. */
+  protected Instances m_Header;
+
+  /** whether the class is nominal. */
+  protected boolean m_Nominal;
+
+  /** the number of class labels (1 for numeric class). */
+  protected int m_NumClasses;
+
+  /** the actual values. */
+  protected double[] m_Actual;
+
+  /** the predicted values. */
+  protected double[] m_Predicted;
+
+  /** the weights. */
+  protected double[] m_Weight;
+
+  /** the class distributions (nominal class only). */
+  protected double[][] m_Distribution;
+
+  /** the predicted class index, -1 if unclassified (nominal class only). */
+  protected int[] m_PredictedClass;
+
+  /**
+   * Initializes the arrays from the predictions.
+   *
+   * @param header	the header of the evaluation
+   * @param preds	the predictions
+   */
+  public BootstrapPredictions(Instances header, List<Prediction> preds) {
+    Prediction	pred;
+    double[]	dist;
+    double	bestProb;
+    int		i;
+    int		n;
+
+    m_Header     = new Instances(header, 0);
+    m_Nominal    = header.classAttribute().isNominal();
+    m_NumClasses = m_Nominal ? header.classAttribute().numValues() : 1;
+    m_Actual     = new double[preds.size()];
+    m_Predicted  = new double[preds.size()];
+    m_Weight     = new double[preds.size()];
+    if (m_Nominal) {
+      m_Distribution   = new double[preds.size()][];
+      m_PredictedClass = new int[preds.size()];
+    }
+
+    for (i = 0; i < preds.size(); i++) {
+      pred         = preds.get(i);
+      m_Actual[i]    = pred.actual();
+      m_Predicted[i] = pred.predicted();
+      m_Weight[i]    = pred.weight();
+      if (m_Nominal) {
+	dist              = ((NominalPrediction) pred).distribution();
+	m_Distribution[i] = dist;
+	// same logic as Evaluation.updateStatsForClassifier
+	m_PredictedClass[i] = -1;
+	bestProb            = 0.0;
+	for (n = 0; n < m_NumClasses; n++) {
+	  if (dist[n] > bestProb) {
+	    m_PredictedClass[i] = n;
+	    bestProb            = dist[n];
+	  }
+	}
+      }
+    }
+  }
+
+  /**
+   * Returns the number of predictions.
+   *
+   * @return		the number
+   */
+  public int size() {
+    return m_Actual.length;
+  }
+
+  /**
+   * Returns whether the class is nominal.
+   *
+   * @return		true if nominal
+   */
+  public boolean isNominal() {
+    return m_Nominal;
+  }
+
+  /**
+   * Returns the actual value.
+   *
+   * @param index	the index of the prediction
+   * @return		the value
+   */
+  public double getActual(int index) {
+    return m_Actual[index];
+  }
+
+  /**
+   * Returns the predicted value.
+   *
+   * @param index	the index of the prediction
+   * @return		the value
+   */
+  public double getPredicted(int index) {
+    return m_Predicted[index];
+  }
+
+  /**
+   * Returns whether the statistic can be calculated directly from the arrays.
+   *
+   * @param statistic	the statistic to check
+   * @return		true if supported
+   */
+  public boolean isSupported(EvaluationStatistic statistic) {
+    switch (statistic) {
+      case NUMBER_UNCLASSIFIED:
+      case PERCENT_UNCLASSIFIED:
+	return true;
+
+      case NUMBER_CORRECT:
+      case NUMBER_INCORRECT:
+      case PERCENT_CORRECT:
+      case PERCENT_INCORRECT:
+      case KAPPA_STATISTIC:
+      case TRUE_POSITIVE_RATE:
+      case NUM_TRUE_POSITIVES:
+      case FALSE_POSITIVE_RATE:
+      case NUM_FALSE_POSITIVES:
+      case TRUE_NEGATIVE_RATE:
+      case NUM_TRUE_NEGATIVES:
+      case FALSE_NEGATIVE_RATE:
+      case NUM_FALSE_NEGATIVES:
+      case IR_PRECISION:
+      case IR_RECALL:
+      case F_MEASURE:
+	return m_Nominal;
+
+      case MEAN_ABSOLUTE_ERROR:
+      case ROOT_MEAN_SQUARED_ERROR:
+      case RELATIVE_ABSOLUTE_ERROR:
+      case ROOT_RELATIVE_SQUARED_ERROR:
+      case CORRELATION_COEFFICIENT:
+	return !m_Nominal;
+
+      default:
+	return false;
+    }
+  }
+
+  /**
+   * Returns whether all the statistics can be calculated directly from the arrays.
+   *
+   * @param statistics	the statistics to check
+   * @return		true if all supported
+   */
+  public boolean isSupported(EvaluationStatistic[] statistics) {
+    for (EvaluationStatistic s: statistics) {
+      if (!isSupported(s))
+	return false;
+    }
+    return true;
+  }
+
+  /**
+   * Calculates the statistics for the sub-sample.
+   *
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param statistics	the statistics to calculate
+   * @param classIndex	the 0-based index of the class label for class-specific statistics
+   * @return		the values, NaN for unsupported statistics
+   * @see		#isSupported(EvaluationStatistic)
+   */
+  public double[] calculate(int[] subset, EvaluationStatistic[] statistics, int classIndex) {
+    if (m_Nominal)
+      return calculateNominal(subset, statistics, classIndex);
+    else
+      return calculateNumeric(subset, statistics);
+  }
+
+  /**
+   * Calculates the statistics for the sub-sample with a nominal class.
+   *
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param statistics	the statistics to calculate
+   * @param classIndex	the 0-based index of the class label
+   * @return		the values, NaN for unsupported statistics
+   */
+  protected double[] calculateNominal(int[] subset, EvaluationStatistic[] statistics, int classIndex) {
+    double[]	result;
+    double[][]	matrix;
+    double	withClass;
+    double	unclassified;
+    double	correct;
+    double	incorrect;
+    double	weight;
+    int		actual;
+    int		predicted;
+    int		i;
+    int		index;
+
+    result       = new double[statistics.length];
+    matrix       = new double[m_NumClasses][m_NumClasses];
+    withClass    = 0;
+    unclassified = 0;
+    correct      = 0;
+    incorrect    = 0;
+    for (i = 0; i < subset.length; i++) {
+      index = subset[i];
+      if (Utils.isMissingValue(m_Actual[index]))
+	continue;
+      weight     = m_Weight[index];
+      withClass += weight;
+      predicted  = m_PredictedClass[index];
+      if (predicted < 0) {
+	unclassified += weight;
+	continue;
+      }
+      actual                     = (int) m_Actual[index];
+      matrix[actual][predicted] += weight;
+      if (predicted != actual)
+	incorrect += weight;
+      else
+	correct += weight;
+    }
+
+    for (i = 0; i < statistics.length; i++) {
+      switch (statistics[i]) {
+	case NUMBER_CORRECT:
+	  result[i] = correct;
+	  break;
+	case NUMBER_INCORRECT:
+	  result[i] = incorrect;
+	  break;
+	case NUMBER_UNCLASSIFIED:
+	  result[i] = unclassified;
+	  break;
+	case PERCENT_CORRECT:
+	  result[i] = 100 * correct / withClass;
+	  break;
+	case PERCENT_INCORRECT:
+	  result[i] = 100 * incorrect / withClass;
+	  break;
+	case PERCENT_UNCLASSIFIED:
+	  result[i] = 100 * unclassified / withClass;
+	  break;
+	case KAPPA_STATISTIC:
+	  result[i] = kappa(matrix);
+	  break;
+	case TRUE_POSITIVE_RATE:
+	case IR_RECALL:
+	  result[i] = truePositiveRate(matrix, classIndex);
+	  break;
+	case NUM_TRUE_POSITIVES:
+	  result[i] = matrix[classIndex][classIndex];
+	  break;
+	case FALSE_POSITIVE_RATE:
+	  result[i] = falsePositiveRate(matrix, classIndex);
+	  break;
+	case NUM_FALSE_POSITIVES:
+	  result[i] = numFalsePositives(matrix, classIndex);
+	  break;
+	case TRUE_NEGATIVE_RATE:
+	  result[i] = trueNegativeRate(matrix, classIndex);
+	  break;
+	case NUM_TRUE_NEGATIVES:
+	  result[i] = numTrueNegatives(matrix, classIndex);
+	  break;
+	case FALSE_NEGATIVE_RATE:
+	  result[i] = falseNegativeRate(matrix, classIndex);
+	  break;
+	case NUM_FALSE_NEGATIVES:
+	  result[i] = numFalseNegatives(matrix, classIndex);
+	  break;
+	case IR_PRECISION:
+	  result[i] = precision(matrix, classIndex);
+	  break;
+	case F_MEASURE:
+	  result[i] = fMeasure(matrix, classIndex);
+	  break;
+	default:
+	  result[i] = Double.NaN;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculates the statistics for the sub-sample with a numeric class.
+   *
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param statistics	the statistics to calculate
+   * @return		the values, NaN for unsupported statistics
+   */
+  protected double[] calculateNumeric(int[] subset, EvaluationStatistic[] statistics) {
+    double[]	result;
+    double	priors;
+    double	priorsSum;
+    double	prior;
+    double	withClass;
+    double	unclassified;
+    double	sumClass;
+    double	sumSqrClass;
+    double	sumClassPredicted;
+    double	sumPredicted;
+    double	sumSqrPredicted;
+    double	sumAbsErr;
+    double	sumSqrErr;
+    double	sumPriorAbsErr;
+    double	sumPriorSqrErr;
+    double	actual;
+    double	predicted;
+    double	weight;
+    double	diff;
+    double	classified;
+    double	mae;
+    double	rmse;
+    double	varActual;
+    double	varPredicted;
+    double	varProd;
+    int		i;
+    int		index;
+
+    result = new double[statistics.length];
+
+    // priors, as calculated by Evaluation.setPriors
+    priors    = 0;
+    priorsSum = 0;
+    for (i = 0; i < subset.length; i++) {
+      index = subset[i];
+      if (Utils.isMissingValue(m_Actual[index]))
+	continue;
+      priors    += m_Actual[index] * m_Weight[index];
+      priorsSum += m_Weight[index];
+    }
+    prior = priors / priorsSum;
+
+    // as calculated by Evaluation.updateStatsForPredictor
+    withClass         = 0;
+    unclassified      = 0;
+    sumClass          = 0;
+    sumSqrClass       = 0;
+    sumClassPredicted = 0;
+    sumPredicted      = 0;
+    sumSqrPredicted   = 0;
+    sumAbsErr         = 0;
+    sumSqrErr         = 0;
+    sumPriorAbsErr    = 0;
+    sumPriorSqrErr    = 0;
+    for (i = 0; i < subset.length; i++) {
+      index  = subset[i];
+      actual = m_Actual[index];
+      if (Utils.isMissingValue(actual))
+	continue;
+      weight     = m_Weight[index];
+      predicted  = m_Predicted[index];
+      withClass += weight;
+      if (Utils.isMissingValue(predicted)) {
+	unclassified += weight;
+	continue;
+      }
+      sumClass          += weight * actual;
+      sumSqrClass       += weight * actual * actual;
+      sumClassPredicted += weight * actual * predicted;
+      sumPredicted      += weight * predicted;
+      sumSqrPredicted   += weight * predicted * predicted;
+      diff               = predicted - actual;
+      sumAbsErr         += weight * Math.abs(diff);
+      sumSqrErr         += weight * (diff * diff);
+      diff               = prior - actual;
+      sumPriorAbsErr    += weight * Math.abs(diff);
+      sumPriorSqrErr    += weight * (diff * diff);
+    }
+
+    classified = withClass - unclassified;
+    mae        = sumAbsErr / classified;
+    rmse       = Math.sqrt(sumSqrErr / classified);
+
+    for (i = 0; i < statistics.length; i++) {
+      switch (statistics[i]) {
+	case NUMBER_UNCLASSIFIED:
+	  result[i] = unclassified;
+	  break;
+	case PERCENT_UNCLASSIFIED:
+	  result[i] = 100 * unclassified / withClass;
+	  break;
+	case MEAN_ABSOLUTE_ERROR:
+	  result[i] = mae;
+	  break;
+	case ROOT_MEAN_SQUARED_ERROR:
+	  result[i] = rmse;
+	  break;
+	case RELATIVE_ABSOLUTE_ERROR:
+	  result[i] = 100 * mae / (sumPriorAbsErr / withClass);
+	  break;
+	case ROOT_RELATIVE_SQUARED_ERROR:
+	  result[i] = 100.0 * rmse / Math.sqrt(sumPriorSqrErr / withClass);
+	  break;
+	case CORRELATION_COEFFICIENT:
+	  varActual    = sumSqrClass - sumClass * sumClass / classified;
+	  varPredicted = sumSqrPredicted - sumPredicted * sumPredicted / classified;
+	  varProd      = sumClassPredicted - sumClass * sumPredicted / classified;
+	  if (varActual * varPredicted <= 0)
+	    result[i] = 0.0;
+	  else
+	    result[i] = varProd / Math.sqrt(varActual * varPredicted);
+	  break;
+	default:
+	  result[i] = Double.NaN;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculates the kappa statistic.
+   *
+   * @param matrix	the confusion matrix
+   * @return		the kappa statistic
+   */
+  protected static double kappa(double[][] matrix) {
+    double[]	sumRows;
+    double[]	sumColumns;
+    double	sumOfWeights;
+    double	correct;
+    double	chanceAgreement;
+    int		i;
+    int		j;
+
+    sumRows      = new double[matrix.length];
+    sumColumns   = new double[matrix.length];
+    sumOfWeights = 0;
+    for (i = 0; i < matrix.length; i++) {
+      for (j = 0; j < matrix.length; j++) {
+	sumRows[i]    += matrix[i][j];
+	sumColumns[j] += matrix[i][j];
+	sumOfWeights  += matrix[i][j];
+      }
+    }
+    correct         = 0;
+    chanceAgreement = 0;
+    for (i = 0; i < matrix.length; i++) {
+      chanceAgreement += sumRows[i] * sumColumns[i];
+      correct         += matrix[i][i];
+    }
+    chanceAgreement /= (sumOfWeights * sumOfWeights);
+    correct         /= sumOfWeights;
+
+    if (chanceAgreement < 1)
+      return (correct - chanceAgreement) / (1 - chanceAgreement);
+    else
+      return 1;
+  }
+
+  /**
+   * Calculates the true positive rate (= recall) for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the rate
+   */
+  protected static double truePositiveRate(double[][] matrix, int classIndex) {
+    double	correct;
+    double	total;
+    int		j;
+
+    correct = 0;
+    total   = 0;
+    for (j = 0; j < matrix.length; j++) {
+      if (j == classIndex)
+	correct += matrix[classIndex][j];
+      total += matrix[classIndex][j];
+    }
+    if (total == 0)
+      return 0;
+    return correct / total;
+  }
+
+  /**
+   * Calculates the false positive rate for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the rate
+   */
+  protected static double falsePositiveRate(double[][] matrix, int classIndex) {
+    double	incorrect;
+    double	total;
+    int		i;
+    int		j;
+
+    incorrect = 0;
+    total     = 0;
+    for (i = 0; i < matrix.length; i++) {
+      if (i != classIndex) {
+	for (j = 0; j < matrix.length; j++) {
+	  if (j == classIndex)
+	    incorrect += matrix[i][j];
+	  total += matrix[i][j];
+	}
+      }
+    }
+    if (total == 0)
+      return 0;
+    return incorrect / total;
+  }
+
+  /**
+   * Calculates the number of false positives for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the number
+   */
+  protected static double numFalsePositives(double[][] matrix, int classIndex) {
+    double	incorrect;
+    int		i;
+    int		j;
+
+    incorrect = 0;
+    for (i = 0; i < matrix.length; i++) {
+      if (i != classIndex) {
+	for (j = 0; j < matrix.length; j++) {
+	  if (j == classIndex)
+	    incorrect += matrix[i][j];
+	}
+      }
+    }
+    return incorrect;
+  }
+
+  /**
+   * Calculates the true negative rate for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the rate
+   */
+  protected static double trueNegativeRate(double[][] matrix, int classIndex) {
+    double	correct;
+    double	total;
+    int		i;
+    int		j;
+
+    correct = 0;
+    total   = 0;
+    for (i = 0; i < matrix.length; i++) {
+      if (i != classIndex) {
+	for (j = 0; j < matrix.length; j++) {
+	  if (j != classIndex)
+	    correct += matrix[i][j];
+	  total += matrix[i][j];
+	}
+      }
+    }
+    if (total == 0)
+      return 0;
+    return correct / total;
+  }
+
+  /**
+   * Calculates the number of true negatives for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the number
+   */
+  protected static double numTrueNegatives(double[][] matrix, int classIndex) {
+    double	correct;
+    int		i;
+    int		j;
+
+    correct = 0;
+    for (i = 0; i < matrix.length; i++) {
+      if (i != classIndex) {
+	for (j = 0; j < matrix.length; j++) {
+	  if (j != classIndex)
+	    correct += matrix[i][j];
+	}
+      }
+    }
+    return correct;
+  }
+
+  /**
+   * Calculates the false negative rate for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the rate
+   */
+  protected static double falseNegativeRate(double[][] matrix, int classIndex) {
+    double	incorrect;
+    double	total;
+    int		j;
+
+    incorrect = 0;
+    total     = 0;
+    for (j = 0; j < matrix.length; j++) {
+      if (j != classIndex)
+	incorrect += matrix[classIndex][j];
+      total += matrix[classIndex][j];
+    }
+    if (total == 0)
+      return 0;
+    return incorrect / total;
+  }
+
+  /**
+   * Calculates the number of false negatives for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the number
+   */
+  protected static double numFalseNegatives(double[][] matrix, int classIndex) {
+    double	incorrect;
+    int		j;
+
+    incorrect = 0;
+    for (j = 0; j < matrix.length; j++) {
+      if (j != classIndex)
+	incorrect += matrix[classIndex][j];
+    }
+    return incorrect;
+  }
+
+  /**
+   * Calculates the precision for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the precision
+   */
+  protected static double precision(double[][] matrix, int classIndex) {
+    double	correct;
+    double	total;
+    int		i;
+
+    correct = 0;
+    total   = 0;
+    for (i = 0; i < matrix.length; i++) {
+      if (i == classIndex)
+	correct += matrix[i][classIndex];
+      total += matrix[i][classIndex];
+    }
+    if (total == 0)
+      return 0;
+    return correct / total;
+  }
+
+  /**
+   * Calculates the F-measure for the class label.
+   *
+   * @param matrix	the confusion matrix
+   * @param classIndex	the index of the class label
+   * @return		the F-measure
+   */
+  protected static double fMeasure(double[][] matrix, int classIndex) {
+    double	precision;
+    double	recall;
+
+    precision = precision(matrix, classIndex);
+    recall    = truePositiveRate(matrix, classIndex);
+    if ((precision == 0) && (recall == 0))
+      return 0;
+    return 2 * precision * recall / (precision + recall);
+  }
+
+  /**
+   * Calculates the errors for the sub-sample.
+   *
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param reverse	whether to use predicted minus actual rather than actual minus predicted
+   * @param absolute	whether to use absolute errors
+   * @return		the errors
+   */
+  public double[] errors(int[] subset, boolean reverse, boolean absolute) {
+    double[]	result;
+    int		i;
+    int		index;
+
+    result = new double[subset.length];
+    for (i = 0; i < subset.length; i++) {
+      index = subset[i];
+      if (reverse)
+	result[i] = m_Predicted[index] - m_Actual[index];
+      else
+	result[i] = m_Actual[index] - m_Predicted[index];
+      if (absolute)
+	result[i] = Math.abs(result[i]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Creates a "fake" evaluation from the sub-sample, for statistics that
+   * cannot be computed directly.
+   *
+   * @param subset	the indices of the predictions in the sub-sample
+   * @param relName	the relation name to use for the dataset
+   * @return		the evaluation
+   * @throws Exception	if evaluation fails
+   */
+  public Evaluation toEvaluation(int[] subset, String relName) throws Exception {
+    Evaluation			result;
+    Instances			data;
+    ArrayList<Attribute>	atts;
+    int				i;
+
+    atts = new ArrayList<>();
+    atts.add(m_Header.classAttribute().copy("Actual"));
+    data = new Instances(relName, atts, subset.length);
+    data.setClassIndex(0);
+    for (i = 0; i < subset.length; i++)
+      data.add(new DenseInstance(m_Weight[subset[i]], new double[]{m_Actual[subset[i]]}));
+
+    result = new Evaluation(data);
+    for (i = 0; i < subset.length; i++) {
+      if (m_Nominal)
+	result.evaluateModelOnceAndRecordPrediction(m_Distribution[subset[i]].clone(), data.instance(i));
+      else
+	result.evaluateModelOnceAndRecordPrediction(new double[]{m_Predicted[subset[i]]}, data.instance(i));
+    }
+
+    return result;
+  }
+}
@@ -498,6 +498,16 @@ public abstract class AbstractMerge
     // Create the empty resulting dataset
     Instances mergedDataset = createEmptyResultantDataset(attributeMapping);
 
+    // Find the source(s) of each attribute's data once, rather than per row
+    int numAttributes = mergedDataset.numAttributes();
+    List<List<SourceAttribute>> sourceAttributesList = new ArrayList<>(numAttributes);
+    boolean[] internalValue = new boolean[numAttributes];
+    for (int attributeIndex = 0; attributeIndex < numAttributes; attributeIndex++) {
+      Attribute mergedAttribute = mergedDataset.attribute(attributeIndex);
+      sourceAttributesList.add(attributeMapping.get(mergedAttribute.name()));
+      internalValue[attributeIndex] = !mergedAttribute.isString() && !mergedAttribute.isRelationValued();
+    }
+
     // Get the row-set iterator over the datasets
     Enumeration<int[]> rowSetEnumeration = getRowSetEnumeration();
 
@@ -506,16 +516,21 @@ public abstract class AbstractMerge
       // Get the row-set to work from
       int[] rowSet = rowSetEnumeration.nextElement();
 
-      // Create a new instance for the merged dataset
-      Instance mergedInstance = newInstanceForDataset(mergedDataset);
+      // Fill in the values of the merged instance directly
+      double[] values = new double[numAttributes];
 
       // Process each attribute of the merged dataset in turn
-      for (int attributeIndex = 0; attributeIndex < mergedDataset.numAttributes(); attributeIndex++) {
-	// Get the next attribute to copy
-	Attribute mergedAttribute = mergedDataset.attribute(attributeIndex);
-
+      for (int attributeIndex = 0; attributeIndex < numAttributes; attributeIndex++) {
 	// Find the source(s) of the attribute's data
-	List<SourceAttribute> sourceAttributes = attributeMapping.get(mergedAttribute.name());
+	List<SourceAttribute> sourceAttributes = sourceAttributesList.get(attributeIndex);
+
+	// Numeric, nominal and date values can be copied as is
+	if (internalValue[attributeIndex]) {
+	  values[attributeIndex] = m_EnsureEqualValues ?
+	    getInternalValueEnsureEqual(rowSet, sourceAttributes) :
+	    getInternalValueFirstAvailable(rowSet, sourceAttributes);
+	  continue;
+	}
 
 	// Get the value of this attribute from it's source(s)
 	Object value = m_EnsureEqualValues ?
@@ -523,17 +538,100 @@ public abstract class AbstractMerge
 	  getValueFirstAvailable(rowSet, sourceAttributes);
 
 	// Copy the value to the merged dataset if it's found
-	if (value != null) setValue(mergedInstance, attributeIndex, value);
+	Attribute mergedAttribute = mergedDataset.attribute(attributeIndex);
+	if (value == null)
+	  values[attributeIndex] = weka.core.Utils.missingValue();
+	else if (mergedAttribute.isString())
+	  values[attributeIndex] = mergedAttribute.addStringValue((String) value);
+	else
+	  values[attributeIndex] = mergedAttribute.addRelation((Instances) value);
       }
 
       // Add the completed instance to the merged dataset
-      mergedDataset.add(mergedInstance);
+      mergedDataset.add(new DenseInstance(1.0, values));
     }
 
     // Return the resulting merged dataset
     return mergedDataset;
   }
 
+  /**
+   * Gets the first encountered internal source value (numeric, nominal,
+   * date) for a merged attribute.
+   *
+   * @param rowSet                  The row-set of source data.
+   * @param sourceAttributes The source attribute mapping elements.
+   * @return The internal value of the merged attribute, missing value if none found.
+   */
+  protected double getInternalValueFirstAvailable(int[] rowSet, List<SourceAttribute> sourceAttributes) {
+    // Try each source in turn
+    for (SourceAttribute source : sourceAttributes) {
+      // Get the row from the row-set
+      int rowIndex = rowSet[source.datasetIndex];
+
+      // Skip datasets that don't have source data for this attribute
+      if (rowIndex == ROW_MISSING) continue;
+
+      // Get the source dataset instance
+      Instance instance = m_Datasets[source.datasetIndex].instance(rowIndex);
+
+      // Skip datasets that don't have source data for this attribute
+      if (instance.isMissing(source.attributeIndex)) continue;
+
+      // Return the value of the source data for this attribute
+      return instance.value(source.attributeIndex);
+    }
+
+    // No value found
+    return weka.core.Utils.missingValue();
+  }
+
+  /**
+   * Gets the internal value (numeric, nominal, date) of the mapped attribute,
+   * ensuring that all possible sources either provide a missing value or the
+   * same value as each other.
+   *
+   * @param rowSet                  The row-set of source data.
+   * @param sourceAttributeElements The source attribute mapping elements.
+   * @return The internal value of the merged attribute, missing value if none found.
+   */
+  protected double getInternalValueEnsureEqual(int[] rowSet, List<SourceAttribute> sourceAttributeElements) {
+    double value = weka.core.Utils.missingValue();
+    SourceAttribute valueElement = null;
+    int valueRowIndex = ROW_MISSING;
+
+    for (SourceAttribute element : sourceAttributeElements) {
+      // Get the row from the row-set
+      int rowIndex = rowSet[element.datasetIndex];
+
+      // Skip datasets that don't have source data for this attribute
+      if (rowIndex == ROW_MISSING) continue;
+
+      // Get the source dataset instance
+      Instance instance = m_Datasets[element.datasetIndex].instance(rowIndex);
+
+      // Skip datasets that don't have source data for this attribute
+      if (instance.isMissing(element.attributeIndex)) continue;
+
+      // Get the value of the source data for this attribute element
+      double currentValue = instance.value(element.attributeIndex);
+
+      // Make sure it equals any previously found values (same semantics as Double.equals)
+      if (valueElement == null) {
+	value = currentValue;
+	valueElement = element;
+	valueRowIndex = rowIndex;
+      }
+      else if (Double.doubleToLongBits(value) != Double.doubleToLongBits(currentValue)) {
+	throw new IllegalStateException("Merging attributes have multiple different source values! " +
+	  "(" + currentValue + " in " + m_DatasetNames[element.datasetIndex] + ", attribute " + element.attributeName + ", row " + rowIndex + " " +
+	  "instead of " + value + " in " + m_DatasetNames[valueElement.datasetIndex] + ", attribute " + valueElement.attributeName + ", row " + valueRowIndex + ")");
+      }
+    }
+
+    return value;
+  }
+
   /**
    * Gets the first encountered source value for a merged attribute.
    *
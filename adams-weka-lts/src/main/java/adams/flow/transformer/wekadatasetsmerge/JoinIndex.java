@@ -0,0 +1,308 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JoinIndex.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.flow.transformer.wekadatasetsmerge;
+
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash index for joining datasets on an ID, using primitive keys for
+ * numeric IDs and plain hashing for string IDs. Each distinct ID gets
+ * assigned a slot (in order of first occurrence), which records the row
+ * of each dataset that contains the ID.
+ * <br>
+ * Numeric IDs are compared like {@link Double#equals(Object)}, i.e., on
+ * their bit pattern.
+ * <br>
+ * Once built, the index can be queried from multiple threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JoinIndex
+  implements Serializable {
+
+  private static final long serialVersionUID = 6102372733718498542L;
+
+  /** the value for missing slots/rows. */
+  public static final int MISSING = -1;
+
+  /** the "no entry" key for numeric IDs: a NaN bit pattern that
+   * {@link Double#doubleToLongBits(double)} never generates (unlike
+   * Long.MIN_VALUE, which is -0.0). */
+  protected static final long NO_KEY = 0x7ff8000000000001L;
+
+  /** the number of datasets. */
+  protected int m_NumDatasets;
+
+  /** whether the IDs are numeric. */
+  protected boolean m_Numeric;
+
+  /** the slots for numeric IDs (key: double bits). */
+  protected TLongIntHashMap m_NumericSlots;
+
+  /** the slots for string IDs. */
+  protected TObjectIntHashMap<String> m_StringSlots;
+
+  /** the numeric IDs per slot. */
+  protected TDoubleArrayList m_NumericIDs;
+
+  /** the string IDs per slot. */
+  protected List<String> m_StringIDs;
+
+  /** the rows per dataset and slot. */
+  protected TIntArrayList[] m_Rows;
+
+  /**
+   * Initializes the index.
+   *
+   * @param numDatasets	the number of datasets to join
+   * @param numeric	whether the IDs are numeric or strings
+   * @param capacity	the expected number of IDs
+   */
+  public JoinIndex(int numDatasets, boolean numeric, int capacity) {
+    int		i;
+
+    m_NumDatasets = numDatasets;
+    m_Numeric     = numeric;
+    capacity      = Math.max(capacity, 10);
+    if (m_Numeric) {
+      m_NumericSlots = new TLongIntHashMap(capacity, 0.5f, NO_KEY, MISSING);
+      m_NumericIDs   = new TDoubleArrayList(capacity);
+    }
+    else {
+      m_StringSlots = new TObjectIntHashMap<>(capacity, 0.5f, MISSING);
+      m_StringIDs   = new ArrayList<>(capacity);
+    }
+    m_Rows = new TIntArrayList[numDatasets];
+    for (i = 0; i < numDatasets; i++)
+      m_Rows[i] = new TIntArrayList(capacity);
+  }
+
+  /**
+   * Returns whether the IDs are numeric.
+   *
+   * @return		true if numeric, false if strings
+   */
+  public boolean isNumeric() {
+    return m_Numeric;
+  }
+
+  /**
+   * Returns the number of datasets.
+   *
+   * @return		the number of datasets
+   */
+  public int getNumDatasets() {
+    return m_NumDatasets;
+  }
+
+  /**
+   * Returns the number of distinct IDs.
+   *
+   * @return		the number of IDs/slots
+   */
+  public int size() {
+    if (m_Numeric)
+      return m_NumericIDs.size();
+    else
+      return m_StringIDs.size();
+  }
+
+  /**
+   * Adds a new, empty slot.
+   */
+  protected void addSlot() {
+    int		i;
+
+    for (i = 0; i < m_NumDatasets; i++)
+      m_Rows[i].add(MISSING);
+  }
+
+  /**
+   * Records the row of the dataset that contains the ID. If the dataset
+   * already had a row with this ID, it gets replaced.
+   *
+   * @param dataset	the index of the dataset
+   * @param id		the numeric ID
+   * @param row		the row in the dataset
+   * @return		the slot of the ID
+   */
+  public int add(int dataset, double id, int row) {
+    int		result;
+    long	key;
+
+    key    = Double.doubleToLongBits(id);
+    result = m_NumericSlots.get(key);
+    if (result == MISSING) {
+      result = m_NumericIDs.size();
+      m_NumericSlots.put(key, result);
+      m_NumericIDs.add(id);
+      addSlot();
+    }
+    m_Rows[dataset].set(result, row);
+
+    return result;
+  }
+
+  /**
+   * Records the row of the dataset that contains the ID. If the dataset
+   * already had a row with this ID, it gets replaced.
+   *
+   * @param dataset	the index of the dataset
+   * @param id		the string ID
+   * @param row		the row in the dataset
+   * @return		the slot of the ID
+   */
+  public int add(int dataset, String id, int row) {
+    int		result;
+
+    result = m_StringSlots.get(id);
+    if (result == MISSING) {
+      result = m_StringIDs.size();
+      m_StringSlots.put(id, result);
+      m_StringIDs.add(id);
+      addSlot();
+    }
+    m_Rows[dataset].set(result, row);
+
+    return result;
+  }
+
+  /**
+   * Returns the slot of the ID.
+   *
+   * @param id		the numeric ID
+   * @return		the slot, {@link #MISSING} if not present
+   */
+  public int indexOf(double id) {
+    return m_NumericSlots.get(Double.doubleToLongBits(id));
+  }
+
+  /**
+   * Returns the slot of the ID.
+   *
+   * @param id		the string ID
+   * @return		the slot, {@link #MISSING} if not present
+   */
+  public int indexOf(String id) {
+    return m_StringSlots.get(id);
+  }
+
+  /**
+   * Returns the numeric ID stored in the slot.
+   *
+   * @param slot	the slot
+   * @return		the ID
+   */
+  public double getNumericID(int slot) {
+    return m_NumericIDs.get(slot);
+  }
+
+  /**
+   * Returns the string ID stored in the slot.
+   *
+   * @param slot	the slot
+   * @return		the ID
+   */
+  public String getStringID(int slot) {
+    return m_StringIDs.get(slot);
+  }
+
+  /**
+   * Returns the row of the dataset that contains the ID of the slot.
+   *
+   * @param slot	the slot
+   * @param dataset	the index of the dataset
+   * @return		the row, {@link #MISSING} if the dataset doesn't contain the ID
+   */
+  public int getRow(int slot, int dataset) {
+    return m_Rows[dataset].get(slot);
+  }
+
+  /**
+   * Returns the rows of all datasets that contain the ID of the slot.
+   *
+   * @param slot	the slot
+   * @return		the rows, {@link #MISSING} for datasets that don't contain the ID
+   */
+  public int[] getRowSet(int slot) {
+    int[]	result;
+    int		i;
+
+    result = new int[m_NumDatasets];
+    for (i = 0; i < m_NumDatasets; i++)
+      result[i] = m_Rows[i].get(slot);
+
+    return result;
+  }
+
+  /**
+   * Returns whether all datasets contain the ID of the slot.
+   *
+   * @param slot	the slot
+   * @return		true if complete
+   */
+  public boolean isComplete(int slot) {
+    int		i;
+
+    for (i = 0; i < m_NumDatasets; i++) {
+      if (m_Rows[i].get(slot) == MISSING)
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the slots, sorted by their IDs (natural ordering of Double/String).
+   *
+   * @return		the sorted slots
+   */
+  public int[] sortedSlots() {
+    int[]	result;
+    double[]	numeric;
+    String[]	strings;
+    int		i;
+
+    result = new int[size()];
+    if (m_Numeric) {
+      numeric = m_NumericIDs.toArray();
+      Arrays.sort(numeric);
+      for (i = 0; i < numeric.length; i++)
+	result[i] = indexOf(numeric[i]);
+    }
+    else {
+      strings = m_StringIDs.toArray(new String[0]);
+      Arrays.sort(strings);
+      for (i = 0; i < strings.length; i++)
+	result[i] = indexOf(strings[i]);
+    }
+
+    return result;
+  }
+}
@@ -20,15 +20,15 @@
 
 package adams.flow.transformer.wekadatasetsmerge;
 
+import gnu.trove.list.array.TIntArrayList;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
 
 import java.util.Enumeration;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  <!-- globalinfo-start -->
@@ -374,11 +374,14 @@ public class JoinOnID
    */
   public class UniqueIDEnumeration implements Enumeration<int[]> {
 
-    /** The set of all unique IDs across the datasets. */
-    private Map<Object, int[]> m_UniqueIDRowMap;
+    /** The hash index of the unique IDs across the datasets. */
+    private JoinIndex m_Index;
 
-    /** Iterator over the unique IDs. */
-    private Iterator<Object> m_InternalIterator;
+    /** The slots of the index to output. */
+    private TIntArrayList m_Slots;
+
+    /** The position of the next slot to output. */
+    private int m_Next;
 
     /**
      * Constructs an enumeration over the unique keys in the
@@ -387,11 +390,11 @@ public class JoinOnID
      * @param datasets The datasets being merged.
      */
     private UniqueIDEnumeration(Instances[] datasets) {
-      // Generate the lookup map
+      // Generate the lookup index
       recordUniqueIDs(datasets);
 
-      // Initialise the internal iterator
-      m_InternalIterator = m_UniqueIDRowMap.keySet().iterator();
+      // Initialise the internal position
+      m_Next = 0;
     }
 
     /**
@@ -402,8 +405,20 @@ public class JoinOnID
      * @param datasetsToMerge The set of datasets being merged.
      */
     private void recordUniqueIDs(Instances[] datasetsToMerge) {
-      // Create the map
-      m_UniqueIDRowMap = new LinkedHashMap<>();
+      // Determine whether the IDs can be hashed as primitive values
+      // (all datasets have the same ID attribute type, see check(Instances[]))
+      boolean numeric = true;
+      int capacity = 0;
+      for (Instances dataset : datasetsToMerge) {
+	int uniqueIDAttributeIndex = findAttributeIndexOfUniqueID(dataset);
+	if (uniqueIDAttributeIndex == -1) continue;
+	Attribute idAttribute = dataset.attribute(uniqueIDAttributeIndex);
+	numeric = !idAttribute.isString() && !idAttribute.isRelationValued();
+	capacity = Math.max(capacity, dataset.numInstances());
+      }
+
+      // Create the index
+      m_Index = new JoinIndex(datasetsToMerge.length, numeric, capacity);
 
       // Process each dataset in turn
       for (int datasetIndex = 0; datasetIndex < datasetsToMerge.length; datasetIndex++) {
@@ -421,85 +436,35 @@ public class JoinOnID
 	  // Get the next instance
 	  Instance instance = dataset.instance(instanceIndex);
 
-	  // Get the unique ID for this instance
-	  Object id = getValue(instance, uniqueIDAttributeIndex);
-
-	  // If the unique ID is missing, skip this instance
-	  if (id == null) continue;
-
-	  // Make sure the mapping has an entry for this ID (create it
-	  // if it doesn't exist)
-	  if (!m_UniqueIDRowMap.containsKey(id))
-	    m_UniqueIDRowMap.put(id, initialiseRowSet(datasetsToMerge.length));
-
-	  // Get the mapping for the unique ID
-	  int[] rowInstanceTable = m_UniqueIDRowMap.get(id);
-
 	  // Record which row contains the unique ID for this dataset
-	  rowInstanceTable[datasetIndex] = instanceIndex;
+	  // (creates the entry for the ID if it doesn't exist)
+	  if (numeric)
+	    m_Index.add(datasetIndex, instance.value(uniqueIDAttributeIndex), instanceIndex);
+	  else
+	    m_Index.add(datasetIndex, getValue(instance, uniqueIDAttributeIndex).toString(), instanceIndex);
 	}
       }
 
-      // If we only want complete rows, remove any incomplete ones
-      if (getCompleteRowsOnly()) removeIncompleteRows();
-    }
-
-    /**
-     * Creates an empty row-set where all rows are missing.
-     *
-     * @param size The size of the row-set (should equal the number of merging datasets).
-     * @return The initialised row-set.
-     */
-    private int[] initialiseRowSet(int size) {
-      // Create the row-set
-      int[] rowSet = new int[size];
-
-      // Set all rows to missing
-      for (int i = 0; i < size; i++) {
-	rowSet[i] = ROW_MISSING;
-      }
-
-      // Return the row-set
-      return rowSet;
-    }
-
-    /**
-     * Removes any entries from the ID map that don't have source
-     * data in all source datasets.
-     */
-    private void removeIncompleteRows() {
-      // Get an iterator over the ID map
-      Iterator<Object> idIterator = m_UniqueIDRowMap.keySet().iterator();
-
-      // Check each entry in turn
-      while (idIterator.hasNext()) {
-	// Get the ID for this row
-	Object id = idIterator.next();
-
-	// Get the source data for this row
-	int[] rowSet = m_UniqueIDRowMap.get(id);
-
-	// Check that there are no null entries
-	for (int rowEntry : rowSet) {
-	  // If there is a null entry, remove this row
-	  if (rowEntry == ROW_MISSING) {
-	    idIterator.remove();
-	    break;
-	  }
-	}
+      // Output the IDs in order of first occurrence
+      m_Slots = new TIntArrayList(m_Index.size());
+      for (int slot = 0; slot < m_Index.size(); slot++) {
+	// If we only want complete rows, skip any incomplete ones
+	if (getCompleteRowsOnly() && !m_Index.isComplete(slot)) continue;
+	m_Slots.add(slot);
       }
     }
 
     @Override
     public boolean hasMoreElements() {
-      return m_InternalIterator.hasNext();
+      return m_Next < m_Slots.size();
     }
 
     @Override
     public int[] nextElement() {
-      Object nextID = m_InternalIterator.next();
+      if (m_Next >= m_Slots.size())
+	throw new NoSuchElementException();
 
-      return m_UniqueIDRowMap.get(nextID);
+      return m_Index.getRowSet(m_Slots.get(m_Next++));
     }
   }
-}
\ No newline at end of file
+}
@@ -63,6 +63,8 @@ public class WekaInvestigatorPreferencesPanel
       adams.data.weka.relationname.AbstractRelationNameHeuristic.class,
       new NoChange(), true));
     addPropertyType("General.UndoEnabled", PropertyType.BOOLEAN);
+    addPropertyType("General.UndoMaxMemory", PropertyType.INTEGER);
+    addPropertyType("General.UndoMaxDisk", PropertyType.INTEGER);
     addPropertyType("General.CalculateModelSize", PropertyType.BOOLEAN);
     addPropertyType("General.TestingUpdateInterval", PropertyType.INTEGER);
     addPropertyType("General.SortAttributeNames", PropertyType.BOOLEAN);
@@ -15,18 +15,20 @@
 
 /*
  * AbstractDataContainer.java
- * Copyright (C) 2016-2021 University of Waikato, Hamilton, NZ
+ * Copyright (C) 2016-2023 University of Waikato, Hamilton, NZ
  */
 
 package adams.gui.tools.wekainvestigator.data;
 
 import adams.core.logging.LoggingHelper;
 import adams.core.logging.LoggingObject;
+import adams.data.weka.InstancesUndoStore;
 import adams.gui.core.Undo;
 import adams.gui.core.Undo.UndoPoint;
 import adams.gui.event.UndoEvent;
 import adams.gui.event.UndoEvent.UndoType;
 import adams.gui.event.UndoListener;
+import adams.gui.tools.wekainvestigator.InvestigatorPanel;
 import weka.core.Instances;
 
 import java.io.Serializable;
@@ -34,6 +36,11 @@ import java.util.Date;
 
 /**
  * Ancestor for data containers.
+ * <br>
+ * Undo points only store a key to a copy-on-write snapshot of the data,
+ * which is managed by an {@link InstancesUndoStore}. The memory and disk
+ * budgets of the store are obtained from the Investigator properties
+ * (General.UndoMaxMemory and General.UndoMaxDisk, in MB).
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
@@ -58,6 +65,9 @@ public abstract class AbstractDataContainer
   /** the undo manager. */
   protected transient Undo m_Undo;
 
+  /** the store for the undo snapshots. */
+  protected transient InstancesUndoStore m_UndoStore;
+
   /** the timestamp the data was last updated. */
   protected Date m_LastUpdated;
 
@@ -69,6 +79,7 @@ public abstract class AbstractDataContainer
     m_Data        = null;
     m_Modified    = false;
     m_Undo        = null;
+    m_UndoStore   = null;
     m_LastUpdated = new Date();
   }
 
@@ -159,6 +170,8 @@ public abstract class AbstractDataContainer
 	setModified(false);
 	if (isUndoSupported())
 	  getUndo().clear();
+	if (m_UndoStore != null)
+	  m_UndoStore.clear();
       }
     }
 
@@ -193,6 +206,27 @@ public abstract class AbstractDataContainer
     return m_Undo;
   }
 
+  /**
+   * Returns the store for the undo snapshots.
+   *
+   * @return		the store
+   */
+  public synchronized InstancesUndoStore getUndoStore() {
+    long	maxMemory;
+    long	maxDisk;
+
+    if (m_UndoStore == null) {
+      maxMemory = InvestigatorPanel.getProperties().getInteger("General.UndoMaxMemory", 256);
+      maxDisk   = InvestigatorPanel.getProperties().getInteger("General.UndoMaxDisk", 2048);
+      if (maxMemory > 0)
+	maxMemory *= 1024 * 1024;
+      if (maxDisk > 0)
+	maxDisk *= 1024 * 1024;
+      m_UndoStore = new InstancesUndoStore(maxMemory, maxDisk);
+    }
+    return m_UndoStore;
+  }
+
   /**
    * Returns whether an Undo manager is currently available.
    *
@@ -252,25 +286,54 @@ public abstract class AbstractDataContainer
   }
 
   /**
-   * Returns the data to store in the undo.
+   * Returns the data to store in the undo. Instead of the data itself,
+   * only the key of its snapshot in the undo store gets stored.
    *
    * @return		the undo point
+   * @see		#getUndoStore()
    */
   protected Serializable[] getUndoData() {
+    long	key;
+
+    if (m_Data == null)
+      key = InstancesUndoStore.NO_KEY;
+    else
+      key = getUndoStore().add(m_Data);
+
     return new Serializable[]{
-	m_Data,
+	key,
 	m_Modified
     };
   }
 
   /**
-   * Restores the data from the undo point.
+   * Restores the data from the undo point. If the snapshot has been
+   * discarded in the meantime (disk budget exceeded), the current data
+   * is kept.
    *
    * @param data	the undo point
    */
   protected void applyUndoData(Serializable[] data) {
+    Instances	inst;
+    long	key;
+
+    if (data[0] instanceof Instances) {
+      inst = (Instances) data[0];
+    }
+    else {
+      key  = (Long) data[0];
+      inst = null;
+      if (key != InstancesUndoStore.NO_KEY) {
+	inst = getUndoStore().remove(key);
+	if (inst == null) {
+	  getLogger().warning("Undo snapshot no longer available, keeping current data: " + key);
+	  return;
+	}
+      }
+    }
+
     m_LastUpdated = new Date();
-    m_Data        = (Instances) data[0];
+    m_Data        = inst;
     m_Modified    = (Boolean) data[1];
   }
 
@@ -341,6 +404,8 @@ public abstract class AbstractDataContainer
     m_Data = null;
     if (m_Undo != null)
       m_Undo.cleanUp();
+    if (m_UndoStore != null)
+      m_UndoStore.cleanUp();
   }
 
   /**
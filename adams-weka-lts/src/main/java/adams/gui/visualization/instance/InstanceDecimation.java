@@ -0,0 +1,322 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceDecimation.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, New Zealand
+ */
+
+package adams.gui.visualization.instance;
+
+import adams.data.instance.Instance;
+import adams.data.instance.InstancePoint;
+import adams.gui.visualization.core.AxisPanel;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Min/max decimation of instances for line plots: of the points that fall
+ * into the same pixel column, only the ones with the smallest and largest
+ * value get kept (in their original order), i.e., at most two points per
+ * pixel column need to be painted, without losing any peaks.
+ * <br>
+ * The decimated points get cached per instance and are only recomputed when
+ * the visible range or size of the X axis (ie zooming/resizing) or the
+ * points of the instance change (eg values edited in place, detected via a
+ * hash over the points). Call {@link #cleanUp()} after each paint to
+ * discard the entries of instances that were no longer painted.
+ *
+ * @author  fracpete (fracpete at waikato dot ac dot nz)
+ */
+public class InstanceDecimation
+  implements Serializable {
+
+  /** for serialization. */
+  private static final long serialVersionUID = 3064938271570327491L;
+
+  /**
+   * Container for the decimated points of an instance.
+   */
+  public static class Decimated
+    implements Serializable {
+
+    /** for serialization. */
+    private static final long serialVersionUID = 6271823069839163802L;
+
+    /** the pixel position of the minimum of the X axis. */
+    protected int m_MinPos;
+
+    /** the pixel position of the maximum of the X axis. */
+    protected int m_MaxPos;
+
+    /** the minimum of the X axis. */
+    protected double m_Minimum;
+
+    /** the maximum of the X axis. */
+    protected double m_Maximum;
+
+    /** the number of points of the instance. */
+    protected int m_Size;
+
+    /** the hash over the points of the instance. */
+    protected long m_Hash;
+
+    /** the X values of the points to paint. */
+    protected int[] m_X;
+
+    /** the Y values of the points to paint. */
+    protected double[] m_Y;
+
+    /**
+     * Returns the number of points to paint.
+     *
+     * @return		the number of points
+     */
+    public int size() {
+      return m_X.length;
+    }
+
+    /**
+     * Returns the X value of the specified point.
+     *
+     * @param index	the index of the point
+     * @return		the X value
+     */
+    public int getX(int index) {
+      return m_X[index];
+    }
+
+    /**
+     * Returns the Y value of the specified point.
+     *
+     * @param index	the index of the point
+     * @return		the Y value
+     */
+    public double getY(int index) {
+      return m_Y[index];
+    }
+  }
+
+  /** the cached decimations. */
+  protected transient Map<Instance,Decimated> m_Cache;
+
+  /** the decimations used since the last clean up. */
+  protected transient Map<Instance,Decimated> m_Used;
+
+  /**
+   * Determines the points that are visible in the range of the X axis,
+   * plus the adjacent points outside the range.
+   *
+   * @param x		the X values, sorted ascending
+   * @param min		the minimum of the axis
+   * @param max		the maximum of the axis
+   * @return		the first and last index (incl), null if no points
+   */
+  public static int[] visibleRange(int[] x, double min, double max) {
+    int		start;
+    int		end;
+    int		lower;
+    int		upper;
+
+    if (x.length == 0)
+      return null;
+
+    lower = (int) Math.floor(min);
+    upper = (int) Math.ceil(max);
+    start = 0;
+    while ((start < x.length - 1) && (x[start] < lower))
+      start++;
+    if (start > 0)
+      start--;
+    end = x.length - 1;
+    while ((end > start) && (x[end] > upper))
+      end--;
+    if (end < x.length - 1)
+      end++;
+
+    return new int[]{start, end};
+  }
+
+  /**
+   * Selects the points to paint: for each run of points with the same pixel
+   * column, the points with the smallest and largest value.
+   *
+   * @param columns	the pixel columns of the points
+   * @param y		the values of the points
+   * @param start	the first point (incl)
+   * @param end		the last point (incl)
+   * @return		the indices of the selected points, in ascending order
+   */
+  public static int[] select(int[] columns, double[] y, int start, int end) {
+    TIntList	result;
+    int		i;
+    int		from;
+    int		min;
+    int		max;
+
+    result = new TIntArrayList();
+    from   = start;
+    while (from <= end) {
+      min = from;
+      max = from;
+      i   = from + 1;
+      while ((i <= end) && (columns[i] == columns[from])) {
+	if (y[i] < y[min])
+	  min = i;
+	if (y[i] > y[max])
+	  max = i;
+	i++;
+      }
+      result.add(Math.min(min, max));
+      if (min != max)
+	result.add(Math.max(min, max));
+      from = i;
+    }
+
+    return result.toArray();
+  }
+
+  /**
+   * Computes a hash over the X and Y values of the points, for detecting
+   * in-place modifications of the instance.
+   *
+   * @param data	the instance to compute the hash for
+   * @return		the hash
+   */
+  public static long hash(Instance data) {
+    long	result;
+
+    result = 1;
+    for (InstancePoint p: data.toList()) {
+      result = 31 * result + p.getX();
+      result = 31 * result + Double.doubleToLongBits(p.getY());
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the decimated points of the instance for the current state of the
+   * X axis, recomputes them if necessary.
+   *
+   * @param data	the instance to decimate
+   * @param axisX	the X axis
+   * @return		the decimated points
+   */
+  public Decimated decimate(Instance data, AxisPanel axisX) {
+    Decimated	result;
+    int		minPos;
+    int		maxPos;
+    long	hash;
+
+    if (m_Cache == null) {
+      m_Cache = new IdentityHashMap<>();
+      m_Used  = new IdentityHashMap<>();
+    }
+
+    minPos = axisX.valueToPos(axisX.getMinimum());
+    maxPos = axisX.valueToPos(axisX.getMaximum());
+    hash   = hash(data);
+    result = m_Cache.get(data);
+    if ((result == null)
+      || (result.m_Size != data.size())
+      || (result.m_Hash != hash)
+      || (result.m_Minimum != axisX.getMinimum())
+      || (result.m_Maximum != axisX.getMaximum())
+      || (result.m_MinPos != minPos)
+      || (result.m_MaxPos != maxPos)) {
+      result = compute(data, axisX);
+      result.m_MinPos = minPos;
+      result.m_MaxPos = maxPos;
+      result.m_Hash   = hash;
+      m_Cache.put(data, result);
+    }
+    m_Used.put(data, result);
+
+    return result;
+  }
+
+  /**
+   * Computes the decimated points of the instance.
+   *
+   * @param data	the instance to decimate
+   * @param axisX	the X axis
+   * @return		the decimated points
+   */
+  protected Decimated compute(Instance data, AxisPanel axisX) {
+    Decimated	result;
+    int[]	x;
+    double[]	y;
+    int[]	range;
+    int[]	columns;
+    int[]	selected;
+    int		i;
+
+    result           = new Decimated();
+    result.m_Minimum = axisX.getMinimum();
+    result.m_Maximum = axisX.getMaximum();
+    result.m_Size    = data.size();
+
+    x     = data.toIndexArray();
+    y     = data.toDoubleArray();
+    range = visibleRange(x, axisX.getMinimum(), axisX.getMaximum());
+    if (range == null) {
+      result.m_X = new int[0];
+      result.m_Y = new double[0];
+      return result;
+    }
+
+    columns = new int[x.length];
+    for (i = range[0]; i <= range[1]; i++)
+      columns[i] = axisX.valueToPos(x[i]);
+    selected   = select(columns, y, range[0], range[1]);
+    result.m_X = new int[selected.length];
+    result.m_Y = new double[selected.length];
+    for (i = 0; i < selected.length; i++) {
+      result.m_X[i] = x[selected[i]];
+      result.m_Y[i] = y[selected[i]];
+    }
+
+    return result;
+  }
+
+  /**
+   * Discards the cached decimations of the instances that weren't used since
+   * the last clean up.
+   */
+  public void cleanUp() {
+    Map<Instance,Decimated>	used;
+
+    if (m_Cache == null)
+      return;
+
+    used    = m_Used;
+    m_Used  = m_Cache;
+    m_Cache = used;
+    m_Used.clear();
+  }
+
+  /**
+   * Discards all cached decimations.
+   */
+  public void clear() {
+    m_Cache = null;
+    m_Used  = null;
+  }
+}
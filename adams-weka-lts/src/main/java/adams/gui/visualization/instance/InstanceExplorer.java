@@ -26,6 +26,7 @@ import adams.core.Range;
 import adams.core.StatusMessageHandler;
 import adams.core.io.PlaceholderFile;
 import adams.core.logging.LoggingHelper;
+import adams.data.instance.CompactInstance;
 import adams.data.instance.Instance;
 import adams.data.weka.ArffUtils;
 import adams.env.Environment;
@@ -488,7 +489,7 @@ public class InstanceExplorer
       data    = new ArrayList<>();
       dataset = query.retrieveInstances();
       for (i = 0; i < dataset.numInstances(); i++) {
-        inst = new Instance();
+        inst = new CompactInstance();
         inst.set(dataset.instance(i));
         inst.setID(dataset.relationName() + "." + i);
         data.add(getContainerManager().newContainer(inst));
@@ -560,7 +561,7 @@ public class InstanceExplorer
 	int id = m_LoadFromDiskDialog.getCurrentIDIndex();
 	for (int i = 0; i < indices.length; i++) {
 	  weka.core.Instance winst = dataset.instance(indices[i]);
-	  Instance inst = new Instance();
+	  Instance inst = new CompactInstance();
 	  inst.set(winst, i, additional, range, attTypes);
 	  if (id == -1) {
 	    inst.setID((indices[i] + 1) + "." + dataset.relationName());
@@ -32,6 +32,7 @@ import adams.gui.visualization.container.ColorContainer;
 import adams.gui.visualization.core.AxisPanel;
 import adams.gui.visualization.core.PaintletWithMarkers;
 import adams.gui.visualization.core.plot.Axis;
+import adams.gui.visualization.instance.InstanceDecimation.Decimated;
 
 import java.awt.Color;
 import java.awt.Graphics;
@@ -76,6 +77,12 @@ import java.util.List;
  * &nbsp;&nbsp;&nbsp;default: true
  * </pre>
  *
+ * <pre>-decimation-enabled &lt;boolean&gt; (property: decimationEnabled)
+ * &nbsp;&nbsp;&nbsp;If enabled, only the points with the smallest and largest value per pixel
+ * &nbsp;&nbsp;&nbsp;column get painted.
+ * &nbsp;&nbsp;&nbsp;default: true
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -118,6 +125,12 @@ public class InstanceLinePaintlet
   /** whether anti-aliasing is enabled. */
   protected boolean m_AntiAliasingEnabled;
 
+  /** whether decimation is enabled. */
+  protected boolean m_DecimationEnabled;
+
+  /** the decimation. */
+  protected InstanceDecimation m_Decimation;
+
   /**
    * Returns a string describing the object.
    *
@@ -150,6 +163,10 @@ public class InstanceLinePaintlet
     m_OptionManager.add(
       "anti-aliasing-enabled", "antiAliasingEnabled",
       GUIHelper.getBoolean(getClass(), "antiAliasingEnabled", true));
+
+    m_OptionManager.add(
+      "decimation-enabled", "decimationEnabled",
+      GUIHelper.getBoolean(getClass(), "decimationEnabled", true));
   }
 
   /**
@@ -293,6 +310,136 @@ public class InstanceLinePaintlet
     return "If enabled, uses anti-aliasing for drawing lines.";
   }
 
+  /**
+   * Sets whether to paint only the points with the smallest and largest value
+   * per pixel column.
+   *
+   * @param value	if true then decimation is used
+   */
+  public void setDecimationEnabled(boolean value) {
+    m_DecimationEnabled = value;
+    getDecimation().clear();
+    memberChanged();
+  }
+
+  /**
+   * Returns whether to paint only the points with the smallest and largest
+   * value per pixel column.
+   *
+   * @return		true if decimation is used
+   */
+  public boolean isDecimationEnabled() {
+    return m_DecimationEnabled;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String decimationEnabledTipText() {
+    return "If enabled, only the points with the smallest and largest value per pixel column get painted.";
+  }
+
+  /**
+   * Returns the decimation, instantiates it if necessary.
+   *
+   * @return		the decimation
+   */
+  protected InstanceDecimation getDecimation() {
+    if (m_Decimation == null)
+      m_Decimation = new InstanceDecimation();
+    return m_Decimation;
+  }
+
+  /**
+   * Draws the marker at the specified position.
+   *
+   * @param g		the graphics context
+   * @param marker	the type of marker to draw
+   * @param currX	the X pixel position
+   * @param currY	the Y pixel position
+   */
+  protected void drawMarker(Graphics g, MarkerShape marker, int currX, int currY) {
+    if (marker == MarkerShape.BOX) {
+      g.drawRect(
+        currX - (m_MarkerExtent / 2),
+        currY - (m_MarkerExtent / 2),
+        m_MarkerExtent - 1,
+        m_MarkerExtent - 1);
+    }
+    else if (marker == MarkerShape.CIRCLE) {
+      g.drawArc(
+        currX - (m_MarkerExtent / 2),
+        currY - (m_MarkerExtent / 2),
+        m_MarkerExtent - 1,
+        m_MarkerExtent - 1,
+        0,
+        360);
+    }
+    else if (marker == MarkerShape.TRIANGLE) {
+      int[] x = new int[3];
+      int[] y = new int[3];
+      x[0] = currX - (m_MarkerExtent / 2);
+      y[0] = currY + (m_MarkerExtent / 2);
+      x[1] = x[0] + m_MarkerExtent;
+      y[1] = y[0];
+      x[2] = currX;
+      y[2] = y[0] - m_MarkerExtent;
+      g.drawPolygon(x, y, 3);
+    }
+  }
+
+  /**
+   * Draws the decimated data, using the current settings of the graphics
+   * context.
+   *
+   * @param g		the graphics context
+   * @param data	the data to draw
+   * @param marker	the type of marker to draw
+   * @param axisX	the X axis
+   * @param axisY	the Y axis
+   * @see		InstanceDecimation
+   */
+  protected void drawDecimated(Graphics g, Instance data, MarkerShape marker, AxisPanel axisX, AxisPanel axisY) {
+    Decimated	points;
+    int		currX;
+    int		currY;
+    int		prevX;
+    int		prevY;
+    int		prevMarkerX;
+    int		prevMarkerY;
+    int		i;
+
+    points = getDecimation().decimate(data, axisX);
+    if (points.size() == 0)
+      return;
+
+    prevMarkerX = 0;
+    prevMarkerY = 0;
+    prevX       = axisX.valueToPos(points.getX(0));
+    prevY       = axisY.valueToPos(points.getY(0));
+
+    for (i = 0; i < points.size(); i++) {
+      currX = axisX.valueToPos(points.getX(i));
+      currY = axisY.valueToPos(points.getY(i));
+
+      // draw line
+      g.drawLine(prevX, prevY, currX, currY);
+      if (marker != MarkerShape.NONE) {
+        if (Math.sqrt(Math.pow(currX - prevMarkerX, 2) + Math.pow(currY - prevMarkerY, 2)) > m_MarkerExtent * 2) {
+          drawMarker(g, marker, currX, currY);
+          prevMarkerX = currX;
+          prevMarkerY = currY;
+        }
+      }
+
+      prevX = currX;
+      prevY = currY;
+    }
+  }
+
   /**
    * Draws the data with the given color.
    *
@@ -316,13 +463,19 @@ public class InstanceLinePaintlet
     int			start;
     int			end;
 
-    points = data.toList();
     axisX  = getPanel().getPlot().getAxis(Axis.BOTTOM);
     axisY  = getPanel().getPlot().getAxis(Axis.LEFT);
 
     g.setColor(color);
     GUIHelper.configureAntiAliasing(g, m_AntiAliasingEnabled);
 
+    if (m_DecimationEnabled) {
+      drawDecimated(g, data, marker, axisX, axisY);
+      return;
+    }
+
+    points = data.toList();
+
     // find the start and end points for painting
     start = InstanceUtils.findClosestX(points, (int) Math.floor(axisX.getMinimum()));
     if (start > 0)
@@ -351,34 +504,7 @@ public class InstanceLinePaintlet
       g.drawLine(prevX, prevY, currX, currY);
       if (marker != MarkerShape.NONE) {
         if (Math.sqrt(Math.pow(currX - prevMarkerX, 2) + Math.pow(currY - prevMarkerY, 2)) > m_MarkerExtent * 2) {
-          if (marker == MarkerShape.BOX) {
-            g.drawRect(
-              currX - (m_MarkerExtent / 2),
-              currY - (m_MarkerExtent / 2),
-              m_MarkerExtent - 1,
-              m_MarkerExtent - 1);
-          }
-          else if (marker == MarkerShape.CIRCLE) {
-            g.drawArc(
-              currX - (m_MarkerExtent / 2),
-              currY - (m_MarkerExtent / 2),
-              m_MarkerExtent - 1,
-              m_MarkerExtent - 1,
-              0,
-              360);
-          }
-          else if (marker == MarkerShape.TRIANGLE) {
-            int[] x = new int[3];
-            int[] y = new int[3];
-            x[0] = currX - (m_MarkerExtent / 2);
-            y[0] = currY + (m_MarkerExtent / 2);
-            x[1] = x[0] + m_MarkerExtent;
-            y[1] = y[0];
-            x[2] = currX;
-            y[2] = y[0] - m_MarkerExtent;
-            g.drawPolygon(x, y, 3);
-          }
-
+          drawMarker(g, marker, currX, currY);
           prevMarkerX = currX;
           prevMarkerY = currY;
         }
@@ -433,5 +559,9 @@ public class InstanceLinePaintlet
       data = (Instance) cont.getPayload();
       drawData(g, data, getColor(i), getMarkerShape(i));
     }
+
+    // discard decimations of instances that are no longer visible
+    if (m_DecimationEnabled)
+      getDecimation().cleanUp();
   }
 }
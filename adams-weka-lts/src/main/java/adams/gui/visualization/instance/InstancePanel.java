@@ -23,7 +23,6 @@ package adams.gui.visualization.instance;
 import adams.core.Properties;
 import adams.core.option.OptionUtils;
 import adams.data.instance.Instance;
-import adams.data.instance.InstancePoint;
 import adams.data.io.output.SpreadSheetWriter;
 import adams.data.report.AbstractField;
 import adams.data.report.DataType;
@@ -67,7 +66,6 @@ import java.awt.Point;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -312,14 +310,14 @@ public class InstancePanel
    */
   @Override
   public void prepareUpdate() {
-    List<InstancePoint>	points;
-    Iterator<InstancePoint>	iter;
-    InstancePoint		point;
-    double 			minX;
-    double 			maxX;
-    double 			minY;
-    double 			maxY;
-    int				i;
+    int[]	x;
+    double[]	y;
+    double 	minX;
+    double 	maxX;
+    double 	minY;
+    double 	maxY;
+    int		i;
+    int		n;
 
     minX = Double.MAX_VALUE;
     maxX = -Double.MAX_VALUE;
@@ -332,24 +330,23 @@ public class InstancePanel
 	  continue;
       }
 
-      points = getContainerManager().get(i).getData().toList();
+      x = getContainerManager().get(i).getData().toIndexArray();
+      y = getContainerManager().get(i).getData().toDoubleArray();
 
-      if (points.size() == 0)
+      if (x.length == 0)
 	continue;
 
       // determine min/max
-      if (InstancePoint.toDouble(points.get(0).getX()) < minX)
-	minX = InstancePoint.toDouble(points.get(0).getX());
-      if (InstancePoint.toDouble(points.get(points.size() - 1).getX()) > maxX)
-	maxX = InstancePoint.toDouble(points.get(points.size() - 1).getX());
-
-      iter = points.iterator();
-      while (iter.hasNext()) {
-	point = iter.next();
-	if (InstancePoint.toDouble(point.getY()) > maxY)
-	  maxY = InstancePoint.toDouble(point.getY());
-	if (InstancePoint.toDouble(point.getY()) < minY)
-	  minY = InstancePoint.toDouble(point.getY());
+      if (x[0] < minX)
+	minX = x[0];
+      if (x[x.length - 1] > maxX)
+	maxX = x[x.length - 1];
+
+      for (n = 0; n < y.length; n++) {
+	if (y[n] > maxY)
+	  maxY = y[n];
+	if (y[n] < minY)
+	  minY = y[n];
       }
     }
 
@@ -31,6 +31,7 @@ import adams.gui.visualization.container.AbstractContainer;
 import adams.gui.visualization.container.ColorContainer;
 import adams.gui.visualization.core.AxisPanel;
 import adams.gui.visualization.core.plot.Axis;
+import adams.gui.visualization.instance.InstanceDecimation.Decimated;
 
 import java.awt.Color;
 import java.awt.Graphics;
@@ -59,6 +60,12 @@ import java.util.List;
  * &nbsp;&nbsp;&nbsp;default: true
  * </pre>
  * 
+ * <pre>-decimation-enabled &lt;boolean&gt; (property: decimationEnabled)
+ * &nbsp;&nbsp;&nbsp;If enabled, only the points with the smallest and largest value per pixel
+ * &nbsp;&nbsp;&nbsp;column get painted.
+ * &nbsp;&nbsp;&nbsp;default: true
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -74,6 +81,12 @@ public class SimpleInstanceLinePaintlet
   /** whether anti-aliasing is enabled. */
   protected boolean m_AntiAliasingEnabled;
 
+  /** whether decimation is enabled. */
+  protected boolean m_DecimationEnabled;
+
+  /** the decimation. */
+  protected InstanceDecimation m_Decimation;
+
   /**
    * Returns a string describing the object.
    *
@@ -94,6 +107,10 @@ public class SimpleInstanceLinePaintlet
     m_OptionManager.add(
 	    "anti-aliasing-enabled", "antiAliasingEnabled",
 	    GUIHelper.getBoolean(getClass(), "antiAliasingEnabled", true));
+
+    m_OptionManager.add(
+	    "decimation-enabled", "decimationEnabled",
+	    GUIHelper.getBoolean(getClass(), "decimationEnabled", true));
   }
 
   /**
@@ -143,6 +160,86 @@ public class SimpleInstanceLinePaintlet
     return "If enabled, uses anti-aliasing for drawing lines.";
   }
 
+  /**
+   * Sets whether to paint only the points with the smallest and largest value
+   * per pixel column.
+   *
+   * @param value	if true then decimation is used
+   */
+  public void setDecimationEnabled(boolean value) {
+    m_DecimationEnabled = value;
+    getDecimation().clear();
+    memberChanged();
+  }
+
+  /**
+   * Returns whether to paint only the points with the smallest and largest
+   * value per pixel column.
+   *
+   * @return		true if decimation is used
+   */
+  public boolean isDecimationEnabled() {
+    return m_DecimationEnabled;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String decimationEnabledTipText() {
+    return "If enabled, only the points with the smallest and largest value per pixel column get painted.";
+  }
+
+  /**
+   * Returns the decimation, instantiates it if necessary.
+   *
+   * @return		the decimation
+   */
+  protected InstanceDecimation getDecimation() {
+    if (m_Decimation == null)
+      m_Decimation = new InstanceDecimation();
+    return m_Decimation;
+  }
+
+  /**
+   * Draws the decimated data, using the current settings of the graphics
+   * context.
+   *
+   * @param g		the graphics context
+   * @param data	the data to draw
+   * @param axisX	the X axis
+   * @param axisY	the Y axis
+   * @see		InstanceDecimation
+   */
+  protected void drawDecimated(Graphics g, Instance data, AxisPanel axisX, AxisPanel axisY) {
+    Decimated	points;
+    int		currX;
+    int		currY;
+    int		prevX;
+    int		prevY;
+    int		i;
+
+    points = getDecimation().decimate(data, axisX);
+    if (points.size() == 0)
+      return;
+
+    prevX = axisX.valueToPos(points.getX(0));
+    prevY = axisY.valueToPos(points.getY(0));
+
+    for (i = 0; i < points.size(); i++) {
+      currX = axisX.valueToPos(points.getX(i));
+      currY = axisY.valueToPos(points.getY(i));
+
+      // draw line
+      g.drawLine(prevX, prevY, currX, currY);
+
+      prevX = currX;
+      prevY = currY;
+    }
+  }
+
   /**
    * Draws the data with the given color.
    *
@@ -163,13 +260,19 @@ public class SimpleInstanceLinePaintlet
     int			start;
     int			end;
 
-    points = data.toList();
     axisX  = getPanel().getPlot().getAxis(Axis.BOTTOM);
     axisY  = getPanel().getPlot().getAxis(Axis.LEFT);
 
     g.setColor(color);
     GUIHelper.configureAntiAliasing(g, m_AntiAliasingEnabled);
 
+    if (m_DecimationEnabled) {
+      drawDecimated(g, data, axisX, axisY);
+      return;
+    }
+
+    points = data.toList();
+
     // find the start and end points for painting
     start = InstanceUtils.findClosestX(points, (int) Math.floor(axisX.getMinimum()));
     if (start > 0)
@@ -224,5 +327,9 @@ public class SimpleInstanceLinePaintlet
       data = (Instance) cont.getPayload();
       drawData(g, data, getColor(i));
     }
+
+    // discard decimations of instances that are no longer visible
+    if (m_DecimationEnabled)
+      getDecimation().cleanUp();
   }
 }
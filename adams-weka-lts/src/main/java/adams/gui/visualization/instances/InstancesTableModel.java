@@ -21,9 +21,9 @@
 
 package adams.gui.visualization.instances;
 
-import adams.core.SerializationHelper;
 import adams.data.spreadsheet.SpreadSheet;
 import adams.data.spreadsheet.SpreadSheetSupporter;
+import adams.data.weka.InstancesUndoStore;
 import adams.gui.core.ConsolePanel;
 import adams.gui.core.UndoHandlerWithQuickAccess;
 import adams.ml.data.InstancesView;
@@ -39,7 +39,6 @@ import weka.filters.unsupervised.attribute.Reorder;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.DefaultTableModel;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -49,7 +48,8 @@ import java.util.logging.Level;
 
 /**
  * The model for the Instances.
- * Supports simple undo by default, but can make use of a
+ * Supports simple undo by default (using copy-on-write snapshots managed by
+ * an {@link InstancesUndoStore}), but can make use of a
  * {@link UndoHandlerWithQuickAccess} as well.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
@@ -79,8 +79,11 @@ public class InstancesTableModel
   /** whether to ignore changes, i.e. not adding to undo history */
   protected boolean m_IgnoreChanges;
 
-  /** the undo list (contains temp. filenames) */
-  protected List<File> m_UndoList;
+  /** the undo list (contains the keys of the snapshots in the undo store) */
+  protected List<Long> m_UndoList;
+
+  /** the store for the undo snapshots */
+  protected transient InstancesUndoStore m_UndoStore;
 
   /** whether the table is read-only */
   protected boolean m_ReadOnly;
@@ -105,6 +108,7 @@ public class InstancesTableModel
     m_NotificationEnabled  = true;
     m_UndoHandler          = null;
     m_UndoList             = new ArrayList<>();
+    m_UndoStore            = null;
     m_IgnoreChanges        = false;
     m_UndoEnabled          = true;
     m_ReadOnly             = false;
@@ -168,6 +172,28 @@ public class InstancesTableModel
     return (m_UndoHandler != null) && m_UndoHandler.isUndoSupported() && m_UndoHandler.getUndo().isEnabled();
   }
 
+  /**
+   * Sets the store to use for the undo snapshots (when not using an undo
+   * handler), e.g., to use different memory/disk budgets.
+   *
+   * @param value	the store
+   */
+  public void setUndoStore(InstancesUndoStore value) {
+    clearUndo();
+    m_UndoStore = value;
+  }
+
+  /**
+   * Returns the store for the undo snapshots (when not using an undo handler).
+   *
+   * @return		the store
+   */
+  public synchronized InstancesUndoStore getUndoStore() {
+    if (m_UndoStore == null)
+      m_UndoStore = new InstancesUndoStore();
+    return m_UndoStore;
+  }
+
   /**
    * returns whether undo support is enabled
    *
@@ -991,8 +1017,8 @@ public class InstancesTableModel
   public void clearUndo() {
     if ((m_UndoHandler != null) && m_UndoHandler.isUndoSupported())
       m_UndoHandler.getUndo().clear();
-    for (File file: m_UndoList)
-      file.delete();
+    if (m_UndoStore != null)
+      m_UndoStore.clear();
     m_UndoList.clear();
   }
 
@@ -1015,7 +1041,7 @@ public class InstancesTableModel
    */
   @Override
   public void undo() {
-    File 		tempFile;
+    long 		key;
     Instances 		inst;
 
     if (canUndo()) {
@@ -1023,21 +1049,19 @@ public class InstancesTableModel
         m_UndoHandler.undo();
       }
       else {
-        // load file
-        tempFile = m_UndoList.get(m_UndoList.size() - 1);
-        try {
-          inst = (Instances) SerializationHelper.read(tempFile.getAbsolutePath());
+        // remove from undo
+        key  = m_UndoList.remove(m_UndoList.size() - 1);
+        inst = getUndoStore().remove(key);
+        if (inst != null) {
           setInstances(inst);
           notifyListener(new TableModelEvent(this, TableModelEvent.HEADER_ROW));
           notifyListener(new TableModelEvent(this));
         }
-        catch (Exception e) {
-          ConsolePanel.getSingleton().append(Level.SEVERE, "Failed to perform undo!", e);
+        else {
+          // the store discards the oldest snapshots first, i.e., all others are gone as well
+          ConsolePanel.getSingleton().append(Level.SEVERE, "Failed to perform undo, snapshot no longer available!");
+          m_UndoList.clear();
         }
-        tempFile.delete();
-
-        // remove from undo
-        m_UndoList.remove(m_UndoList.size() - 1);
       }
     }
   }
@@ -1050,8 +1074,6 @@ public class InstancesTableModel
    */
   @Override
   public void addUndoPoint() {
-    File 	tempFile;
-
     // undo support currently on?
     if (!isUndoEnabled()) {
       return;
@@ -1062,17 +1084,8 @@ public class InstancesTableModel
         m_UndoHandler.addUndoPoint("undo");
       }
       else {
-        try {
-          // temp. filename
-          tempFile = File.createTempFile("instances", null);
-          tempFile.deleteOnExit();
-          SerializationHelper.write(tempFile.getAbsolutePath(), getInstances());
-          // add to undo list
-          m_UndoList.add(tempFile);
-        }
-        catch (Exception e) {
-          ConsolePanel.getSingleton().append(Level.SEVERE, "Failed to serialize undo point!", e);
-        }
+        // add to undo list
+        m_UndoList.add(getUndoStore().add(getInstances()));
       }
     }
   }
@@ -62,6 +62,34 @@ public class DataCellView
     m_ColIndex = colIndex;
   }
 
+  /**
+   * Sets the value of the cell and invalidates the cached column metadata.
+   *
+   * @param value	the value to set
+   */
+  protected void updateValue(double value) {
+    m_Owner.getData().setValue(m_ColIndex, value);
+    m_Owner.invalidateMetadata(m_ColIndex);
+  }
+
+  /**
+   * Sets the value of the cell and invalidates the cached column metadata.
+   *
+   * @param value	the value to set
+   */
+  protected void updateValue(String value) {
+    m_Owner.getData().setValue(m_ColIndex, value);
+    m_Owner.invalidateMetadata(m_ColIndex);
+  }
+
+  /**
+   * Sets the cell to missing and invalidates the cached column metadata.
+   */
+  protected void updateMissing() {
+    m_Owner.getData().setMissing(m_ColIndex);
+    m_Owner.invalidateMetadata(m_ColIndex);
+  }
+
   /**
    * Sets the row this cell belongs to.
    *
@@ -107,14 +135,14 @@ public class DataCellView
   public void assign(Cell cell) {
     switch (m_Owner.getData().attribute(m_ColIndex).type()) {
       case Attribute.NUMERIC:
-	m_Owner.getData().setValue(m_ColIndex, cell.toDouble());
+	updateValue(cell.toDouble());
 	break;
       case Attribute.DATE:
-	m_Owner.getData().setValue(m_ColIndex, cell.toAnyDateType().getTime());
+	updateValue(cell.toAnyDateType().getTime());
 	break;
       case Attribute.NOMINAL:
       case Attribute.STRING:
-	m_Owner.getData().setValue(m_ColIndex, cell.getContent());
+	updateValue(cell.getContent());
 	break;
       default:
 	throw new IllegalArgumentException(
@@ -128,7 +156,7 @@ public class DataCellView
    */
   @Override
   public void setMissing() {
-    m_Owner.getData().setMissing(m_ColIndex);
+    updateMissing();
   }
 
   /**
@@ -151,9 +179,9 @@ public class DataCellView
   @Override
   public Cell setContent(Byte value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value.doubleValue());
+      updateValue(value.doubleValue());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -166,9 +194,9 @@ public class DataCellView
   @Override
   public Cell setContent(Short value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value.doubleValue());
+      updateValue(value.doubleValue());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -181,9 +209,9 @@ public class DataCellView
   @Override
   public Cell setContent(Integer value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value.doubleValue());
+      updateValue(value.doubleValue());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -196,9 +224,9 @@ public class DataCellView
   @Override
   public Cell setContent(Long value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value.doubleValue());
+      updateValue(value.doubleValue());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -211,9 +239,9 @@ public class DataCellView
   @Override
   public Cell setContent(Float value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value.doubleValue());
+      updateValue(value.doubleValue());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -226,9 +254,9 @@ public class DataCellView
   @Override
   public Cell setContent(Double value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value);
+      updateValue(value);
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -241,9 +269,9 @@ public class DataCellView
   @Override
   public Cell setContent(Date value) {
     if ((value != null) && isAnyDateType())
-      m_Owner.getData().setValue(m_ColIndex, value.getTime());
+      updateValue(value.getTime());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -256,9 +284,9 @@ public class DataCellView
   @Override
   public Cell setContent(DateTime value) {
     if ((value != null) && isAnyDateType())
-      m_Owner.getData().setValue(m_ColIndex, value.getTime());
+      updateValue(value.getTime());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -271,9 +299,9 @@ public class DataCellView
   @Override
   public Cell setContent(DateTimeMsec value) {
     if ((value != null) && isAnyDateType())
-      m_Owner.getData().setValue(m_ColIndex, value.getTime());
+      updateValue(value.getTime());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -286,9 +314,9 @@ public class DataCellView
   @Override
   public Cell setContent(Time value) {
     if ((value != null) && isAnyDateType())
-      m_Owner.getData().setValue(m_ColIndex, value.getTime());
+      updateValue(value.getTime());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -301,9 +329,9 @@ public class DataCellView
   @Override
   public Cell setContent(TimeMsec value) {
     if ((value != null) && isAnyDateType())
-      m_Owner.getData().setValue(m_ColIndex, value.getTime());
+      updateValue(value.getTime());
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -387,9 +415,9 @@ public class DataCellView
   @Override
   public Cell setContentAsString(String value) {
     if (value != null)
-      m_Owner.getData().setValue(m_ColIndex, value);
+      updateValue(value);
     else
-      m_Owner.getData().setMissing(m_ColIndex);
+      updateMissing();
     return this;
   }
 
@@ -70,6 +70,30 @@ public class InstanceView
     return m_Data;
   }
 
+  /**
+   * Sets the underlying Instance. Used by the cursors of {@link InstancesView}
+   * to reuse the row object.
+   *
+   * @param data	the underlying data
+   */
+  protected void setData(Instance data) {
+    m_Data = data;
+  }
+
+  /**
+   * Invalidates the cached metadata of the column in the owning view.
+   *
+   * @param columnIndex	the column that got modified, -1 for all
+   */
+  protected void invalidateMetadata(int columnIndex) {
+    if (m_Owner == null)
+      return;
+    if (columnIndex == -1)
+      m_Owner.invalidateMetadata();
+    else
+      m_Owner.invalidateMetadata(columnIndex);
+  }
+
   /**
    * Turns the cellKey into a column index.
    *
@@ -111,6 +135,7 @@ public class InstanceView
   @Override
   public Cell removeCell(int columnIndex) {
     m_Data.setMissing(columnIndex);
+    invalidateMetadata(columnIndex);
     return null;
   }
 
@@ -327,6 +352,7 @@ public class InstanceView
 
     for (i = 0; i < getCellCount(); i++)
       m_Data.setMissing(i);
+    invalidateMetadata(-1);
   }
 
   /**
@@ -344,6 +370,7 @@ public class InstanceView
       else
 	getCell(i).assign(row.getCell(i));
     }
+    invalidateMetadata(-1);
   }
 
   /**
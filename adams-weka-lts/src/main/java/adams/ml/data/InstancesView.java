@@ -15,7 +15,7 @@
 
 /**
  * InstancesView.java
- * Copyright (C) 2016 University of Waikato, Hamilton, NZ
+ * Copyright (C) 2016-2023 University of Waikato, Hamilton, NZ
  */
 
 package adams.ml.data;
@@ -43,17 +43,28 @@ import weka.filters.unsupervised.attribute.Remove;
 
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.TimeZone;
 
 /**
  * Provides a view of an {@link Instances} object.
+ * <br>
+ * Whether columns contain missing values is determined lazily and cached.
+ * Modifications through the view invalidate the cache, modifications of
+ * the underlying {@link Instances} require a call to
+ * {@link #invalidateMetadata()}.
+ * <br>
+ * For fast iteration, use {@link #rowCursor()} and {@link #columnCursor(int)},
+ * which reuse a single row/cell object.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  * @version $Revision$
@@ -72,6 +83,21 @@ public class InstancesView
   /** the shared string table. */
   protected SharedStringsTable m_SharedStringsTable;
 
+  /** whether it is unknown if a column has missing values. */
+  public static final byte MISSING_UNKNOWN = 0;
+
+  /** column has no missing values. */
+  public static final byte MISSING_NO = 1;
+
+  /** column has missing values. */
+  public static final byte MISSING_YES = 2;
+
+  /** the cached missing value state per column. */
+  protected transient byte[] m_MissingCache;
+
+  /** the number of rows at the time the cache was initialized. */
+  protected transient int m_MissingCacheRows;
+
   /**
    * Initializes the view with a dummy dataset.
    */
@@ -164,6 +190,7 @@ public class InstancesView
   @Override
   public void clear() {
     m_Data.clear();
+    invalidateMetadata();
   }
 
   /**
@@ -252,6 +279,7 @@ public class InstancesView
     inst = new DenseInstance(getColumnCount());
     inst.setDataset(m_Data);
     m_Data.add(inst);
+    invalidateMetadata();
 
     return new InstanceView(this, inst);
   }
@@ -282,6 +310,7 @@ public class InstancesView
     inst = new DenseInstance(getColumnCount());
     inst.setDataset(m_Data);
     m_Data.add(index, inst);
+    invalidateMetadata();
 
     return new InstanceView(this, inst);
   }
@@ -294,10 +323,13 @@ public class InstancesView
    */
   @Override
   public Row removeRow(int rowIndex) {
-    if ((rowIndex >= 0) && (rowIndex < getRowCount()))
+    if ((rowIndex >= 0) && (rowIndex < getRowCount())) {
+      invalidateMetadata();
       return new InstanceView(this, m_Data.remove(rowIndex));
-    else
+    }
+    else {
       return null;
+    }
   }
 
   /**
@@ -492,31 +524,86 @@ public class InstancesView
    */
   @Override
   public Collection<String> rowKeys() {
-    List<String>	result;
-    int			i;
-
-    result = new ArrayList<>();
-    for (i = 0; i < getRowCount(); i++)
-      result.add("" + i);
-
-    return result;
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+	return getRowKey(index);
+      }
+      @Override
+      public int size() {
+	return getRowCount();
+      }
+    };
   }
 
   /**
-   * Returns all rows.
+   * Returns all rows. The rows get created on demand.
    *
    * @return		the rows
+   * @see		#rowCursor()
    */
   @Override
   public Collection<DataRow> rows() {
-    List<DataRow>	result;
-    int			i;
+    return new AbstractList<DataRow>() {
+      @Override
+      public DataRow get(int index) {
+	return getRow(index);
+      }
+      @Override
+      public int size() {
+	return getRowCount();
+      }
+    };
+  }
 
-    result = new ArrayList<>();
-    for (i = 0; i < getRowCount(); i++)
-      result.add(getRow(i));
+  /**
+   * Returns a cursor over all rows. The returned row object gets reused,
+   * i.e., it must not be stored.
+   *
+   * @return		the cursor
+   */
+  public Iterable<DataRow> rowCursor() {
+    return () -> new Iterator<DataRow>() {
+      protected InstanceView m_Row = new InstanceView(InstancesView.this, null);
+      protected int m_Index = 0;
+      @Override
+      public boolean hasNext() {
+	return (m_Index < getRowCount());
+      }
+      @Override
+      public DataRow next() {
+	if (!hasNext())
+	  throw new NoSuchElementException();
+	m_Row.setData(m_Data.instance(m_Index++));
+	return m_Row;
+      }
+    };
+  }
 
-    return result;
+  /**
+   * Returns a cursor over all cells of the column. The returned cell object
+   * gets reused, i.e., it must not be stored.
+   *
+   * @param columnIndex	the column to iterate
+   * @return		the cursor
+   */
+  public Iterable<Cell> columnCursor(int columnIndex) {
+    return () -> new Iterator<Cell>() {
+      protected InstanceView m_Row = new InstanceView(InstancesView.this, null);
+      protected DataCellView m_Cell = new DataCellView(m_Row, columnIndex);
+      protected int m_Index = 0;
+      @Override
+      public boolean hasNext() {
+	return (m_Index < getRowCount());
+      }
+      @Override
+      public Cell next() {
+	if (!hasNext())
+	  throw new NoSuchElementException();
+	m_Row.setData(m_Data.instance(m_Index++));
+	return m_Cell;
+      }
+    };
   }
 
   /**
@@ -627,19 +714,63 @@ public class InstancesView
   @Override
   public boolean isNumeric(int columnIndex, boolean allowMissing) {
     boolean	result;
-    int		i;
 
     result = (m_Data.attribute(columnIndex).type() == Attribute.NUMERIC);
-    if (result && !allowMissing) {
+    if (result && !allowMissing)
+      result = !hasMissing(columnIndex);
+
+    return result;
+  }
+
+  /**
+   * Invalidates the cached metadata of all columns.
+   */
+  public void invalidateMetadata() {
+    m_MissingCache = null;
+  }
+
+  /**
+   * Invalidates the cached metadata of the specified column.
+   *
+   * @param columnIndex	the column that got modified
+   */
+  public void invalidateMetadata(int columnIndex) {
+    if ((m_MissingCache != null) && (columnIndex >= 0) && (columnIndex < m_MissingCache.length))
+      m_MissingCache[columnIndex] = MISSING_UNKNOWN;
+  }
+
+  /**
+   * Checks whether the column contains missing values. The result gets
+   * cached until the view gets modified.
+   *
+   * @param columnIndex	the column to check
+   * @return		true if at least one value is missing
+   * @see		#invalidateMetadata()
+   */
+  public boolean hasMissing(int columnIndex) {
+    byte	state;
+    int		i;
+
+    if ((m_MissingCache == null)
+      || (m_MissingCache.length != m_Data.numAttributes())
+      || (m_MissingCacheRows != m_Data.numInstances())) {
+      m_MissingCache     = new byte[m_Data.numAttributes()];
+      m_MissingCacheRows = m_Data.numInstances();
+    }
+
+    state = m_MissingCache[columnIndex];
+    if (state == MISSING_UNKNOWN) {
+      state = MISSING_NO;
       for (i = 0; i < m_Data.numInstances(); i++) {
 	if (m_Data.instance(i).isMissing(columnIndex)) {
-	  result = false;
+	  state = MISSING_YES;
 	  break;
 	}
       }
+      m_MissingCache[columnIndex] = state;
     }
 
-    return result;
+    return (state == MISSING_YES);
   }
 
   /**
@@ -694,7 +825,6 @@ public class InstancesView
   public Collection<ContentType> getContentTypes(int columnIndex) {
     List<ContentType>	result;
     Attribute		att;
-    int			i;
 
     result = new ArrayList<>();
     att    = m_Data.attribute(columnIndex);
@@ -708,12 +838,8 @@ public class InstancesView
       result.add(ContentType.STRING);
 
     // check for missing
-    for (i = 0; i < m_Data.numInstances(); i++) {
-      if (m_Data.instance(i).isMissing(columnIndex)) {
-	result.add(ContentType.MISSING);
-	break;
-      }
-    }
+    if (hasMissing(columnIndex))
+      result.add(ContentType.MISSING);
 
     return result;
   }
@@ -741,14 +867,11 @@ public class InstancesView
   public List<String> getCellValues(int colIndex) {
     List<String>	result;
     HashSet<String>	values;
-    int			i;
-    Cell		cell;
 
     result = new ArrayList<>();
     values = new HashSet<>();
-    for (i = 0; i < getRowCount(); i++) {
-      cell = getCell(i, colIndex);
-      if ((cell != null) && !cell.isMissing())
+    for (Cell cell: columnCursor(colIndex)) {
+      if (!cell.isMissing())
 	values.add(cell.getContent());
     }
     result.addAll(values);
@@ -783,8 +906,6 @@ public class InstancesView
     Object[][]		result;
     int 		r;
     int 		c;
-    Row			row;
-    Cell		cell;
 
     result = new Object[getRowCount() + 1][getColumnCount()];
 
@@ -793,14 +914,14 @@ public class InstancesView
       result[0][c] = m_Data.attribute(c).name();
 
     // data
-    for (r = 0; r < getRowCount(); r++) {
-      row = getRow(r);
-      for (c = 0; c < getColumnCount(); c++) {
-	cell = row.getCell(c);
-	if ((cell == null) || cell.isMissing())
+    for (c = 0; c < getColumnCount(); c++) {
+      r = 0;
+      for (Cell cell: columnCursor(c)) {
+	if (cell.isMissing())
 	  result[r + 1][c] = null;
 	else
 	  result[r + 1][c] = cell.getNative();
+	r++;
       }
     }
 
@@ -1005,6 +1126,7 @@ public class InstancesView
     if (sheet instanceof InstancesView) {
       m_Data   = ((InstancesView) sheet).getData();
       m_Header = new InstancesHeaderRow(this);
+      invalidateMetadata();
     }
     else {
       throw new IllegalArgumentException("Other spreadsheet can only be " + InstancesView.class.getName());
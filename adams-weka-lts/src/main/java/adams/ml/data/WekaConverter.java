@@ -86,6 +86,7 @@ public class WekaConverter {
 
     conv = new WekaInstancesToSpreadSheet();
     conv.setSpreadSheetType(new DefaultDataset());
+    conv.setInput(data);
     msg = conv.convert();
     if (msg != null)
       throw new Exception("Failed to convert Instances to Dataset: " + msg);
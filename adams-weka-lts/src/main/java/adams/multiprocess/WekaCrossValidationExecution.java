@@ -34,9 +34,26 @@ import weka.classifiers.Classifier;
 import weka.classifiers.CrossValidationFoldGenerator;
 import weka.classifiers.DefaultCrossValidationFoldGenerator;
 import weka.classifiers.Evaluation;
+import weka.classifiers.MergeEvaluations;
 import weka.classifiers.evaluation.output.prediction.AbstractOutput;
 import weka.core.Instances;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
 /**
  * Performs cross-validation, either single or multi-threaded.
  *
@@ -84,6 +101,9 @@ public class WekaCrossValidationExecution
   /** the actual number of threads to use. */
   protected int m_ActualNumThreads;
 
+  /** the maximum number of folds to keep in memory in parallel mode (&lt;1 = number of threads). */
+  protected int m_MaxFoldsInMemory;
+
   /** the jobrunner setup. */
   protected transient JobRunnerSetup m_JobRunnerSetup;
 
@@ -93,6 +113,9 @@ public class WekaCrossValidationExecution
   /** the runner in use. */
   protected transient JobRunner m_ActualJobRunner;
 
+  /** the executor in use (default parallel execution). */
+  protected transient ExecutorService m_Executor;
+
   /** the (aggregated) evaluation. */
   protected Evaluation m_Evaluation;
 
@@ -127,12 +150,14 @@ public class WekaCrossValidationExecution
     m_Data                 = null;
     m_Output               = null;
     m_ActualJobRunner      = null;
+    m_Executor             = null;
     m_JobRunner            = null;
     m_JobRunnerSetup       = null;
     m_StatusMessageHandler = null;
     m_WaitForJobs          = true;
     m_Generator            = new DefaultCrossValidationFoldGenerator();
     m_FlowContext          = null;
+    m_MaxFoldsInMemory     = -1;
   }
 
   /**
@@ -367,8 +392,8 @@ public class WekaCrossValidationExecution
   /**
    * Sets whether to discard the predictions instead of collecting them
    * for future use, in order to conserve memory.
-   * NB: Must be false in case of parallel execution to allow for aggregation
-   * of statistics;
+   * In case of parallel execution, the statistics of the folds get merged
+   * rather than aggregated from the predictions.
    *
    * @param value	true if to discard predictions
    */
@@ -378,8 +403,8 @@ public class WekaCrossValidationExecution
 
   /**
    * Returns whether to discard the predictions in order to preserve memory.
-   * NB: Must be false in case of parallel execution to allow for aggregation
-   * of statistics;
+   * In case of parallel execution, the statistics of the folds get merged
+   * rather than aggregated from the predictions.
    *
    * @return		true if predictions discarded
    */
@@ -407,6 +432,26 @@ public class WekaCrossValidationExecution
     return m_NumThreads;
   }
 
+  /**
+   * Sets the maximum number of folds that get generated and kept in memory
+   * at the same time in parallel mode.
+   *
+   * @param value 	the maximum: &lt;1 = number of threads
+   */
+  public void setMaxFoldsInMemory(int value) {
+    m_MaxFoldsInMemory = value;
+  }
+
+  /**
+   * Returns the maximum number of folds that get generated and kept in memory
+   * at the same time in parallel mode.
+   *
+   * @return 		the maximum: &lt;1 = number of threads
+   */
+  public int getMaxFoldsInMemory() {
+    return m_MaxFoldsInMemory;
+  }
+
   /**
    * Sets the status message handler for outputting notifications.
    *
@@ -486,6 +531,125 @@ public class WekaCrossValidationExecution
     return (m_ActualNumThreads == 0);
   }
 
+  /**
+   * Returns a new job runner instance to use for the parallel execution.
+   *
+   * @return		the job runner
+   * @throws Exception	if copying of template fails
+   */
+  protected JobRunner newJobRunner() throws Exception {
+    JobRunner	result;
+    boolean	setNumThreads;
+
+    setNumThreads = true;
+    if (m_JobRunnerSetup != null) {
+      result        = m_JobRunnerSetup.newInstance();
+      setNumThreads = false;
+    }
+    else if (m_JobRunner != null) {
+      result        = ObjectCopyHelper.copyObject(m_JobRunner);
+      setNumThreads = false;
+    }
+    else {
+      result = new LocalJobRunner<WekaCrossValidationJob>();
+    }
+    if (setNumThreads && (result instanceof ThreadLimiter))
+      ((ThreadLimiter) result).setNumThreads(m_NumThreads);
+
+    return result;
+  }
+
+  /**
+   * Determines the number of folds to generate and evaluate per batch in
+   * parallel mode.
+   *
+   * @param folds	the total number of folds
+   * @return		the batch size
+   */
+  protected int determineBatchSize(int folds) {
+    int		result;
+
+    if (m_MaxFoldsInMemory > 0)
+      result = m_MaxFoldsInMemory;
+    else
+      result = Math.max(1, m_ActualNumThreads);
+    if ((folds > 0) && (result > folds))
+      result = folds;
+
+    return result;
+  }
+
+  /**
+   * Creates a new job for the train/test pair.
+   *
+   * @param cont	the train/test pair
+   * @return		the job
+   */
+  protected WekaCrossValidationJob newJob(WekaTrainTestSetContainer cont) {
+    WekaCrossValidationJob	result;
+
+    result = new WekaCrossValidationJob(
+      m_Classifier,
+      (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN),
+      (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST),
+      (Integer) cont.getValue(WekaTrainTestSetContainer.VALUE_FOLD_NUMBER),
+      m_DiscardPredictions,
+      m_StatusMessageHandler);
+    result.setFlowContext(m_FlowContext);
+
+    return result;
+  }
+
+  /**
+   * Adds the evaluation of the finished job.
+   *
+   * @param job		the finished job
+   * @param evalMerge	for merging the statistics, null if aggregating
+   * @param evalAgg	for aggregating the evaluations, null if merging
+   * @param evaluations	for storing the evaluation
+   * @param classifiers	for storing the classifier
+   * @return		null if successful, otherwise error message
+   */
+  protected String addEvaluation(WekaCrossValidationJob job, MergeEvaluations evalMerge, AggregateEvaluations evalAgg, List<Evaluation> evaluations, List<Classifier> classifiers) {
+    String	result;
+
+    if (job.getEvaluation() == null)
+      return "Fold #" + (evaluations.size() + 1) + " failed to evaluate" + (job.hasExecutionError() ? job.getExecutionError() : "?");
+    if (evalMerge != null)
+      result = evalMerge.add(job.getEvaluation());
+    else
+      result = evalAgg.add(job.getEvaluation());
+    if (result == null) {
+      evaluations.add(job.getEvaluation());
+      classifiers.add(job.getClassifier());
+    }
+
+    return result;
+  }
+
+  /**
+   * Wraps the job in a task for the executor.
+   *
+   * @param job		the job to execute
+   * @param index	the index of the job, gets returned by the task
+   * @return		the task
+   */
+  protected Callable<Integer> newTask(final WekaCrossValidationJob job, final int index) {
+    return new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        try {
+          job.execute();
+        }
+        catch (Throwable t) {
+          getLogger().log(Level.SEVERE, "Failed to execute job: " + job, t);
+        }
+        job.releaseData();
+        return index;
+      }
+    };
+  }
+
   /**
    * Executes the flow item.
    *
@@ -495,6 +659,7 @@ public class WekaCrossValidationExecution
     MessageCollection 			result;
     Evaluation 				eval;
     AggregateEvaluations 		evalAgg;
+    MergeEvaluations 			evalMerge;
     int					folds;
     CrossValidationFoldGenerator 	generator;
     JobList<WekaCrossValidationJob>	list;
@@ -506,7 +671,16 @@ public class WekaCrossValidationExecution
     Instances				train;
     Instances				test;
     Classifier				cls;
-    boolean				setNumThreads;
+    int					batchSize;
+    List<Evaluation>			evaluations;
+    List<Classifier>			classifiers;
+    String				msg;
+    Map<Integer,WekaCrossValidationJob>	jobs;
+    Set<Integer>			finished;
+    Semaphore				inFlight;
+    CompletionService<Integer>		completion;
+    Future<Integer>			done;
+    int					submitted;
 
     result        = new MessageCollection();
     indices       = null;
@@ -521,7 +695,11 @@ public class WekaCrossValidationExecution
       if (isLoggingEnabled())
         getLogger().info(OptionUtils.getCommandLine(m_Classifier));
 
-      m_ActualNumThreads = Performance.determineNumThreads(m_NumThreads);
+      // run sequentially when nested within the shared executor, unless a custom job runner is used
+      if ((m_JobRunnerSetup == null) && (m_JobRunner == null))
+        m_ActualNumThreads = Performance.determineNumThreads(WekaSharedExecutor.limitNumThreads(m_NumThreads));
+      else
+        m_ActualNumThreads = Performance.determineNumThreads(m_NumThreads);
 
       generator = ObjectCopyHelper.copyObject(m_Generator);
       generator.setData(m_Data);
@@ -562,66 +740,114 @@ public class WekaCrossValidationExecution
           m_Evaluation = eval;
       }
       else {
+        // at most this many folds get generated and kept in memory at the same time
+        batchSize     = determineBatchSize(folds);
+        // without predictions, the fold statistics get merged instead
+        evalAgg       = null;
+        evalMerge     = null;
         if (m_DiscardPredictions)
-          throw new IllegalStateException(
-              "Cannot discard predictions in parallel mode, as they are used for aggregating the statistics!");
-        setNumThreads = true;
-        if (m_JobRunnerSetup != null) {
-          m_ActualJobRunner = m_JobRunnerSetup.newInstance();
-          setNumThreads     = false;
-        }
-        else if (m_JobRunner != null) {
-          m_ActualJobRunner = ObjectCopyHelper.copyObject(m_JobRunner);
-          setNumThreads     = false;
+          evalMerge = new MergeEvaluations();
+        else
+          evalAgg = new AggregateEvaluations();
+        evaluations   = new ArrayList<>();
+        classifiers   = new ArrayList<>();
+        if ((m_JobRunnerSetup == null) && (m_JobRunner == null)) {
+          // the next fold gets generated as soon as a fold finishes
+          jobs       = new HashMap<>();
+          finished   = new HashSet<>();
+          inFlight   = new Semaphore(batchSize);
+          m_Executor = Executors.newFixedThreadPool(Math.max(1, m_ActualNumThreads));
+          completion = new ExecutorCompletionService<>(m_Executor);
+          submitted  = 0;
+          current    = 0;
+          try {
+            while (!isStopped() && result.isEmpty()) {
+              while (generator.hasNext() && inFlight.tryAcquire()) {
+                job = newJob(generator.next());
+                jobs.put(submitted, job);
+                completion.submit(newTask(job, submitted));
+                submitted++;
+              }
+              if (current == submitted)
+                break;
+              // queued folds get discarded when stopped
+              done = null;
+              while ((done == null) && !isStopped())
+                done = completion.poll(100, TimeUnit.MILLISECONDS);
+              if (done == null)
+                break;
+              finished.add(done.get());
+              inFlight.release();
+              // evaluations get added in the order of the folds
+              while (finished.remove(current)) {
+                job = jobs.remove(current);
+                msg = addEvaluation(job, evalMerge, evalAgg, evaluations, classifiers);
+                job.cleanUp();
+                current++;
+                if (msg != null) {
+                  result.add(msg);
+                  break;
+                }
+              }
+            }
+          }
+          finally {
+            if (m_WaitForJobs) {
+              m_Executor.shutdown();
+              m_Executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            else {
+              m_Executor.shutdownNow();
+            }
+            m_Executor = null;
+          }
         }
         else {
-          m_ActualJobRunner = new LocalJobRunner<WekaCrossValidationJob>();
-        }
-        if (setNumThreads && (m_ActualJobRunner instanceof ThreadLimiter))
-          ((ThreadLimiter) m_ActualJobRunner).setNumThreads(m_NumThreads);
-        list = new JobList<>();
-        while (generator.hasNext()) {
-          cont = generator.next();
-          job  = new WekaCrossValidationJob(
-              ObjectCopyHelper.copyObject(m_Classifier),
-              (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN),
-              (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST),
-              (Integer) cont.getValue(WekaTrainTestSetContainer.VALUE_FOLD_NUMBER),
-              m_DiscardPredictions,
-              m_StatusMessageHandler);
-          job.setFlowContext(m_FlowContext);
-          list.add(job);
-        }
-        m_ActualJobRunner.add(list);
-        m_ActualJobRunner.start();
-        m_ActualJobRunner.stop();
-        // aggregate data
-        if (!isStopped()) {
-          evalAgg = new AggregateEvaluations();
-          m_Evaluations = new Evaluation[m_ActualJobRunner.getJobs().size()];
-          m_Classifiers = new Classifier[m_ActualJobRunner.getJobs().size()];
-          for (i = 0; i < m_ActualJobRunner.getJobs().size(); i++) {
-            job = (WekaCrossValidationJob) m_ActualJobRunner.getJobs().get(i);
-            if (job.getEvaluation() == null) {
-              result.add("Fold #" + (i + 1) + " failed to evaluate" + (job.hasExecutionError() ? job.getExecutionError() : "?"));
-              break;
+          // custom job runners only offer add/start/stop, hence the folds get
+          // generated when the previous batch has been evaluated
+          while (generator.hasNext() && !isStopped() && result.isEmpty()) {
+            list = new JobList<>();
+            while (generator.hasNext() && (list.size() < batchSize))
+              list.add(newJob(generator.next()));
+            m_ActualJobRunner = newJobRunner();
+            m_ActualJobRunner.add(list);
+            m_ActualJobRunner.start();
+            m_ActualJobRunner.stop();
+            // aggregate data
+            if (!isStopped()) {
+              for (i = 0; i < m_ActualJobRunner.getJobs().size(); i++) {
+                job = (WekaCrossValidationJob) m_ActualJobRunner.getJobs().get(i);
+                msg = addEvaluation(job, evalMerge, evalAgg, evaluations, classifiers);
+                if (msg != null) {
+                  result.add(msg);
+                  break;
+                }
+                job.cleanUp();
+              }
             }
-            evalAgg.add(job.getEvaluation());
-            m_Evaluations[i] = job.getEvaluation();
-            m_Classifiers[i] = job.getClassifier();
-            job.cleanUp();
+            list.cleanUp();
+            m_ActualJobRunner.cleanUp();
+            m_ActualJobRunner = null;
           }
-          m_Evaluation = evalAgg.aggregated();
-          if (m_Evaluation == null) {
-            if (evalAgg.hasLastError())
-              result.add(evalAgg.getLastError());
-            else
-              result.add("Failed to aggregate evaluations!");
+        }
+        if (!isStopped() && result.isEmpty()) {
+          m_Evaluations = evaluations.toArray(new Evaluation[0]);
+          m_Classifiers = classifiers.toArray(new Classifier[0]);
+          if (evalMerge != null) {
+            m_Evaluation = evalMerge.aggregated();
+            if (m_Evaluation == null)
+              result.add("Failed to merge evaluations!");
+          }
+          else {
+            m_Evaluation = evalAgg.aggregated();
+            if (m_Evaluation == null) {
+              if (evalAgg.hasLastError())
+                result.add(evalAgg.getLastError());
+              else
+                result.add("Failed to aggregate evaluations!");
+            }
           }
         }
-        list.cleanUp();
-        m_ActualJobRunner.cleanUp();
-        m_ActualJobRunner = null;
       }
 
       if (!m_DiscardPredictions)
@@ -652,10 +878,15 @@ public class WekaCrossValidationExecution
    * Stops the execution.
    */
   public void stopExecution() {
+    ExecutorService	executor;
+
     m_Stopped = true;
     getLogger().severe("Execution stopped");
     if (m_ActualJobRunner != null)
       m_ActualJobRunner.terminate(m_WaitForJobs);
+    executor = m_Executor;
+    if ((executor != null) && !m_WaitForJobs)
+      executor.shutdownNow();
   }
 
   /**
@@ -669,6 +900,7 @@ public class WekaCrossValidationExecution
     m_JobRunnerSetup       = null;
     m_JobRunner            = null;
     m_ActualJobRunner      = null;
+    m_Executor             = null;
     m_Evaluation           = null;
     m_Evaluations          = null;
     m_Classifiers          = null;
@@ -245,6 +245,15 @@ public class WekaCrossValidationJob
     return null;
   }
 
+  /**
+   * Releases the train/test sets once the job has finished, keeping the
+   * evaluation and the classifier.
+   */
+  public void releaseData() {
+    m_Train = null;
+    m_Test  = null;
+  }
+
   /**
    * Cleans up data structures, frees up memory.
    * Removes dependencies and job parameters.
@@ -0,0 +1,585 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WekaRacingCrossValidationExecution.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.multiprocess;
+
+import adams.core.CleanUpHandler;
+import adams.core.ObjectCopyHelper;
+import adams.core.Stoppable;
+import adams.core.logging.CustomLoggingLevelObject;
+import adams.core.logging.LoggingHelper;
+import adams.flow.container.WekaTrainTestSetContainer;
+import adams.flow.core.Actor;
+import adams.flow.core.FlowContextHandler;
+import weka.classifiers.Classifier;
+import weka.classifiers.CrossValidationFoldGenerator;
+import weka.classifiers.DefaultCrossValidationFoldGenerator;
+import weka.classifiers.Evaluation;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Statistics;
+
+import java.io.Serializable;
+
+/**
+ * Performs a sequential cross-validation that evaluates the folds one at a
+ * time and stops early ("races out" the classifier) once the upper
+ * confidence bound (Student's t) of the mean fold score drops below the
+ * score of the incumbent, i.e., when the classifier cannot beat it anymore.
+ * <br>
+ * Fold scores must be oriented such that larger is better.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WekaRacingCrossValidationExecution
+  extends CustomLoggingLevelObject
+  implements Stoppable, FlowContextHandler, CleanUpHandler {
+
+  private static final long serialVersionUID = 3394025871606311052L;
+
+  /**
+   * Computes the score of a fold, larger is better.
+   */
+  public interface FoldScorer
+    extends Serializable {
+
+    /**
+     * Computes the score for the evaluation of a single fold.
+     *
+     * @param eval	the evaluation
+     * @return		the score (larger is better)
+     * @throws Exception	if computation fails
+     */
+    public double score(Evaluation eval) throws Exception;
+  }
+
+  /**
+   * Provides the score that has to be beaten.
+   */
+  public interface IncumbentProvider
+    extends Serializable {
+
+    /**
+     * Returns the score to beat, oriented like the fold scores.
+     *
+     * @return		the score, NaN if none available (yet)
+     */
+    public double getIncumbent();
+  }
+
+  /** the classifier to evaluate. */
+  protected Classifier m_Classifier;
+
+  /** the data to evaluate on. */
+  protected Instances m_Data;
+
+  /** the number of folds. */
+  protected int m_Folds;
+
+  /** the seed value. */
+  protected long m_Seed;
+
+  /** the fold generator. */
+  protected CrossValidationFoldGenerator m_Generator;
+
+  /** whether to discard the predictions. */
+  protected boolean m_DiscardPredictions;
+
+  /** for scoring the folds. */
+  protected FoldScorer m_Scorer;
+
+  /** the incumbent to beat. */
+  protected IncumbentProvider m_Incumbent;
+
+  /** the confidence level for the bound (0-1). */
+  protected double m_Confidence;
+
+  /** the minimum number of folds to evaluate before racing. */
+  protected int m_MinFolds;
+
+  /** the evaluation (partial, if raced out). */
+  protected Evaluation m_Evaluation;
+
+  /** the number of folds in total. */
+  protected int m_NumFolds;
+
+  /** the number of folds that were evaluated. */
+  protected int m_NumEvaluatedFolds;
+
+  /** whether the classifier was raced out. */
+  protected boolean m_RacedOut;
+
+  /** whether the execution was stopped. */
+  protected boolean m_Stopped;
+
+  /** the flow context. */
+  protected transient Actor m_FlowContext;
+
+  /**
+   * Initializes the execution.
+   */
+  public WekaRacingCrossValidationExecution() {
+    super();
+
+    m_Classifier         = null;
+    m_Data               = null;
+    m_Folds              = 10;
+    m_Seed               = 1;
+    m_Generator          = new DefaultCrossValidationFoldGenerator();
+    m_DiscardPredictions = false;
+    m_Scorer             = null;
+    m_Incumbent          = null;
+    m_Confidence         = 0.95;
+    m_MinFolds           = 2;
+    m_FlowContext        = null;
+  }
+
+  /**
+   * Sets the flow context.
+   *
+   * @param value the actor
+   */
+  public void setFlowContext(Actor value) {
+    m_FlowContext = value;
+  }
+
+  /**
+   * Returns the flow context, if any.
+   *
+   * @return the actor, null if none available
+   */
+  public Actor getFlowContext() {
+    return m_FlowContext;
+  }
+
+  /**
+   * Sets the classifier to use.
+   *
+   * @param value	the classifier
+   */
+  public void setClassifier(Classifier value) {
+    m_Classifier = value;
+  }
+
+  /**
+   * Returns the classifier in use.
+   *
+   * @return		the classifier
+   */
+  public Classifier getClassifier() {
+    return m_Classifier;
+  }
+
+  /**
+   * Sets the data to use.
+   *
+   * @param value	the data
+   */
+  public void setData(Instances value) {
+    m_Data = value;
+  }
+
+  /**
+   * Returns the data in use.
+   *
+   * @return		the data
+   */
+  public Instances getData() {
+    return m_Data;
+  }
+
+  /**
+   * Sets the number of folds.
+   *
+   * @param value	the folds
+   */
+  public void setFolds(int value) {
+    m_Folds = value;
+  }
+
+  /**
+   * Returns the number of folds.
+   *
+   * @return		the folds
+   */
+  public int getFolds() {
+    return m_Folds;
+  }
+
+  /**
+   * Sets the seed value.
+   *
+   * @param value	the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Returns the seed value.
+   *
+   * @return		the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Sets the fold generator to use.
+   *
+   * @param value	the generator
+   */
+  public void setGenerator(CrossValidationFoldGenerator value) {
+    m_Generator = value;
+  }
+
+  /**
+   * Returns the fold generator in use.
+   *
+   * @return		the generator
+   */
+  public CrossValidationFoldGenerator getGenerator() {
+    return m_Generator;
+  }
+
+  /**
+   * Sets whether to discard the predictions.
+   *
+   * @param value	true if to discard
+   */
+  public void setDiscardPredictions(boolean value) {
+    m_DiscardPredictions = value;
+  }
+
+  /**
+   * Returns whether to discard the predictions.
+   *
+   * @return		true if to discard
+   */
+  public boolean getDiscardPredictions() {
+    return m_DiscardPredictions;
+  }
+
+  /**
+   * Sets the scorer for the folds.
+   *
+   * @param value	the scorer
+   */
+  public void setScorer(FoldScorer value) {
+    m_Scorer = value;
+  }
+
+  /**
+   * Returns the scorer for the folds.
+   *
+   * @return		the scorer
+   */
+  public FoldScorer getScorer() {
+    return m_Scorer;
+  }
+
+  /**
+   * Sets the provider for the incumbent score.
+   *
+   * @param value	the provider, null to disable racing
+   */
+  public void setIncumbent(IncumbentProvider value) {
+    m_Incumbent = value;
+  }
+
+  /**
+   * Returns the provider for the incumbent score.
+   *
+   * @return		the provider, null if racing disabled
+   */
+  public IncumbentProvider getIncumbent() {
+    return m_Incumbent;
+  }
+
+  /**
+   * Sets the confidence level for the bound.
+   *
+   * @param value	the confidence (0-1)
+   */
+  public void setConfidence(double value) {
+    m_Confidence = value;
+  }
+
+  /**
+   * Returns the confidence level for the bound.
+   *
+   * @return		the confidence (0-1)
+   */
+  public double getConfidence() {
+    return m_Confidence;
+  }
+
+  /**
+   * Sets the minimum number of folds to evaluate before a classifier can
+   * get raced out.
+   *
+   * @param value	the minimum (at least 2)
+   */
+  public void setMinFolds(int value) {
+    m_MinFolds = value;
+  }
+
+  /**
+   * Returns the minimum number of folds to evaluate before a classifier can
+   * get raced out.
+   *
+   * @return		the minimum
+   */
+  public int getMinFolds() {
+    return m_MinFolds;
+  }
+
+  /**
+   * Returns the evaluation. Only covers the evaluated folds in case the
+   * classifier was raced out.
+   *
+   * @return		the evaluation, null if failed
+   */
+  public Evaluation getEvaluation() {
+    return m_Evaluation;
+  }
+
+  /**
+   * Returns whether the classifier was raced out.
+   *
+   * @return		true if stopped early
+   */
+  public boolean isRacedOut() {
+    return m_RacedOut;
+  }
+
+  /**
+   * Returns the total number of folds.
+   *
+   * @return		the number of folds
+   */
+  public int getNumFolds() {
+    return m_NumFolds;
+  }
+
+  /**
+   * Returns the number of folds that were evaluated.
+   *
+   * @return		the number of folds
+   */
+  public int getNumEvaluatedFolds() {
+    return m_NumEvaluatedFolds;
+  }
+
+  /**
+   * Returns the number of folds that were skipped due to racing.
+   *
+   * @return		the number of folds
+   */
+  public int getNumSkippedFolds() {
+    if (m_RacedOut)
+      return m_NumFolds - m_NumEvaluatedFolds;
+    else
+      return 0;
+  }
+
+  /**
+   * Returns the quantile of Student's t-distribution.
+   *
+   * @param p		the probability (0.5-1)
+   * @param df		the degrees of freedom
+   * @return		the quantile
+   */
+  public static double studentTQuantile(double p, int df) {
+    double	low;
+    double	high;
+    double	mid;
+    double	cdf;
+    int		i;
+
+    if (p <= 0.5)
+      return 0.0;
+
+    low  = 0.0;
+    high = 1000.0;
+    for (i = 0; i < 100; i++) {
+      mid = (low + high) / 2;
+      cdf = 1.0 - 0.5 * Statistics.incompleteBeta(df / 2.0, 0.5, df / (df + mid * mid));
+      if (cdf < p)
+	low = mid;
+      else
+	high = mid;
+    }
+
+    return (low + high) / 2;
+  }
+
+  /**
+   * Checks whether the classifier can still beat the incumbent.
+   *
+   * @param scores	the fold scores so far
+   * @param n		the number of scores
+   * @return		true if it cannot beat the incumbent anymore
+   */
+  protected boolean isRacedOut(double[] scores, int n) {
+    double	incumbent;
+    double	mean;
+    double	var;
+    double	upper;
+    int		i;
+
+    if ((m_Incumbent == null) || (n < Math.max(2, m_MinFolds)) || (n >= m_NumFolds))
+      return false;
+    incumbent = m_Incumbent.getIncumbent();
+    if (Double.isNaN(incumbent) || Double.isInfinite(incumbent))
+      return false;
+
+    mean = 0;
+    for (i = 0; i < n; i++)
+      mean += scores[i];
+    mean /= n;
+    var = 0;
+    for (i = 0; i < n; i++)
+      var += (scores[i] - mean) * (scores[i] - mean);
+    var /= (n - 1);
+    if (Double.isNaN(var))
+      return false;
+
+    upper = mean + studentTQuantile(m_Confidence, n - 1) * Math.sqrt(var / n);
+    if (isLoggingEnabled())
+      getLogger().fine("folds=" + n + ", mean=" + mean + ", upper=" + upper + ", incumbent=" + incumbent);
+
+    return (upper < incumbent);
+  }
+
+  /**
+   * Performs the cross-validation.
+   *
+   * @return		null if successful, otherwise error message
+   */
+  public String execute() {
+    String				result;
+    CrossValidationFoldGenerator 	generator;
+    WekaTrainTestSetContainer 		cont;
+    Instances				train;
+    Instances				test;
+    Classifier				cls;
+    Evaluation				eval;
+    Evaluation				evalFold;
+    Instance				inst;
+    Instance				classMissing;
+    double[]				dist;
+    double[]				scores;
+    int					i;
+
+    result              = null;
+    m_Evaluation        = null;
+    m_RacedOut          = false;
+    m_NumEvaluatedFolds = 0;
+    m_Stopped           = false;
+
+    try {
+      if (m_Classifier == null)
+	throw new IllegalStateException("No classifier set!");
+      if (m_Data == null)
+	throw new IllegalStateException("No data set!");
+      if ((m_Scorer == null) && (m_Incumbent != null))
+	throw new IllegalStateException("No fold scorer set!");
+
+      generator = ObjectCopyHelper.copyObject(m_Generator);
+      generator.setData(m_Data);
+      generator.setNumFolds(m_Folds);
+      generator.setSeed(m_Seed);
+      generator.setStratify(true);
+      generator.initializeIterator();
+      m_NumFolds = generator.getActualNumFolds();
+      scores     = new double[m_NumFolds];
+
+      eval = new Evaluation(m_Data);
+      eval.setDiscardPredictions(m_DiscardPredictions);
+      while (generator.hasNext() && !m_Stopped) {
+	cont  = generator.next();
+	train = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN);
+	test  = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST);
+	cls   = ObjectCopyHelper.copyObject(m_Classifier);
+	if (cls instanceof FlowContextHandler)
+	  ((FlowContextHandler) cls).setFlowContext(m_FlowContext);
+	cls.buildClassifier(train);
+	eval.setPriors(train);
+	evalFold = new Evaluation(train);
+	evalFold.setDiscardPredictions(true);
+	for (i = 0; i < test.numInstances(); i++) {
+	  inst = test.instance(i);
+	  // hide the class value from the classifier
+	  classMissing = (Instance) inst.copy();
+	  classMissing.setDataset(test);
+	  classMissing.setClassMissing();
+	  dist = cls.distributionForInstance(classMissing);
+	  eval.evaluateModelOnceAndRecordPrediction(dist, inst);
+	  evalFold.evaluateModelOnceAndRecordPrediction(dist, inst);
+	}
+	if (m_Scorer != null)
+	  scores[m_NumEvaluatedFolds] = m_Scorer.score(evalFold);
+	m_NumEvaluatedFolds++;
+	if (isRacedOut(scores, m_NumEvaluatedFolds)) {
+	  m_RacedOut = true;
+	  if (isLoggingEnabled())
+	    getLogger().info("Raced out after " + m_NumEvaluatedFolds + "/" + m_NumFolds + " folds");
+	  break;
+	}
+      }
+      if (!m_Stopped)
+	m_Evaluation = eval;
+    }
+    catch (Exception e) {
+      result = LoggingHelper.handleException(this, "Failed to cross-validate classifier!", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Stops the execution.
+   */
+  public void stopExecution() {
+    m_Stopped = true;
+  }
+
+  /**
+   * Returns whether the execution has been stopped.
+   *
+   * @return		true if stopped
+   */
+  public boolean isStopped() {
+    return m_Stopped;
+  }
+
+  /**
+   * Cleans up data structures, frees up memory.
+   */
+  public void cleanUp() {
+    m_Classifier  = null;
+    m_Data        = null;
+    m_Evaluation  = null;
+    m_Scorer      = null;
+    m_Incumbent   = null;
+    m_FlowContext = null;
+  }
+}
@@ -0,0 +1,403 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WekaSharedExecutor.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.multiprocess;
+
+import adams.core.Performance;
+import adams.core.logging.LoggingHelper;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide fork/join executor for the parallel meta-schemes, with a
+ * global parallelism budget. Instead of each scheme starting its own thread
+ * pool, the jobs of a batch get distributed across a number of lanes that
+ * are forked in the shared pool. Batches submitted from within a worker
+ * thread (ie nested schemes) get forked into that worker's queue and are
+ * either executed inline or stolen by idle workers, no additional pools
+ * get created.
+ * <br>
+ * The global budget defaults to the number of cores and can be set via the
+ * {@link #PROPERTY_PARALLELISM} system property. The pool statistics are
+ * available via JMX ({@link #OBJECT_NAME}) and get logged at level FINE
+ * after each batch.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WekaSharedExecutor
+  implements WekaSharedExecutorMXBean {
+
+  /** the system property for the global parallelism. */
+  public static final String PROPERTY_PARALLELISM = "adams.weka.sharedexecutor.parallelism";
+
+  /** the name under which the executor gets registered with JMX. */
+  public static final String OBJECT_NAME = "adams.multiprocess:type=WekaSharedExecutor";
+
+  /** the logger. */
+  private static Logger LOGGER = LoggingHelper.getLogger(WekaSharedExecutor.class);
+
+  /** the singleton. */
+  protected static WekaSharedExecutor m_Singleton;
+
+  /** the underlying pool. */
+  protected ForkJoinPool m_Pool;
+
+  /** the number of submitted jobs. */
+  protected AtomicLong m_SubmittedJobs;
+
+  /** the number of completed jobs. */
+  protected AtomicLong m_CompletedJobs;
+
+  /** the number of nested batches. */
+  protected AtomicLong m_NestedBatches;
+
+  /**
+   * Initializes the executor.
+   *
+   * @param parallelism	the global parallelism budget
+   */
+  protected WekaSharedExecutor(int parallelism) {
+    m_Pool          = new ForkJoinPool(parallelism);
+    m_SubmittedJobs = new AtomicLong();
+    m_CompletedJobs = new AtomicLong();
+    m_NestedBatches = new AtomicLong();
+  }
+
+  /**
+   * Determines the global parallelism budget.
+   *
+   * @return		the parallelism
+   */
+  protected static int determineParallelism() {
+    int		result;
+    String	value;
+
+    result = Performance.determineNumThreads(-1);
+    value  = System.getProperty(PROPERTY_PARALLELISM);
+    if ((value != null) && !value.trim().isEmpty()) {
+      try {
+	result = Performance.determineNumThreads(Integer.parseInt(value.trim()));
+      }
+      catch (Exception e) {
+	LOGGER.log(Level.WARNING, "Invalid value for " + PROPERTY_PARALLELISM + ": " + value, e);
+      }
+    }
+
+    return Math.max(1, result);
+  }
+
+  /**
+   * Returns the singleton, initializes and registers it with JMX if necessary.
+   *
+   * @return		the executor
+   */
+  public static synchronized WekaSharedExecutor getSingleton() {
+    if (m_Singleton == null) {
+      m_Singleton = new WekaSharedExecutor(determineParallelism());
+      try {
+	ManagementFactory.getPlatformMBeanServer().registerMBean(m_Singleton, new ObjectName(OBJECT_NAME));
+      }
+      catch (Exception e) {
+	LOGGER.log(Level.WARNING, "Failed to register executor with JMX!", e);
+      }
+    }
+    return m_Singleton;
+  }
+
+  /**
+   * Checks whether the current thread is a worker of the shared pool.
+   *
+   * @return		true if a worker thread
+   */
+  public boolean isWorkerThread() {
+    Thread	current;
+
+    current = Thread.currentThread();
+    return (current instanceof ForkJoinWorkerThread) && (((ForkJoinWorkerThread) current).getPool() == m_Pool);
+  }
+
+  /**
+   * Limits the number of threads for schemes that manage their own threads:
+   * when already running within the shared pool, these should execute
+   * sequentially.
+   *
+   * @param numThreads	the requested number of threads (-1 = # of cores, 0/1 = sequential)
+   * @return		the number of threads to use
+   */
+  public static int limitNumThreads(int numThreads) {
+    if ((m_Singleton != null) && m_Singleton.isWorkerThread())
+      return 1;
+    return numThreads;
+  }
+
+  /**
+   * Executes the jobs with at most the specified number of jobs running
+   * concurrently, within the global parallelism budget. Jobs get executed
+   * sequentially in the calling thread if only a single thread is requested
+   * or there is only a single job.
+   *
+   * @param jobs	the jobs to execute
+   * @param numThreads	the maximum number of concurrent jobs (-1 = # of cores, 0/1 = sequential)
+   * @param <T>		the type of result
+   * @return		the results, in the order of the jobs
+   * @throws Exception	the first exception thrown by a job (all jobs get executed)
+   */
+  public static <T> List<T> invokeAll(List<? extends Callable<T>> jobs, int numThreads) throws Exception {
+    numThreads = Math.min(Performance.determineNumThreads(numThreads), jobs.size());
+    if (numThreads <= 1)
+      return invokeSequential(jobs);
+    return getSingleton().invokeParallel(jobs, numThreads);
+  }
+
+  /**
+   * Executes the jobs sequentially in the calling thread.
+   *
+   * @param jobs	the jobs to execute
+   * @param <T>		the type of result
+   * @return		the results
+   * @throws Exception	the first exception thrown by a job
+   */
+  protected static <T> List<T> invokeSequential(List<? extends Callable<T>> jobs) throws Exception {
+    List<T>	result;
+
+    result = new ArrayList<>();
+    for (Callable<T> job: jobs)
+      result.add(job.call());
+
+    return result;
+  }
+
+  /**
+   * Executes the jobs in the shared pool, using the specified number of
+   * lanes that process the jobs in order.
+   *
+   * @param jobs	the jobs to execute
+   * @param numLanes	the number of lanes
+   * @param <T>		the type of result
+   * @return		the results
+   * @throws Exception	the first exception thrown by a job
+   */
+  protected <T> List<T> invokeParallel(final List<? extends Callable<T>> jobs, final int numLanes) throws Exception {
+    final Object[]	results;
+    final Exception[]	errors;
+    final AtomicInteger	next;
+    RecursiveAction	root;
+    List<T>		result;
+    int			i;
+
+    results = new Object[jobs.size()];
+    errors  = new Exception[jobs.size()];
+    next    = new AtomicInteger();
+    m_SubmittedJobs.addAndGet(jobs.size());
+
+    root = new RecursiveAction() {
+      private static final long serialVersionUID = -1846727658209345877L;
+      @Override
+      protected void compute() {
+	List<RecursiveAction>	lanes;
+	RecursiveAction		lane;
+	int			n;
+
+	lanes = new ArrayList<>();
+	for (n = 1; n < numLanes; n++) {
+	  lane = new RecursiveAction() {
+	    private static final long serialVersionUID = 6035823745811226658L;
+	    @Override
+	    protected void compute() {
+	      runLane(jobs, next, results, errors);
+	    }
+	  };
+	  lane.fork();
+	  lanes.add(lane);
+	}
+	runLane(jobs, next, results, errors);
+	for (n = lanes.size() - 1; n >= 0; n--)
+	  lanes.get(n).join();
+      }
+    };
+
+    if (isWorkerThread()) {
+      m_NestedBatches.incrementAndGet();
+      root.invoke();
+    }
+    else {
+      m_Pool.invoke(root);
+    }
+
+    if (LOGGER.isLoggable(Level.FINE))
+      LOGGER.fine("Batch of " + jobs.size() + " job(s) using " + numLanes + " lane(s) finished: " + toString());
+
+    for (i = 0; i < errors.length; i++) {
+      if (errors[i] != null)
+	throw errors[i];
+    }
+
+    result = new ArrayList<>();
+    for (i = 0; i < results.length; i++)
+      result.add((T) results[i]);
+
+    return result;
+  }
+
+  /**
+   * Executes jobs until there are none left.
+   *
+   * @param jobs	the jobs to execute
+   * @param next	the index of the next job to execute
+   * @param results	for storing the results
+   * @param errors	for storing the exceptions
+   */
+  protected void runLane(List<? extends Callable<?>> jobs, AtomicInteger next, Object[] results, Exception[] errors) {
+    int		index;
+
+    while ((index = next.getAndIncrement()) < jobs.size()) {
+      try {
+	results[index] = jobs.get(index).call();
+      }
+      catch (Exception e) {
+	errors[index] = e;
+      }
+      finally {
+	m_CompletedJobs.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Returns the global parallelism budget.
+   *
+   * @return		the parallelism
+   */
+  @Override
+  public int getParallelism() {
+    return m_Pool.getParallelism();
+  }
+
+  /**
+   * Returns the number of worker threads that have been started.
+   *
+   * @return		the number of threads
+   */
+  @Override
+  public int getPoolSize() {
+    return m_Pool.getPoolSize();
+  }
+
+  /**
+   * Returns the (estimated) number of workers currently executing tasks.
+   *
+   * @return		the number of active workers
+   */
+  @Override
+  public int getActiveWorkers() {
+    return m_Pool.getActiveThreadCount();
+  }
+
+  /**
+   * Returns the (estimated) number of tasks waiting in the work queues.
+   *
+   * @return		the queue depth
+   */
+  @Override
+  public long getQueuedTasks() {
+    return m_Pool.getQueuedTaskCount();
+  }
+
+  /**
+   * Returns the (estimated) number of submissions from outside the pool
+   * that haven't started yet.
+   *
+   * @return		the number of submissions
+   */
+  @Override
+  public int getQueuedSubmissions() {
+    return m_Pool.getQueuedSubmissionCount();
+  }
+
+  /**
+   * Returns the (estimated) number of tasks stolen by other workers.
+   *
+   * @return		the steal count
+   */
+  @Override
+  public long getStealCount() {
+    return m_Pool.getStealCount();
+  }
+
+  /**
+   * Returns the number of jobs that have been submitted.
+   *
+   * @return		the number of jobs
+   */
+  @Override
+  public long getSubmittedJobs() {
+    return m_SubmittedJobs.get();
+  }
+
+  /**
+   * Returns the number of jobs that have finished (successfully or not).
+   *
+   * @return		the number of jobs
+   */
+  @Override
+  public long getCompletedJobs() {
+    return m_CompletedJobs.get();
+  }
+
+  /**
+   * Returns the number of batches that were run inline in a worker thread,
+   * i.e., nested within another batch.
+   *
+   * @return		the number of nested batches
+   */
+  @Override
+  public long getNestedBatches() {
+    return m_NestedBatches.get();
+  }
+
+  /**
+   * Returns a short description of the state of the executor.
+   *
+   * @return		the description
+   */
+  @Override
+  public String toString() {
+    return "parallelism=" + getParallelism()
+      + ", poolSize=" + getPoolSize()
+      + ", activeWorkers=" + getActiveWorkers()
+      + ", queuedTasks=" + getQueuedTasks()
+      + ", queuedSubmissions=" + getQueuedSubmissions()
+      + ", steals=" + getStealCount()
+      + ", submittedJobs=" + getSubmittedJobs()
+      + ", completedJobs=" + getCompletedJobs()
+      + ", nestedBatches=" + getNestedBatches();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WekaSharedExecutorMXBean.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.multiprocess;
+
+/**
+ * JMX view of the {@link WekaSharedExecutor}.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public interface WekaSharedExecutorMXBean {
+
+  /**
+   * Returns the global parallelism budget.
+   *
+   * @return		the parallelism
+   */
+  public int getParallelism();
+
+  /**
+   * Returns the number of worker threads that have been started.
+   *
+   * @return		the number of threads
+   */
+  public int getPoolSize();
+
+  /**
+   * Returns the (estimated) number of workers currently executing tasks.
+   *
+   * @return		the number of active workers
+   */
+  public int getActiveWorkers();
+
+  /**
+   * Returns the (estimated) number of tasks waiting in the work queues.
+   *
+   * @return		the queue depth
+   */
+  public long getQueuedTasks();
+
+  /**
+   * Returns the (estimated) number of submissions from outside the pool
+   * that haven't started yet.
+   *
+   * @return		the number of submissions
+   */
+  public int getQueuedSubmissions();
+
+  /**
+   * Returns the (estimated) number of tasks stolen by other workers.
+   *
+   * @return		the steal count
+   */
+  public long getStealCount();
+
+  /**
+   * Returns the number of jobs that have been submitted.
+   *
+   * @return		the number of jobs
+   */
+  public long getSubmittedJobs();
+
+  /**
+   * Returns the number of jobs that have finished (successfully or not).
+   *
+   * @return		the number of jobs
+   */
+  public long getCompletedJobs();
+
+  /**
+   * Returns the number of batches that were run inline in a worker thread,
+   * i.e., nested within another batch.
+   *
+   * @return		the number of nested batches
+   */
+  public long getNestedBatches();
+}
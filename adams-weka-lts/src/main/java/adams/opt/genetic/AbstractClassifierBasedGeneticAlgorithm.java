@@ -15,7 +15,7 @@
 
 /*
  * AbstractClassifierBasedGeneticAlgorithm.java
- * Copyright (C) 2015-2020 University of Waikato, Hamilton, NZ
+ * Copyright (C) 2015-2023 University of Waikato, Hamilton, NZ
  */
 
 package adams.opt.genetic;
@@ -25,6 +25,8 @@ import adams.core.Properties;
 import adams.core.ThreadLimiter;
 import adams.core.io.PlaceholderDirectory;
 import adams.core.logging.LoggingHelper;
+import adams.core.option.AbstractArgumentOption;
+import adams.core.option.AbstractOption;
 import adams.core.option.OptionUtils;
 import adams.data.weka.WekaAttributeIndex;
 import adams.data.weka.WekaLabelIndex;
@@ -36,7 +38,13 @@ import adams.flow.transformer.wekaevaluationpostprocessor.PassThrough;
 import adams.multiprocess.JobList;
 import adams.multiprocess.JobRunner;
 import adams.multiprocess.LocalJobRunner;
+import adams.multiprocess.Performance;
 import adams.multiprocess.WekaCrossValidationExecution;
+import adams.multiprocess.WekaRacingCrossValidationExecution;
+import adams.opt.genetic.fitnesscache.AbstractFitnessCache;
+import adams.opt.genetic.fitnesscache.Fingerprint;
+import adams.opt.genetic.fitnesscache.FitnessCacheKey;
+import adams.opt.genetic.fitnesscache.InMemoryCache;
 import adams.opt.genetic.setupupload.AbstractSetupUpload;
 import adams.opt.genetic.setupupload.Null;
 import weka.classifiers.Classifier;
@@ -50,10 +58,21 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Hashtable;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 
 /**
@@ -96,6 +115,15 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     /** the cross-validation folds. */
     protected int m_Folds;
 
+    /** the start of the execution (msec). */
+    protected long m_StartTime;
+
+    /** the end of the execution (msec). */
+    protected long m_EndTime;
+
+    /** whether the last cross-validation got raced out. */
+    protected boolean m_RacedOut;
+
     /**
      * Initializes the job.
      *
@@ -119,6 +147,27 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
       m_ClassLabelIndex = idx.getIntIndex();
     }
 
+    /**
+     * Returns whether the job evaluates a steady-state offspring rather than
+     * a chromosome of the population.
+     *
+     * @return		true if offspring
+     * @see		#OFFSPRING_CHROMOSOME
+     */
+    public boolean isOffspring() {
+      return (m_Chromosome == OFFSPRING_CHROMOSOME);
+    }
+
+    /**
+     * Returns whether the last cross-validation stopped early due to racing,
+     * i.e., whether the fitness is only an estimate that must not be cached.
+     *
+     * @return		true if raced out
+     */
+    public boolean isRacedOut() {
+      return m_RacedOut;
+    }
+
     /**
      * Returns the instances in use by the genetic algorithm.
      *
@@ -173,6 +222,9 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     protected String preProcessCheck() {
       String	result;
 
+      m_StartTime = System.currentTimeMillis();
+      m_EndTime   = 0;
+
       result = super.preProcessCheck();
 
       if (result == null) {
@@ -183,6 +235,29 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
       return result;
     }
 
+    /**
+     * Checks whether all post-conditions have been met.
+     *
+     * @return		null if everything is OK, otherwise an error message
+     */
+    @Override
+    protected String postProcessCheck() {
+      m_EndTime = System.currentTimeMillis();
+      return super.postProcessCheck();
+    }
+
+    /**
+     * Returns how long the evaluation took.
+     *
+     * @return		the duration in msec, 0 if not (successfully) finished
+     */
+    public long getDuration() {
+      if ((m_StartTime > 0) && (m_EndTime >= m_StartTime))
+        return m_EndTime - m_StartTime;
+      else
+        return 0;
+    }
+
     /**
      * Post-processes the Evaluation if necessary.
      *
@@ -232,6 +307,58 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
       return getMeasure().extract(eval, true, m_ClassLabelIndex);
     }
 
+    /**
+     * Evaluates the classifier on the dataset and returns the metric.
+     * If racing is enabled, the cross-validation stops early once the
+     * classifier cannot beat the best fitness anymore. In that case, the
+     * returned metric (based on the evaluated folds) is capped below the
+     * best fitness and {@link #isRacedOut()} returns true.
+     *
+     * @param cls		the classifier to evaluate
+     * @param data		the data to use for evaluation
+     * @param folds		the number of folds to use
+     * @param seed		the seed for the randomization
+     * @param race		whether racing against the best fitness is allowed
+     * @return			the metric
+     * @throws Exception	if the evaluation fails
+     */
+    protected double evaluateClassifier(Classifier cls, Instances data, int folds, int seed, boolean race) throws Exception {
+      WekaRacingCrossValidationExecution 	evalExec;
+      String					msg;
+      Evaluation 				eval;
+      double					result;
+      double					incumbent;
+
+      m_RacedOut = false;
+      if (!race || !getOwner().getRacing() || (folds < 2))
+        return evaluateClassifier(cls, data, folds, seed);
+
+      evalExec = new WekaRacingCrossValidationExecution();
+      evalExec.setData(data);
+      evalExec.setClassifier(cls);
+      evalExec.setGenerator(ObjectCopyHelper.copyObject(getOwner().getGenerator()));
+      evalExec.setFolds(folds);
+      evalExec.setSeed(seed);
+      evalExec.setConfidence(getOwner().getRacingConfidence());
+      evalExec.setMinFolds(getOwner().getRacingMinFolds());
+      evalExec.setScorer((Evaluation e) -> getMeasure().extract(postProcess(e), true, m_ClassLabelIndex));
+      evalExec.setIncumbent(() -> getOwner().getRacingIncumbent());
+      msg = evalExec.execute();
+      if (msg != null)
+        throw new IllegalStateException(msg);
+      eval   = postProcess(evalExec.getEvaluation());
+      result = getMeasure().extract(eval, true, m_ClassLabelIndex);
+      getOwner().addRacingStatistics(evalExec.getNumEvaluatedFolds(), evalExec.getNumSkippedFolds());
+      if (evalExec.isRacedOut()) {
+        m_RacedOut = true;
+        incumbent  = getOwner().getRacingIncumbent();
+        if (!Double.isNaN(incumbent) && (result >= incumbent))
+          result = Math.nextDown(incumbent);
+      }
+
+      return result;
+    }
+
     /**
      * Evaluates the classifier on the dataset and returns the metric.
      *
@@ -310,7 +437,7 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
      *
      * @param fitness		the current fitness
      * @param cls		the current classifier
-     * @param chromosome	the chromosome responsible
+     * @param chromosome	the chromosome responsible, {@link #OFFSPRING_CHROMOSOME} for offspring
      * @param weights		the weights
      * @return			the data
      */
@@ -391,6 +518,9 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
    * @see #storeSetup(Instances,GeneticAlgorithmJob). */
   public final static String PROPS_RELATION = "relation";
 
+  /** the chromosome index used by jobs that evaluate offspring (steady-state mode). */
+  public final static int OFFSPRING_CHROMOSOME = -1;
+
   /** the key for a filter setup in the setup properties. */
   public final static String PROPS_FILTER = "filter";
 
@@ -445,8 +575,8 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
   /** for uploading the setups. */
   protected AbstractSetupUpload m_SetupUpload;
 
-  /** the cache for results. */
-  public Hashtable<String,Double> m_StoredResults = new Hashtable<>();
+  /** the cache for the fitness values. */
+  protected AbstractFitnessCache m_FitnessCache;
 
   /** the jobrunner setup. */
   protected transient JobRunnerSetup m_JobRunnerSetup;
@@ -457,6 +587,48 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
   /** the job runner in use. */
   protected JobRunner<ClassifierBasedGeneticAlgorithmJob> m_JobRunner;
 
+  /** how to evaluate the chromosomes. */
+  protected EvaluationMode m_EvaluationMode;
+
+  /** the executor for the steady-state mode. */
+  protected transient ExecutorService m_Executor;
+
+  /** for retrieving the finished jobs in steady-state mode. */
+  protected transient CompletionService<ClassifierBasedGeneticAlgorithmJob> m_Completion;
+
+  /** the genes of the offspring that are being evaluated (steady-state mode). */
+  protected transient Map<ClassifierBasedGeneticAlgorithmJob,BitSet> m_Offspring;
+
+  /** the evaluated offspring that could not be inserted yet (steady-state mode). */
+  protected transient List<Object[]> m_DeferredOffspring;
+
+  /** for breeding offspring (steady-state mode), derived from the seed. */
+  protected transient Random m_OffspringRandom;
+
+  /** the total number of evaluations. */
+  protected long m_TotalEvaluations;
+
+  /** the total time spent in evaluations (msec). */
+  protected long m_TotalBusyTime;
+
+  /** the total time spent in calculating the fitness (msec). */
+  protected long m_TotalWallTime;
+
+  /** whether to use racing. */
+  protected boolean m_Racing;
+
+  /** the confidence level for racing. */
+  protected double m_RacingConfidence;
+
+  /** the minimum number of folds before racing. */
+  protected int m_RacingMinFolds;
+
+  /** the number of folds evaluated in racing mode. */
+  protected long m_RacingEvaluatedFolds;
+
+  /** the number of folds skipped in racing mode. */
+  protected long m_RacingSkippedFolds;
+
   /**
    * Adds options to the internal list of options.
    */
@@ -519,6 +691,26 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     m_OptionManager.add(
       "setup-upload", "setupUpload",
       new Null());
+
+    m_OptionManager.add(
+      "evaluation-mode", "evaluationMode",
+      EvaluationMode.GENERATIONAL);
+
+    m_OptionManager.add(
+      "fitness-cache", "fitnessCache",
+      new InMemoryCache());
+
+    m_OptionManager.add(
+      "racing", "racing",
+      false);
+
+    m_OptionManager.add(
+      "racing-confidence", "racingConfidence",
+      0.95, 0.5, 1.0);
+
+    m_OptionManager.add(
+      "racing-min-folds", "racingMinFolds",
+      2, 2, null);
   }
 
   /**
@@ -979,6 +1171,197 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     return "The scheme for uploading the currently best job setup.";
   }
 
+  /**
+   * Sets how to evaluate the chromosomes.
+   *
+   * @param value	the mode
+   */
+  public void setEvaluationMode(EvaluationMode value){
+    m_EvaluationMode = value;
+    reset();
+  }
+
+  /**
+   * Returns how to evaluate the chromosomes.
+   *
+   * @return		the mode
+   */
+  public EvaluationMode getEvaluationMode() {
+    return m_EvaluationMode;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String evaluationModeTipText() {
+    return
+      "How to evaluate the chromosomes; " + EvaluationMode.GENERATIONAL + " waits for all "
+	+ "chromosomes of a generation to finish; in " + EvaluationMode.STEADY_STATE + " mode, "
+	+ "idle workers evaluate offspring bred from the already evaluated chromosomes, which "
+	+ "replace the worst chromosomes if better (uses local threads, ignores the job runner "
+	+ "setup and is not reproducible).";
+  }
+
+  /**
+   * Sets the cache for the fitness values.
+   *
+   * @param value	the cache
+   */
+  public void setFitnessCache(AbstractFitnessCache value){
+    m_FitnessCache = value;
+    reset();
+  }
+
+  /**
+   * Returns the cache for the fitness values.
+   *
+   * @return		the cache
+   */
+  public AbstractFitnessCache getFitnessCache() {
+    return m_FitnessCache;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String fitnessCacheTipText() {
+    return
+      "The cache for the fitness values of chromosomes that have already been "
+	+ "evaluated; a file-based cache allows resuming runs.";
+  }
+
+  /**
+   * Sets whether to stop the cross-validation of chromosomes early that
+   * cannot beat the best fitness anymore.
+   *
+   * @param value	true if to race
+   */
+  public void setRacing(boolean value){
+    m_Racing = value;
+    reset();
+  }
+
+  /**
+   * Returns whether to stop the cross-validation of chromosomes early that
+   * cannot beat the best fitness anymore.
+   *
+   * @return		true if to race
+   */
+  public boolean getRacing() {
+    return m_Racing;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingTipText() {
+    return
+      "If enabled, the folds of the cross-validation are evaluated one at a time "
+	+ "and the evaluation stops early once the upper confidence bound of the mean "
+	+ "fold score is below the best fitness so far; the fitness of such chromosomes "
+	+ "is only an estimate based on the evaluated folds.";
+  }
+
+  /**
+   * Sets the confidence level for the upper bound used in racing.
+   *
+   * @param value	the confidence (0.5-1)
+   */
+  public void setRacingConfidence(double value){
+    if (getOptionManager().isValid("racingConfidence", value)) {
+      m_RacingConfidence = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the confidence level for the upper bound used in racing.
+   *
+   * @return		the confidence (0.5-1)
+   */
+  public double getRacingConfidence() {
+    return m_RacingConfidence;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingConfidenceTipText() {
+    return "The confidence level for the upper bound (Student's t) of the mean fold score used in racing.";
+  }
+
+  /**
+   * Sets the minimum number of folds to evaluate before racing.
+   *
+   * @param value	the minimum (at least 2)
+   */
+  public void setRacingMinFolds(int value){
+    if (getOptionManager().isValid("racingMinFolds", value)) {
+      m_RacingMinFolds = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the minimum number of folds to evaluate before racing.
+   *
+   * @return		the minimum (at least 2)
+   */
+  public int getRacingMinFolds() {
+    return m_RacingMinFolds;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String racingMinFoldsTipText() {
+    return "The minimum number of folds to evaluate before a chromosome can get raced out.";
+  }
+
+  /**
+   * Returns the fitness that chromosomes have to beat when racing.
+   *
+   * @return		the best fitness so far
+   */
+  public double getRacingIncumbent() {
+    return m_BestFitness;
+  }
+
+  /**
+   * Records the fold statistics of a racing evaluation.
+   *
+   * @param evaluated	the number of evaluated folds
+   * @param skipped	the number of skipped folds
+   */
+  protected synchronized void addRacingStatistics(int evaluated, int skipped) {
+    m_RacingEvaluatedFolds += evaluated;
+    m_RacingSkippedFolds   += skipped;
+  }
+
+  /**
+   * Returns the number of folds that were skipped due to racing.
+   *
+   * @return		the number of folds
+   */
+  public synchronized long getRacingSkippedFolds() {
+    return m_RacingSkippedFolds;
+  }
+
   /**
    * Sets the jobrunner setup to use.
    *
@@ -1067,30 +1450,111 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
   }
 
   /**
-   * Adds a result to the cache.
+   * Generates the key for the fitness cache.
+   *
+   * @param weights	the weights of the chromosome
+   * @return		the key
+   */
+  protected FitnessCacheKey newCacheKey(int[] weights) {
+    return FitnessCacheKey.fromWeights(weights, getBitsPerGene());
+  }
+
+  /**
+   * Returns the properties of the options that don't influence the fitness
+   * of a chromosome (output, caching, parallelization, population control).
+   * These get excluded from the fingerprint of the fitness cache. Derived
+   * classes can add further properties.
    *
-   * @param key		the key of the result
+   * @return		the properties
+   * @see		#getFitnessCacheFingerprint()
+   */
+  protected Set<String> getFitnessCacheFingerprintExclusions() {
+    Set<String>	result;
+
+    result = new HashSet<>();
+    result.add("loggingLevel");
+    result.add("numThreads");
+    result.add("numChrom");
+    result.add("iterations");
+    result.add("seed");
+    result.add("outputDirectory");
+    result.add("outputType");
+    result.add("outputPrefixType");
+    result.add("suppliedPrefix");
+    result.add("setupUpload");
+    result.add("evaluationMode");
+    result.add("fitnessCache");
+
+    return result;
+  }
+
+  /**
+   * Generates the fingerprint of the current setup for the fitness cache,
+   * i.e., everything that influences the fitness of a chromosome: the full
+   * command-line (minus the excluded options) and the data.
+   *
+   * @return		the fingerprint
+   * @see		#getFitnessCacheFingerprintExclusions()
+   */
+  protected String getFitnessCacheFingerprint() {
+    Fingerprint			result;
+    Set<String>			exclusions;
+    Map<String,Boolean>		excluded;
+    String[]			options;
+    int				i;
+
+    exclusions = getFitnessCacheFingerprintExclusions();
+    excluded   = new HashMap<>();
+    for (AbstractOption option: getOptionManager().getOptionsList()) {
+      if (exclusions.contains(option.getProperty()))
+	excluded.put("-" + option.getCommandline(), (option instanceof AbstractArgumentOption));
+    }
+
+    result  = new Fingerprint().add(getClass().getName());
+    options = OptionUtils.getOptions(this);
+    for (i = 0; i < options.length; i++) {
+      if (excluded.containsKey(options[i])) {
+	// skip argument as well
+	if (excluded.get(options[i]))
+	  i++;
+	continue;
+      }
+      result.add(options[i]);
+    }
+
+    return result
+      .add(m_ClassLabelIndex.getIntIndex())
+      .add(m_Instances)
+      .add(m_TestInstances)
+      .toString();
+  }
+
+  /**
+   * Adds a result to the cache. Estimates of raced-out chromosomes must not
+   * be added.
+   *
+   * @param weights	the weights of the chromosome
    * @param val		the value to add
    */
-  protected synchronized void addResult(String key, Double val) {
-    m_StoredResults.put(key, val);
+  protected void addResult(int[] weights, Double val) {
+    m_FitnessCache.put(newCacheKey(weights), val);
   }
 
   /**
    * Returns a value from the cache.
    *
-   * @param key		the key of the result
+   * @param weights	the weights of the chromosome
    * @return		the result or null if not present
    */
-  protected synchronized Double getResult(String key){
-    return m_StoredResults.get(key);
+  protected Double getResult(int[] weights){
+    return m_FitnessCache.get(newCacheKey(weights));
   }
 
   /**
    * Clears all currently stored results.
    */
-  protected synchronized void clearResults() {
-    m_StoredResults.clear();
+  protected void clearResults() {
+    m_FitnessCache.clear();
   }
 
   /**
@@ -1104,20 +1568,130 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
    */
   protected abstract ClassifierBasedGeneticAlgorithmJob newJob(int chromosome, int[] w, Instances data, Instances testData);
 
+  /**
+   * Returns the weights encoded by the genes.
+   *
+   * @param genes	the genes to convert
+   * @return		the weights
+   */
+  protected int[] genesToWeights(BitSet genes) {
+    int[]	result;
+    int		weight;
+    int		j;
+    int		k;
+
+    result = new int[getNumGenes()];
+    for (j = 0; j < getNumGenes(); j++)  {
+      weight = 0;
+      for (k = 0; k < getBitsPerGene(); k++){
+	weight <<= 1;
+	if (genes.get((j*getBitsPerGene())+k))
+	  weight += 1;
+      }
+      result[j] = weight;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the weights of the chromosome.
+   *
+   * @param chromosome	the chromosome index
+   * @return		the weights
+   */
+  protected int[] getWeights(int chromosome) {
+    int[] 		result;
+    StringBuilder	weightStr;
+    int 		j;
+    int 		k;
+    int 		weight;
+
+    result = new int[getNumGenes()];
+    for (j = 0; j < getNumGenes(); j++)  {
+      weight = 0;
+      for (k = 0; k < getBitsPerGene(); k++){
+	weight <<= 1;
+	if (getGene(chromosome, (j*getBitsPerGene())+k))
+	  weight += 1;
+      }
+      result[j] = weight;
+    }
+
+    if (LoggingHelper.isAtLeast(getLogger(), Level.FINE)) {
+      weightStr = new StringBuilder();
+      for (j = 0; j < result.length; j++)
+	weightStr.append("" + result[j]);
+      getLogger().fine("[" + m_CurrentIteration + "] before job: Chromosome " + chromosome + " " + weightStr.toString());
+    }
+
+    return result;
+  }
+
+  /**
+   * Records and logs the throughput statistics of a fitness calculation.
+   *
+   * @param evaluations	the number of evaluations that finished
+   * @param busy	the time spent in the evaluations (msec)
+   * @param wall	the time that the fitness calculation took (msec)
+   * @param numThreads	the number of threads that were available
+   */
+  protected void updateStatistics(int evaluations, long busy, long wall, int numThreads) {
+    m_TotalEvaluations += evaluations;
+    m_TotalBusyTime    += busy;
+    m_TotalWallTime    += wall * numThreads;
+    if (isLoggingEnabled())
+      getLogger().info(
+	"[" + m_CurrentIteration + "] " + m_EvaluationMode
+	  + " - evaluations: " + evaluations
+	  + ", evaluations/sec: " + ((wall > 0) ? (evaluations * 1000.0 / wall) : Double.NaN)
+	  + ", core utilisation: " + ((wall > 0) ? (100.0 * busy / (wall * numThreads)) : Double.NaN) + "%");
+  }
+
+  /**
+   * Returns the total number of evaluations performed in this run.
+   *
+   * @return		the number of evaluations
+   */
+  public long getTotalEvaluations() {
+    return m_TotalEvaluations;
+  }
+
+  /**
+   * Returns the overall core utilisation of this run, i.e., the fraction of
+   * the available thread time that was spent in evaluations.
+   *
+   * @return		the utilisation (0-1), NaN if nothing evaluated yet
+   */
+  public double getCoreUtilisation() {
+    if (m_TotalWallTime == 0)
+      return Double.NaN;
+    return (double) m_TotalBusyTime / m_TotalWallTime;
+  }
+
   /**
    * Calculates the fitness of the population.
    */
   @Override
   public void calcFitness() {
+    if (m_EvaluationMode == EvaluationMode.STEADY_STATE)
+      calcFitnessSteadyState();
+    else
+      calcFitnessGenerational();
+  }
+
+  /**
+   * Calculates the fitness of the population, waiting for all chromosomes
+   * to finish.
+   */
+  protected void calcFitnessGenerational() {
     JobList<ClassifierBasedGeneticAlgorithmJob> 	jobs;
     ClassifierBasedGeneticAlgorithmJob 			job;
     int 						i;
-    int 						k;
-    int[] 						weights;
-    int 						weight;
-    boolean						generateWeights;
-    StringBuilder					weightStr;
+    long						start;
+    long						busy;
 
+    start = System.currentTimeMillis();
     if (m_JobRunnerSetup == null)
       m_JobRunner = new LocalJobRunner<>();
     else
@@ -1126,29 +1700,13 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
       ((ThreadLimiter) m_JobRunner).setNumThreads(getNumThreads());
     m_JobRunner.setFlowContext(getFlowContext());
     jobs   = new JobList<>();
-    generateWeights = LoggingHelper.isAtLeast(getLogger(), Level.FINE);
-    for (i = 0; i < getNumChrom(); i++) {
-      weights   = new int[getNumGenes()];
-      weightStr = new StringBuilder();
-      for (int j = 0; j < getNumGenes(); j++)  {
-        weight = 0;
-        for (k = 0; k < getBitsPerGene(); k++){
-          weight <<= 1;
-          if (getGene(i, (j*getBitsPerGene())+k))
-            weight += 1;
-        }
-        weights[j] = weight;
-	if (generateWeights)
-	  weightStr.append("" + weight);
-      }
-      if (generateWeights)
-	getLogger().fine("[" + m_CurrentIteration + "] before job: Chromosome " + i + " " + weightStr.toString());
-      jobs.add(newJob(i, weights, m_Instances, m_TestInstances));
-    }
+    for (i = 0; i < getNumChrom(); i++)
+      jobs.add(newJob(i, getWeights(i), m_Instances, m_TestInstances));
     m_JobRunner.add(jobs);
     m_JobRunner.start();
     m_JobRunner.stop();
 
+    busy = 0;
     for (i = 0; i < m_JobRunner.getJobs().size(); i++) {
       job = m_JobRunner.getJobs().get(i);
       // success? If not, just add the header of the original data
@@ -1156,12 +1714,216 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
         m_Fitness[job.getChromosome()] = Double.NEGATIVE_INFINITY;
       else
         m_Fitness[job.getChromosome()] = job.getFitness();
+      busy += job.getDuration();
       job.cleanUp();
     }
     m_JobRunner.cleanUp();
     m_JobRunner.stop();
 
     m_JobRunner = null;
+
+    updateStatistics(getNumChrom(), busy, System.currentTimeMillis() - start, Performance.determineNumThreads(getNumThreads()));
+  }
+
+  /**
+   * Wraps the job in a task for the executor.
+   *
+   * @param job		the job to execute
+   * @return		the task
+   */
+  protected Callable<ClassifierBasedGeneticAlgorithmJob> newTask(final ClassifierBasedGeneticAlgorithmJob job) {
+    return new Callable<ClassifierBasedGeneticAlgorithmJob>() {
+      @Override
+      public ClassifierBasedGeneticAlgorithmJob call() throws Exception {
+	try {
+	  job.execute();
+	}
+	catch (Throwable t) {
+	  getLogger().log(Level.SEVERE, "Failed to execute job: " + job, t);
+	}
+	return job;
+      }
+    };
+  }
+
+  /**
+   * Selects an evaluated chromosome using a binary tournament.
+   *
+   * @param evaluated	the indices of the evaluated chromosomes
+   * @return		the index of the selected chromosome
+   */
+  protected int selectParent(List<Integer> evaluated) {
+    int		first;
+    int		second;
+
+    first  = evaluated.get(m_OffspringRandom.nextInt(evaluated.size()));
+    second = evaluated.get(m_OffspringRandom.nextInt(evaluated.size()));
+    if (m_Fitness[second] > m_Fitness[first])
+      return second;
+    else
+      return first;
+  }
+
+  /**
+   * Breeds an offspring from the evaluated chromosomes (uniform crossover
+   * of two tournament winners, followed by bit-flip mutation) and submits
+   * it for evaluation.
+   *
+   * @param evaluated	the indices of the evaluated chromosomes
+   */
+  protected void submitOffspring(List<Integer> evaluated) {
+    ClassifierBasedGeneticAlgorithmJob	job;
+    BitSet				genes;
+    int					parent1;
+    int					parent2;
+    int					numBits;
+    int					i;
+
+    parent1 = selectParent(evaluated);
+    parent2 = selectParent(evaluated);
+    numBits = getNumGenes() * getBitsPerGene();
+    genes   = new BitSet(numBits);
+    for (i = 0; i < numBits; i++) {
+      if (m_OffspringRandom.nextBoolean())
+	genes.set(i, getGene(parent1, i));
+      else
+	genes.set(i, getGene(parent2, i));
+      if (m_OffspringRandom.nextInt(numBits) == 0)
+	genes.flip(i);
+    }
+
+    // offspring doesn't occupy a slot in the population (yet)
+    job = newJob(OFFSPRING_CHROMOSOME, genesToWeights(genes), m_Instances, m_TestInstances);
+    m_Offspring.put(job, genes);
+    m_Completion.submit(newTask(job));
+  }
+
+  /**
+   * Inserts the offspring into the population if it is better than the
+   * worst evaluated chromosome.
+   *
+   * @param genes	the genes of the offspring
+   * @param fitness	the fitness of the offspring
+   * @param evaluated	the indices of the evaluated chromosomes
+   */
+  protected void insertOffspring(BitSet genes, double fitness, List<Integer> evaluated) {
+    int		worst;
+    int		i;
+
+    worst = -1;
+    for (Integer index: evaluated) {
+      if ((worst == -1) || (m_Fitness[index] < m_Fitness[worst]))
+	worst = index;
+    }
+    if ((worst == -1) || (fitness <= m_Fitness[worst]))
+      return;
+
+    for (i = 0; i < getNumGenes() * getBitsPerGene(); i++)
+      setGene(worst, i, genes.get(i));
+    m_Fitness[worst] = fitness;
+    if (isLoggingEnabled())
+      getLogger().fine("[" + m_CurrentIteration + "] offspring replaced chromosome " + worst + ": " + fitness);
+  }
+
+  /**
+   * Calculates the fitness of the population in steady-state mode: whenever
+   * a worker becomes idle while chromosomes of the current generation are
+   * still being evaluated, an offspring of the already evaluated chromosomes
+   * gets bred and evaluated. Offspring that are still being evaluated at the
+   * end of the generation get inserted in the following one.
+   */
+  protected void calcFitnessSteadyState() {
+    Set<ClassifierBasedGeneticAlgorithmJob>	originals;
+    List<Integer>				evaluated;
+    ClassifierBasedGeneticAlgorithmJob 		job;
+    BitSet					genes;
+    int						numThreads;
+    int						remaining;
+    int						evaluations;
+    int 					i;
+    long					start;
+    long					busy;
+
+    start      = System.currentTimeMillis();
+    numThreads = Performance.determineNumThreads(getNumThreads());
+    if (m_Executor == null) {
+      if (m_JobRunnerSetup != null)
+	getLogger().warning("Job runner setup is ignored in " + EvaluationMode.STEADY_STATE + " mode!");
+      m_Executor          = Executors.newFixedThreadPool(numThreads);
+      m_Completion        = new ExecutorCompletionService<>(m_Executor);
+      m_Offspring         = new IdentityHashMap<>();
+      m_DeferredOffspring = new ArrayList<>();
+      m_OffspringRandom   = new Random(getSeed() + 1);
+    }
+
+    originals = Collections.newSetFromMap(new IdentityHashMap<>());
+    evaluated = new ArrayList<>();
+    for (i = 0; i < getNumChrom(); i++) {
+      job = newJob(i, getWeights(i), m_Instances, m_TestInstances);
+      originals.add(job);
+      m_Completion.submit(newTask(job));
+    }
+
+    remaining   = getNumChrom();
+    evaluations = 0;
+    busy        = 0;
+    try {
+      while (remaining > 0) {
+	job = m_Completion.take().get();
+	evaluations++;
+	busy += job.getDuration();
+	if (originals.contains(job)) {
+	  if ((job.getFitness() == null) || m_Stopped)
+	    m_Fitness[job.getChromosome()] = Double.NEGATIVE_INFINITY;
+	  else
+	    m_Fitness[job.getChromosome()] = job.getFitness();
+	  evaluated.add(job.getChromosome());
+	  remaining--;
+	  // insert offspring that finished before any chromosome of this generation
+	  if (evaluated.size() == 1) {
+	    for (Object[] deferred: m_DeferredOffspring)
+	      insertOffspring((BitSet) deferred[0], (Double) deferred[1], evaluated);
+	    m_DeferredOffspring.clear();
+	  }
+	}
+	else {
+	  genes = m_Offspring.remove(job);
+	  if ((genes != null) && (job.getFitness() != null) && !m_Stopped) {
+	    if (evaluated.isEmpty())
+	      m_DeferredOffspring.add(new Object[]{genes, job.getFitness()});
+	    else
+	      insertOffspring(genes, job.getFitness(), evaluated);
+	  }
+	}
+	job.cleanUp();
+
+	// keep idle workers busy
+	while (!m_Stopped && (remaining > 0) && !evaluated.isEmpty() && (remaining + m_Offspring.size() < numThreads))
+	  submitOffspring(evaluated);
+      }
+    }
+    catch (Exception e) {
+      getLogger().log(Level.SEVERE, "Failed to evaluate chromosomes!", e);
+      for (i = 0; i < getNumChrom(); i++) {
+	if (!evaluated.contains(i))
+	  m_Fitness[i] = Double.NEGATIVE_INFINITY;
+      }
+    }
+
+    updateStatistics(evaluations, busy, System.currentTimeMillis() - start, numThreads);
+  }
+
+  /**
+   * Shuts down the executor of the steady-state mode, if necessary.
+   */
+  protected synchronized void shutdownExecutor() {
+    if (m_Executor != null) {
+      m_Executor.shutdownNow();
+      m_Executor = null;
+    }
+    m_Completion        = null;
+    m_Offspring         = null;
+    m_DeferredOffspring = null;
   }
 
   /**
@@ -1191,8 +1953,19 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     m_SetupUpload.setFlowContext(getFlowContext());
     m_SetupUpload.start(this);
 
-    // clear cache
+    // (re-)initialize cache
     clearResults();
+    m_FitnessCache.initialize(getFitnessCacheFingerprint());
+    if (isLoggingEnabled())
+      getLogger().info("Fitness cache: " + m_FitnessCache.size() + " values available");
+
+    // statistics
+    m_TotalEvaluations     = 0;
+    m_TotalBusyTime        = 0;
+    m_TotalWallTime        = 0;
+    m_RacingEvaluatedFolds = 0;
+    m_RacingSkippedFolds   = 0;
+    shutdownExecutor();
   }
 
   /**
@@ -1206,6 +1979,18 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
 
     super.postRun(error);
 
+    shutdownExecutor();
+    m_FitnessCache.close();
+    if (isLoggingEnabled()) {
+      getLogger().info(
+	"Total evaluations: " + getTotalEvaluations()
+	  + ", core utilisation: " + (100.0 * getCoreUtilisation()) + "%");
+      if (m_Racing)
+	getLogger().info(
+	  "Racing - folds evaluated: " + m_RacingEvaluatedFolds
+	    + ", folds skipped: " + m_RacingSkippedFolds);
+    }
+
     params = new HashMap<>();
     params.put(AbstractSetupUpload.KEY_MEASURE, "" + getMeasure());
     m_SetupUpload.finish(this, error, params);
@@ -1219,6 +2004,7 @@ public abstract class AbstractClassifierBasedGeneticAlgorithm
     super.stopExecution();
     if (m_JobRunner != null)
       m_JobRunner.terminate();
+    shutdownExecutor();
   }
 
   /**
@@ -20,9 +20,12 @@
 
 package adams.opt.genetic;
 
+import adams.core.ObjectCopyHelper;
+import adams.opt.genetic.fitnesscache.AbstractFitnessCache;
+import adams.opt.genetic.fitnesscache.Fingerprint;
 import weka.core.Instances;
 
-import java.util.Hashtable;
+import java.util.Set;
 
 /**
  * Ancestor for genetic algorithms that offer a second evaluation using
@@ -126,8 +129,8 @@ public abstract class AbstractClassifierBasedGeneticAlgorithmWithSecondEvaluatio
   /** the cross-validation seed (second evaluation). */
   protected int m_SecondCrossValidationSeed;
 
-  /** the cache for results (second evaluation). */
-  public Hashtable<String,Double> m_SecondStoredResults = new Hashtable<>();
+  /** the cache for results (second evaluation), a copy of the fitness cache. */
+  protected AbstractFitnessCache m_SecondFitnessCache;
 
   /** the best fitness so far (second evaluation). */
   protected double m_SecondBestFitness;
@@ -257,32 +260,67 @@ public abstract class AbstractClassifierBasedGeneticAlgorithmWithSecondEvaluatio
     return "The seed value for cross-validation (second evaluation).";
   }
 
+  /**
+   * Returns the properties of the options that don't influence the fitness
+   * of a chromosome. The second evaluation only influences the second cache.
+   *
+   * @return		the properties
+   * @see		#getSecondFitnessCacheFingerprint()
+   */
+  @Override
+  protected Set<String> getFitnessCacheFingerprintExclusions() {
+    Set<String>	result;
+
+    result = super.getFitnessCacheFingerprintExclusions();
+    result.add("useSecondEvaluation");
+    result.add("secondFolds");
+    result.add("secondCrossValidationSeed");
+
+    return result;
+  }
+
+  /**
+   * Generates the fingerprint of the current setup for the fitness cache
+   * of the second evaluation.
+   *
+   * @return		the fingerprint
+   */
+  protected String getSecondFitnessCacheFingerprint() {
+    return new Fingerprint()
+      .add(getFitnessCacheFingerprint())
+      .add(m_SecondFolds)
+      .add(m_SecondCrossValidationSeed)
+      .toString();
+  }
+
   /**
    * Adds a result to the cache (second evaluation).
    *
-   * @param key		the key of the result
+   * @param weights	the weights of the chromosome
    * @param val		the value to add
    */
-  protected synchronized void addSecondResult(String key, Double val) {
-    m_SecondStoredResults.put(key, val);
+  protected void addSecondResult(int[] weights, Double val) {
+    m_SecondFitnessCache.put(newCacheKey(weights), val);
   }
 
   /**
    * Returns a value from the cache (second evaluation).
    *
-   * @param key		the key of the result
+   * @param weights	the weights of the chromosome
    * @return		the result or null if not present
    */
-  protected synchronized Double getSecondResult(String key) {
-    return m_SecondStoredResults.get(key);
+  protected Double getSecondResult(int[] weights) {
+    return m_SecondFitnessCache.get(newCacheKey(weights));
   }
 
   /**
    * Clears all currently stored results.
    */
-  protected synchronized void clearResults() {
+  @Override
+  protected void clearResults() {
     super.clearResults();
-    m_SecondStoredResults.clear();
+    if (m_SecondFitnessCache != null)
+      m_SecondFitnessCache.clear();
   }
 
   /**
@@ -328,5 +366,30 @@ public abstract class AbstractClassifierBasedGeneticAlgorithmWithSecondEvaluatio
     m_SecondBestFitness = Double.NEGATIVE_INFINITY;
     m_SecondBestSetup   = null;
     m_SecondBestWeights = null;
+
+    // (re-)initialize cache
+    if (m_SecondFitnessCache != null)
+      m_SecondFitnessCache.close();
+    m_SecondFitnessCache = null;
+    if (m_UseSecondEvaluation) {
+      m_SecondFitnessCache = ObjectCopyHelper.copyObject(m_FitnessCache);
+      m_SecondFitnessCache.initialize(getSecondFitnessCacheFingerprint());
+      if (isLoggingEnabled())
+	getLogger().info("Fitness cache (second evaluation): " + m_SecondFitnessCache.size() + " values available");
+    }
+  }
+
+  /**
+   * Further clean-ups in derived classes.
+   *
+   * @param error  		null if successful, otherwise error message
+   * @throws Exception		if something goes wrong
+   */
+  @Override
+  protected void postRun(String error) throws Exception {
+    super.postRun(error);
+
+    if (m_SecondFitnessCache != null)
+      m_SecondFitnessCache.close();
   }
 }
@@ -229,11 +229,13 @@ public class DarkLord
         getLogger().fine((new StringBuilder("calc for:")).append(weightsStr).toString());
 
         // was measure already calculated for this attribute setup?
-        Double cc = getOwner().getResult(weightsStr);
+        Double cc = getOwner().getResult(m_Weights);
         if (cc != null){
           getLogger().info((new StringBuilder("Already present: ")).append(Double.toString(cc.doubleValue())).toString());
           m_Fitness = cc;
-          return;
+          // values from a persistent cache may still have to become the best setup
+          if (!getOwner().isBetterFitness(m_Fitness))
+            return;
         }
 
         Instances newInstances = new Instances(getInstances());
@@ -257,10 +259,12 @@ public class DarkLord
 
 	// evaluate classifier
 	Classifier newClassifier = ObjectCopyHelper.copyObject(getOwner().getClassifier());
-	if (newTest == null)
-	  m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed());
-	else
-	  m_Fitness = evaluateClassifier(newClassifier, newInstances, newTest);
+	if (cc == null) {
+	  if (newTest == null)
+	    m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed(), true);
+	  else
+	    m_Fitness = evaluateClassifier(newClassifier, newInstances, newTest);
+	}
 
         // process fitness
 	if (getOwner().isBetterFitness(m_Fitness)) {
@@ -269,7 +273,11 @@ public class DarkLord
 	  // second evaluation?
 	  if (getUseSecondEvaluation() && (newTest == null)) {
 	    Classifier newSecondClassifier = ObjectCopyHelper.copyObject(getOwner().getClassifier());
-	    m_SecondFitness = evaluateClassifier(newSecondClassifier , newInstances, getSecondFolds(), getSecondSeed());
+	    m_SecondFitness = getOwner().getSecondResult(m_Weights);
+	    if (m_SecondFitness == null) {
+	      m_SecondFitness = evaluateClassifier(newSecondClassifier , newInstances, getSecondFolds(), getSecondSeed());
+	      getOwner().addSecondResult(m_Weights, m_SecondFitness);
+	    }
 	    canAdd = getOwner().isSecondBetterFitness(m_SecondFitness);
 	    if (getOwner().setSecondNewFitness(m_SecondFitness, newSecondClassifier, m_Chromosome, m_Weights)) {
 	      if (isLoggingEnabled())
@@ -279,7 +287,6 @@ public class DarkLord
 	      if (isLoggingEnabled())
 		getLogger().info("Second evaluation is not better: " + m_SecondFitness);
 	    }
-	    getOwner().addSecondResult(weightsStr, m_SecondFitness);
 	  }
 
 	  if (canAdd && getOwner().setNewFitness(m_Fitness, newClassifier, m_Chromosome, m_Weights)) {
@@ -292,7 +299,9 @@ public class DarkLord
           getLogger().fine(getMaskAsString());
         }
 
-        getOwner().addResult(weightsStr, m_Fitness);
+        // estimates of raced-out chromosomes don't get cached
+        if ((cc == null) && !isRacedOut())
+          getOwner().addResult(m_Weights, m_Fitness);
       }
       catch(Exception e){
         getLogger().log(Level.SEVERE, "Error: ", e);
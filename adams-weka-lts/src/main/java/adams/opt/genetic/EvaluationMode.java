@@ -0,0 +1,33 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EvaluationMode.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic;
+
+/**
+ * Defines how the chromosomes of a generation get evaluated.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public enum EvaluationMode {
+  /** all chromosomes get evaluated before the next generation is bred. */
+  GENERATIONAL,
+  /** idle workers evaluate offspring while the generation is still being evaluated. */
+  STEADY_STATE
+}
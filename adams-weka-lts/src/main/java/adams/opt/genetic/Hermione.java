@@ -275,12 +275,14 @@ public class Hermione
 
       try {
 	// was measure already calculated for this attribute setup?
-	measure = getOwner().getResult(weightsStr);
+	measure = getOwner().getResult(m_Weights);
 	if (measure != null) {
 	  if (isLoggingEnabled())
 	    getLogger().info("Already present: " + measure);
 	  m_Fitness = measure;
-	  return;
+	  // values from a persistent cache may still have to become the best setup
+	  if (!getOwner().isBetterFitness(m_Fitness))
+	    return;
 	}
 
 	newInstances = new Instances(getInstances());
@@ -290,10 +292,12 @@ public class Hermione
 
 	// evaluate classifier
 	newClassifier = getOwner().generateClassifier(m_Chromosome, m_Weights);
-	if (newTest == null)
-	  m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed());
-	else
-	  m_Fitness = evaluateClassifier(newClassifier, newInstances, newTest);
+	if (measure == null) {
+	  if (newTest == null)
+	    m_Fitness = evaluateClassifier(newClassifier, newInstances, getFolds(), getSeed(), true);
+	  else
+	    m_Fitness = evaluateClassifier(newClassifier, newInstances, newTest);
+	}
 
 	// process fitness
 	if (getOwner().isBetterFitness(m_Fitness)) {
@@ -302,7 +306,11 @@ public class Hermione
 	  // second evaluation?
 	  if (getUseSecondEvaluation() && (newTest == null)) {
 	    newSecondClassifier = getOwner().generateClassifier(m_Chromosome, m_Weights);
-	    m_SecondFitness = evaluateClassifier(newSecondClassifier , newInstances, getSecondFolds(), getSecondSeed());
+	    m_SecondFitness = getOwner().getSecondResult(m_Weights);
+	    if (m_SecondFitness == null) {
+	      m_SecondFitness = evaluateClassifier(newSecondClassifier , newInstances, getSecondFolds(), getSecondSeed());
+	      getOwner().addSecondResult(m_Weights, m_SecondFitness);
+	    }
 	    canAdd = getOwner().isSecondBetterFitness(m_SecondFitness);
 	    if (getOwner().setSecondNewFitness(m_SecondFitness, newSecondClassifier, m_Chromosome, m_Weights)) {
 	      if (isLoggingEnabled())
@@ -312,7 +320,6 @@ public class Hermione
 	      if (isLoggingEnabled())
 		getLogger().info("Second evaluation is not better: " + m_SecondFitness);
 	    }
-	    getOwner().addSecondResult(weightsStr, m_SecondFitness);
 	  }
 
 	  if (canAdd && getOwner().setNewFitness(m_Fitness, newClassifier, m_Chromosome, m_Weights)) {
@@ -322,7 +329,9 @@ public class Hermione
 	  }
 	}
 
-	getOwner().addResult(weightsStr, m_Fitness);
+	// estimates of raced-out chromosomes don't get cached
+	if ((measure == null) && !isRacedOut())
+	  getOwner().addResult(m_Weights, m_Fitness);
       }
       catch(Exception e) {
 	getLogger().log(Level.SEVERE, "Error: ", e);
@@ -0,0 +1,104 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractFitnessCache.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import adams.core.option.AbstractOptionHandler;
+
+/**
+ * Ancestor for caches that store the fitness of chromosomes that have
+ * already been evaluated. Implementations must be thread-safe.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractFitnessCache
+  extends AbstractOptionHandler {
+
+  private static final long serialVersionUID = 4409719473817416113L;
+
+  /** the fingerprint of the current setup. */
+  protected String m_Fingerprint;
+
+  /**
+   * Initializes the cache for a run of the algorithm.
+   *
+   * @param fingerprint	the fingerprint of the dataset/classifier/measure setup,
+   *                    identifies the results that can be re-used
+   */
+  public synchronized void initialize(String fingerprint) {
+    close();
+    m_Fingerprint = fingerprint;
+    doInitialize();
+  }
+
+  /**
+   * Initializes the cache for a run of the algorithm.
+   * <br>
+   * Default implementation does nothing.
+   */
+  protected void doInitialize() {
+  }
+
+  /**
+   * Returns the fingerprint in use.
+   *
+   * @return		the fingerprint, null if not initialized
+   */
+  public String getFingerprint() {
+    return m_Fingerprint;
+  }
+
+  /**
+   * Returns the cached fitness for the chromosome.
+   *
+   * @param key		the key of the chromosome
+   * @return		the fitness, null if not present
+   */
+  public abstract Double get(FitnessCacheKey key);
+
+  /**
+   * Stores the fitness of the chromosome.
+   *
+   * @param key		the key of the chromosome
+   * @param fitness	the fitness
+   */
+  public abstract void put(FitnessCacheKey key, Double fitness);
+
+  /**
+   * Returns the number of fitness values held in memory.
+   *
+   * @return		the number of values
+   */
+  public abstract int size();
+
+  /**
+   * Removes all fitness values held in memory. Persisted values are not
+   * affected.
+   */
+  public abstract void clear();
+
+  /**
+   * Releases any resources, e.g., open files.
+   * <br>
+   * Default implementation does nothing.
+   */
+  public void close() {
+  }
+}
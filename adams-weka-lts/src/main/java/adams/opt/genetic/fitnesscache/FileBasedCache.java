@@ -0,0 +1,242 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FileBasedCache.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import adams.core.io.PlaceholderDirectory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+/**
+ <!-- globalinfo-start -->
+ * Keeps the fitness values in memory and also appends them to a file in
+ * the cache directory, which is named after the fingerprint of the setup
+ * (dataset, classifier, measure, etc). Restarting the algorithm with the
+ * same setup re-uses all the fitness values stored in the file.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-max-size &lt;int&gt; (property: maxSize)
+ * &nbsp;&nbsp;&nbsp;The maximum number of fitness values to keep in memory; -1 for unlimited.
+ * &nbsp;&nbsp;&nbsp;default: -1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ * <pre>-cache-dir &lt;adams.core.io.PlaceholderDirectory&gt; (property: cacheDir)
+ * &nbsp;&nbsp;&nbsp;The directory to store the cache files in.
+ * &nbsp;&nbsp;&nbsp;default: ${TMP}
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FileBasedCache
+  extends InMemoryCache {
+
+  private static final long serialVersionUID = -5001860412357469935L;
+
+  /** the extension of the cache files. */
+  public final static String EXTENSION = ".fitness";
+
+  /** the separator between key and fitness. */
+  public final static char SEPARATOR = '\t';
+
+  /** the directory for the cache files. */
+  protected PlaceholderDirectory m_CacheDir;
+
+  /** for appending the values. */
+  protected transient BufferedWriter m_Writer;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Keeps the fitness values in memory and also appends them to a file in "
+	+ "the cache directory, which is named after the fingerprint of the setup "
+	+ "(dataset, classifier, measure, etc). Restarting the algorithm with the "
+	+ "same setup re-uses all the fitness values stored in the file.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "cache-dir", "cacheDir",
+      new PlaceholderDirectory("${TMP}"));
+  }
+
+  /**
+   * Sets the directory for the cache files.
+   *
+   * @param value	the directory
+   */
+  public void setCacheDir(PlaceholderDirectory value) {
+    m_CacheDir = value;
+    reset();
+  }
+
+  /**
+   * Returns the directory for the cache files.
+   *
+   * @return		the directory
+   */
+  public PlaceholderDirectory getCacheDir() {
+    return m_CacheDir;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String cacheDirTipText() {
+    return "The directory to store the cache files in.";
+  }
+
+  /**
+   * Returns the cache file for the current fingerprint.
+   *
+   * @return		the file
+   */
+  public File getCacheFile() {
+    return new File(m_CacheDir.getAbsolutePath(), m_Fingerprint + EXTENSION);
+  }
+
+  /**
+   * Loads the values from the cache file (if present) and opens the file
+   * for appending new values.
+   */
+  @Override
+  protected void doInitialize() {
+    File		file;
+    BufferedReader	reader;
+    String		line;
+    int			pos;
+    int			count;
+
+    super.doInitialize();
+
+    file = getCacheFile();
+
+    // load
+    if (file.exists()) {
+      count = 0;
+      try (FileInputStream fis = new FileInputStream(file)) {
+	reader = new BufferedReader(new InputStreamReader(fis, StandardCharsets.UTF_8));
+	while ((line = reader.readLine()) != null) {
+	  pos = line.indexOf(SEPARATOR);
+	  // incomplete line from a crash?
+	  if (pos == -1)
+	    continue;
+	  try {
+	    store(FitnessCacheKey.parse(line.substring(0, pos)), Double.parseDouble(line.substring(pos + 1)));
+	    count++;
+	  }
+	  catch (Exception e) {
+	    getLogger().warning("Skipping invalid line in " + file + ": " + line);
+	  }
+	}
+	if (isLoggingEnabled())
+	  getLogger().info("Loaded " + count + " fitness values from " + file);
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to load fitness values from: " + file, e);
+      }
+    }
+
+    // open for appending
+    try {
+      m_Writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+    catch (Exception e) {
+      m_Writer = null;
+      getLogger().log(Level.SEVERE, "Failed to open cache file for writing: " + file, e);
+    }
+  }
+
+  /**
+   * Stores the fitness of the chromosome, in memory and in the file.
+   *
+   * @param key		the key of the chromosome
+   * @param fitness	the fitness
+   */
+  @Override
+  public void put(FitnessCacheKey key, Double fitness) {
+    if (fitness == null)
+      return;
+    if (fitness.equals(get(key)))
+      return;
+
+    store(key, fitness);
+
+    synchronized(this) {
+      if (m_Writer == null)
+	return;
+      try {
+	m_Writer.write(key.toString() + SEPARATOR + fitness + "\n");
+	m_Writer.flush();
+      }
+      catch (Exception e) {
+	getLogger().log(Level.SEVERE, "Failed to write fitness value to: " + getCacheFile(), e);
+      }
+    }
+  }
+
+  /**
+   * Closes the cache file.
+   */
+  @Override
+  public synchronized void close() {
+    if (m_Writer != null) {
+      try {
+	m_Writer.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+      m_Writer = null;
+    }
+    super.close();
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Fingerprint.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Generates a fingerprint (SHA-256) of an algorithm setup, e.g., the
+ * dataset, classifier and measure, for identifying re-usable fitness values.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Fingerprint {
+
+  /** the digest in use. */
+  protected MessageDigest m_Digest;
+
+  /** the buffer for the numbers. */
+  protected ByteBuffer m_Buffer;
+
+  /** the generated fingerprint. */
+  protected String m_Result;
+
+  /**
+   * Initializes the fingerprint.
+   */
+  public Fingerprint() {
+    try {
+      m_Digest = MessageDigest.getInstance("SHA-256");
+    }
+    catch (Exception e) {
+      throw new IllegalStateException("SHA-256 not available!", e);
+    }
+    m_Buffer = ByteBuffer.allocate(8);
+  }
+
+  /**
+   * Adds the string.
+   *
+   * @param value	the string to add, can be null
+   * @return		itself
+   */
+  public Fingerprint add(String value) {
+    byte[]	bytes;
+
+    if (value == null) {
+      add(-1);
+    }
+    else {
+      bytes = value.getBytes(StandardCharsets.UTF_8);
+      add(bytes.length);
+      m_Digest.update(bytes);
+    }
+
+    return this;
+  }
+
+  /**
+   * Adds the integer.
+   *
+   * @param value	the integer to add
+   * @return		itself
+   */
+  public Fingerprint add(long value) {
+    m_Buffer.clear();
+    m_Buffer.putLong(value);
+    m_Digest.update(m_Buffer.array());
+
+    return this;
+  }
+
+  /**
+   * Adds the double.
+   *
+   * @param value	the double to add
+   * @return		itself
+   */
+  public Fingerprint add(double value) {
+    return add(Double.doubleToLongBits(value));
+  }
+
+  /**
+   * Adds the header and all the values of the dataset.
+   *
+   * @param data	the dataset to add, can be null
+   * @return		itself
+   */
+  public Fingerprint add(Instances data) {
+    Instance	inst;
+    int		i;
+    int		n;
+
+    if (data == null) {
+      add(-1);
+      return this;
+    }
+
+    add(new Instances(data, 0).toString());
+    add(data.classIndex());
+    add(data.numInstances());
+    for (i = 0; i < data.numInstances(); i++) {
+      inst = data.instance(i);
+      for (n = 0; n < inst.numAttributes(); n++)
+	add(inst.value(n));
+      add(inst.weight());
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns the fingerprint as hex string. The fingerprint cannot be
+   * extended afterwards.
+   *
+   * @return		the hex string
+   */
+  @Override
+  public String toString() {
+    StringBuilder	result;
+
+    if (m_Result == null) {
+      result = new StringBuilder();
+      for (byte b: m_Digest.digest())
+	result.append(String.format("%02x", b & 0xFF));
+      m_Result = result.toString();
+    }
+
+    return m_Result;
+  }
+}
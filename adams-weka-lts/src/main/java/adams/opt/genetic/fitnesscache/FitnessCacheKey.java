@@ -0,0 +1,179 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FitnessCacheKey.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact, immutable key for a chromosome: the weights get packed into
+ * a long array, using the specified number of bits per weight.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public final class FitnessCacheKey
+  implements Serializable {
+
+  private static final long serialVersionUID = -2836187450138763128L;
+
+  /** the number of weights. */
+  protected final int m_Length;
+
+  /** the packed bits. */
+  protected final long[] m_Bits;
+
+  /** the cached hashcode. */
+  protected final int m_HashCode;
+
+  /**
+   * Initializes the key.
+   *
+   * @param length	the number of weights
+   * @param bits	the packed bits
+   */
+  protected FitnessCacheKey(int length, long[] bits) {
+    m_Length   = length;
+    m_Bits     = bits;
+    m_HashCode = 31 * Arrays.hashCode(bits) + length;
+  }
+
+  /**
+   * Returns the number of weights encoded in the key.
+   *
+   * @return		the number of weights
+   */
+  public int length() {
+    return m_Length;
+  }
+
+  /**
+   * Compares the key with the object.
+   *
+   * @param obj		the object to compare with
+   * @return		true if the same key
+   */
+  @Override
+  public boolean equals(Object obj) {
+    FitnessCacheKey	other;
+
+    if (obj == this)
+      return true;
+    if (!(obj instanceof FitnessCacheKey))
+      return false;
+    other = (FitnessCacheKey) obj;
+    return (m_Length == other.m_Length) && Arrays.equals(m_Bits, other.m_Bits);
+  }
+
+  /**
+   * Returns the hashcode of the key.
+   *
+   * @return		the hashcode
+   */
+  @Override
+  public int hashCode() {
+    return m_HashCode;
+  }
+
+  /**
+   * Returns the key as string, which can be parsed again with {@link #parse(String)}.
+   * Format: "length:word1,word2,..." (words in hex).
+   *
+   * @return		the string representation
+   */
+  @Override
+  public String toString() {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder();
+    result.append(m_Length).append(':');
+    for (i = 0; i < m_Bits.length; i++) {
+      if (i > 0)
+	result.append(',');
+      result.append(Long.toHexString(m_Bits[i]));
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Packs the weights into a key.
+   *
+   * @param weights	the weights to pack
+   * @param bitsPerWeight	the number of bits to use per weight (1-32)
+   * @return		the key
+   */
+  public static FitnessCacheKey fromWeights(int[] weights, int bitsPerWeight) {
+    long[]	bits;
+    long	mask;
+    long	value;
+    long	pos;
+    int		word;
+    int		offset;
+    int		i;
+
+    if ((bitsPerWeight < 1) || (bitsPerWeight > 32))
+      throw new IllegalArgumentException("Bits per weight must be within 1-32, provided: " + bitsPerWeight);
+
+    mask = (bitsPerWeight == 32) ? 0xFFFFFFFFL : ((1L << bitsPerWeight) - 1);
+    bits = new long[(int) (((long) weights.length * bitsPerWeight + 63) / 64)];
+    for (i = 0; i < weights.length; i++) {
+      value  = weights[i] & mask;
+      pos    = (long) i * bitsPerWeight;
+      word   = (int) (pos >>> 6);
+      offset = (int) (pos & 63);
+      bits[word] |= value << offset;
+      if (offset + bitsPerWeight > 64)
+	bits[word + 1] |= value >>> (64 - offset);
+    }
+
+    return new FitnessCacheKey(weights.length, bits);
+  }
+
+  /**
+   * Parses the string generated by {@link #toString()}.
+   *
+   * @param s		the string to parse
+   * @return		the key
+   * @throws IllegalArgumentException	if the string cannot be parsed
+   */
+  public static FitnessCacheKey parse(String s) {
+    String[]	words;
+    long[]	bits;
+    int		pos;
+    int		i;
+
+    pos = s.indexOf(':');
+    if (pos == -1)
+      throw new IllegalArgumentException("Invalid key: " + s);
+    if (pos == s.length() - 1) {
+      bits = new long[0];
+    }
+    else {
+      words = s.substring(pos + 1).split(",");
+      bits  = new long[words.length];
+      for (i = 0; i < words.length; i++)
+	bits[i] = Long.parseUnsignedLong(words[i], 16);
+    }
+
+    return new FitnessCacheKey(Integer.parseInt(s.substring(0, pos)), bits);
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InMemoryCache.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ <!-- globalinfo-start -->
+ * Keeps the fitness values in memory. Once the maximum size is reached, the
+ * least recently used values get evicted.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ * <pre>-max-size &lt;int&gt; (property: maxSize)
+ * &nbsp;&nbsp;&nbsp;The maximum number of fitness values to keep in memory; -1 for unlimited.
+ * &nbsp;&nbsp;&nbsp;default: -1
+ * &nbsp;&nbsp;&nbsp;minimum: -1
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InMemoryCache
+  extends AbstractFitnessCache {
+
+  private static final long serialVersionUID = 7547307700855612428L;
+
+  /** the maximum number of values to keep (-1 = unlimited). */
+  protected int m_MaxSize;
+
+  /** the cached values. */
+  protected transient Map<FitnessCacheKey,Double> m_Cache;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Keeps the fitness values in memory. Once the maximum size is reached, the "
+	+ "least recently used values get evicted.";
+  }
+
+  /**
+   * Adds options to the internal list of options.
+   */
+  @Override
+  public void defineOptions() {
+    super.defineOptions();
+
+    m_OptionManager.add(
+      "max-size", "maxSize",
+      -1, -1, null);
+  }
+
+  /**
+   * Resets the scheme.
+   */
+  @Override
+  protected void reset() {
+    super.reset();
+
+    m_Cache = null;
+  }
+
+  /**
+   * Sets the maximum number of values to keep in memory.
+   *
+   * @param value	the maximum, -1 for unlimited
+   */
+  public void setMaxSize(int value) {
+    if (getOptionManager().isValid("maxSize", value)) {
+      m_MaxSize = value;
+      reset();
+    }
+  }
+
+  /**
+   * Returns the maximum number of values to keep in memory.
+   *
+   * @return		the maximum, -1 for unlimited
+   */
+  public int getMaxSize() {
+    return m_MaxSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String maxSizeTipText() {
+    return "The maximum number of fitness values to keep in memory; -1 for unlimited.";
+  }
+
+  /**
+   * Returns the map for storing the values, creates it if necessary.
+   * Unlimited caches use a concurrent map, bounded ones a synchronized LRU map.
+   *
+   * @return		the map
+   */
+  protected synchronized Map<FitnessCacheKey,Double> getCache() {
+    final int	maxSize;
+
+    if (m_Cache == null) {
+      if (m_MaxSize < 0) {
+	m_Cache = new ConcurrentHashMap<>();
+      }
+      else {
+	maxSize = m_MaxSize;
+	m_Cache = new LinkedHashMap<FitnessCacheKey,Double>(16, 0.75f, true) {
+	  private static final long serialVersionUID = 4934767129127839787L;
+	  @Override
+	  protected boolean removeEldestEntry(Map.Entry<FitnessCacheKey,Double> eldest) {
+	    return size() > maxSize;
+	  }
+	};
+      }
+    }
+
+    return m_Cache;
+  }
+
+  /**
+   * Returns the cached fitness for the chromosome.
+   *
+   * @param key		the key of the chromosome
+   * @return		the fitness, null if not present
+   */
+  @Override
+  public Double get(FitnessCacheKey key) {
+    Map<FitnessCacheKey,Double>	cache;
+
+    cache = getCache();
+    if (cache instanceof ConcurrentHashMap)
+      return cache.get(key);
+    synchronized(cache) {
+      return cache.get(key);
+    }
+  }
+
+  /**
+   * Stores the fitness of the chromosome in memory.
+   *
+   * @param key		the key of the chromosome
+   * @param fitness	the fitness
+   */
+  protected void store(FitnessCacheKey key, Double fitness) {
+    Map<FitnessCacheKey,Double>	cache;
+
+    if (fitness == null)
+      return;
+    cache = getCache();
+    if (cache instanceof ConcurrentHashMap) {
+      cache.put(key, fitness);
+    }
+    else {
+      synchronized(cache) {
+	cache.put(key, fitness);
+      }
+    }
+  }
+
+  /**
+   * Stores the fitness of the chromosome.
+   *
+   * @param key		the key of the chromosome
+   * @param fitness	the fitness
+   */
+  @Override
+  public void put(FitnessCacheKey key, Double fitness) {
+    store(key, fitness);
+  }
+
+  /**
+   * Returns the number of fitness values held in memory.
+   *
+   * @return		the number of values
+   */
+  @Override
+  public int size() {
+    Map<FitnessCacheKey,Double>	cache;
+
+    cache = getCache();
+    synchronized(cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Removes all fitness values held in memory.
+   */
+  @Override
+  public void clear() {
+    Map<FitnessCacheKey,Double>	cache;
+
+    cache = getCache();
+    synchronized(cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Initializes the cache for a run of the algorithm.
+   */
+  @Override
+  protected void doInitialize() {
+    super.doInitialize();
+    clear();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NoCache.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+/**
+ <!-- globalinfo-start -->
+ * Dummy cache, does not store any fitness values.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * <pre>-logging-level &lt;OFF|SEVERE|WARNING|INFO|CONFIG|FINE|FINER|FINEST&gt; (property: loggingLevel)
+ * &nbsp;&nbsp;&nbsp;The logging level for outputting errors and debugging output.
+ * &nbsp;&nbsp;&nbsp;default: WARNING
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class NoCache
+  extends AbstractFitnessCache {
+
+  private static final long serialVersionUID = -6069476263702307757L;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Dummy cache, does not store any fitness values.";
+  }
+
+  /**
+   * Returns the cached fitness for the chromosome.
+   *
+   * @param key		the key of the chromosome
+   * @return		always null
+   */
+  @Override
+  public Double get(FitnessCacheKey key) {
+    return null;
+  }
+
+  /**
+   * Does nothing.
+   *
+   * @param key		the key of the chromosome
+   * @param fitness	the fitness
+   */
+  @Override
+  public void put(FitnessCacheKey key, Double fitness) {
+  }
+
+  /**
+   * Returns the number of fitness values held in memory.
+   *
+   * @return		always 0
+   */
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  /**
+   * Does nothing.
+   */
+  @Override
+  public void clear() {
+  }
+}
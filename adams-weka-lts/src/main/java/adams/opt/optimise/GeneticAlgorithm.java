@@ -15,22 +15,28 @@
 
 /*
  * GeneticAlgorithm.java
- * Copyright (C) 2009-2013 University of Waikato, Hamilton, New Zealand
+ * Copyright (C) 2009-2023 University of Waikato, Hamilton, New Zealand
  */
 
 package adams.opt.optimise;
 
 import adams.core.logging.LoggingLevel;
 import adams.core.option.ArrayConsumer;
+import adams.core.option.OptionUtils;
 import adams.env.Environment;
 import adams.multiprocess.AbstractJob;
 import adams.multiprocess.JobList;
 import adams.multiprocess.JobRunner;
 import adams.multiprocess.JobWithOwner;
 import adams.multiprocess.LocalJobRunner;
+import adams.opt.genetic.fitnesscache.AbstractFitnessCache;
+import adams.opt.genetic.fitnesscache.Fingerprint;
+import adams.opt.genetic.fitnesscache.FitnessCacheKey;
+import adams.opt.genetic.fitnesscache.InMemoryCache;
 import adams.opt.optimise.genetic.PackData;
 import adams.opt.optimise.genetic.PackDataDef;
 import adams.opt.optimise.genetic.PackDataGeneticAlgorithm;
+import adams.opt.optimise.genetic.fitnessfunctions.AbstractWEKAFitnessFunction;
 import adams.opt.optimise.genetic.fitnessfunctions.AttributeSelection;
 import weka.classifiers.functions.GPD;
 import weka.classifiers.functions.LinearRegressionJ;
@@ -42,7 +48,6 @@ import weka.filters.MultiFilter;
 import weka.filters.supervised.attribute.PLSFilter;
 import weka.filters.unsupervised.attribute.Remove;
 
-import java.util.Hashtable;
 import java.util.Vector;
 
 /**
@@ -94,6 +99,17 @@ import java.util.Vector;
  *         default: -1
  * </pre>
  *
+ * <pre>-bits &lt;int&gt; (property: bits)
+ *         The number of bits to use.
+ *         default: 5
+ * </pre>
+ *
+ * <pre>-fitness-cache &lt;adams.opt.genetic.fitnesscache.AbstractFitnessCache&gt; (property: fitnessCache)
+ *         The cache for the fitness values of chromosomes that have already been
+ *          evaluated; a file-based cache allows resuming runs.
+ *         default: adams.opt.genetic.fitnesscache.InMemoryCache
+ * </pre>
+ *
  <!-- options-end -->
  *
  * @author Dale (dale at cs dot waikato dot ac dot nz)
@@ -116,49 +132,59 @@ public class GeneticAlgorithm
   /** the timestamp the last notification got sent. */
   protected Long m_LastNotificationTime;
 
-  /** the cache for results. */
-  public Hashtable<String,Double> m_StoredResults = new Hashtable<String,Double>();
+  /** the cache for the fitness values. */
+  protected AbstractFitnessCache m_FitnessCache;
 
   /**
    * Adds a result to the cache.
    *
-   * @param key		the key of the result
+   * @param weights	the weights of the chromosome
    * @param val		the value to add
    */
-  protected synchronized void addResult(String key, Double val) {
-    m_StoredResults.put(key, val);
-  }
-
-  /**
-   * Resets the genetic algorihtm.
-   * Derived classes must call this method in set-methods of parameters to
-   * assure the invalidation of previously generated data.
-   */
-  @Override
-  public void reset() {
-    super.reset();
-
-    m_StoredResults = new Hashtable<String,Double>();
-
+  protected void addResult(int[] weights, Double val) {
+    m_FitnessCache.put(FitnessCacheKey.fromWeights(weights, 1), val);
   }
 
-
   /**
    * Returns a value from the cache.
    *
-   * @param key		the key of the result
+   * @param weights	the weights of the chromosome
    * @return		the result or null if not present
    */
-  protected synchronized Double getResult(String key) {
-    Double res = m_StoredResults.get(key);
-    return res;
+  protected Double getResult(int[] weights) {
+    return m_FitnessCache.get(FitnessCacheKey.fromWeights(weights, 1));
   }
 
   /**
    * Clears all currently stored results.
    */
-  protected synchronized void clearResults() {
-    m_StoredResults.clear();
+  protected void clearResults() {
+    if (m_FitnessCache != null)
+      m_FitnessCache.clear();
+  }
+
+  /**
+   * Generates the fingerprint of the current setup for the fitness cache,
+   * i.e., everything that influences the fitness of a chromosome.
+   *
+   * @return		the fingerprint
+   */
+  protected String getFitnessCacheFingerprint() {
+    Fingerprint		result;
+
+    result = new Fingerprint();
+    result.add(getClass().getName());
+    result.add(getBits());
+    result.add(OptionUtils.getCommandLine(m_fitnessfn));
+    if (m_fitnessfn instanceof AbstractWEKAFitnessFunction)
+      result.add(((AbstractWEKAFitnessFunction) m_fitnessfn).getInstances());
+    for (String var: m_pdd.getNames()) {
+      result.add(var);
+      result.add(m_pdd.get(var).m_min);
+      result.add(m_pdd.get(var).m_max);
+    }
+
+    return result.toString();
   }
 
 
@@ -186,10 +212,7 @@ public class GeneticAlgorithm
    */
   public double calcNewFitness(FitnessFunction ff, int[] weights) {
 
-    Double cc = getResult(weightsToString(weights));
-    if (cc != null) {
-      return cc;
-    }
+    Double cc = getResult(weights);
 
     PackData pd=new PackData(getDataDef());
     pd.putBits(weights);
@@ -203,7 +226,15 @@ public class GeneticAlgorithm
     for (String var:pd.getKeySet()) {
       odd.set(var,pd.get(var) );
     }
-    double val=ff.evaluate(odd);
+    double val;
+    if (cc != null) {
+      // values from a persistent cache may still have to become the best setup
+      val=cc;
+    }
+    else {
+      val=ff.evaluate(odd);
+      addResult(weights, val);
+    }
     checkBest(val,odd,ff,count);
     odd.cleanUp();
     return(val);
@@ -257,6 +288,10 @@ public class GeneticAlgorithm
     m_OptionManager.add(
 	    "bits", "bits",
 	    5);
+
+    m_OptionManager.add(
+	    "fitness-cache", "fitnessCache",
+	    new InMemoryCache());
   }
 
   /**
@@ -287,6 +322,37 @@ public class GeneticAlgorithm
     return "The number of bits to use.";
   }
 
+  /**
+   * Sets the cache for the fitness values.
+   *
+   * @param value	the cache
+   */
+  public void setFitnessCache(AbstractFitnessCache value) {
+    m_FitnessCache = value;
+    reset();
+  }
+
+  /**
+   * Returns the cache for the fitness values.
+   *
+   * @return		the cache
+   */
+  public AbstractFitnessCache getFitnessCache() {
+    return m_FitnessCache;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String fitnessCacheTipText() {
+    return
+      "The cache for the fitness values of chromosomes that have already been "
+	+ "evaluated; a file-based cache allows resuming runs.";
+  }
+
   /**
    * Class for multithreading the ga.
    * @author dale
@@ -394,6 +460,7 @@ public class GeneticAlgorithm
     init(getNumChrom());
 
     clearResults();
+    m_FitnessCache.initialize(getFitnessCacheFingerprint());
   }
 
 
@@ -429,6 +496,8 @@ public class GeneticAlgorithm
     super.cleanUp();
 
     clearResults();
+    if (m_FitnessCache != null)
+      m_FitnessCache.close();
   }
 
   public static void main(String[] args) {
@@ -21,7 +21,9 @@
 package adams.opt.optimise.genetic;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -104,6 +106,18 @@ public class PackDataDef
     di.resetMinMax(min,max);
   }
 
+  /**
+   * Returns the names of the variables, in the order they were added.
+   *
+   * @return		the names
+   */
+  public List<String> getNames() {
+    List<String> result = new ArrayList<>();
+    for (DataInfo di:m_packed)
+      result.add(di.getName());
+    return result;
+  }
+
   public DataInfo get(String name) {
     Integer pos=m_sort_packed.get(name);
     if (pos == null) {
@@ -0,0 +1,146 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MergeEvaluations.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.classifiers;
+
+import adams.core.ErrorProvider;
+import adams.core.logging.LoggingHelper;
+import adams.core.logging.LoggingObject;
+
+/**
+ * Merges {@link Evaluation} objects by combining their statistics (confusion
+ * matrix, sums of errors, etc) rather than replaying the predictions like
+ * {@link AggregateEvaluations} does. Works therefore with Evaluation objects
+ * that had their predictions discarded, using memory that is independent
+ * of the number of predictions. Statistics that require the predictions
+ * (eg AUC) will not be available.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class MergeEvaluations
+    extends LoggingObject
+    implements ErrorProvider {
+
+  private static final long serialVersionUID = -3209469420851416102L;
+
+  /** the merged evaluation. */
+  protected transient AggregateableEvaluation m_Merged;
+
+  /** the number of evaluations that were merged. */
+  protected int m_Count;
+
+  /** the last error. */
+  protected String m_LastError;
+
+  /**
+   * Initializes the object.
+   */
+  public MergeEvaluations() {
+    super();
+    initialize();
+  }
+
+  /**
+   * Initializes the members.
+   */
+  protected void initialize() {
+    m_Merged    = null;
+    m_Count     = 0;
+    m_LastError = null;
+  }
+
+  /**
+   * Merges the statistics of the given {@link Evaluation} object.
+   *
+   * @param eval	the evaluation to add
+   * @return		null if successfully added, otherwise error message
+   */
+  public String add(Evaluation eval) {
+    m_LastError = null;
+
+    if (eval == null)
+      m_LastError = "Cannot add null object!";
+
+    if (m_LastError == null) {
+      try {
+	if (m_Merged == null)
+	  m_Merged = new AggregateableEvaluation(eval);
+	else if (!m_Merged.getHeader().equalHeaders(eval.getHeader()))
+	  m_LastError = "Dataset headers differ: " + m_Merged.getHeader().equalHeadersMsg(eval.getHeader());
+	if (m_LastError == null) {
+	  m_Merged.aggregate(eval);
+	  m_Count++;
+	}
+      }
+      catch (Exception e) {
+	m_LastError = LoggingHelper.handleException(this, "Failed to merge Evaluation object!", e);
+      }
+    }
+
+    return m_LastError;
+  }
+
+  /**
+   * Returns the number of evaluations that have been merged so far.
+   *
+   * @return		the number of evaluations
+   */
+  public int count() {
+    return m_Count;
+  }
+
+  /**
+   * Returns the merged evaluation.
+   *
+   * @return		the merged evaluation, null if nothing added
+   */
+  public Evaluation aggregated() {
+    return m_Merged;
+  }
+
+  /**
+   * Returns whether an error was encountered during the last operation.
+   *
+   * @return		true if an error occurred
+   */
+  public boolean hasLastError() {
+    return (m_LastError != null);
+  }
+
+  /**
+   * Returns the error that occurred during the last operation.
+   *
+   * @return		the error string, null if none occurred
+   */
+  public String getLastError() {
+    return m_LastError;
+  }
+
+  /**
+   * Returns a short description of current state.
+   *
+   * @return		short description
+   */
+  public String toString() {
+    return
+	"# evaluations: " + count() + "\n"
+	    + "last error: " + (hasLastError() ? getLastError() : "-none-");
+  }
+}
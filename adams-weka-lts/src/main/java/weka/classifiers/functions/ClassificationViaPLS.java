@@ -20,6 +20,7 @@
 package weka.classifiers.functions;
 
 import adams.core.option.OptionUtils;
+import adams.data.instancesanalysis.pls.LinearPLSScorer;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.meta.ClassificationViaRegression;
 import weka.classifiers.meta.ClassificationViaRegressionD;
@@ -114,6 +115,9 @@ public class ClassificationViaPLS
 
   /** the label string to get the PLS matrices for (overrides the label index). */
   protected String m_LabelString = "";
+
+  /** the compiled scorers per class label (null if not available). */
+  protected LinearPLSScorer[] m_Scorers;
   
   /**
    * Initializes the classifier.
@@ -420,9 +424,49 @@ public class ClassificationViaPLS
    */
   @Override
   public void buildClassifier(Instances data) throws Exception {
-    m_Header = null;
+    LinearPLSScorer[]	scorers;
+    int			i;
+
+    m_Header  = null;
+    m_Scorers = null;
     m_CVR.buildClassifier(data);
     m_Header = new Instances(data, 0);
+
+    // the indicator filters only replace the class attribute, hence the
+    // compiled base models can be applied to the original data
+    scorers = new LinearPLSScorer[data.numClasses()];
+    for (i = 0; i < scorers.length; i++) {
+      if (m_CVR.getClassifier(i) instanceof PLSClassifierWeighted)
+	scorers[i] = ((PLSClassifierWeighted) m_CVR.getClassifier(i)).getScorer();
+      if (scorers[i] == null)
+	return;
+    }
+    m_Scorers = scorers;
+  }
+
+  /**
+   * Turns the predictions of the base models into a class distribution.
+   *
+   * @param probs	the predictions, get modified
+   * @return		the distribution
+   */
+  protected double[] toDistribution(double[] probs) {
+    double	sum;
+    int		i;
+
+    sum = 0;
+    for (i = 0; i < probs.length; i++) {
+      if (probs[i] > 1)
+	probs[i] = 1;
+      if (probs[i] < 0 || Double.isNaN(probs[i]))
+	probs[i] = 0;
+      sum += probs[i];
+    }
+
+    if (sum != 0)
+      Utils.normalize(probs, sum);
+
+    return probs;
   }
 
   /**
@@ -436,7 +480,10 @@ public class ClassificationViaPLS
    */
   @Override
   public double classifyInstance(Instance instance) throws Exception {
-    return m_CVR.classifyInstance(instance);
+    if (m_Scorers != null)
+      return super.classifyInstance(instance);
+    else
+      return m_CVR.classifyInstance(instance);
   }
 
   /**
@@ -454,7 +501,57 @@ public class ClassificationViaPLS
    */
   @Override
   public double[] distributionForInstance(Instance instance) throws Exception {
-    return m_CVR.distributionForInstance(instance);
+    double[]	probs;
+    int		i;
+
+    if (m_Scorers == null)
+      return m_CVR.distributionForInstance(instance);
+
+    probs = new double[m_Scorers.length];
+    for (i = 0; i < m_Scorers.length; i++)
+      probs[i] = m_Scorers[i].score(instance);
+
+    return toDistribution(probs);
+  }
+
+  /**
+   * Returns whether the compiled scorers are available for batch predictions.
+   *
+   * @return		true if the scorers are available
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_Scorers != null);
+  }
+
+  /**
+   * Predicts the class memberships for the given instances, using the
+   * compiled scorers if available.
+   *
+   * @param insts	the instances to make predictions for
+   * @return		the class distributions
+   * @throws Exception	if predictions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    double[][]	result;
+    double[]	scores;
+    int		i;
+    int		n;
+
+    if (m_Scorers == null)
+      return super.distributionsForInstances(insts);
+
+    result = new double[insts.numInstances()][m_Scorers.length];
+    for (n = 0; n < m_Scorers.length; n++) {
+      scores = m_Scorers[n].score(insts);
+      for (i = 0; i < scores.length; i++)
+	result[i][n] = scores[i];
+    }
+    for (i = 0; i < result.length; i++)
+      toDistribution(result[i]);
+
+    return result;
   }
 
   /**
@@ -22,6 +22,7 @@ package weka.classifiers.functions;
 
 import adams.core.ObjectCopyHelper;
 import adams.core.option.OptionUtils;
+import adams.data.instancesanalysis.pls.LinearPLSScorer;
 import weka.classifiers.AbstractClassifier;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
@@ -34,6 +35,7 @@ import weka.core.Utils;
 import weka.core.WeightedInstancesHandler;
 import weka.filters.Filter;
 import weka.filters.supervised.attribute.PLSFilter;
+import weka.filters.supervised.attribute.PLSFilterHelper;
 
 import java.util.Enumeration;
 import java.util.Vector;
@@ -99,6 +101,9 @@ public class PLSClassifierWeighted
   /** the actual filter to use */
   protected PLSFilter m_ActualFilter = null;
 
+  /** the compiled scorer (null if the filter cannot be compiled) */
+  protected LinearPLSScorer m_Scorer = null;
+
   /**
    * Returns a string describing classifier
    *
@@ -321,6 +326,18 @@ public class PLSClassifierWeighted
     m_ActualFilter.setInputFormat(data);
     Filter.useFilter(data, m_ActualFilter);
     m_ActualFilter.setPerformPrediction(true);
+
+    // compile the model, if possible
+    m_Scorer = PLSFilterHelper.compileScorer(m_ActualFilter, new Instances(data, 0));
+  }
+
+  /**
+   * Returns the compiled scorer, if available.
+   *
+   * @return		the scorer, null if not available
+   */
+  public LinearPLSScorer getScorer() {
+    return m_Scorer;
   }
 
   /**
@@ -337,14 +354,45 @@ public class PLSClassifierWeighted
     double	result;
     Instance	pred;
 
-    m_ActualFilter.input(instance);
-    m_ActualFilter.batchFinished();
-    pred   = m_ActualFilter.output();
+    if (m_Scorer != null)
+      return m_Scorer.score(instance);
+
+    synchronized(m_ActualFilter) {
+      m_ActualFilter.input(instance);
+      m_ActualFilter.batchFinished();
+      pred = m_ActualFilter.output();
+    }
     result = pred.classValue();
 
     return result;
   }
 
+  /**
+   * Returns whether the compiled scorer is available for batch predictions.
+   *
+   * @return		true if the scorer is available
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_Scorer != null);
+  }
+
+  /**
+   * Performs predictions on the instances, using the compiled scorer if
+   * available.
+   *
+   * @param insts	the instances to make predictions for
+   * @return		the predictions
+   * @throws Exception	if predictions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    if (m_Scorer != null)
+      return m_Scorer.distributionsForInstances(insts);
+    else
+      return super.distributionsForInstances(insts);
+  }
+
   /**
    * returns a string representation of the classifier
    *
@@ -23,6 +23,7 @@ package weka.classifiers.functions;
 import adams.core.ObjectCopyHelper;
 import adams.core.option.OptionUtils;
 import adams.data.instancesanalysis.pls.AbstractPLS;
+import adams.data.instancesanalysis.pls.LinearPLSScorer;
 import adams.data.instancesanalysis.pls.PLS1;
 import adams.data.instancesanalysis.pls.PredictionType;
 import weka.classifiers.AbstractClassifier;
@@ -105,6 +106,9 @@ public class PLSWeighted
   /** the actual filter to use */
   protected weka.filters.supervised.attribute.PLS m_Filter = null;
 
+  /** the compiled scorer (null if the algorithm cannot be compiled) */
+  protected LinearPLSScorer m_Scorer = null;
+
   /**
    * Returns a string describing classifier
    *
@@ -275,6 +279,18 @@ public class PLSWeighted
     m_Filter.setInputFormat(data);
     Filter.useFilter(data, m_Filter);
     pls.setPredictionType(PredictionType.ALL);
+
+    // compile the model, if possible
+    m_Scorer = pls.compileScorer(new Instances(data, 0));
+  }
+
+  /**
+   * Returns the compiled scorer, if available.
+   *
+   * @return		the scorer, null if not available
+   */
+  public LinearPLSScorer getScorer() {
+    return m_Scorer;
   }
 
   /**
@@ -291,14 +307,45 @@ public class PLSWeighted
     double	result;
     Instance	pred;
 
-    m_Filter.input(instance);
-    m_Filter.batchFinished();
-    pred   = m_Filter.output();
+    if (m_Scorer != null)
+      return m_Scorer.score(instance);
+
+    synchronized(m_Filter) {
+      m_Filter.input(instance);
+      m_Filter.batchFinished();
+      pred = m_Filter.output();
+    }
     result = pred.classValue();
 
     return result;
   }
 
+  /**
+   * Returns whether the compiled scorer is available for batch predictions.
+   *
+   * @return		true if the scorer is available
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_Scorer != null);
+  }
+
+  /**
+   * Performs predictions on the instances, using the compiled scorer if
+   * available.
+   *
+   * @param insts	the instances to make predictions for
+   * @return		the predictions
+   * @throws Exception	if predictions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    if (m_Scorer != null)
+      return m_Scorer.distributionsForInstances(insts);
+    else
+      return super.distributionsForInstances(insts);
+  }
+
   /**
    * Returns the all the available matrices.
    *
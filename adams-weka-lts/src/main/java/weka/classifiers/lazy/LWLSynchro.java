@@ -21,6 +21,8 @@
 
 package weka.classifiers.lazy;
 
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
 import weka.classifiers.ThreadSafeClassifier;
 import weka.classifiers.functions.GaussianProcessesNoWeights;
 import weka.core.Instance;
@@ -28,6 +30,8 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.Utils;
+import weka.core.neighboursearch.NewNNSearch;
+import weka.core.neighboursearch.NewNNSearch.QueryResult;
 
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -146,6 +150,10 @@ import java.util.Vector;
  * Note: the <code>build(Instance)</code> needs manual syncing with the
  * original WEKA classifier (<code>distributionForInstance(Instance)</code>
  * method).
+ * <br>
+ * When using {@link NewNNSearch} (or a derived search), predictions can be
+ * made concurrently, using a copy of the base classifier per thread. Other
+ * search algorithms keep per-query state and predictions get serialized.
  *
  * @author Len Trigg (trigg@cs.waikato.ac.nz)
  * @author Eibe Frank (eibe@cs.waikato.ac.nz)
@@ -164,6 +172,9 @@ public class LWLSynchro
    * when making predictions. */
   protected boolean m_NoUpdate;
 
+  /** the per-thread copies of the base classifier. */
+  protected transient volatile ThreadLocal<Classifier> m_LocalClassifier;
+
   /**
    * Initializes the classifier.
    */
@@ -183,6 +194,59 @@ public class LWLSynchro
     return GaussianProcessesNoWeights.class.getName();
   }
 
+  /**
+   * Generates the classifier.
+   *
+   * @param instances set of instances serving as training data
+   * @throws Exception if the classifier has not been generated successfully
+   */
+  @Override
+  public void buildClassifier(Instances instances) throws Exception {
+    m_LocalClassifier = null;
+    super.buildClassifier(instances);
+  }
+
+  /**
+   * Returns whether predictions can be made concurrently, i.e., whether
+   * the nearest neighbour search supports stateless queries.
+   *
+   * @return		true if concurrent predictions are possible
+   */
+  protected boolean isConcurrent() {
+    return (m_NNSearch instanceof NewNNSearch);
+  }
+
+  /**
+   * Returns the base classifier to build for the current thread.
+   *
+   * @return		the classifier
+   * @throws Exception	if copying of base classifier fails
+   */
+  protected Classifier getLocalClassifier() throws Exception {
+    ThreadLocal<Classifier>	local;
+    Classifier			result;
+
+    if (!isConcurrent())
+      return m_Classifier;
+
+    local = m_LocalClassifier;
+    if (local == null) {
+      synchronized(this) {
+	if (m_LocalClassifier == null)
+	  m_LocalClassifier = new ThreadLocal<>();
+	local = m_LocalClassifier;
+      }
+    }
+
+    result = local.get();
+    if (result == null) {
+      result = AbstractClassifier.makeCopy(m_Classifier);
+      local.set(result);
+    }
+
+    return result;
+  }
+
   /**
    * Returns an enumeration describing the available options.
    *
@@ -355,10 +419,11 @@ public class LWLSynchro
    * original WEKA classifier.
    *
    * @param instance	the instance to make prediction for
+   * @return		the classifier built on the weighted neighbours
    * @throws Exception	if build fails
    * @see 		LWL#distributionForInstance(Instance)
    */
-  protected void build(Instance instance) throws Exception {
+  protected Classifier build(Instance instance) throws Exception {
     if (!m_NoUpdate)
       m_NNSearch.addInstanceInfo(instance);
 
@@ -369,8 +434,17 @@ public class LWLSynchro
       k = m_kNN;
     }
 
-    Instances neighbours = m_NNSearch.kNearestNeighbours(instance, k);
-    double distances[] = m_NNSearch.getDistances();
+    Instances neighbours;
+    double distances[];
+    if (isConcurrent()) {
+      QueryResult result = ((NewNNSearch) m_NNSearch).query(instance, k);
+      neighbours = result.getNeighbours();
+      distances = result.getDistances();
+    }
+    else {
+      neighbours = m_NNSearch.kNearestNeighbours(instance, k);
+      distances = m_NNSearch.getDistances();
+    }
 
     if (m_Debug) {
       System.out.println("Test Instance: "+instance);
@@ -453,7 +527,9 @@ public class LWLSynchro
     }
 
     // Create a weighted classifier
-    m_Classifier.buildClassifier(neighbours);
+    Classifier classifier = getLocalClassifier();
+    classifier.buildClassifier(neighbours);
+    return classifier;
   }
 
   /**
@@ -464,7 +540,7 @@ public class LWLSynchro
    * @throws Exception if distribution can't be computed successfully
    */
   @Override
-  public synchronized double[] distributionForInstance(Instance instance) throws Exception {
+  public double[] distributionForInstance(Instance instance) throws Exception {
     // default model?
     if (m_ZeroR != null)
       return m_ZeroR.distributionForInstance(instance);
@@ -472,14 +548,30 @@ public class LWLSynchro
     if (m_Train.numInstances() == 0)
       throw new Exception("No training instances!");
 
-    build(instance);
+    if (isConcurrent())
+      return distributionForInstance(instance, build(instance));
 
+    synchronized(this) {
+      return distributionForInstance(instance, build(instance));
+    }
+  }
+
+  /**
+   * Calculates the class membership probabilities for the given test instance
+   * using the classifier built on its neighbourhood.
+   *
+   * @param instance the instance to be classified
+   * @param classifier the classifier built on the neighbourhood
+   * @return predicted class probability distribution
+   * @throws Exception if distribution can't be computed successfully
+   */
+  protected double[] distributionForInstance(Instance instance, Classifier classifier) throws Exception {
     if (m_Debug) {
       System.out.println("Classifying test instance: " + instance);
-      System.out.println("Built base classifier:\n" + m_Classifier.toString());
+      System.out.println("Built base classifier:\n" + classifier.toString());
     }
 
-    return m_Classifier.distributionForInstance(instance);
+    return classifier.distributionForInstance(instance);
   }
   
   /**
@@ -22,6 +22,8 @@
 package weka.classifiers.lazy;
 
 import adams.core.option.WekaCommandLineHandler;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
 import weka.classifiers.ThreadSafeClassifier;
 import weka.classifiers.functions.GPD;
 import weka.classifiers.functions.GaussianProcessesNoWeights;
@@ -29,6 +31,7 @@ import weka.core.*;
 import weka.core.neighboursearch.FilteredNeighbourSearch;
 import weka.core.neighboursearch.FilteredSearch;
 import weka.core.neighboursearch.NearestNeighbourSearch;
+import weka.core.neighboursearch.NewNNSearch.QueryResult;
 import weka.filters.AllFilter;
 import weka.filters.Filter;
 import weka.filters.MultiFilter;
@@ -170,11 +173,14 @@ public class LWLSynchroPrefilter
   protected Filter m_PreFilter = new AllFilter();
   protected Instances m_filtered;
   protected Instances m_original;
-  protected boolean m_run=false;
+  protected volatile boolean m_run=false;
   protected AddID m_addId=new AddID();
   protected NearestNeighbourSearch m_ModifiedSearchMethod = null;
   protected int m_IndexOfID = -1;
 
+  /** the per-thread copies of the base classifier. */
+  protected transient volatile ThreadLocal<Classifier> m_LocalClassifier;
+
   /**
    * Initializes the classifier.
    */
@@ -187,12 +193,11 @@ public class LWLSynchroPrefilter
 
 
 
-  protected void setUp(Instances data) throws Exception {
+  protected synchronized void setUp(Instances data) throws Exception {
     if (m_run == true){
       return;
     }
     m_original=data;
-    m_run=true;
     String attName="PF_addID";
     if(this.m_PreFilter == null) {
       throw new Exception("No prefilter!");
@@ -239,8 +244,49 @@ public class LWLSynchroPrefilter
 
       nns.getDistanceFunction().setAttributeIndices("1-last");
 
+      m_run=true;
+    }
+  }
+
+  /**
+   * Generates the classifier.
+   *
+   * @param instances set of instances serving as training data
+   * @throws Exception if the classifier has not been generated successfully
+   */
+  @Override
+  public void buildClassifier(Instances instances) throws Exception {
+    m_run = false;
+    m_LocalClassifier = null;
+    super.buildClassifier(instances);
+  }
+
+  /**
+   * Returns the base classifier to build for the current thread.
+   *
+   * @return		the classifier
+   * @throws Exception	if copying of base classifier fails
+   */
+  protected Classifier getLocalClassifier() throws Exception {
+    ThreadLocal<Classifier>	local;
+    Classifier			result;
+
+    local = m_LocalClassifier;
+    if (local == null) {
+      synchronized(this) {
+	if (m_LocalClassifier == null)
+	  m_LocalClassifier = new ThreadLocal<>();
+	local = m_LocalClassifier;
+      }
+    }
 
+    result = local.get();
+    if (result == null) {
+      result = AbstractClassifier.makeCopy(m_Classifier);
+      local.set(result);
     }
+
+    return result;
   }
 
   /**
@@ -464,14 +510,18 @@ public class LWLSynchroPrefilter
    * original WEKA classifier.
    *
    * @param instance	the instance to make prediction for
+   * @return		the classifier built on the weighted neighbours
    * @throws Exception	if build fails
    * @see 		LWL#distributionForInstance(Instance)
    */
-  protected void build(Instance instance) throws Exception {
-    setUp(m_Train);
-    this.m_addId.input(instance);
-
-
+  protected Classifier build(Instance instance) throws Exception {
+    if (!m_run)
+      setUp(m_Train);
+    Instance addedID;
+    synchronized(m_addId) {
+      this.m_addId.input(instance);
+      addedID=this.m_addId.output();
+    }
 
     int k = m_Train.numInstances();
     if( (!m_UseAllK && (m_kNN < k)) /*&&
@@ -480,8 +530,8 @@ public class LWLSynchroPrefilter
       k = m_kNN;
     }
 
-    Instance addedID=this.m_addId.output();
-    Instances neighboursInFilteredSpace = this.m_ModifiedSearchMethod.kNearestNeighbours(addedID, k);
+    QueryResult result = ((FilteredSearch) this.m_ModifiedSearchMethod).query(addedID, k);
+    Instances neighboursInFilteredSpace = result.getNeighbours();
     Instances neighbours = new Instances(m_filtered, k);
     Iterator var5 = neighboursInFilteredSpace.iterator();
 
@@ -491,7 +541,7 @@ public class LWLSynchroPrefilter
     }
 
 
-    double distances[] = m_ModifiedSearchMethod.getDistances();
+    double distances[] = result.getDistances();
 
     if (m_Debug) {
       System.out.println("Test Instance: "+instance);
@@ -574,7 +624,9 @@ public class LWLSynchroPrefilter
     }
 
     // Create a weighted classifier
-    m_Classifier.buildClassifier(neighbours);
+    Classifier classifier = getLocalClassifier();
+    classifier.buildClassifier(neighbours);
+    return classifier;
   }
 
   /**
@@ -585,13 +637,17 @@ public class LWLSynchroPrefilter
    * @throws Exception if distribution can't be computed successfully
    */
   @Override
-  public synchronized double[] distributionForInstance(Instance instance) throws Exception {
+  public double[] distributionForInstance(Instance instance) throws Exception {
     // default model?
-    build(instance);
-    m_PreFilter.input(instance);
+    Classifier classifier = build(instance);
+    Instance filtered;
+    synchronized(m_PreFilter) {
+      m_PreFilter.input(instance);
+      filtered = m_PreFilter.output();
+    }
 
     if (m_ZeroR != null)
-      return m_ZeroR.distributionForInstance(m_PreFilter.output());
+      return m_ZeroR.distributionForInstance(filtered);
 
     if (m_Train.numInstances() == 0)
       throw new Exception("No training instances!");
@@ -600,10 +656,10 @@ public class LWLSynchroPrefilter
 
     if (m_Debug) {
       System.out.println("Classifying test instance: " + instance);
-      System.out.println("Built base classifier:\n" + m_Classifier.toString());
+      System.out.println("Built base classifier:\n" + classifier.toString());
     }
 
-    return m_Classifier.distributionForInstance(m_PreFilter.output());
+    return classifier.distributionForInstance(filtered);
   }
   
   /**
@@ -23,7 +23,11 @@ package weka.classifiers.meta;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+
+import adams.multiprocess.WekaSharedExecutor;
 
 import weka.classifiers.Classifier;
 import weka.classifiers.ParallelMultipleClassifiersCombiner;
@@ -316,41 +320,28 @@ public class PartitionedStacking
   }
 
   /**
-   * Performs blocking or notifying.
-   *
-   * @param tf		if true the method blocks, otherwise notifies
-   */
-  private synchronized void block(boolean tf) {
-    if (tf) {
-      try {
-        wait();
-      }
-      catch (InterruptedException ex) {
-      }
-    }
-    else {
-      notifyAll();
-    }
-  }
-
-  /**
-   * Does the actual construction of the base-classifiers.
+   * Does the actual construction of the base-classifiers, using the shared
+   * executor.
    *
    * @param data	the data to use as basis for base-classifiers
    * @throws Exception 	if something goes wrong during the training process
+   * @see		WekaSharedExecutor
    */
   protected synchronized void buildClassifiers(final Instances data) throws Exception {
-    int		i;
+    int				i;
+    List<Callable<Boolean>>	jobs;
+    List<Boolean>		success;
 
     m_Remove = new Remove[m_Classifiers.length];
 
+    jobs = new ArrayList<Callable<Boolean>>();
     for (i = 0; i < m_Classifiers.length; i++) {
       final Classifier currentClassifier = m_Classifiers[i];
       final int iteration = i;
       m_Ranges[i].setUpper(data.numAttributes() - 1);
 
-      Runnable newTask = new Runnable() {
-	public void run() {
+      jobs.add(new Callable<Boolean>() {
+	public Boolean call() {
 	  try {
 	    // remove unwanted attributes
 	    m_Remove[iteration] = new Remove();
@@ -365,21 +356,27 @@ public class PartitionedStacking
 	    currentClassifier.buildClassifier(newData);
 	    if (m_Debug)
 	      System.out.println("Finished classifier (" + (iteration +1) + ")");
-	    completedClassifier(iteration, true);
+	    return true;
 	  }
 	  catch (Exception ex) {
 	    ex.printStackTrace();
-	    completedClassifier(iteration, false);
+	    return false;
 	  }
 	}
-      };
-
-      // launch this task
-      m_executorPool.execute(newTask);
+      });
     }
 
-    if (m_completed + m_failed < m_Classifiers.length)
-      block(true);
+    success = WekaSharedExecutor.invokeAll(jobs, m_numExecutionSlots);
+    for (i = 0; i < success.size(); i++) {
+      if (success.get(i)) {
+	m_completed++;
+      }
+      else {
+	m_failed++;
+	if (m_Debug)
+	  System.err.println("Training of classifier " + (i + 1) + " failed!");
+      }
+    }
   }
 
   /**
@@ -408,10 +405,6 @@ public class PartitionedStacking
     data = new Instances(data);
     data.deleteWithMissingClass();
 
-    if (m_Debug)
-      System.out.println(
-	  "Starting executor pool with " + m_numExecutionSlots + " slot(s)...");
-    startExecutorPool();
     m_completed = 0;
     m_failed    = 0;
 
@@ -23,19 +23,26 @@ package weka.classifiers.meta;
 import adams.core.Utils;
 import adams.core.base.BaseHostname;
 import adams.core.option.OptionUtils;
-import gnu.trove.list.TByteList;
-import gnu.trove.list.array.TByteArrayList;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.meta.socketfacade.AbstractDataPreparation;
+import weka.classifiers.meta.socketfacade.BatchDataPreparation;
 import weka.classifiers.meta.socketfacade.Simple;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
@@ -68,9 +75,24 @@ public class SocketFacade
   /** whether to skip training. */
   protected boolean m_SkipTrain;
 
+  /** whether to use a persistent connection. */
+  protected boolean m_Persistent;
+
+  /** the maximum number of batch requests in flight. */
+  protected int m_MaxInFlight = getDefaultMaxInFlight();
+
   /** the server socket for receiving the replies. */
   protected transient ServerSocket m_Server;
 
+  /** the persistent connection. */
+  protected transient SocketChannel m_Channel;
+
+  /** the selector for waiting on the persistent connection. */
+  protected transient Selector m_Selector;
+
+  /** the buffer for the frame lengths. */
+  protected transient ByteBuffer m_LengthBuffer;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -82,7 +104,15 @@ public class SocketFacade
       "Uses sockets to communicate with a process for training and "
 	+ "making predictions.\n"
       + "NB: This classifier cannot be evaluated in parallel, as the "
-      + "local port, which receives the results, can only be bound once.";
+      + "local port, which receives the results, can only be bound once.\n"
+      + "In persistent mode, a single connection to the remote process is kept "
+      + "open and used in both directions (the local address is not used). "
+      + "Each request and reply is sent as a frame: the length of the payload "
+      + "as 4-byte big-endian integer, followed by the payload. The replies "
+      + "must be sent in the same order as the requests were received. "
+      + "When making batch predictions with a data preparation scheme that "
+      + "supports it, up to the specified number of batch requests get sent "
+      + "before waiting for the reply of the first one.";
   }
 
   /**
@@ -120,6 +150,20 @@ public class SocketFacade
 	+ "\t(default: train not skipped)",
       "skip-train", 0, "-skip-train"));
 
+    result.addElement(new Option(
+      "\tWhether to use a single, persistent connection with length-prefixed frames.\n"
+	+ "\t(default: new connection per request)",
+      "persistent", 0, "-persistent"));
+
+    result.addElement(new Option(
+      "\tThe maximum number of batch requests in flight (persistent mode).\n"
+	+ "\t(default: " + getDefaultMaxInFlight() + ")",
+      "max-in-flight", 1, "-max-in-flight <int>"));
+
+    Enumeration en = super.listOptions();
+    while (en.hasMoreElements())
+      result.addElement(en.nextElement());
+
     return result.elements();
   }
 
@@ -158,6 +202,14 @@ public class SocketFacade
 
     setSkipTrain(weka.core.Utils.getFlag("skip-train", options));
 
+    setPersistent(weka.core.Utils.getFlag("persistent", options));
+
+    value = weka.core.Utils.getOption("max-in-flight", options);
+    if (!value.isEmpty())
+      setMaxInFlight(Integer.parseInt(value));
+    else
+      setMaxInFlight(getDefaultMaxInFlight());
+
     super.setOptions(options);
   }
 
@@ -186,6 +238,14 @@ public class SocketFacade
     if (getSkipTrain())
       result.add("-skip-train");
 
+    if (getPersistent())
+      result.add("-persistent");
+
+    if (getMaxInFlight() != getDefaultMaxInFlight()) {
+      result.add("-max-in-flight");
+      result.add("" + getMaxInFlight());
+    }
+
     result.addAll(Arrays.asList(super.getOptions()));
 
     return result.toArray(new String[result.size()]);
@@ -367,6 +427,85 @@ public class SocketFacade
     return "If enabled, the training is skipped; useful when using a pre-built model.";
   }
 
+  /**
+   * Sets whether to use a single, persistent connection with length-prefixed
+   * frames rather than a new connection per request.
+   *
+   * @param value 	true if to use a persistent connection
+   */
+  public void setPersistent(boolean value) {
+    m_Persistent = value;
+    closeConnection();
+  }
+
+  /**
+   * Returns whether to use a single, persistent connection with length-prefixed
+   * frames rather than a new connection per request.
+   *
+   * @return 		true if to use a persistent connection
+   */
+  public boolean getPersistent() {
+    return m_Persistent;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String persistentTipText() {
+    return
+      "If enabled, a single connection to the remote process is kept open and "
+	+ "requests/replies are sent as frames (4-byte big-endian length + payload); "
+	+ "the local address is not used in this mode.";
+  }
+
+  /**
+   * Returns the default maximum number of batch requests in flight.
+   *
+   * @return		the default
+   */
+  protected int getDefaultMaxInFlight() {
+    return 1;
+  }
+
+  /**
+   * Sets the maximum number of batch requests to send (persistent mode)
+   * before waiting for the reply of the first one.
+   *
+   * @param value 	the maximum
+   */
+  public void setMaxInFlight(int value) {
+    if (value >= 1)
+      m_MaxInFlight = value;
+    else
+      System.err.println("Maximum number of requests in flight must be at least 1, provided: " + value);
+  }
+
+  /**
+   * Returns the maximum number of batch requests to send (persistent mode)
+   * before waiting for the reply of the first one.
+   *
+   * @return 		the maximum
+   */
+  public int getMaxInFlight() {
+    return m_MaxInFlight;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String maxInFlightTipText() {
+    return
+      "The maximum number of batch requests to send in persistent mode before "
+	+ "waiting for the reply of the first one; the remote process must reply "
+	+ "in the order the requests were received.";
+  }
+
   /**
    * Initializes the server socket if necessary.
    *
@@ -412,23 +551,25 @@ public class SocketFacade
    * @throws Exception	if fails to receive data
    */
   protected byte[] receive() throws Exception {
-    Socket 	client;
-    TByteList 	result;
-    InputStream	in;
-    int		b;
+    Socket 			client;
+    ByteArrayOutputStream 	result;
+    InputStream			in;
+    byte[]			buffer;
+    int				read;
 
     initServer();
 
     client = m_Server.accept();
     in     = client.getInputStream();
-    result = new TByteArrayList();
-    while ((b = in.read()) != -1)
-      result.add((byte) b);
+    result = new ByteArrayOutputStream();
+    buffer = new byte[8192];
+    while ((read = in.read(buffer)) != -1)
+      result.write(buffer, 0, read);
     client.close();
 
     closeServer();
 
-    return result.toArray();
+    return result.toByteArray();
   }
 
   /**
@@ -451,6 +592,170 @@ public class SocketFacade
     return receive();
   }
 
+  /**
+   * Opens the persistent connection if necessary.
+   *
+   * @throws Exception	if connecting fails
+   */
+  protected synchronized void initConnection() throws Exception {
+    if (m_Channel == null) {
+      try {
+	m_Channel = SocketChannel.open(new InetSocketAddress(m_Remote.hostnameValue(), m_Remote.portValue()));
+	m_Channel.socket().setTcpNoDelay(true);
+	m_Channel.configureBlocking(false);
+	m_Selector = Selector.open();
+	m_Channel.register(m_Selector, 0);
+	m_LengthBuffer = ByteBuffer.allocate(4);
+      }
+      catch (Exception e) {
+	closeConnection();
+	throw e;
+      }
+    }
+  }
+
+  /**
+   * Closes the persistent connection if necessary.
+   */
+  public synchronized void closeConnection() {
+    if (m_Selector != null) {
+      try {
+	m_Selector.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+      m_Selector = null;
+    }
+    if (m_Channel != null) {
+      try {
+	m_Channel.close();
+      }
+      catch (Exception e) {
+	// ignored
+      }
+      m_Channel = null;
+    }
+    m_LengthBuffer = null;
+  }
+
+  /**
+   * Waits until the persistent connection is ready for the specified operation.
+   *
+   * @param op		the operation to wait for, eg {@link SelectionKey#OP_READ}
+   * @throws Exception	if timed out
+   */
+  protected void waitFor(int op) throws Exception {
+    SelectionKey	key;
+
+    key = m_Channel.keyFor(m_Selector);
+    key.interestOps(op);
+    m_Selector.selectedKeys().clear();
+    if (m_Selector.select(m_Timeout) == 0)
+      throw new SocketTimeoutException("No response from " + m_Remote + " within " + m_Timeout + "ms!");
+  }
+
+  /**
+   * Writes the buffers completely to the persistent connection.
+   *
+   * @param buffers	the buffers to write
+   * @throws Exception	if writing fails
+   */
+  protected void writeFully(ByteBuffer[] buffers) throws Exception {
+    while (buffers[buffers.length - 1].hasRemaining()) {
+      if (m_Channel.write(buffers) == 0)
+	waitFor(SelectionKey.OP_WRITE);
+    }
+  }
+
+  /**
+   * Fills the buffer completely from the persistent connection.
+   *
+   * @param buffer	the buffer to fill
+   * @throws Exception	if reading fails
+   */
+  protected void readFully(ByteBuffer buffer) throws Exception {
+    int		read;
+
+    while (buffer.hasRemaining()) {
+      read = m_Channel.read(buffer);
+      if (read == -1)
+	throw new EOFException("Connection closed by " + m_Remote + "!");
+      if (read == 0)
+	waitFor(SelectionKey.OP_READ);
+    }
+  }
+
+  /**
+   * Sends the data as a single frame via the persistent connection.
+   *
+   * @param data	the data to send
+   * @throws Exception	if sending fails
+   */
+  protected void writeFrame(byte[] data) throws Exception {
+    ByteBuffer	length;
+
+    initConnection();
+    length = ByteBuffer.allocate(4);
+    length.putInt(data.length);
+    length.flip();
+    writeFully(new ByteBuffer[]{length, ByteBuffer.wrap(data)});
+  }
+
+  /**
+   * Reads the next frame from the persistent connection.
+   *
+   * @return		the payload of the frame
+   * @throws Exception	if reading fails
+   */
+  protected byte[] readFrame() throws Exception {
+    ByteBuffer	payload;
+    int		length;
+
+    initConnection();
+    m_LengthBuffer.clear();
+    readFully(m_LengthBuffer);
+    m_LengthBuffer.flip();
+    length = m_LengthBuffer.getInt();
+    if (length < 0)
+      throw new IllegalStateException("Invalid frame length received from " + m_Remote + ": " + length);
+    payload = ByteBuffer.allocate(length);
+    readFully(payload);
+
+    return payload.array();
+  }
+
+  /**
+   * Sends the data to the remote host and returns the response, using
+   * either the persistent connection or a new connection.
+   *
+   * @param data	the data to send
+   * @return		the response data
+   * @throws Exception	if sending fails
+   */
+  protected byte[] request(byte[] data) throws Exception {
+    if (m_Persistent) {
+      synchronized(this) {
+	try {
+	  writeFrame(data);
+	  return readFrame();
+	}
+	catch (Exception e) {
+	  closeConnection();
+	  throw e;
+	}
+      }
+    }
+    else {
+      try {
+	return send(data);
+      }
+      finally {
+	closeServer();
+      }
+    }
+  }
+
   /**
    * Returns the Capabilities of this classifier.
    *
@@ -479,14 +784,9 @@ public class SocketFacade
     if (m_SkipTrain)
       return;
 
-    try {
-      response = m_Preparation.parseTrain(send(m_Preparation.prepareTrain(data, this)));
-      if (response != null)
-	throw new Exception("Failed to perform remote build:\n" + response);
-    }
-    finally {
-      closeServer();
-    }
+    response = m_Preparation.parseTrain(request(m_Preparation.prepareTrain(data, this)));
+    if (response != null)
+      throw new Exception("Failed to perform remote build:\n" + response);
   }
 
   /**
@@ -498,12 +798,7 @@ public class SocketFacade
    */
   @Override
   public double classifyInstance(Instance instance) throws Exception {
-    try {
-      return m_Preparation.parseClassify(send(m_Preparation.prepareClassify(instance, this)));
-    }
-    finally {
-      closeServer();
-    }
+    return m_Preparation.parseClassify(request(m_Preparation.prepareClassify(instance, this)));
   }
 
   /**
@@ -515,12 +810,105 @@ public class SocketFacade
    */
   @Override
   public double[] distributionForInstance(Instance instance) throws Exception {
-    try {
-      return m_Preparation.parseDistribution(send(m_Preparation.prepareDistribution(instance, this)), instance.numClasses());
+    return m_Preparation.parseDistribution(request(m_Preparation.prepareDistribution(instance, this)), instance.numClasses());
+  }
+
+  /**
+   * Returns true if this BatchPredictor can generate batch predictions
+   * in an efficient manner.
+   *
+   * @return		true if the data preparation supports batch predictions
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_Preparation instanceof BatchDataPreparation);
+  }
+
+  /**
+   * Returns the batches to send for the data, using the batch size.
+   *
+   * @param data	the data to split
+   * @return		the batches
+   */
+  protected List<Instances> batches(Instances data) {
+    List<Instances>	result;
+    int			size;
+    int			i;
+
+    result = new ArrayList<>();
+    size   = Integer.parseInt(getBatchSize());
+    if (size < 1)
+      size = data.numInstances();
+    for (i = 0; i < data.numInstances(); i += size)
+      result.add(new Instances(data, i, Math.min(size, data.numInstances() - i)));
+
+    return result;
+  }
+
+  /**
+   * Generates class distributions for the instances. Sends the data in
+   * batches if the data preparation supports it. In persistent mode,
+   * up to the maximum number of requests in flight get sent before reading
+   * the replies.
+   *
+   * @param insts	the instances to get the class distributions for
+   * @return		the class distributions
+   * @throws Exception	if class distributions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    double[][]		result;
+    double[][]		dists;
+    List<Instances>	batches;
+    Instances		batch;
+    BatchDataPreparation	preparation;
+    int			sent;
+    int			received;
+    int			offset;
+    int			i;
+
+    if (!(m_Preparation instanceof BatchDataPreparation))
+      return super.distributionsForInstances(insts);
+
+    preparation = (BatchDataPreparation) m_Preparation;
+    result      = new double[insts.numInstances()][];
+    batches     = batches(insts);
+    offset      = 0;
+
+    if (!m_Persistent) {
+      for (Instances b: batches) {
+	dists = preparation.parseDistributions(request(preparation.prepareDistributions(b, this)), b.numInstances(), insts.numClasses());
+	for (i = 0; i < dists.length; i++)
+	  result[offset + i] = dists[i];
+	offset += b.numInstances();
+      }
+      return result;
     }
-    finally {
-      closeServer();
+
+    synchronized(this) {
+      try {
+	sent     = 0;
+	received = 0;
+	while (received < batches.size()) {
+	  while ((sent < batches.size()) && (sent - received < m_MaxInFlight)) {
+	    writeFrame(preparation.prepareDistributions(batches.get(sent), this));
+	    sent++;
+	  }
+	  batch = batches.get(received);
+	  dists = preparation.parseDistributions(readFrame(), batch.numInstances(), insts.numClasses());
+	  for (i = 0; i < dists.length; i++)
+	    result[offset + i] = dists[i];
+	  offset += batch.numInstances();
+	  received++;
+	}
+      }
+      catch (Exception e) {
+	closeConnection();
+	throw e;
+      }
     }
+
+    return result;
   }
 
   /**
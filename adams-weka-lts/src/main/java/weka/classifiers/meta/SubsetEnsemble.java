@@ -20,15 +20,16 @@
 
 package weka.classifiers.meta;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Vector;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.RandomizableSingleClassifierEnhancer;
@@ -120,9 +121,6 @@ public class SubsetEnsemble
   /** the number of random features to use (in addition to base attribute). */
   protected int m_NumRandomFeatures = 0;
 
-  /** Pool of threads to train models with */
-  protected transient ThreadPoolExecutor m_ExecutorPool;
-
   /** The number of classifiers completed so far */
   protected int m_Completed;
 
@@ -382,88 +380,55 @@ public class SubsetEnsemble
   }
 
   /**
-   * Start the pool of execution threads.
-   */
-  protected void startExecutorPool() {
-    if (m_ExecutorPool != null)
-      m_ExecutorPool.shutdownNow();
-
-    m_ExecutorPool = new ThreadPoolExecutor(
-	m_NumExecutionSlots, m_NumExecutionSlots,
-        120, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
-  }
-
-  /**
-   * Blocks building classifiers until another slot becomes available.
-   *
-   * @param wait	whether to wait (block) or notify (unblock)
-   */
-  private synchronized void block(boolean wait) {
-    if (wait) {
-      try {
-        wait();
-      }
-      catch (InterruptedException ex) {
-	// ignored
-      }
-    }
-    else {
-      notifyAll();
-    }
-  }
-
-  /**
-   * Does the actual construction of the ensemble.
+   * Does the actual construction of the ensemble, using the shared executor.
    *
    * @throws Exception 	if something goes wrong during the training process
+   * @see		WekaSharedExecutor
    */
   protected synchronized void buildClassifiers() throws Exception {
-    int		i;
-    Runnable 	newTask;
-    Random	rand;
+    int				i;
+    List<Callable<Boolean>>	jobs;
+    List<Boolean>		success;
+    Random			rand;
 
     rand = new Random(m_Seed);
+    jobs = new ArrayList<>();
     for (i = 0; i < m_Classifiers.length; i++) {
       final int index = i;
       final int seed = rand.nextInt();
       if (m_Debug) {
 	System.out.print("Training classifier (" + (i +1) + ")");
       }
-      newTask = new Runnable() {
-	public void run() {
-	  try {
-	    Instances train = getTrainingSet(index, seed);
-	    // any training data left?
-	    if (train.numInstances() > 0) {
-	      FilteredClassifier fc = new FilteredClassifier();
-	      fc.setFilter(getFilter(index, seed, false));
-	      fc.setClassifier(m_Classifiers[index]);
-	      fc.buildClassifier(m_Data);
-	      m_Classifiers[index] = fc;
-	    }
-	    else {
-	      m_Classifiers[index] = null;
-	    }
-	    completedClassifier(index, true);
+      jobs.add(() -> {
+	try {
+	  Instances train = getTrainingSet(index, seed);
+	  // any training data left?
+	  if (train.numInstances() > 0) {
+	    FilteredClassifier fc = new FilteredClassifier();
+	    fc.setFilter(getFilter(index, seed, false));
+	    fc.setClassifier(m_Classifiers[index]);
+	    fc.buildClassifier(m_Data);
+	    m_Classifiers[index] = fc;
 	  }
-	  catch (Exception ex) {
-	    ex.printStackTrace();
-	    completedClassifier(index, false);
+	  else {
+	    m_Classifiers[index] = null;
 	  }
+	  return true;
 	}
-      };
-
-      // launch this task
-      m_ExecutorPool.execute(newTask);
+	catch (Exception ex) {
+	  ex.printStackTrace();
+	  return false;
+	}
+      });
     }
 
-    if (m_Completed + m_Failed < m_Classifiers.length)
-      block(true);
+    success = WekaSharedExecutor.invokeAll(jobs, m_NumExecutionSlots);
+    for (i = 0; i < success.size(); i++)
+      completedClassifier(i, success.get(i));
   }
 
   /**
-   * Records the completion of the training of a single classifier. Unblocks if
-   * all classifiers have been trained.
+   * Records the completion of the training of a single classifier.
    *
    * @param index 	the index of the classifier that has completed
    * @param success 	whether the classifier trained successfully
@@ -483,12 +448,6 @@ public class SubsetEnsemble
         if (m_Debug)
           System.err.println("Problem building classifiers - some iterations failed.");
       }
-
-      // have to shut the pool down or program executes as a server
-      // and when running from the command line does not return to the
-      // prompt
-      m_ExecutorPool.shutdown();
-      block(false);
       m_Data = null;
     }
   }
@@ -624,8 +583,6 @@ public class SubsetEnsemble
       throw new Exception("A base classifier has not been specified!");
     m_Classifiers = AbstractClassifier.makeCopies(m_Classifier, m_Data.numAttributes() - 1);
 
-    startExecutorPool();
-
     m_Completed = 0;
     m_Failed    = 0;
 
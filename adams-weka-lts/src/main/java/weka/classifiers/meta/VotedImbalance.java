@@ -22,6 +22,7 @@ package weka.classifiers.meta;
 
 import adams.core.base.BaseKeyValuePair;
 import adams.data.statistics.StatUtils;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.RandomizableSingleClassifierEnhancer;
@@ -46,9 +47,7 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 
 /**
  <!-- globalinfo-start -->
@@ -170,9 +169,6 @@ public class VotedImbalance
   /** Whether to perform sampling with replacement or without. */
   protected boolean m_NoReplacement = false;
 
-  /** Pool of threads to train models with */
-  protected transient ThreadPoolExecutor m_ExecutorPool;
-
   /** The number of classifiers completed so far */
   protected int m_Completed;
 
@@ -629,37 +625,6 @@ public class VotedImbalance
     return "If enabled, suppresses any large model output.";
   }
 
-  /**
-   * Start the pool of execution threads.
-   */
-  protected void startExecutorPool() {
-    if (m_ExecutorPool != null)
-      m_ExecutorPool.shutdownNow();
-
-    m_ExecutorPool = new ThreadPoolExecutor(
-      m_NumExecutionSlots, m_NumExecutionSlots,
-      120, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
-  }
-
-  /**
-   * Blocks building classifiers until another slot becomes available.
-   *
-   * @param wait	whether to wait (block) or notify (unblock)
-   */
-  private synchronized void block(boolean wait) {
-    if (wait) {
-      try {
-	wait();
-      }
-      catch (InterruptedException ex) {
-	// ignored
-      }
-    }
-    else {
-      notifyAll();
-    }
-  }
-
   /**
    * Gets a filter for a particular index.
    *
@@ -701,8 +666,7 @@ public class VotedImbalance
   }
 
   /**
-   * Records the completion of the training of a single classifier. Unblocks if
-   * all classifiers have been trained.
+   * Records the completion of the training of a single classifier.
    *
    * @param index 	the index of the classifier that has completed
    * @param success 	whether the classifier trained successfully
@@ -722,48 +686,46 @@ public class VotedImbalance
 	if (m_Debug)
 	  System.err.println("Problem building classifiers - some iterations failed.");
       }
-
-      // have to shut the pool down or program executes as a server
-      // and when running from the command line does not return to the
-      // prompt
-      m_ExecutorPool.shutdown();
-      block(false);
       m_Data = null;
     }
   }
 
   /**
-   * Does the actual construction of the ensemble.
+   * Does the actual construction of the ensemble, using the shared executor.
    *
    * @throws Exception 	if something goes wrong during the training process
+   * @see		WekaSharedExecutor
    */
   protected synchronized void buildClassifiers() throws Exception {
-    int		i;
-    Random	rand;
+    int				i;
+    List<Callable<Boolean>>	jobs;
+    List<Boolean>		success;
+    Random			rand;
 
     rand = new Random(m_Seed);
+    jobs = new ArrayList<>();
     for (i = 0; i < m_Classifiers.length; i++) {
       final int index = i;
       final int seed = rand.nextInt();
       if (getDebug())
 	System.out.print("Training classifier (" + (i +1) + ")");
-      // launch this task
-      m_ExecutorPool.execute(() -> {
+      jobs.add(() -> {
 	try {
 	  Instances train = getTrainingSet(index, seed);
 	  m_Classifiers[index].buildClassifier(train);
-	  completedClassifier(index, true);
+	  return true;
 	}
 	catch (Exception ex) {
 	  System.err.println("Classifier #" + (index + 1) + " failed with:");
 	  ex.printStackTrace();
-	  completedClassifier(index, false);
+	  return false;
 	}
       });
     }
 
-    if (m_Completed + m_Failed < m_Classifiers.length)
-      block(true);
+    success = WekaSharedExecutor.invokeAll(jobs, m_NumExecutionSlots);
+    for (i = 0; i < success.size(); i++)
+      completedClassifier(i, success.get(i));
   }
 
   /**
@@ -877,8 +839,6 @@ public class VotedImbalance
       throw new Exception("A base classifier has not been specified!");
     m_Classifiers = AbstractClassifier.makeCopies(m_Classifier, m_ActualNumBalanced);
 
-    startExecutorPool();
-
     m_Completed = 0;
     m_Failed    = 0;
 
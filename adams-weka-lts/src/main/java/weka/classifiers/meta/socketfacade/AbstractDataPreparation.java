@@ -27,7 +27,8 @@ import weka.core.Instances;
 
 /**
  * Ancestor for classes that prepare data for the {@link SocketFacade}
- * classifier.
+ * classifier. Schemes that can send multiple instances at once implement
+ * {@link BatchDataPreparation}.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
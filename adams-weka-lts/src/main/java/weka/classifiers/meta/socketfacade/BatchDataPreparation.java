@@ -0,0 +1,54 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BatchDataPreparation.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.classifiers.meta.socketfacade;
+
+import weka.classifiers.meta.SocketFacade;
+import weka.core.Instances;
+
+/**
+ * Interface for data preparation schemes that can prepare/parse multiple
+ * instances at once, enabling batch predictions in the {@link SocketFacade}
+ * classifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public interface BatchDataPreparation {
+
+  /**
+   * Prepares the instances for the {@link weka.core.BatchPredictor#distributionsForInstances(Instances)} method.
+   *
+   * @param data	the data to use
+   * @param facade	the classifier using the data preparation
+   * @return 		the prepared data
+   */
+  public byte[] prepareDistributions(Instances data, SocketFacade facade);
+
+  /**
+   * Parses the data received from the process, to be returned by the
+   * {@link weka.core.BatchPredictor#distributionsForInstances(Instances)} method.
+   *
+   * @param data	the data to parse
+   * @param numInstances	the number of instances that were sent
+   * @param numClasses  the number of classes
+   * @return 		the class distributions
+   */
+  public double[][] parseDistributions(byte[] data, int numInstances, int numClasses);
+}
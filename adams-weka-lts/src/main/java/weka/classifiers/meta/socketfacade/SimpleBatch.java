@@ -0,0 +1,119 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SimpleBatch.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.classifiers.meta.socketfacade;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import weka.classifiers.meta.SocketFacade;
+import weka.core.Instances;
+
+/**
+ * Simple preparation scheme, using JSON with the actual data in CSV format.
+ * Also supports batch predictions: a request of type 'distributions' contains
+ * all the instances of the batch in its CSV data and the process replies
+ * with a 'distributions' array, containing one distribution array per row.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SimpleBatch
+  extends Simple
+  implements BatchDataPreparation {
+
+  private static final long serialVersionUID = 8411043573416016294L;
+
+  /**
+   * Returns a string describing the object.
+   *
+   * @return 			a description suitable for displaying in the gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+      "Simple preparation scheme, using JSON with the actual data in CSV format.\n"
+	+ "Also supports batch predictions: a request of type 'distributions' contains "
+	+ "all the instances of the batch in its CSV data and the process replies "
+	+ "with a 'distributions' array, containing one distribution array per row.";
+  }
+
+  /**
+   * Prepares the instances for the {@link weka.core.BatchPredictor#distributionsForInstances(Instances)} method.
+   *
+   * @param data	the data to use
+   * @param facade	the classifier using the data preparation
+   * @return 		the prepared data
+   */
+  @Override
+  public byte[] prepareDistributions(Instances data, SocketFacade facade) {
+    JsonObject	json;
+
+    json = new JsonObject();
+    json.addProperty("type", "distributions");
+    json.addProperty("address", facade.getLocal().getValue());
+    addDatasetInfo(json, data);
+    json.addProperty("data", toCSV(data));
+
+    return toBytes(json);
+  }
+
+  /**
+   * Parses the data received from the process, to be returned by the
+   * {@link weka.core.BatchPredictor#distributionsForInstances(Instances)} method.
+   *
+   * @param data	the data to parse
+   * @param numInstances	the number of instances that were sent
+   * @param numClasses  the number of classes
+   * @return 		the class distributions
+   */
+  @Override
+  public double[][] parseDistributions(byte[] data, int numInstances, int numClasses) {
+    double[][]		result;
+    JsonElement		element;
+    JsonObject		json;
+    JsonArray		array;
+    JsonArray		dist;
+    int			i;
+    int			n;
+
+    element = fromBytes(data);
+    json    = element.getAsJsonObject();
+    if (json.has("error")) {
+      getLogger().severe(json.get("error").getAsString());
+      return new double[numInstances][numClasses];
+    }
+
+    array = json.getAsJsonArray("distributions");
+    if (array.size() != numInstances) {
+      getLogger().severe("Expected " + numInstances + " distributions, but received: " + array.size());
+      return new double[numInstances][numClasses];
+    }
+
+    result = new double[array.size()][];
+    for (i = 0; i < array.size(); i++) {
+      dist      = array.get(i).getAsJsonArray();
+      result[i] = new double[dist.size()];
+      for (n = 0; n < dist.size(); n++)
+        result[i][n] = dist.get(n).getAsDouble();
+    }
+
+    return result;
+  }
+}
@@ -84,6 +84,13 @@ import java.util.Vector;
  *  Set minimum number of instances per leaf
  *  (default 4)</pre>
  * 
+ * <pre> -P
+ *  Use presorted indices instead of sorting the instances at each node</pre>
+ * 
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads for evaluating the split attributes
+ *  (only with -P; -1 = # of cores; default 1)</pre>
+ * 
  * <pre> -L
  *  Save instances at the nodes in
  *  the tree (for visualization purposes)</pre>
@@ -202,6 +209,13 @@ public class M5P2
    *  Set minimum number of instances per leaf
    *  (default 4)</pre>
    * 
+   * <pre> -P
+   *  Use presorted indices instead of sorting the instances at each node</pre>
+   * 
+   * <pre> -num-threads &lt;num&gt;
+   *  The number of threads for evaluating the split attributes
+   *  (only with -P; -1 = # of cores; default 1)</pre>
+   * 
    * <pre> -L
    *  Save instances at the nodes in
    *  the tree (for visualization purposes)</pre>
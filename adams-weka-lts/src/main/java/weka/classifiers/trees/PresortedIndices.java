@@ -0,0 +1,303 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PresortedIndices.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.classifiers.trees;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Sorts the rows of a dataset once per (non-class) attribute into primitive
+ * arrays of row IDs, for use in tree learners. A node of the tree covers
+ * the same segment [from, to) in all of the arrays. When a node gets split,
+ * the segments get partitioned stably, so that the segments of the child
+ * nodes are still sorted and no re-sorting is required.
+ * <br>
+ * Missing values get sorted to the end (like {@link Instances#sort(int)}),
+ * rows with the same value are ordered by their row ID.
+ * <br>
+ * Partitioning and mapping rows are not thread-safe, as they use shared
+ * scratch arrays.
+ * <br>
+ * Not used by {@link RandomRegressionForest}, which already grows its trees
+ * on partitioned segments of a single array of row IDs (random splits don't
+ * need sorted data), and {@link RandomModelTrees}, which only sorts by a few
+ * randomly chosen attributes per node (partitioning the arrays of all
+ * attributes would be more expensive) and whose models depend on the order
+ * of ties of its stable sort.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PresortedIndices {
+
+  /** the rows, indexed by row ID. */
+  protected Instance[] m_Rows;
+
+  /** the indices of the sorted attributes. */
+  protected int[] m_Attributes;
+
+  /** the row IDs sorted by each attribute. */
+  protected int[][] m_Sorted;
+
+  /** scratch array for partitioning. */
+  protected int[] m_Buffer;
+
+  /** scratch array for marking the rows going left. */
+  protected boolean[] m_Left;
+
+  /** the local indices of the rows of the current node. */
+  protected int[] m_Local;
+
+  /**
+   * Sorts the data by all attributes apart from the class.
+   *
+   * @param data	the data to sort
+   */
+  public PresortedIndices(Instances data) {
+    int[]	atts;
+    int		i;
+    int		n;
+
+    atts = new int[data.classIndex() > -1 ? data.numAttributes() - 1 : data.numAttributes()];
+    n    = 0;
+    for (i = 0; i < data.numAttributes(); i++) {
+      if (i != data.classIndex())
+	atts[n++] = i;
+    }
+
+    initialize(data, atts);
+  }
+
+  /**
+   * Sorts the data by the specified attributes.
+   *
+   * @param data	the data to sort
+   * @param attributes	the indices of the attributes to sort by
+   */
+  public PresortedIndices(Instances data, int[] attributes) {
+    initialize(data, attributes);
+  }
+
+  /**
+   * Sorts the data.
+   *
+   * @param data	the data to sort
+   * @param attributes	the indices of the attributes to sort by
+   */
+  protected void initialize(Instances data, int[] attributes) {
+    double[]	values;
+    int		i;
+
+    m_Rows = new Instance[data.numInstances()];
+    for (i = 0; i < m_Rows.length; i++)
+      m_Rows[i] = data.instance(i);
+
+    m_Attributes = attributes.clone();
+    m_Sorted     = new int[m_Attributes.length][];
+    values       = new double[m_Rows.length];
+    for (i = 0; i < m_Attributes.length; i++)
+      m_Sorted[i] = sort(m_Attributes[i], values);
+
+    m_Buffer = new int[m_Rows.length];
+    m_Left   = new boolean[m_Rows.length];
+    m_Local  = new int[m_Rows.length];
+  }
+
+  /**
+   * Sorts the row IDs by the values of the attribute.
+   *
+   * @param att		the attribute to sort by
+   * @param values	the buffer for the values
+   * @return		the sorted row IDs
+   */
+  protected int[] sort(int att, double[] values) {
+    int[]	result;
+    int		i;
+    int		start;
+
+    for (i = 0; i < m_Rows.length; i++) {
+      values[i] = m_Rows[i].value(att);
+      if (Utils.isMissingValue(values[i]))
+	values[i] = Double.MAX_VALUE;
+    }
+    result = Utils.sortWithNoMissing(values);
+
+    // order ties by row ID
+    start = 0;
+    for (i = 1; i <= result.length; i++) {
+      if ((i == result.length) || (values[result[i]] != values[result[start]])) {
+	if (i - start > 1)
+	  Arrays.sort(result, start, i);
+	start = i;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int numRows() {
+    return m_Rows.length;
+  }
+
+  /**
+   * Returns the row with the specified ID.
+   *
+   * @param id		the row ID
+   * @return		the row
+   */
+  public Instance row(int id) {
+    return m_Rows[id];
+  }
+
+  /**
+   * Returns the number of sorted attributes.
+   *
+   * @return		the number of attributes
+   */
+  public int numAttributes() {
+    return m_Attributes.length;
+  }
+
+  /**
+   * Returns the index of the k-th sorted attribute in the dataset.
+   *
+   * @param k		the sorted attribute
+   * @return		the attribute index
+   */
+  public int attributeIndex(int k) {
+    return m_Attributes[k];
+  }
+
+  /**
+   * Returns the row IDs sorted by the k-th sorted attribute. Must not be
+   * modified.
+   *
+   * @param k		the sorted attribute
+   * @return		the row IDs
+   */
+  public int[] sortedRows(int k) {
+    return m_Sorted[k];
+  }
+
+  /**
+   * Partitions the segment [from, to) of all the sorted arrays, moving the
+   * rows with a value less than or equal to the split value (for the split
+   * attribute) to the front. The relative order within both partitions
+   * stays the same.
+   *
+   * @param from	the start of the segment (incl)
+   * @param to		the end of the segment (excl)
+   * @param att		the index of the split attribute in the dataset
+   * @param splitValue	the split value
+   * @return		the start of the second partition
+   */
+  public int partition(int from, int to, int att, double splitValue) {
+    int		result;
+    int[]	sorted;
+    int		i;
+    int		k;
+    int		left;
+    int		right;
+
+    result = from;
+    sorted = m_Sorted[0];
+    for (i = from; i < to; i++) {
+      m_Left[sorted[i]] = (m_Rows[sorted[i]].value(att) <= splitValue);
+      if (m_Left[sorted[i]])
+	result++;
+    }
+
+    for (k = 0; k < m_Sorted.length; k++) {
+      sorted = m_Sorted[k];
+      left   = from;
+      right  = 0;
+      for (i = from; i < to; i++) {
+	if (m_Left[sorted[i]])
+	  sorted[left++] = sorted[i];
+	else
+	  m_Buffer[right++] = sorted[i];
+      }
+      System.arraycopy(m_Buffer, 0, sorted, left, right);
+    }
+
+    return result;
+  }
+
+  /**
+   * Assigns local indices to the row IDs of a node (their position in the
+   * array), for use with {@link #reorder(Instances, int[], int[], int, int)}.
+   * The mapping stays valid until the next call.
+   *
+   * @param ids		the row IDs of the node
+   * @return		the initial positions, indexed by local index
+   */
+  public int[] mapRows(int[] ids) {
+    int[]	result;
+    int		i;
+
+    result = new int[ids.length];
+    for (i = 0; i < ids.length; i++) {
+      m_Local[ids[i]] = i;
+      result[i]       = i;
+    }
+
+    return result;
+  }
+
+  /**
+   * Reorders the rows of a node to match the order of the k-th sorted
+   * attribute, using swaps only. Requires the local indices from
+   * {@link #mapRows(int[])}; can be used concurrently with separate copies
+   * of the data, row IDs and positions.
+   *
+   * @param data	the rows of the node, in the order of the row IDs
+   * @param ids		the row IDs of the node, in their current order (gets updated)
+   * @param positions	the current position of each row, indexed by local index (gets updated)
+   * @param k		the sorted attribute
+   * @param from	the start of the node's segment (incl)
+   */
+  public void reorder(Instances data, int[] ids, int[] positions, int k, int from) {
+    int[]	sorted;
+    int		i;
+    int		current;
+    int		id;
+
+    sorted = m_Sorted[k];
+    for (i = 0; i < ids.length; i++) {
+      id      = sorted[from + i];
+      current = positions[m_Local[id]];
+      if (current != i) {
+	data.swap(i, current);
+	ids[current]                    = ids[i];
+	positions[m_Local[ids[current]]] = current;
+	ids[i]                          = id;
+	positions[m_Local[id]]          = i;
+      }
+    }
+  }
+}
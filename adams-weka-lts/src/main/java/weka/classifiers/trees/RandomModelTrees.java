@@ -21,6 +21,8 @@
 
 package weka.classifiers.trees;
 
+import adams.core.Performance;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.RandomizableClassifier;
 import weka.classifiers.functions.LinearRegressionJ;
 import weka.classifiers.meta.Corr;
@@ -42,6 +44,7 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 // this version: ONLY do MAX-DEPTH, no -M anymore (for simplicity ...)
 /**
@@ -74,6 +77,9 @@ public class RandomModelTrees
 
   protected double m_ridge = 0.0;
 
+  /** the number of threads for growing the trees and batch predictions. */
+  protected int m_numThreads = 1;
+
   /**
    * Returns a string describing classifier.
    *
@@ -113,6 +119,12 @@ public class RandomModelTrees
 	+ "\t(default 0 = max(2, log2(#ex)-log2(#attr)-1))",
 	"M", 1, "-M <num>"));
 
+    newVector.addElement(new Option(
+	"\tThe number of threads for growing the trees and batch predictions.\n"
+	+ "\tEach tree uses its own seed (derived from the seed).\n"
+	+ "\t(-1 = # of cores; default 1)",
+	"num-threads", 1, "-num-threads <num>"));
+
     Enumeration enum1 = super.listOptions();
     while (enum1.hasMoreElements()) {
       newVector.addElement(enum1.nextElement());
@@ -159,6 +171,13 @@ public class RandomModelTrees
       setRidge(0.0);
     }
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() > 0) {
+      setNumThreads(Integer.parseInt(tmpStr));
+    } else {
+      setNumThreads(1);
+    }
+
     super.setOptions(options);
   }
 
@@ -170,7 +189,8 @@ public class RandomModelTrees
   public String [] getOptions() {
 
     String [] superOptions = super.getOptions();
-    String [] options = new String [superOptions.length + 8];
+    String [] options = new String [superOptions.length + ((getNumThreads() != 1) ? 10 : 8)];
+    int current = 8;
 
     options[0] = "-K";
     options[1] = "" + getTrials();
@@ -184,7 +204,12 @@ public class RandomModelTrees
     options[6] = "-R";
     options[7] = "" + getRidge();
 
-    System.arraycopy(superOptions, 0, options, 8, superOptions.length);
+    if (getNumThreads() != 1) {
+      options[current++] = "-num-threads";
+      options[current++] = "" + getNumThreads();
+    }
+
+    System.arraycopy(superOptions, 0, options, current, superOptions.length);
 
     return options;
   }
@@ -271,6 +296,37 @@ public class RandomModelTrees
     return "The maximum height of the trees.";
   }
 
+  /**
+   * Gets the number of threads.
+   *
+   * @return the number of threads (-1 = # of cores)
+   */
+  public int getNumThreads() {
+    return m_numThreads;
+  }
+
+  /**
+   * Sets the number of threads.
+   *
+   * @param n the number of threads (-1 = # of cores)
+   */
+  public void setNumThreads(int n) {
+    m_numThreads = n;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return
+        "The number of threads for growing the trees and batch predictions "
+      + "(-1 = # of cores); each tree uses its own seed derived from the seed, "
+      + "making the model independent of the number of threads.";
+  }
+
   /**
    * Returns default capabilities of the classifier.
    *
@@ -345,10 +401,23 @@ public class RandomModelTrees
     if (getDebug())
       System.out.println("effective parameters: n = " + numIterations + " r = " + ridge + " k = " + trials + " m = " + maxHeight);
 
-    Comparator<Instance>[] comparators = getComparators(data.numAttributes());
+    final Comparator<Instance>[] comparators = getComparators(data.numAttributes());
 
+    // seeds get drawn up front, so that the trees don't depend on the number
+    // of threads or the order of execution; each tree sorts its own copy of
+    // the instances
+    final List<Instance> shared = all;
+    final int height = maxHeight;
+    final double lambda = ridge;
+    final int numTrials = trials;
+    List<Callable<Node>> jobs = new ArrayList<Callable<Node>>();
     for(int j = 0; j < m_node.length; j++) {
-      m_node[j] = new Node(all,r,maxHeight,ridge,trials,comparators);
+      final long seed = r.nextLong();
+      jobs.add(new Callable<Node>() {
+	public Node call() throws Exception {
+	  return new Node(new ArrayList<Instance>(shared),new Random(seed),height,lambda,numTrials,comparators);
+	}
+      });
       /* Bagging does not seem to work as well ???
 	List<Instance> bag = new ArrayList<Instance>(n);
       for(int i = 0; i < n; i++) {
@@ -357,6 +426,10 @@ public class RandomModelTrees
       m_node[j] = new Node(bag,r, maxHeight,ridge,trials);
       */
     }
+    List<Node> nodes = WekaSharedExecutor.invokeAll(jobs, m_numThreads);
+    for(int j = 0; j < m_node.length; j++) {
+      m_node[j] = nodes.get(j);
+    }
   }
 
   public Comparator<Instance>[] getComparators(int k) {
@@ -396,6 +469,62 @@ public class RandomModelTrees
     return result;
   }
 
+  /**
+   * Returns whether the batch predictions are more efficient.
+   *
+   * @return true if a model has been built
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_node != null);
+  }
+
+  /**
+   * Performs predictions on the instances, pushing the batch down each
+   * tree, with chunks of rows getting processed in parallel. Produces the
+   * same values as {@link #classifyInstance(Instance)}.
+   *
+   * @param insts the instances to make predictions for
+   * @return the predictions
+   * @exception Exception if predictions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(final Instances insts) throws Exception {
+
+    if (m_node == null) {
+      return super.distributionsForInstances(insts);
+    }
+
+    final double[] sums = new double[insts.numInstances()];
+    int numChunks = Math.max(1, Math.min(Performance.determineNumThreads(m_numThreads), insts.numInstances()));
+    int chunkSize = (int) Math.ceil((double) insts.numInstances() / numChunks);
+    List<Callable<Boolean>> jobs = new ArrayList<Callable<Boolean>>();
+    for(int i = 0; i < insts.numInstances(); i += chunkSize) {
+      final int from = i;
+      final int to = Math.min(i + chunkSize, insts.numInstances());
+      jobs.add(new Callable<Boolean>() {
+	public Boolean call() throws Exception {
+	  int[] indices = new int[to - from];
+	  for(int n = 0; n < indices.length; n++) {
+	    indices[n] = from + n;
+	  }
+	  int[] buffer = new int[indices.length];
+	  for(Node node: m_node) {
+	    node.classifyInstances(insts,indices,0,indices.length,buffer,sums);
+	  }
+	  return true;
+	}
+      });
+    }
+    WekaSharedExecutor.invokeAll(jobs, numChunks);
+
+    double[][] result = new double[sums.length][];
+    for(int i = 0; i < sums.length; i++) {
+      result[i] = new double[]{sums[i]/m_node.length};
+    }
+    return result;
+  }
+
   /**
    * Returns description of the bagged classifier.
    *
@@ -588,6 +717,31 @@ class Node implements Serializable {
   }
 
 
+  // classifies the rows [from, to) of indices (get reordered), adding the predictions to sums
+  public void classifyInstances(Instances data, int[] indices, int from, int to, int[] buffer, double[] sums) throws Exception {
+    if (from == to) return;
+    if (splitIndex == -1) {
+      for(int i = from; i < to; i++) {
+	sums[indices[i]] += classifyInstance(data.instance(indices[i]));
+      }
+      return;
+    }
+    // stable partition: rows less than the split value to the front
+    int mid = from;
+    int numMore = 0;
+    for(int i = from; i < to; i++) {
+      if (data.instance(indices[i]).value(splitIndex) < splitValue) {
+	indices[mid++] = indices[i];
+      } else {
+	buffer[numMore++] = indices[i];
+      }
+    }
+    System.arraycopy(buffer, 0, indices, mid, numMore);
+    less.classifyInstances(data,indices,from,mid,buffer,sums);
+    more.classifyInstances(data,indices,mid,to,buffer,sums);
+  }
+
+
   public double leafPrediction(Instance instance) throws Exception {
     //if (m_coeffs != null) {
     if (m_subset != null) {
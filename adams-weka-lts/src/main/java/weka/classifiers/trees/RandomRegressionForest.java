@@ -21,6 +21,8 @@
 
 package weka.classifiers.trees;
 
+import adams.core.Performance;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.RandomizableClassifier;
 import weka.classifiers.functions.LinearRegressionJ;
 import weka.core.Capabilities;
@@ -40,6 +42,7 @@ import java.util.Enumeration;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 /**
  <!-- globalinfo-start -->
@@ -63,6 +66,11 @@ import java.util.Vector;
  *  Number of PLS components.
  *  (default 20)</pre>
  *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads for growing the trees and batch predictions.
+ *  Each tree uses its own seed (derived from the seed).
+ *  (-1 = # of cores; default 1)</pre>
+ *
  * <pre> -S &lt;num&gt;
  *  Random number seed.
  *  (default 1)</pre>
@@ -104,6 +112,9 @@ public class RandomRegressionForest
   /** the mean */
   protected double m_Mean = 0.0;
 
+  /** the number of threads to use for training and batch predictions. */
+  protected int m_NumThreads = 1;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -140,6 +151,12 @@ public class RandomRegressionForest
 	+ "\t(default 20)",
 	"C", 1, "-C <num>"));
 
+    result.addElement(new Option(
+	"\tThe number of threads for growing the trees and batch predictions.\n"
+	+ "\tEach tree uses its own seed (derived from the seed).\n"
+	+ "\t(-1 = # of cores; default 1)",
+	"num-threads", 1, "-num-threads <num>"));
+
     Enumeration enm = super.listOptions();
     while (enm.hasMoreElements())
       result.addElement(enm.nextElement());
@@ -165,6 +182,11 @@ public class RandomRegressionForest
    *  Number of PLS components.
    *  (default 20)</pre>
    *
+   * <pre> -num-threads &lt;num&gt;
+   *  The number of threads for growing the trees and batch predictions.
+   *  Each tree uses its own seed (derived from the seed).
+   *  (-1 = # of cores; default 1)</pre>
+   *
    * <pre> -S &lt;num&gt;
    *  Random number seed.
    *  (default 1)</pre>
@@ -202,6 +224,13 @@ public class RandomRegressionForest
       setNumIterations(100);
     }
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() != 0) {
+      setNumThreads(Integer.parseInt(tmpStr));
+    } else {
+      setNumThreads(1);
+    }
+
     super.setOptions(options);
   }
 
@@ -226,6 +255,11 @@ public class RandomRegressionForest
     result.add("-N");
     result.add("" + getNumIterations());
 
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
+
     options = super.getOptions();
     for (i = 0; i < options.length; i++)
       result.add(options[i]);
@@ -317,6 +351,54 @@ public class RandomRegressionForest
     return m_PLS;
   }
 
+  /**
+   * Returns the tip text for this property
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return
+        "The number of threads for growing the trees and batch predictions "
+      + "(-1 = # of cores); each tree uses its own seed derived from the seed, "
+      + "making the model independent of the number of threads.";
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value	the number of threads (-1 = # of cores)
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Gets the number of threads to use.
+   *
+   * @return		the number of threads (-1 = # of cores)
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the row indices 0 to n-1.
+   *
+   * @param n		the number of rows
+   * @return		the indices
+   */
+  protected static int[] indices(int n) {
+    int[]	result;
+    int		i;
+
+    result = new int[n];
+    for (i = 0; i < n; i++)
+      result[i] = i;
+
+    return result;
+  }
+
   /**
    * Centers the class value in the data.
    *
@@ -384,8 +466,21 @@ public class RandomRegressionForest
     m_Node = new Node[getNumIterations()];
     Random r = new Random(getSeed());
 
+    // seeds get drawn up front, so that the trees don't depend on the number
+    // of threads or the order of execution
+    final Instances train = data;
+    List<Callable<Node>> jobs = new ArrayList<Callable<Node>>();
+    for (int j = 0; j < m_Node.length; j++) {
+      final long seed = r.nextLong();
+      jobs.add(new Callable<Node>() {
+	public Node call() throws Exception {
+	  return new Node(train,new Random(seed),m_Min);
+	}
+      });
+    }
+    List<Node> nodes = WekaSharedExecutor.invokeAll(jobs, m_NumThreads);
     for (int j = 0; j < m_Node.length; j++) {
-      m_Node[j] = new Node(data,r,m_Min);
+      m_Node[j] = nodes.get(j);
     }
 
     m_Data = new Instances(m_Data,0); // cleanOUT
@@ -411,6 +506,68 @@ public class RandomRegressionForest
     return m_Mean + sum/m_Node.length;
   }
 
+  /**
+   * Returns whether the batch predictions are more efficient.
+   *
+   * @return		true if a model has been built
+   */
+  @Override
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return (m_Node != null);
+  }
+
+  /**
+   * Performs predictions on the instances. The batch gets filtered in one go
+   * and then pushed down each tree, with chunks of rows getting processed in
+   * parallel. Produces the same values as {@link #classifyInstance(Instance)}.
+   *
+   * @param insts	the instances to make predictions for
+   * @return		the predictions
+   * @throws Exception	if predictions fail
+   */
+  @Override
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    double[][]			result;
+    final Instances		data;
+    final double[]		sums;
+    List<Callable<Boolean>>	jobs;
+    int				numChunks;
+    int				chunkSize;
+    int				i;
+
+    if (m_Node == null)
+      return super.distributionsForInstances(insts);
+
+    data = Filter.useFilter(insts, m_PLSFilter);
+    sums = new double[data.numInstances()];
+
+    numChunks = Math.max(1, Math.min(Performance.determineNumThreads(m_NumThreads), data.numInstances()));
+    chunkSize = (int) Math.ceil((double) data.numInstances() / numChunks);
+    jobs      = new ArrayList<Callable<Boolean>>();
+    for (i = 0; i < data.numInstances(); i += chunkSize) {
+      final int from = i;
+      final int to   = Math.min(i + chunkSize, data.numInstances());
+      jobs.add(new Callable<Boolean>() {
+	public Boolean call() throws Exception {
+	  int[] indices = new int[to - from];
+	  for (int n = 0; n < indices.length; n++)
+	    indices[n] = from + n;
+	  int[] buffer = new int[indices.length];
+	  for (Node node: m_Node)
+	    node.classifyInstances(data, indices, 0, indices.length, buffer, sums);
+	  return true;
+	}
+      });
+    }
+    WekaSharedExecutor.invokeAll(jobs, numChunks);
+
+    result = new double[sums.length][];
+    for (i = 0; i < sums.length; i++)
+      result[i] = new double[]{m_Mean + sums[i]/m_Node.length};
+
+    return result;
+  }
+
   /**
    * Returns description of the classifier.
    *
@@ -477,35 +634,79 @@ public class RandomRegressionForest
      * @throws Exception	if something goes wrong
      */
     public Node(Instances data, Random r, int min) throws Exception {
-      if (data.numInstances() < 2*min) {
-	turnIntoLeaf(data);
+      this(data, indices(data.numInstances()), 0, data.numInstances(), new int[data.numInstances()], r, min);
+    }
+
+    /**
+     * the constructor, using the rows [from, to) of the indices; the
+     * indices get partitioned (stably) for the child nodes
+     *
+     * @param data		the full data
+     * @param indices		the row indices
+     * @param from		the first index of the node (incl)
+     * @param to		the last index of the node (excl)
+     * @param buffer		the scratch array for partitioning
+     * @param r			the random number generator to use
+     * @param min		the leaf threshold
+     * @throws Exception	if something goes wrong
+     */
+    public Node(Instances data, int[] indices, int from, int to, int[] buffer, Random r, int min) throws Exception {
+      if (to - from < 2*min) {
+	turnIntoLeaf(data, indices, from, to);
 	return;
       }
 
-      findRandomSplit(data, r, min);
+      findRandomSplit(data, indices, from, to, r, min);
       if (m_SplitIndex == -1) { // failed to find a split ...
-	turnIntoLeaf(data);
+	turnIntoLeaf(data, indices, from, to);
 	return;
       }
 
-      Instances subset = new Instances(data,min);
-      for (int i = 0; i < data.numInstances(); i++) {
-	Instance instance = data.instance(i);
-	if (instance.value(m_SplitIndex) < m_SplitValue) {
-	  subset.add(instance);
-	}
-      }
+      int mid = partition(data, indices, from, to, buffer);
+      m_Less = new Node(data, indices, from, mid, buffer, r, min);
+      m_More = new Node(data, indices, mid, to, buffer, r, min);
+    }
 
-      m_Less = new Node(subset, r, min);
-      subset = new Instances(data, min);
-      for (int i = 0; i < data.numInstances(); i++) {
-	Instance instance = data.instance(i);
-	if (instance.value(m_SplitIndex) >= m_SplitValue) {
-	  subset.add(instance);
+    /**
+     * partitions the rows [from, to) of the indices, moving the rows less
+     * than the split value to the front, keeping their order
+     *
+     * @param data	the full data
+     * @param indices	the row indices
+     * @param from	the first index of the node (incl)
+     * @param to	the last index of the node (excl)
+     * @param buffer	the scratch array
+     * @return		the start of the rows with larger values
+     */
+    protected int partition(Instances data, int[] indices, int from, int to, int[] buffer) {
+      int less = from;
+      int more = 0;
+      for (int i = from; i < to; i++) {
+	if (data.instance(indices[i]).value(m_SplitIndex) < m_SplitValue) {
+	  indices[less++] = indices[i];
+	} else {
+	  buffer[more++] = indices[i];
 	}
       }
+      System.arraycopy(buffer, 0, indices, less, more);
+      return less;
+    }
 
-      m_More = new Node(subset, r, min);
+    /**
+     * turns the node into a leaf
+     *
+     * @param data		the full data
+     * @param indices		the row indices
+     * @param from		the first index of the node (incl)
+     * @param to		the last index of the node (excl)
+     * @throws Exception	if training of LinearRegression fails
+     */
+    public void turnIntoLeaf(Instances data, int[] indices, int from, int to) throws Exception {
+      Instances subset = new Instances(data, to - from);
+      for (int i = from; i < to; i++) {
+	subset.add(data.instance(indices[i]));
+      }
+      turnIntoLeaf(subset);
     }
 
     /**
@@ -540,6 +741,31 @@ public class RandomRegressionForest
 	return m_More.classifyInstance(instance);
     }
 
+    /**
+     * classifies the rows [from, to) of the indices, adding the regression
+     * values to the sums
+     *
+     * @param data		the full data
+     * @param indices		the row indices (get reordered)
+     * @param from		the first index (incl)
+     * @param to		the last index (excl)
+     * @param buffer		the scratch array for partitioning
+     * @param sums		the sums to add the values to, indexed by row
+     * @throws Exception	if the classification fails
+     */
+    public void classifyInstances(Instances data, int[] indices, int from, int to, int[] buffer, double[] sums) throws Exception {
+      if (from == to)
+	return;
+      if (m_LinearReg != null) {
+	for (int i = from; i < to; i++)
+	  sums[indices[i]] += m_LinearReg.classifyInstance(data.instance(indices[i]));
+	return;
+      }
+      int mid = partition(data, indices, from, to, buffer);
+      m_Less.classifyInstances(data, indices, from, mid, buffer, sums);
+      m_More.classifyInstances(data, indices, mid, to, buffer, sums);
+    }
+
     /**
      * determines a random split for the data, tries 10 pairs.
      *
@@ -550,15 +776,32 @@ public class RandomRegressionForest
      * @see 		#m_SplitValue
      */
     public void findRandomSplit(Instances data, Random r, int min) {
+      findRandomSplit(data, indices(data.numInstances()), 0, data.numInstances(), r, min);
+    }
+
+    /**
+     * determines a random split for the rows [from, to) of the indices,
+     * tries 10 pairs.
+     *
+     * @param data	the full data
+     * @param indices	the row indices
+     * @param from	the first index of the node (incl)
+     * @param to	the last index of the node (excl)
+     * @param r		the random number generator for
+     * @param min	the leaf threshold
+     * @see 		#m_SplitIndex
+     * @see 		#m_SplitValue
+     */
+    public void findRandomSplit(Instances data, int[] indices, int from, int to, Random r, int min) {
       int classIndex = data.classIndex();
       for (int pairs = 0; pairs < 10; pairs++) { // try ten pairs at random
-	int n = data.numInstances();
+	int n = to - from;
 	int index1 = r.nextInt(n);
 	int index2 = r.nextInt(n-1);
 	if (index2 >= index1)
 	  index2++;
-	Instance instance1 = data.instance(index1);
-	Instance instance2 = data.instance(index2);
+	Instance instance1 = data.instance(indices[from + index1]);
+	Instance instance2 = data.instance(indices[from + index2]);
 	n = instance1.numValues();
 	if (n > 0) {
 	  for (int retry = 0; retry < 10; retry++) { // try a few
@@ -571,7 +814,7 @@ public class RandomRegressionForest
 		double fraction = r.nextDouble();
 		m_SplitIndex = attrIndex;
 		m_SplitValue = fraction*v1 + (1.0-fraction)*v2;
-		if (subsetSizesOK(data,min)) return;
+		if (subsetSizesOK(data,indices,from,to,min)) return;
 		m_SplitIndex = -1; // cannot split ...
 	      }
 	    }
@@ -588,10 +831,25 @@ public class RandomRegressionForest
      * @return		true if the size is OK
      */
     public boolean subsetSizesOK(Instances data, int min) {
+      return subsetSizesOK(data, indices(data.numInstances()), 0, data.numInstances(), min);
+    }
+
+    /**
+     * tests whether the leaf threshold is OK for the rows [from, to) of
+     * the indices
+     *
+     * @param data	the full data
+     * @param indices	the row indices
+     * @param from	the first index of the node (incl)
+     * @param to	the last index of the node (excl)
+     * @param min	the leaf threshold
+     * @return		true if the size is OK
+     */
+    public boolean subsetSizesOK(Instances data, int[] indices, int from, int to, int min) {
       int smaller = 0;
       int larger = 0;
-      for (int i = 0; i < data.numInstances(); i++) {
-	if (data.instance(i).value(m_SplitIndex) < m_SplitValue) {
+      for (int i = from; i < to; i++) {
+	if (data.instance(indices[i]).value(m_SplitIndex) < m_SplitValue) {
 	  smaller++;
 	} else {
 	  larger++;
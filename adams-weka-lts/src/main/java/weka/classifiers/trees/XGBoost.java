@@ -32,6 +32,7 @@ import ml.dmlc.xgboost4j.java.DMatrix;
 import ml.dmlc.xgboost4j.java.XGBoostError;
 import weka.classifiers.simple.AbstractSimpleClassifier;
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
 import weka.core.Instance;
@@ -43,6 +44,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -297,6 +299,28 @@ import java.util.Map;
  * &nbsp;&nbsp;&nbsp;default:
  * </pre>
  *
+ * <pre>-matrix-type &lt;DENSE|SPARSE|AUTO&gt; (property: matrixType)
+ * &nbsp;&nbsp;&nbsp;How to convert the data into a DMatrix; in sparse format (CSR), zeros
+ * &nbsp;&nbsp;&nbsp;and missing values are omitted and treated as missing by XGBoost; AUTO
+ * &nbsp;&nbsp;&nbsp;uses sparse format if the density of the training data is at most the
+ * &nbsp;&nbsp;&nbsp;maximum density or the dense matrix would be too large.
+ * &nbsp;&nbsp;&nbsp;default: DENSE
+ * </pre>
+ *
+ * <pre>-max-sparse-density &lt;float&gt; (property: maxSparseDensity)
+ * &nbsp;&nbsp;&nbsp;The maximum density (fraction of non-zero cells) of the training data
+ * &nbsp;&nbsp;&nbsp;for using sparse format in AUTO mode.
+ * &nbsp;&nbsp;&nbsp;default: 0.25
+ * &nbsp;&nbsp;&nbsp;minimum: 0.0
+ * &nbsp;&nbsp;&nbsp;maximum: 1.0
+ * </pre>
+ *
+ * <pre>-batch-size &lt;java.lang.String&gt; (property: batchSize)
+ * &nbsp;&nbsp;&nbsp;The number of instances to convert into a single DMatrix when making
+ * &nbsp;&nbsp;&nbsp;predictions for multiple instances.
+ * &nbsp;&nbsp;&nbsp;default: 100
+ * </pre>
+ *
  <!-- options-end -->
  * <p>
  * Wrapper class that uses the XGBoost4J library to implement
@@ -305,7 +329,7 @@ import java.util.Map;
  * @author Corey Sterling (csterlin at waikato dot ac dot nz)
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
-public class XGBoost extends AbstractSimpleClassifier implements TechnicalInformationHandler {
+public class XGBoost extends AbstractSimpleClassifier implements TechnicalInformationHandler, BatchPredictor {
 
   /** Auto-generated serialisation UID#. */
   private static final long serialVersionUID = 7228620850250174821L;
@@ -445,6 +469,18 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
     THRIFTY
   }
 
+  /**
+   * How to convert the data into a DMatrix.
+   */
+  public enum MatrixType {
+    /** dense matrix, zeros are values. */
+    DENSE,
+    /** sparse matrix (CSR), zeros are treated as missing. */
+    SPARSE,
+    /** sparse if the density of the training data is low enough. */
+    AUTO
+  }
+
   /**
    * Provides a value suitable as a proxy for the XGBoost parameter system.
    */
@@ -637,6 +673,21 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
   /** the xgboost parameters. */
   protected Map<String, Object> m_Params;
 
+  /** how to convert the data. */
+  protected MatrixType m_MatrixType;
+
+  /** the maximum density for using sparse format in AUTO mode. */
+  protected float m_MaxSparseDensity;
+
+  /** whether the model was trained using a sparse matrix. */
+  protected boolean m_UseSparse;
+
+  /** the batch size for predictions. */
+  protected int m_BatchSize;
+
+  /** the buffer for converting instances into a DMatrix at prediction time. */
+  protected transient float[] m_PredictionBuffer;
+
   /**
    * Returns a string describing the object.
    *
@@ -704,6 +755,9 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
     /* Special-Handling-Required Parameters */
     m_OptionManager.add("rounds", "numberOfRounds", 2, 1, Integer.MAX_VALUE);
     m_OptionManager.add("other_params", "otherParameters", new BaseKeyValuePair[0]);
+    m_OptionManager.add("matrix-type", "matrixType", MatrixType.DENSE);
+    m_OptionManager.add("max-sparse-density", "maxSparseDensity", 0.25f, 0.0f, 1.0f);
+    m_OptionManager.add("batch-size", "batchSize", "100");
 
   }
 
@@ -1735,6 +1789,111 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
     return "Passes any additional parameters to XGBoost.";
   }
 
+  /**
+   * Gets how to convert the data into a DMatrix.
+   *
+   * @return The matrix type.
+   */
+  public MatrixType getMatrixType() {
+    return m_MatrixType;
+  }
+
+  /**
+   * Sets how to convert the data into a DMatrix.
+   *
+   * @param value The matrix type.
+   */
+  public void setMatrixType(MatrixType value) {
+    m_MatrixType = value;
+    reset();
+  }
+
+  /**
+   * Gets the tip-text for the matrix-type option.
+   *
+   * @return The tip-text.
+   */
+  public String matrixTypeTipText() {
+    return "How to convert the data into a DMatrix; in sparse format (CSR), zeros and missing values are "
+      + "omitted and treated as missing by XGBoost; AUTO uses sparse format if the density of the "
+      + "training data is at most the maximum density or the dense matrix would be too large.";
+  }
+
+  /**
+   * Gets the maximum density of the training data for using sparse format
+   * in AUTO mode.
+   *
+   * @return The maximum density.
+   */
+  public float getMaxSparseDensity() {
+    return m_MaxSparseDensity;
+  }
+
+  /**
+   * Sets the maximum density of the training data for using sparse format
+   * in AUTO mode.
+   *
+   * @param value The maximum density.
+   */
+  public void setMaxSparseDensity(float value) {
+    m_MaxSparseDensity = value;
+    reset();
+  }
+
+  /**
+   * Gets the tip-text for the max-sparse-density option.
+   *
+   * @return The tip-text.
+   */
+  public String maxSparseDensityTipText() {
+    return "The maximum density (fraction of non-zero cells) of the training data for using sparse format in AUTO mode.";
+  }
+
+  /**
+   * Sets the number of instances to convert into a single DMatrix when
+   * making predictions for multiple instances.
+   *
+   * @param value the batch size to use
+   */
+  public void setBatchSize(String value) {
+    int		intValue;
+
+    intValue = Integer.parseInt(value);
+    if (intValue > 0) {
+      m_BatchSize = intValue;
+      reset();
+    }
+  }
+
+  /**
+   * Gets the number of instances to convert into a single DMatrix when
+   * making predictions for multiple instances.
+   *
+   * @return the batch size to use
+   */
+  public String getBatchSize() {
+    return "" + m_BatchSize;
+  }
+
+  /**
+   * Gets the tip-text for the batch-size option.
+   *
+   * @return The tip-text.
+   */
+  public String batchSizeTipText() {
+    return "The number of instances to convert into a single DMatrix when making predictions for multiple instances.";
+  }
+
+  /**
+   * Returns true, as batch predictions only require a single DMatrix
+   * conversion and call to the booster.
+   *
+   * @return true
+   */
+  public boolean implementsMoreEfficientBatchPrediction() {
+    return true;
+  }
+
   /**
    * Returns an instance of a TechnicalInformation object, containing
    * detailed information about the technical background of this class,
@@ -1805,6 +1964,23 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
    * @return The converted dataset.
    */
   protected DMatrix instancesToDMatrix(Instance[] instances) throws XGBoostError {
+    return instancesToDMatrix(instances, null, true);
+  }
+
+  /**
+   * Converts a WEKA dataset into a DMatrix (the input type expected by
+   * XGBoost).
+   *
+   * @param instances The dataset to convert.
+   * @param buffer The buffer to fill with the data (gets zeroed), needs to be
+   *               of size rows x columns; null to allocate a new one.
+   * @param labelsAndWeights Whether to set labels and weights (training).
+   * @return The converted dataset.
+   */
+  protected DMatrix instancesToDMatrix(Instance[] instances, float[] buffer, boolean labelsAndWeights) throws XGBoostError {
+    if (m_UseSparse)
+      return instancesToSparseDMatrix(instances, labelsAndWeights);
+
     // Get the number of rows and columns we need to create
     int nRows = instances.length;
     int nColumns = numberOfRequiredDMatrixColumns(m_Header);
@@ -1813,12 +1989,20 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
     if (nRows == 0 || nColumns == 0) return null;
 
     // Create the data arrays
-    float[] data = new float[nRows * nColumns];
-    float[] labels = new float[nRows];
-    float[] weights = new float[nRows];
+    float[] data;
+    if ((buffer != null) && (buffer.length == nRows * nColumns)) {
+      data = buffer;
+      Arrays.fill(data, 0.0f);
+    }
+    else {
+      data = new float[nRows * nColumns];
+    }
+    float[] labels = labelsAndWeights ? new float[nRows] : null;
+    float[] weights = labelsAndWeights ? new float[nRows] : null;
 
     // Remember the class index
     int classIndex = m_Header.classIndex();
+    int nAttributes = m_Header.numAttributes();
 
     // Keep track of where to insert the next value (contiguous)
     int insertionIndex = 0;
@@ -1828,34 +2012,33 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
       // Get the instance for this row
       Instance instance = instances[rowIndex];
 
-      // Extract the raw values
-      double[] instanceData = instance.toDoubleArray();
-
-      // Save the weighting for this row
-      weights[rowIndex] = (float) instance.weight();
+      if (labelsAndWeights) {
+        // Save the weighting for this row
+        weights[rowIndex] = (float) instance.weight();
 
-      // Save the class value for this row
-      if (instance.classIsMissing())
-        labels[rowIndex] = 0.0f;  // XGBoost can't handle NaN
-      else
-        labels[rowIndex] = (float) instanceData[classIndex];
+        // Save the class value for this row
+        if (instance.classIsMissing())
+          labels[rowIndex] = 0.0f;  // XGBoost can't handle NaN
+        else
+          labels[rowIndex] = (float) instance.value(classIndex);
+      }
 
       // Extract the instance data into the DMatrix array
-      for (int i = 0; i < instanceData.length; i++) {
-        // Get the attribute for this column
-        Attribute attribute = m_Header.attribute(i);
-
+      for (int i = 0; i < nAttributes; i++) {
         // Skip the class index
         if (i == classIndex) continue;
 
+        // Get the attribute for this column
+        Attribute attribute = m_Header.attribute(i);
+
         // Insert the data
         if (attribute.isDate() || attribute.isNumeric()) {
-          data[insertionIndex] = (float) instanceData[i];
+          data[insertionIndex] = (float) instance.value(i);
           insertionIndex++;
         }
         else if (attribute.isNominal()) {
           // One-hot encoding
-          data[insertionIndex + ((int) instanceData[i])] = 1.0f;
+          data[insertionIndex + ((int) instance.value(i))] = 1.0f;
           insertionIndex += attribute.numValues();
         }
       }
@@ -1863,12 +2046,205 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
 
     // Create the DMatrix object from the extracted data
     DMatrix dMatrix = new DMatrix(data, nRows, nColumns, (float) Utils.missingValue());
-    dMatrix.setLabel(labels);
-    dMatrix.setWeight(weights);
+    if (labelsAndWeights) {
+      dMatrix.setLabel(labels);
+      dMatrix.setWeight(weights);
+    }
+
+    return dMatrix;
+  }
+
+  /**
+   * Determines the first DMatrix column of each attribute.
+   *
+   * @return The column offsets, -1 for the class attribute.
+   */
+  protected int[] determineColumnOffsets() {
+    int[] result = new int[m_Header.numAttributes()];
+    int column = 0;
+    for (int i = 0; i < result.length; i++) {
+      Attribute attribute = m_Header.attribute(i);
+      if (i == m_Header.classIndex()) {
+        result[i] = -1;
+      }
+      else if (attribute.isNumeric() || attribute.isDate()) {
+        result[i] = column;
+        column += 1;
+      }
+      else if (attribute.isNominal()) {
+        result[i] = column;
+        column += attribute.numValues();
+      }
+      else {
+        result[i] = -1;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the indices of the nominal attributes (excluding the class).
+   * These need to be visited for each instance, as sparse instances do not
+   * store the first label (value 0).
+   *
+   * @return The indices.
+   */
+  protected int[] determineNominalIndices() {
+    int count = 0;
+    for (int i = 0; i < m_Header.numAttributes(); i++) {
+      if ((i != m_Header.classIndex()) && m_Header.attribute(i).isNominal())
+        count++;
+    }
+
+    int[] result = new int[count];
+    count = 0;
+    for (int i = 0; i < m_Header.numAttributes(); i++) {
+      if ((i != m_Header.classIndex()) && m_Header.attribute(i).isNominal())
+        result[count++] = i;
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the non-zero, non-missing cells of the instance to the CSR arrays,
+   * in ascending column order. Only counts the cells if the arrays are null.
+   *
+   * @param instance The instance to add.
+   * @param offsets The column offsets of the attributes.
+   * @param nominal The indices of the nominal attributes.
+   * @param indices The column indices, null to only count.
+   * @param data The cell values, null to only count.
+   * @param pos The position to start inserting at.
+   * @return The position after the last inserted cell.
+   */
+  protected int addSparseRow(Instance instance, int[] offsets, int[] nominal, int[] indices, float[] data, int pos) {
+    int numValues = instance.numValues();
+    int j = 0;
+    int k = 0;
+
+    // merge the stored values with the nominal attributes
+    while ((j < numValues) || (k < nominal.length)) {
+      int attJ = (j < numValues) ? instance.index(j) : Integer.MAX_VALUE;
+      int attK = (k < nominal.length) ? nominal[k] : Integer.MAX_VALUE;
+      int att = Math.min(attJ, attK);
+      double value = 0.0;
+      if (attJ == att) {
+        value = instance.valueSparse(j);
+        j++;
+      }
+      if (attK == att)
+        k++;
+
+      if (offsets[att] == -1) continue;
+      if (Utils.isMissingValue(value)) continue;
+
+      Attribute attribute = m_Header.attribute(att);
+      if (attribute.isNominal()) {
+        if (indices != null) {
+          indices[pos] = offsets[att] + (int) value;
+          data[pos] = 1.0f;
+        }
+        pos++;
+      }
+      else if (value != 0.0) {
+        if (indices != null) {
+          indices[pos] = offsets[att];
+          data[pos] = (float) value;
+        }
+        pos++;
+      }
+    }
+
+    return pos;
+  }
+
+  /**
+   * Converts a WEKA dataset into a sparse DMatrix in CSR format. Zeros and
+   * missing values are omitted, i.e., treated as missing by XGBoost.
+   *
+   * @param instances The dataset to convert.
+   * @param labelsAndWeights Whether to set labels and weights (training).
+   * @return The converted dataset.
+   */
+  protected DMatrix instancesToSparseDMatrix(Instance[] instances, boolean labelsAndWeights) throws XGBoostError {
+    int nRows = instances.length;
+    int nColumns = numberOfRequiredDMatrixColumns(m_Header);
+    if (nRows == 0 || nColumns == 0) return null;
+
+    int[] offsets = determineColumnOffsets();
+    int[] nominal = determineNominalIndices();
+    int classIndex = m_Header.classIndex();
+
+    // determine row boundaries
+    long[] headers = new long[nRows + 1];
+    int nnz = 0;
+    for (int rowIndex = 0; rowIndex < nRows; rowIndex++) {
+      nnz = addSparseRow(instances[rowIndex], offsets, nominal, null, null, nnz);
+      headers[rowIndex + 1] = nnz;
+    }
+
+    // fill in cells
+    int[] indices = new int[nnz];
+    float[] data = new float[nnz];
+    float[] labels = labelsAndWeights ? new float[nRows] : null;
+    float[] weights = labelsAndWeights ? new float[nRows] : null;
+    int pos = 0;
+    for (int rowIndex = 0; rowIndex < nRows; rowIndex++) {
+      Instance instance = instances[rowIndex];
+      pos = addSparseRow(instance, offsets, nominal, indices, data, pos);
+      if (labelsAndWeights) {
+        weights[rowIndex] = (float) instance.weight();
+        if (instance.classIsMissing())
+          labels[rowIndex] = 0.0f;  // XGBoost can't handle NaN
+        else
+          labels[rowIndex] = (float) instance.value(classIndex);
+      }
+    }
+
+    DMatrix dMatrix = new DMatrix(headers, indices, data, DMatrix.SparseType.CSR, nColumns);
+    if (labelsAndWeights) {
+      dMatrix.setLabel(labels);
+      dMatrix.setWeight(weights);
+    }
 
     return dMatrix;
   }
 
+  /**
+   * Determines whether to use a sparse DMatrix for the training data.
+   *
+   * @param instances The training data.
+   * @return True if to use sparse format.
+   */
+  protected boolean determineUseSparse(Instances instances) {
+    switch (m_MatrixType) {
+      case DENSE:
+        return false;
+      case SPARSE:
+        return true;
+      case AUTO:
+        long cells = (long) instances.numInstances() * numberOfRequiredDMatrixColumns(m_Header);
+        if (cells == 0)
+          return false;
+        // dense array would be too large
+        if (cells > Integer.MAX_VALUE - 8)
+          return true;
+        int[] offsets = determineColumnOffsets();
+        int[] nominal = determineNominalIndices();
+        long nnz = 0;
+        for (Instance instance : instances)
+          nnz += addSparseRow(instance, offsets, nominal, null, null, 0);
+        double density = (double) nnz / cells;
+        if (isLoggingEnabled())
+          getLogger().info("Density of training data: " + density);
+        return (density <= m_MaxSparseDensity);
+      default:
+        throw new IllegalStateException("Unhandled matrix type: " + m_MatrixType);
+    }
+  }
+
   /**
    * Converts the options into a parameter map as expected by XGBoost.
    *
@@ -1962,6 +2338,9 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
     }
 
     m_Header = new Instances(instances, 0);
+    m_UseSparse = determineUseSparse(instances);
+    if (isLoggingEnabled())
+      getLogger().info("Using " + (m_UseSparse ? "sparse" : "dense") + " DMatrix");
 
     // Convert the training dataset to the required form
     DMatrix train = instancesToDMatrix(instances.toArray(new Instance[0]));
@@ -1986,35 +2365,163 @@ public class XGBoost extends AbstractSimpleClassifier implements TechnicalInform
   }
 
   /**
-   * Classifies the given test instance. The instance has to belong to a dataset
-   * when it's being classified. Note that a classifier MUST implement either
-   * this or distributionForInstance().
+   * Turns the raw XGBoost output for a single instance into a distribution.
    *
-   * @param instance the instance to be classified
-   * @return the predicted most likely class for the instance or
-   * Utils.missingValue() if no prediction is made
+   * @param prediction the XGBoost output
+   * @return the distribution (or single numeric prediction)
+   */
+  protected double[] predictionToDistribution(float[] prediction) {
+    double[]	result;
+    int		i;
+    int		index;
+
+    result = new double[m_Header.numClasses()];
+
+    // numeric class
+    if (!m_Header.classAttribute().isNominal()) {
+      result[0] = prediction[0];
+      return result;
+    }
+
+    // class probabilities (eg multi:softprob)
+    if (prediction.length == result.length) {
+      for (i = 0; i < result.length; i++)
+        result[i] = prediction[i];
+      return result;
+    }
+
+    // probability of second class label
+    if ((result.length == 2)
+      && ((m_Objective == Objective.LOGISTIC_REGRESSION_FOR_BINARY_CLASSIFICATION) || (m_Objective == Objective.LOGISTIC_REGRESSION))) {
+      result[0] = 1.0 - prediction[0];
+      result[1] = prediction[0];
+      return result;
+    }
+
+    // class index
+    index = Math.round(prediction[0]);
+    if ((index >= 0) && (index < result.length))
+      result[index] = 1.0;
+
+    return result;
+  }
+
+  /**
+   * Returns an empty distribution, used if no predictions can be made.
+   *
+   * @return the distribution, missing value in case of numeric class
+   */
+  protected double[] emptyDistribution() {
+    double[]	result;
+
+    result = new double[m_Header.numClasses()];
+    if (!m_Header.classAttribute().isNominal())
+      result[0] = Utils.missingValue();
+
+    return result;
+  }
+
+  /**
+   * Makes predictions for the given instances, converting them into a
+   * single DMatrix and calling the booster only once.
+   *
+   * @param instances the instances to make predictions for
+   * @return the distributions (or single numeric predictions)
    * @throws Exception if an error occurred during the prediction
    */
-  @Override
-  public double classifyInstance(Instance instance) throws Exception {
-    // Make sure we have built the classifier and have data
-    // to classify
-    if (m_Booster == null || instance == null) return Utils.missingValue();
+  protected double[][] predict(Instance[] instances) throws Exception {
+    double[][]	result;
+    DMatrix	testData;
+    float[][]	predictions;
+    int		i;
+    int		size;
 
-    // Convert the test instance to the required format
-    DMatrix testData = instancesToDMatrix(new Instance[]{instance});
+    if (m_Header == null)
+      throw new Exception("No model built yet!");
+
+    result = new double[instances.length][];
+
+    testData = null;
+    if (m_Booster != null) {
+      if (m_UseSparse) {
+        testData = instancesToDMatrix(instances, null, false);
+      }
+      else {
+        // conversion buffer only gets reused if the size matches
+        synchronized (this) {
+          size = instances.length * numberOfRequiredDMatrixColumns(m_Header);
+          if ((m_PredictionBuffer == null) || (m_PredictionBuffer.length != size))
+            m_PredictionBuffer = new float[size];
+          testData = instancesToDMatrix(instances, m_PredictionBuffer, false);
+        }
+      }
+    }
 
     // Abort if we can't create the test data
-    if (testData == null) return Utils.missingValue();
+    if (testData == null) {
+      for (i = 0; i < result.length; i++)
+        result[i] = emptyDistribution();
+      return result;
+    }
+
+    // Get XGBoost's predictions for the test data
+    try {
+      predictions = m_Booster.predict(testData);
+    }
+    finally {
+      testData.dispose();
+    }
 
-    // Get XGBoost's prediction for the test data
-    float[][] predictions = m_Booster.predict(testData);
+    for (i = 0; i < result.length; i++)
+      result[i] = predictionToDistribution(predictions[i]);
 
-    // Only one instance with one class, so only one prediction
-    if (instance.classAttribute().isNumeric())
-      return predictions[0][0];
-    else
-      return Math.round(predictions[0][0]);
+    return result;
+  }
+
+  /**
+   * Predicts the class memberships for a given instance. In case of a
+   * numeric class, the array consists of only one element, which contains
+   * the predicted value.
+   *
+   * @param instance the instance to be classified
+   * @return an array containing the estimated membership probabilities of the
+   *         test instance in each class or the numeric prediction
+   * @throws Exception if an error occurred during the prediction
+   */
+  @Override
+  public double[] distributionForInstance(Instance instance) throws Exception {
+    return predict(new Instance[]{instance})[0];
+  }
+
+  /**
+   * Batch scoring method, converts the instances into DMatrix objects of
+   * at most 'batchSize' rows.
+   *
+   * @param insts the instances to get predictions for
+   * @return an array of probability distributions, one for each instance
+   * @throws Exception if a problem occurs
+   */
+  public double[][] distributionsForInstances(Instances insts) throws Exception {
+    double[][]	result;
+    double[][]	batch;
+    Instance[]	instances;
+    int		i;
+    int		n;
+    int		num;
+
+    result = new double[insts.numInstances()][];
+    i      = 0;
+    while (i < insts.numInstances()) {
+      num       = Math.min(m_BatchSize, insts.numInstances() - i);
+      instances = new Instance[num];
+      for (n = 0; n < num; n++)
+        instances[n] = insts.instance(i + n);
+      batch = predict(instances);
+      System.arraycopy(batch, 0, result, i, num);
+      i += num;
+    }
+
+    return result;
   }
 
   /**
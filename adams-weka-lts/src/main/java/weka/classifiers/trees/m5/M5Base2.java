@@ -134,6 +134,16 @@ public abstract class M5Base2
    */
   protected double m_minNumInstances = 4;
 
+  /**
+   * Use presorted indices instead of sorting the instances at each node
+   */
+  protected boolean m_presort = false;
+
+  /**
+   * The number of threads for evaluating the split attributes
+   */
+  protected int m_numThreads = 1;
+
   /**
    * Constructor
    */
@@ -142,6 +152,8 @@ public abstract class M5Base2
     m_unsmoothedPredictions = false;
     m_useUnpruned = false;
     m_minNumInstances = 4;
+    m_presort = false;
+    m_numThreads = 1;
   }
 
   /**
@@ -195,7 +207,7 @@ public abstract class M5Base2
    * @return an enumeration of all the available options
    */
   public Enumeration listOptions() {
-    Vector newVector = new Vector(4);
+    Vector newVector = new Vector(6);
 
     newVector.addElement(new Option("\tUse unpruned tree/rules", 
 				    "N", 0, "-N"));
@@ -210,6 +222,15 @@ public abstract class M5Base2
     newVector.addElement(new Option("\tSet minimum number of instances "
 				    +"per leaf\n\t(default 4)",
 				    "M",1,"-M <minimum number of instances>"));
+
+    newVector.addElement(new Option("\tUse presorted indices instead of sorting "
+				    +"the instances at each node", 
+				    "P", 0, "-P"));
+
+    newVector.addElement(new Option("\tThe number of threads for evaluating "
+				    +"the split attributes\n\t(only with -P; -1 = # of cores; "
+				    +"default 1)",
+				    "num-threads",1,"-num-threads <num>"));
     return newVector.elements();
   } 
 
@@ -235,6 +256,13 @@ public abstract class M5Base2
     if (optionString.length() != 0) {
       setMinNumInstances((new Double(optionString)).doubleValue());
     }
+    setPresort(Utils.getFlag('P', options));
+    optionString = Utils.getOption("num-threads", options);
+    if (optionString.length() != 0) {
+      setNumThreads(Integer.parseInt(optionString));
+    } else {
+      setNumThreads(1);
+    }
     Utils.checkForRemainingOptions(options);
   } 
 
@@ -244,7 +272,7 @@ public abstract class M5Base2
    * @return an array of strings suitable for passing to setOptions
    */
   public String[] getOptions() {
-    String[] options = new String[5];
+    String[] options = new String[8];
     int current = 0;
 
     if (getUnpruned()) {
@@ -262,6 +290,15 @@ public abstract class M5Base2
     options[current++] = "-M"; 
     options[current++] = ""+getMinNumInstances();
 
+    if (getPresort()) {
+      options[current++] = "-P";
+    }
+
+    if (getNumThreads() != 1) {
+      options[current++] = "-num-threads";
+      options[current++] = ""+getNumThreads();
+    }
+
     while (current < options.length) {
       options[current++] = "";
     } 
@@ -410,6 +447,66 @@ public abstract class M5Base2
     return m_minNumInstances;
   }
 
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String presortTipText() {
+    return "Whether to sort the instances once per attribute up front, "
+      + "instead of sorting them for each attribute at each node.";
+  }
+
+  /**
+   * Set whether to use presorted indices instead of sorting the instances
+   * at each node
+   *
+   * @param presort true if presorted indices are to be used
+   */
+  public void setPresort(boolean presort) {
+    m_presort = presort;
+  }
+
+  /**
+   * Get whether presorted indices are used instead of sorting the
+   * instances at each node
+   *
+   * @return true if presorted indices are used
+   */
+  public boolean getPresort() {
+    return m_presort;
+  }
+
+  /**
+   * Returns the tip text for this property
+   * 
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for evaluating the split attributes "
+      + "(only with presorted indices); -1 = # of cores, 0/1 = sequential.";
+  }
+
+  /**
+   * Set the number of threads for evaluating the split attributes
+   *
+   * @param numThreads the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public void setNumThreads(int numThreads) {
+    m_numThreads = numThreads;
+  }
+
+  /**
+   * Get the number of threads for evaluating the split attributes
+   *
+   * @return the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public int getNumThreads() {
+    return m_numThreads;
+  }
+
   /**
    * Returns default capabilities of the classifier, i.e., of LinearRegression.
    *
@@ -464,6 +561,8 @@ public abstract class M5Base2
 	tempRule.setUnpruned(m_useUnpruned);
 	tempRule.setSaveInstances(false);
 	tempRule.setMinNumInstances(m_minNumInstances);
+	tempRule.setPresort(m_presort);
+	tempRule.setNumThreads(m_numThreads);
 	tempRule.buildClassifier(tempInst);
 	m_ruleSet.addElement(tempRule);
 	//	System.err.println("Built rule : "+tempRule.toString());
@@ -480,6 +579,8 @@ public abstract class M5Base2
       tempRule.setRegressionTree(m_regressionTree);
       tempRule.setUnpruned(m_useUnpruned);
       tempRule.setMinNumInstances(m_minNumInstances);
+      tempRule.setPresort(m_presort);
+      tempRule.setNumThreads(m_numThreads);
 
       Instances temp_train;
 
@@ -21,6 +21,7 @@
 
 package weka.classifiers.trees.m5;
 
+import weka.classifiers.trees.PresortedIndices;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.RevisionHandler;
@@ -149,6 +150,17 @@ public class Rule2
    */
   private double m_minNumInstances;
 
+  /**
+   * Use presorted indices instead of sorting the instances at each node
+   */
+  private boolean m_presort;
+
+  /**
+   * The number of threads for evaluating the split attributes (only
+   * used with presorted indices)
+   */
+  private int m_numThreads;
+
   /**
    * Constructor declaration
    *
@@ -158,6 +170,8 @@ public class Rule2
     m_smoothPredictions = false;
     m_useUnpruned = false;
     m_minNumInstances = 4;
+    m_presort = false;
+    m_numThreads = 1;
   }
 
   /**
@@ -190,7 +204,17 @@ public class Rule2
     m_topOfTree.setSaveInstances(m_saveInstances);
     m_topOfTree.setRegressionTree(m_regressionTree);
     m_topOfTree.setMinNumInstances(m_minNumInstances);
-    m_topOfTree.buildClassifier(m_instances);
+    m_topOfTree.setNumThreads(m_numThreads);
+    if (m_presort) {
+      int[] rowIds = new int[m_numInstances];
+      for (int i = 0; i < m_numInstances; i++) {
+	rowIds[i] = i;
+      }
+      m_topOfTree.buildClassifier(m_instances, 
+				  new PresortedIndices(m_instances), rowIds, 0);
+    } else {
+      m_topOfTree.buildClassifier(m_instances);
+    }
 
 
     if (!m_useUnpruned) {
@@ -623,6 +647,45 @@ public class Rule2
     return m_minNumInstances;
   }
 
+  /**
+   * Set whether to use presorted indices instead of sorting the instances
+   * at each node
+   *
+   * @param presort true if presorted indices are to be used
+   */
+  public void setPresort(boolean presort) {
+    m_presort = presort;
+  }
+
+  /**
+   * Get whether presorted indices are used instead of sorting the
+   * instances at each node
+   *
+   * @return true if presorted indices are used
+   */
+  public boolean getPresort() {
+    return m_presort;
+  }
+
+  /**
+   * Set the number of threads for evaluating the split attributes
+   * (only used with presorted indices)
+   *
+   * @param numThreads the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public void setNumThreads(int numThreads) {
+    m_numThreads = numThreads;
+  }
+
+  /**
+   * Get the number of threads for evaluating the split attributes
+   *
+   * @return the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public int getNumThreads() {
+    return m_numThreads;
+  }
+
   public RuleNode2 getM5RootNode() {
     return m_topOfTree;
   }
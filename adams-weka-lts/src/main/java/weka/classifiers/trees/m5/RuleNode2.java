@@ -21,10 +21,13 @@
 
 package weka.classifiers.trees.m5;
 
+import adams.core.Performance;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.LinearRegressionJ;
 import weka.classifiers.meta.LeastMedianSq;
+import weka.classifiers.trees.PresortedIndices;
 import weka.core.FastVector;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -34,6 +37,11 @@ import weka.core.Utils;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.Remove;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
 /**
  * Constructs a node for use in an m5 tree or rule
  *
@@ -172,6 +180,34 @@ public class RuleNode2
    */
   private boolean m_regressionTree;
 
+  /**
+   * The number of threads for evaluating the split attributes (only
+   * used with presorted indices)
+   */
+  private int m_numThreads = 1;
+
+  /**
+   * The presorted indices of the training data (only while building)
+   */
+  private transient PresortedIndices m_presorted;
+
+  /**
+   * The row IDs of the instances reaching this node, in the same order
+   * as the instances (only while building with presorted indices)
+   */
+  private transient int[] m_rowIds;
+
+  /**
+   * The start of this node's segment in the presorted indices
+   */
+  private transient int m_from;
+
+  /**
+   * The minimum number of instances at a node for evaluating the split
+   * attributes in parallel
+   */
+  private static final int MIN_PARALLEL_INSTANCES = 1000;
+
   /**
    * Creates a new <code>RuleNode</code> instance.
    *
@@ -217,6 +253,36 @@ public class RuleNode2
 
     split();
   } 
+
+  /**
+   * Build this node using presorted indices, instead of sorting the
+   * instances for each attribute. Produces the same splits as
+   * {@link #buildClassifier(Instances)}.
+   * <br>
+   * The node still receives its subset as <code>Instances</code>, as the
+   * split evaluation, the linear models and the pruning (which happens
+   * after the whole tree has been grown) only work on <code>Instances</code>.
+   * These subsets only hold shallow copies of the rows, the attribute
+   * values are shared with the training data.
+   *
+   * @param data the instances on which to build this node
+   * @param presorted the presorted indices of the training data
+   * @param rowIds the row IDs of the instances, in the same order
+   * @param from the start of this node's segment in the presorted indices
+   * @throws Exception if an error occurs
+   */
+  public void buildClassifier(Instances data, PresortedIndices presorted, 
+			      int[] rowIds, int from) throws Exception {
+    m_presorted = presorted;
+    m_rowIds = rowIds;
+    m_from = from;
+    try {
+      buildClassifier(data);
+    } finally {
+      m_presorted = null;
+      m_rowIds = null;
+    }
+  }
  
   /**
    * Classify an instance using this node. Recursively calls classifyInstance
@@ -275,6 +341,8 @@ public class RuleNode2
     Instances     leftSubset, rightSubset;
     SplitEvaluate bestSplit, currentSplit;
     boolean[]     attsBelow;
+    int[]         leftIds, rightIds;
+    int           mid;
 
     if (!m_isLeaf) {
      
@@ -282,21 +350,22 @@ public class RuleNode2
       currentSplit = new YongSplitInfo(0, m_numInstances - 1, -1);
 
       // find the best attribute to split on
-      for (i = 0; i < m_numAttributes; i++) {
-	if (i != m_classIndex) {
+      if (m_presorted != null) {
+	bestSplit = presortedSplit(bestSplit);
+      } else {
+	for (i = 0; i < m_numAttributes; i++) {
+	  if (i != m_classIndex) {
 
-	  // sort the instances by this attribute
-	  m_instances.sort(i);
-	  currentSplit.attrSplit(i, m_instances);
+	    // sort the instances by this attribute
+	    m_instances.sort(i);
+	    currentSplit.attrSplit(i, m_instances);
 
-	  if ((Math.abs(currentSplit.maxImpurity() - 
-			bestSplit.maxImpurity()) > 1.e-6) 
-	      && (currentSplit.maxImpurity() 
-		  > bestSplit.maxImpurity() + 1.e-6)) {
-	    bestSplit = currentSplit.copy();
+	    if (isBetterSplit(currentSplit, bestSplit)) {
+	      bestSplit = currentSplit.copy();
+	    } 
 	  } 
 	} 
-      } 
+      }
 
       // cant find a good split or split point?
       if (bestSplit.splitAttr() < 0 || bestSplit.position() < 1 
@@ -305,13 +374,27 @@ public class RuleNode2
       } else {
 	m_splitAtt = bestSplit.splitAttr();
 	m_splitValue = bestSplit.splitValue();
+	// the subsets share the attribute values of the rows; every node has
+	// to keep its subset until the tree gets pruned
 	leftSubset = new Instances(m_instances, m_numInstances);
 	rightSubset = new Instances(m_instances, m_numInstances);
+	leftIds = null;
+	rightIds = null;
+	if (m_presorted != null) {
+	  leftIds = new int[m_numInstances];
+	  rightIds = new int[m_numInstances];
+	}
 
 	for (i = 0; i < m_numInstances; i++) {
 	  if (m_instances.instance(i).value(m_splitAtt) <= m_splitValue) {
+	    if (leftIds != null) {
+	      leftIds[leftSubset.numInstances()] = m_rowIds[i];
+	    }
 	    leftSubset.add(m_instances.instance(i));
 	  } else {
+	    if (rightIds != null) {
+	      rightIds[rightSubset.numInstances()] = m_rowIds[i];
+	    }
 	    rightSubset.add(m_instances.instance(i));
 	  } 
 	} 
@@ -324,13 +407,26 @@ public class RuleNode2
 	m_left.setMinNumInstances(m_splitNum);
 	m_left.setRegressionTree(m_regressionTree);
 	m_left.setSaveInstances(m_saveInstances);
-	m_left.buildClassifier(leftSubset);
+	m_left.setNumThreads(m_numThreads);
 
 	m_right = new RuleNode2(m_globalDeviation, m_globalAbsDeviation, this);
 	m_right.setMinNumInstances(m_splitNum);
 	m_right.setRegressionTree(m_regressionTree);
 	m_right.setSaveInstances(m_saveInstances);
-	m_right.buildClassifier(rightSubset);
+	m_right.setNumThreads(m_numThreads);
+
+	if (m_presorted != null) {
+	  // the segments of the children stay sorted
+	  mid = m_presorted.partition(m_from, m_from + m_numInstances, 
+				      m_splitAtt, m_splitValue);
+	  m_left.buildClassifier(leftSubset, m_presorted, 
+				 Arrays.copyOf(leftIds, leftSubset.numInstances()), m_from);
+	  m_right.buildClassifier(rightSubset, m_presorted, 
+				  Arrays.copyOf(rightIds, rightSubset.numInstances()), mid);
+	} else {
+	  m_left.buildClassifier(leftSubset);
+	  m_right.buildClassifier(rightSubset);
+	}
 
 	// now find out what attributes are tested in the left and right
 	// subtrees and use them to learn a linear model for this node
@@ -376,6 +472,94 @@ public class RuleNode2
     } 
   } 
 
+  /**
+   * Checks whether the current split is better than the best one so far.
+   *
+   * @param current the current split
+   * @param best the best split so far
+   * @return true if the current split is better
+   */
+  private static boolean isBetterSplit(SplitEvaluate current, SplitEvaluate best) {
+    return (Math.abs(current.maxImpurity() - best.maxImpurity()) > 1.e-6) 
+      && (current.maxImpurity() > best.maxImpurity() + 1.e-6);
+  }
+
+  /**
+   * Finds the best split using the presorted indices. Instead of sorting,
+   * the instances get reordered to match each attribute's presorted order,
+   * ending up in the order of the last attribute (like when sorting).
+   * With more than one thread, chunks of attributes get evaluated in
+   * parallel on copies of the instances; the splits get compared in
+   * attribute order afterwards, giving the same result. The copies are
+   * shallow and each chunk reorders its copy once per attribute, so copying
+   * is only a fraction of the work of a chunk.
+   *
+   * @param bestSplit the initial best split
+   * @return the best split
+   * @throws Exception if an error occurs
+   */
+  private SplitEvaluate presortedSplit(SplitEvaluate bestSplit) 
+    throws Exception {
+    final SplitEvaluate[] splits;
+    final int[] positions;
+    List<Callable<Boolean>> jobs;
+    SplitEvaluate currentSplit;
+    int numAtts;
+    int numThreads;
+    int chunkSize;
+    int k;
+
+    numAtts = m_presorted.numAttributes();
+    positions = m_presorted.mapRows(m_rowIds);
+    numThreads = Performance.determineNumThreads(m_numThreads);
+    if ((numAtts == 0) || (numThreads <= 1) 
+	|| (m_numInstances < MIN_PARALLEL_INSTANCES)) {
+      currentSplit = new YongSplitInfo(0, m_numInstances - 1, -1);
+      for (k = 0; k < numAtts; k++) {
+	m_presorted.reorder(m_instances, m_rowIds, positions, k, m_from);
+	currentSplit.attrSplit(m_presorted.attributeIndex(k), m_instances);
+	if (isBetterSplit(currentSplit, bestSplit)) {
+	  bestSplit = currentSplit.copy();
+	}
+      }
+      return bestSplit;
+    }
+
+    splits = new SplitEvaluate[numAtts];
+    chunkSize = (int) Math.ceil((double) numAtts / numThreads);
+    jobs = new ArrayList<Callable<Boolean>>();
+    for (k = 0; k < numAtts; k += chunkSize) {
+      final int first = k;
+      final int last = Math.min(k + chunkSize, numAtts);
+      jobs.add(new Callable<Boolean>() {
+	public Boolean call() throws Exception {
+	  Instances data = new Instances(m_instances);
+	  int[] ids = m_rowIds.clone();
+	  int[] pos = positions.clone();
+	  SplitEvaluate split = new YongSplitInfo(0, m_numInstances - 1, -1);
+	  for (int n = first; n < last; n++) {
+	    m_presorted.reorder(data, ids, pos, n, m_from);
+	    split.attrSplit(m_presorted.attributeIndex(n), data);
+	    splits[n] = split.copy();
+	  }
+	  return true;
+	}
+      });
+    }
+    WekaSharedExecutor.invokeAll(jobs, numThreads);
+
+    for (k = 0; k < numAtts; k++) {
+      if (isBetterSplit(splits[k], bestSplit)) {
+	bestSplit = splits[k];
+      }
+    }
+
+    // same order as after sequential evaluation
+    m_presorted.reorder(m_instances, m_rowIds, positions, numAtts - 1, m_from);
+
+    return bestSplit;
+  }
+
   /**
    * Build a linear model for this node using those attributes
    * specified in indices.
@@ -1099,6 +1283,26 @@ public class RuleNode2
     }
   }
 
+  /**
+   * Sets the number of threads for evaluating the split attributes
+   * (only used with presorted indices).
+   *
+   * @param numThreads the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public void setNumThreads(int numThreads) {
+    m_numThreads = numThreads;
+  }
+
+  /**
+   * Returns the number of threads for evaluating the split attributes
+   * (only used with presorted indices).
+   *
+   * @return the number of threads (-1 = # of cores, 0/1 = sequential)
+   */
+  public int getNumThreads() {
+    return m_numThreads;
+  }
+
   /**
    * Set whether to save instances for visualization purposes.
    * Default is to save memory.
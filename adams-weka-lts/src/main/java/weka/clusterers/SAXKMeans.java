@@ -20,6 +20,7 @@
 package weka.clusterers;
 
 import adams.multiprocess.CallableWithResult;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.rules.DecisionTableHashKey;
 import weka.core.Attribute;
 import weka.core.Capabilities;
@@ -51,9 +52,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Vector;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 /**
  * {@link SimpleKMeans} adapted for SAX.
@@ -214,9 +212,6 @@ public class SAXKMeans
   /** Number of threads to run */
   protected int m_executionSlots = 1;
 
-  /** For parallel execution mode */
-  protected transient ExecutorService m_executorPool;
-
   /**
    * the default constructor.
    */
@@ -227,17 +222,6 @@ public class SAXKMeans
     setSeed(m_SeedDefault);
   }
 
-  /**
-   * Start the pool of execution threads
-   */
-  protected void startExecutorPool() {
-    if (m_executorPool != null) {
-      m_executorPool.shutdownNow();
-    }
-
-    m_executorPool = Executors.newFixedThreadPool(m_executionSlots);
-  }
-
   protected int m_completed;
   protected int m_failed;
 
@@ -323,21 +307,19 @@ public class SAXKMeans
    */
   protected int launchMoveCentroids(Instances[] clusters) {
     int emptyClusterCount = 0;
-    List<Future<double[]>> results = new ArrayList<Future<double[]>>();
+    List<KMeansComputeCentroidTask> tasks = new ArrayList<KMeansComputeCentroidTask>();
 
     for (int i = 0; i < m_NumClusters; i++) {
       if (clusters[i].numInstances() == 0) {
 	emptyClusterCount++;
       } else {
-	Future<double[]> futureCentroid = m_executorPool
-	    .submit(new KMeansComputeCentroidTask(i, clusters[i]));
-	results.add(futureCentroid);
+	tasks.add(new KMeansComputeCentroidTask(i, clusters[i]));
       }
     }
 
     try {
-      for (Future<double[]> d : results) {
-	m_ClusterCentroids.add(new DenseInstance(1.0, d.get()));
+      for (double[] d : WekaSharedExecutor.invokeAll(tasks, m_executionSlots)) {
+	m_ClusterCentroids.add(new DenseInstance(1.0, d));
       }
     } catch (Exception ex) {
       ex.printStackTrace();
@@ -423,7 +405,7 @@ public class SAXKMeans
       int[] clusterAssignments) throws Exception {
     int numPerTask = insts.numInstances() / m_executionSlots;
 
-    List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+    List<KMeansClusterTask> tasks = new ArrayList<KMeansClusterTask>();
     for (int i = 0; i < m_executionSlots; i++) {
       int start = i * numPerTask;
       int end = start + numPerTask;
@@ -431,14 +413,12 @@ public class SAXKMeans
 	end = insts.numInstances();
       }
 
-      Future<Boolean> futureKM = m_executorPool.submit(new KMeansClusterTask(
-	  insts, start, end, clusterAssignments));
-      results.add(futureKM);
+      tasks.add(new KMeansClusterTask(insts, start, end, clusterAssignments));
     }
 
     boolean converged = true;
-    for (Future<Boolean> f : results) {
-      if (!f.get()) {
+    for (Boolean c : WekaSharedExecutor.invokeAll(tasks, m_executionSlots)) {
+      if (!c) {
 	converged = false;
       }
     }
@@ -588,7 +568,6 @@ public class SAXKMeans
     m_squaredErrors = new double[m_NumClusters];
     m_ClusterNominalCounts = new int[m_NumClusters][instances.numAttributes()][0];
     m_ClusterMissingCounts = new int[m_NumClusters][instances.numAttributes()];
-    startExecutorPool();
 
     while (!converged) {
       if (m_speedUpDistanceCompWithCanopies) {
@@ -702,8 +681,6 @@ public class SAXKMeans
       m_ClusterSizes[i] = tempI[i].numInstances();
     }
 
-    m_executorPool.shutdown();
-
     // save memory!
     m_DistanceFunction.clean();
   }
@@ -0,0 +1,71 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceValuesAccess.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core;
+
+/**
+ * Gives access to the internal value array of dense instances, without
+ * copying it. Used for tracking which rows share their values with other
+ * datasets (Weka instances replace the array whenever a value changes).
+ * The returned arrays must not be modified.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InstanceValuesAccess {
+
+  /**
+   * Returns whether the instance is a plain {@link DenseInstance}, i.e.,
+   * whether its values are fully described by its value array.
+   *
+   * @param inst	the instance to check
+   * @return		true if dense instance
+   */
+  public static boolean isDense(Instance inst) {
+    return (inst != null) && (inst.getClass() == DenseInstance.class);
+  }
+
+  /**
+   * Returns the internal value array of the dense instance (no copy).
+   *
+   * @param inst	the instance to get the values from
+   * @return		the value array
+   * @see		#isDense(Instance)
+   */
+  public static double[] values(Instance inst) {
+    return ((AbstractInstance) inst).m_AttValues;
+  }
+
+  /**
+   * Creates a dense instance that uses the value array as is (no copy).
+   *
+   * @param weight	the weight of the instance
+   * @param values	the value array to use
+   * @return		the instance
+   */
+  public static Instance create(double weight, double[] values) {
+    DenseInstance	result;
+
+    result = new DenseInstance(1.0, new double[0]);
+    result.m_AttValues = values;
+    result.m_Weight    = weight;
+
+    return result;
+  }
+}
@@ -258,6 +258,18 @@ public class SAXDistance
     return m_n;
   }
 
+  /**
+   * Returns the lookup table with the distances between the symbols, as
+   * used by {@link #difference(int, double, double)}.
+   *
+   * @return 		the distances, indexed by symbol
+   */
+  public double[][] getDistanceMatrix() {
+    if (m_distMatrix == null)
+      m_distMatrix = adams.data.utils.SAXUtils.calcDistMatrix(adams.data.utils.SAXUtils.calcBreakPoints(m_bins));
+    return m_distMatrix;
+  }
+
   /**
    * Returns the tip text for this property.
    *
@@ -27,6 +27,7 @@ import adams.core.io.FileUtils;
 import adams.data.DateFormatString;
 import adams.data.spreadsheet.SpreadSheetUtils;
 import adams.env.Environment;
+import adams.multiprocess.Performance;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
@@ -50,16 +51,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 /**
- * A simple ARFF loader, only supports batch loading.
+ * A simple ARFF loader, supports batch and incremental loading.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
 public class SimpleArffLoader
   extends AbstractFileLoader
-  implements WeightedInstancesHandler, OptionHandler, EncodingSupporter {
+  implements BatchConverter, IncrementalConverter, WeightedInstancesHandler, OptionHandler, EncodingSupporter {
 
   private static final long serialVersionUID = 8692708185900983930L;
 
@@ -69,6 +75,23 @@ public class SimpleArffLoader
 
   public static final String KEYWORD_DATA = "@data";
 
+  /** the pattern for the weight of a dense row. */
+  protected static final Pattern PATTERN_WEIGHT_DENSE = Pattern.compile(".*,[ ]*\\{-?\\d*\\.?\\d*\\}$");
+
+  /** the pattern for the weight of a sparse row. */
+  protected static final Pattern PATTERN_WEIGHT_SPARSE = Pattern.compile(".*}[ ]*\\{-?\\d*\\.?\\d*\\}$");
+
+  /** the number of rows per block in parallel mode. */
+  public static final int BLOCK_SIZE = 2000;
+
+  /** the size of the read buffer. */
+  public static final int BUFFER_SIZE = 1024 * 1024;
+
+  /** the powers of 10 that can be represented exactly as double. */
+  protected static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
   /** the currently loaded data. */
   protected Instances m_Data;
 
@@ -78,6 +101,21 @@ public class SimpleArffLoader
   /** the encoding to use. */
   protected BaseCharset m_Encoding = new BaseCharset();
 
+  /** the number of threads to use for parsing the data rows. */
+  protected int m_NumThreads = 1;
+
+  /** the structure (incremental mode). */
+  protected Instances m_Structure;
+
+  /** the reader in use (incremental mode). */
+  protected transient BufferedReader m_Reader;
+
+  /** whether the header supports fast parsing (incremental mode). */
+  protected boolean m_FastParsing;
+
+  /** the current line index. */
+  protected int m_LineIndex;
+
   /**
    * Initializes the loader.
    */
@@ -92,7 +130,8 @@ public class SimpleArffLoader
    * @return		the description
    */
   public String globalInfo() {
-    return "Simple ARFF loading functionality of ADAMS. No incremental loading possible. Does not support relational attributes.";
+    return "Simple ARFF loading functionality of ADAMS. Supports incremental loading (only header and current row in memory). Does not support relational attributes.\n"
+      + "Datasets that consist only of numeric and nominal attributes can have their data rows parsed in parallel.";
   }
 
   /**
@@ -150,6 +189,35 @@ public class SimpleArffLoader
     return "The type of encoding to use when reading the file, use empty string for default.";
   }
 
+  /**
+   * Sets the number of threads to use for parsing the data rows.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for parsing the data rows.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use for parsing the data rows; -1 = # of CPUs/cores; 0/1 = sequential execution; "
+      + "only datasets that consist solely of numeric and nominal attributes are parsed in parallel.";
+  }
+
   /**
    * Returns an enumeration of all the available options..
    *
@@ -160,6 +228,7 @@ public class SimpleArffLoader
     Vector<Option> result = new Vector<>();
     result.add(new Option("\tTreat file as gzip-compressed.", "force-compression", 0, "-force-compression"));
     result.add(new Option("\tCharacter set to use for reading the file.", "encoding", 1, "-encoding <charset>"));
+    result.add(new Option("\tThe number of threads to use for parsing the data rows.\n\t(-1 = # of CPUs/cores; 0/1 = sequential execution)\n\t(default: 1)", "num-threads", 1, "-num-threads <num>"));
     return result.elements();
   }
 
@@ -175,6 +244,10 @@ public class SimpleArffLoader
       result.add("-force-compression");
     result.add("-encoding");
     result.add(getEncoding().stringValue());
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
     return result.toArray(new String[result.size()]);
   }
 
@@ -201,6 +274,12 @@ public class SimpleArffLoader
         throw new IllegalArgumentException("Invalid file encoding: " + tmpStr);
       setEncoding(new BaseCharset(tmpStr));
     }
+
+    tmpStr = weka.core.Utils.getOption("num-threads", options);
+    if (tmpStr.isEmpty())
+      setNumThreads(1);
+    else
+      setNumThreads(Integer.parseInt(tmpStr));
   }
 
   /**
@@ -239,7 +318,10 @@ public class SimpleArffLoader
   @Override
   public void reset() throws IOException {
     super.reset();
-    m_Data = null;
+    closeReader();
+    m_Data      = null;
+    m_Structure = null;
+    setRetrieval(NONE);
   }
 
   /**
@@ -509,7 +591,7 @@ public class SimpleArffLoader
 
     weight = 1.0;
 
-    if (line.matches(".*}[ ]*\\{-?\\d*\\.?\\d*\\}$")) {
+    if (line.endsWith("}") && PATTERN_WEIGHT_SPARSE.matcher(line).matches()) {
       weightStr = line.substring(line.lastIndexOf('{') + 1, line.length() - 1);
       line      = line.substring(0, line.lastIndexOf('{'));
       try {
@@ -562,7 +644,7 @@ public class SimpleArffLoader
     double[]	values;
 
     weight = 1.0;
-    if (line.endsWith("}") && line.matches(".*,[ ]*\\{-?\\d*\\.?\\d*\\}$")) {
+    if (line.endsWith("}") && PATTERN_WEIGHT_DENSE.matcher(line).matches()) {
       weightStr = line.substring(line.lastIndexOf('{') + 1, line.length() - 1);
       line      = line.substring(0, line.lastIndexOf('{') - 1);
       try {
@@ -600,65 +682,394 @@ public class SimpleArffLoader
   }
 
   /**
-   * Performs the actual reading.
+   * Parses a number from the specified region of the string, without
+   * creating an intermediate string. Falls back on
+   * {@link Double#parseDouble(String)} for anything other than plain
+   * decimal notation that can be converted exactly.
    *
-   * @param reader	the reader to read from
-   * @return		the spreadsheet or null in case of an error
+   * @param s		the string to parse
+   * @param start	the start of the region (incl)
+   * @param end		the end of the region (excl)
+   * @return		the parsed number
+   * @throws NumberFormatException	if not a valid number
    */
-  protected Instances read(BufferedReader reader) {
-    Instances 			result;
-    String			line;
-    String			lower;
-    boolean			header;
-    int 			lineIndex;
-    ArrayList<Attribute>	atts;
-    String			relName;
-    Attribute			att;
-    Instance			inst;
+  protected static double parseNumber(String s, int start, int end) {
+    int		i;
+    char	c;
+    boolean	negative;
+    boolean	digits;
+    boolean	exact;
+    long	mantissa;
+    int		exp;
+    int		expValue;
+    boolean	expNegative;
+
+    i        = start;
+    negative = false;
+    digits   = false;
+    exact    = true;
+    mantissa = 0;
+    exp      = 0;
+
+    if ((i < end) && ((s.charAt(i) == '-') || (s.charAt(i) == '+'))) {
+      negative = (s.charAt(i) == '-');
+      i++;
+    }
 
-    result = null;
+    // integer part
+    while (i < end) {
+      c = s.charAt(i);
+      if ((c < '0') || (c > '9'))
+	break;
+      digits = true;
+      if (mantissa < 100_000_000_000_000_000L)
+	mantissa = mantissa * 10 + (c - '0');
+      else
+	exact = false;
+      i++;
+    }
+
+    // fraction
+    if ((i < end) && (s.charAt(i) == '.')) {
+      i++;
+      while (i < end) {
+	c = s.charAt(i);
+	if ((c < '0') || (c > '9'))
+	  break;
+	digits = true;
+	if (mantissa < 100_000_000_000_000_000L) {
+	  mantissa = mantissa * 10 + (c - '0');
+	  exp--;
+	}
+	else {
+	  exact = false;
+	}
+	i++;
+      }
+    }
+
+    // exponent
+    if (digits && (i < end) && ((s.charAt(i) == 'e') || (s.charAt(i) == 'E'))) {
+      i++;
+      expNegative = false;
+      if ((i < end) && ((s.charAt(i) == '-') || (s.charAt(i) == '+'))) {
+	expNegative = (s.charAt(i) == '-');
+	i++;
+      }
+      if (i == end)
+	digits = false;
+      expValue = 0;
+      while (i < end) {
+	c = s.charAt(i);
+	if ((c < '0') || (c > '9'))
+	  break;
+	if (expValue < 10_000)
+	  expValue = expValue * 10 + (c - '0');
+	else
+	  exact = false;
+	i++;
+      }
+      exp += expNegative ? -expValue : expValue;
+    }
+
+    // only use result if it can be computed with a single rounding step
+    if (digits && exact && (i == end) && (mantissa < (1L << 53))) {
+      if (mantissa == 0)
+	return negative ? -0.0 : 0.0;
+      if (exp == 0)
+	return negative ? -mantissa : mantissa;
+      if ((exp > 0) && (exp < POWERS_OF_TEN.length))
+	return negative ? -(mantissa * POWERS_OF_TEN[exp]) : mantissa * POWERS_OF_TEN[exp];
+      if ((exp < 0) && (-exp < POWERS_OF_TEN.length))
+	return negative ? -(mantissa / POWERS_OF_TEN[-exp]) : mantissa / POWERS_OF_TEN[-exp];
+    }
+
+    return Double.parseDouble(s.substring(start, end));
+  }
 
-    lineIndex = 0;
-    header    = true;
-    atts      = new ArrayList<>();
-    relName   = m_sourceFile.getName();
+  /**
+   * Parses a dense instance that contains no quotes/escapes, tokenizing the cells
+   * in-place. Only numeric and nominal attributes are supported.
+   *
+   * @param header	the dataset header
+   * @param line	the line to parse
+   * @return		the parsed instance
+   * @throws Exception	if parsing fails
+   * @see		#isFastParsingSupported(Instances)
+   */
+  protected Instance parseDenseFast(Instances header, String line) throws Exception {
+    double	weight;
+    double[]	values;
+    int		len;
+    int		i;
+    int		start;
+    int		end;
+    int		next;
+
+    weight = 1.0;
+    values = new double[header.numAttributes()];
+    len    = line.length();
+    start  = 0;
+    i      = 0;
+    while (start <= len) {
+      next = line.indexOf(',', start);
+      if (next == -1)
+	next = len;
+      end = next;
+      while ((start < end) && (line.charAt(start) <= ' '))
+	start++;
+      while ((end > start) && (line.charAt(end - 1) <= ' '))
+	end--;
+
+      // weight?
+      if ((next == len) && (i > 0) && (end - start > 1) && (line.charAt(start) == '{') && (line.charAt(end - 1) == '}')) {
+	try {
+	  weight = parseNumber(line, start + 1, end - 1);
+	}
+	catch (Exception e) {
+	  System.err.println("Failed to parse weight string: " + line);
+	}
+	break;
+      }
+
+      if (i >= values.length)
+	break;
+
+      if ((end - start == 1) && (line.charAt(start) == '?')) {
+	values[i] = weka.core.Utils.missingValue();
+      }
+      else {
+	switch (header.attribute(i).type()) {
+	  case Attribute.NUMERIC:
+	    values[i] = parseNumber(line, start, end);
+	    break;
+	  case Attribute.NOMINAL:
+	    values[i] = header.attribute(i).indexOfValue(line.substring(start, end));
+	    break;
+	  default:
+	    throw new IllegalStateException("Unsupported attribute type for fast parsing: " + Attribute.typeToString(header.attribute(i)));
+	}
+      }
+
+      i++;
+      start = next + 1;
+    }
+
+    return new DenseInstance(weight, values);
+  }
+
+  /**
+   * Checks whether the dataset consists only of attributes that can be
+   * parsed with {@link #parseDenseFast(Instances, String)}. These
+   * datasets can also be parsed in parallel, as parsing does not modify
+   * the header.
+   *
+   * @param header	the header to check
+   * @return		true if only numeric and nominal attributes
+   */
+  protected boolean isFastParsingSupported(Instances header) {
+    int		i;
+
+    for (i = 0; i < header.numAttributes(); i++) {
+      if ((header.attribute(i).type() != Attribute.NUMERIC) && (header.attribute(i).type() != Attribute.NOMINAL))
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Parses a data row.
+   *
+   * @param header	the dataset header
+   * @param line	the line to parse
+   * @param fast	whether fast parsing is supported for the header
+   * @return		the parsed instance
+   * @throws Exception	if parsing fails
+   */
+  protected Instance parseRow(Instances header, String line, boolean fast) throws Exception {
+    if (line.startsWith("{"))
+      return parseSparse(header, line);
+    else if (fast && (line.indexOf('\'') == -1) && (line.indexOf('"') == -1) && (line.indexOf('\\') == -1))
+      return parseDenseFast(header, line);
+    else
+      return parseDense(header, line);
+  }
+
+  /**
+   * Parses the data rows in blocks, using the specified number of threads.
+   * The instances get added to the dataset in the order they were read.
+   *
+   * @param reader	the reader to read the rows from
+   * @param data	the dataset to add the instances to
+   * @param numThreads	the number of threads to use
+   * @param lineIndex	the current line index
+   * @throws Exception	if reading/parsing fails
+   */
+  protected void readParallel(BufferedReader reader, Instances data, int numThreads, int lineIndex) throws Exception {
+    ExecutorService			executor;
+    List<Future<List<Instance>>>	pending;
+    List<String>			lines;
+    int[]				indices;
+    String				line;
+
+    executor = Executors.newFixedThreadPool(numThreads);
+    pending  = new ArrayList<>();
     try {
+      lines   = new ArrayList<>(BLOCK_SIZE);
+      indices = new int[BLOCK_SIZE];
       while ((line = reader.readLine()) != null) {
 	lineIndex++;
-
 	line = line.trim();
 	if (line.isEmpty())
 	  continue;
 	if (line.startsWith("%"))
 	  continue;
+	indices[lines.size()] = lineIndex;
+	lines.add(line);
+	if (lines.size() == BLOCK_SIZE) {
+	  pending.add(executor.submit(newBlockParser(data, lines, indices)));
+	  lines   = new ArrayList<>(BLOCK_SIZE);
+	  indices = new int[BLOCK_SIZE];
+	  // limit the number of blocks kept in memory
+	  while (pending.size() >= numThreads * 2)
+	    addBlock(data, pending.remove(0));
+	}
+      }
+      if (!lines.isEmpty())
+	pending.add(executor.submit(newBlockParser(data, lines, indices)));
+      while (!pending.isEmpty())
+	addBlock(data, pending.remove(0));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
 
-	if (header) {
-	  lower = line.toLowerCase();
-	  if (lower.startsWith(KEYWORD_RELATION)) {
-	    relName = line.substring(KEYWORD_RELATION.length()).trim();
-	    relName = Utils.unquote(relName);
-	  }
-	  else if (lower.startsWith(KEYWORD_ATTRIBUTE)) {
-	    att = createAttribute(line);
-	    atts.add(att);
+  /**
+   * Creates a job for parsing a block of lines.
+   *
+   * @param header	the dataset header
+   * @param lines	the lines to parse
+   * @param indices	the line indices (for error messages)
+   * @return		the job
+   */
+  protected Callable<List<Instance>> newBlockParser(final Instances header, final List<String> lines, final int[] indices) {
+    return new Callable<List<Instance>>() {
+      @Override
+      public List<Instance> call() throws Exception {
+	List<Instance>	result;
+	int		i;
+
+	result = new ArrayList<>(lines.size());
+	for (i = 0; i < lines.size(); i++) {
+	  try {
+	    result.add(parseRow(header, lines.get(i), true));
 	  }
-	  else if (lower.startsWith(KEYWORD_DATA)) {
-	    header = false;
-	    result = new Instances(relName, atts, 0);
+	  catch (Exception e) {
+	    throw new IllegalStateException("Failed to parse line #" + indices[i] + ": " + lines.get(i), e);
 	  }
 	}
-	else if (line.startsWith("{")) {
-	  inst = parseSparse(result, line);
-	  result.add(inst);
-	}
-	else {
-	  inst = parseDense(result, line);
-	  result.add(inst);
-	}
+	return result;
+      }
+    };
+  }
+
+  /**
+   * Waits for the block to finish parsing and adds the instances.
+   *
+   * @param data	the dataset to add the instances to
+   * @param block	the block to wait for
+   * @throws Exception	if parsing failed
+   */
+  protected void addBlock(Instances data, Future<List<Instance>> block) throws Exception {
+    for (Instance inst: block.get())
+      data.add(inst);
+  }
+
+  /**
+   * Reads the next data line, skipping empty lines and comments.
+   *
+   * @param reader	the reader to read from
+   * @return		the trimmed line, null if no more data
+   * @throws IOException	if reading fails
+   */
+  protected String readDataLine(BufferedReader reader) throws IOException {
+    String	line;
+
+    while ((line = reader.readLine()) != null) {
+      m_LineIndex++;
+      line = line.trim();
+      if (line.isEmpty())
+	continue;
+      if (line.startsWith("%"))
+	continue;
+      return line;
+    }
+
+    return null;
+  }
+
+  /**
+   * Reads the header, up to and including the @data line.
+   *
+   * @param reader	the reader to read from
+   * @return		the header
+   * @throws Exception	if reading fails or no @data section present
+   */
+  protected Instances readHeader(BufferedReader reader) throws Exception {
+    String			line;
+    String			lower;
+    ArrayList<Attribute>	atts;
+    String			relName;
+
+    atts    = new ArrayList<>();
+    relName = m_sourceFile.getName();
+    while ((line = readDataLine(reader)) != null) {
+      lower = line.toLowerCase();
+      if (lower.startsWith(KEYWORD_RELATION)) {
+	relName = line.substring(KEYWORD_RELATION.length()).trim();
+	relName = Utils.unquote(relName);
+      }
+      else if (lower.startsWith(KEYWORD_ATTRIBUTE)) {
+	atts.add(createAttribute(line));
+      }
+      else if (lower.startsWith(KEYWORD_DATA)) {
+	return new Instances(relName, atts, 0);
+      }
+    }
+
+    throw new IllegalStateException("No " + KEYWORD_DATA + " section found!");
+  }
+
+  /**
+   * Performs the actual reading.
+   *
+   * @param reader	the reader to read from
+   * @return		the spreadsheet or null in case of an error
+   */
+  protected Instances read(BufferedReader reader) {
+    Instances 			result;
+    String			line;
+    boolean			fast;
+    int				numThreads;
+
+    result      = null;
+    m_LineIndex = 0;
+    try {
+      result     = readHeader(reader);
+      fast       = isFastParsingSupported(result);
+      numThreads = Performance.determineNumThreads(m_NumThreads);
+      if (fast && (numThreads > 1)) {
+	readParallel(reader, result, numThreads, m_LineIndex);
+      }
+      else {
+	while ((line = readDataLine(reader)) != null)
+	  result.add(parseRow(result, line, fast));
       }
     }
     catch (Exception e) {
-      System.err.println("Failed to read ARFF data from reader (line #" + (lineIndex +1) + ")!");
+      System.err.println("Failed to read ARFF data from reader (line #" + (m_LineIndex + 1) + ")!");
       e.printStackTrace();
       result = null;
     }
@@ -667,16 +1078,71 @@ public class SimpleArffLoader
   }
 
   /**
-   * Returns the structure of the dataset.
+   * Opens the source file for reading, decompressing it if necessary.
+   *
+   * @return		the reader
+   * @throws IOException	if opening fails
+   */
+  protected BufferedReader openReader() throws IOException {
+    FileInputStream	fis;
+    Charset		charset;
+
+    if (!m_sourceFile.exists())
+      throw new IOException("File does not exist: " + m_sourceFile);
+    if (m_sourceFile.isDirectory())
+      throw new IOException("File points to directory: " + m_sourceFile);
+
+    fis     = new FileInputStream(m_sourceFile.getAbsolutePath());
+    charset = m_Encoding.charsetValue();
+    try {
+      if (m_sourceFile.getName().endsWith(".gz") || m_ForceCompression)
+	return new BufferedReader(new InputStreamReader(new GZIPInputStream(fis, BUFFER_SIZE), charset.newDecoder()), BUFFER_SIZE);
+      else
+	return new BufferedReader(new InputStreamReader(fis, charset.newDecoder()), BUFFER_SIZE);
+    }
+    catch (IOException e) {
+      FileUtils.closeQuietly(fis);
+      throw e;
+    }
+  }
+
+  /**
+   * Closes the reader used for incremental loading, if any.
+   */
+  protected void closeReader() {
+    if (m_Reader != null) {
+      FileUtils.closeQuietly(m_Reader);
+      m_Reader = null;
+    }
+  }
+
+  /**
+   * Returns the structure of the dataset. Only reads the header section
+   * of the file.
    *
    * @return		the structure
    * @throws IOException	if failed to read
    */
   @Override
   public Instances getStructure() throws IOException {
-    if (m_Data == null)
-      return new Instances(getDataSet(), 0);
-    return new Instances(m_Data, 0);
+    if (m_Data != null)
+      return new Instances(m_Data, 0);
+
+    if (m_Structure == null) {
+      closeReader();
+      m_Reader    = openReader();
+      m_LineIndex = 0;
+      try {
+	m_Structure = readHeader(m_Reader);
+      }
+      catch (Exception e) {
+	closeReader();
+	throw new IOException("Failed to read header from: " + m_sourceFile, e);
+      }
+      m_FastParsing = isFastParsingSupported(m_Structure);
+    }
+
+    return new Instances(m_Structure, 0);
   }
 
   /**
@@ -689,37 +1155,18 @@ public class SimpleArffLoader
   public Instances getDataSet() throws IOException {
     Instances		result;
     BufferedReader	breader;
-    FileInputStream	fis;
-    GZIPInputStream	gis;
-    InputStreamReader	isr;
-    Charset		charset;
 
     if (m_Data != null)
       return m_Data;
 
-    if (!m_sourceFile.exists())
-      throw new IOException("File does not exist: " + m_sourceFile);
-    if (m_sourceFile.isDirectory())
-      throw new IOException("File points to directory: " + m_sourceFile);
+    if (getRetrieval() == INCREMENTAL)
+      throw new IOException("Cannot mix getting instances in both incremental and batch modes!");
+    setRetrieval(BATCH);
+    closeReader();
 
-    breader = null;
-    isr     = null;
-    gis     = null;
-    fis     = null;
-    charset = m_Encoding.charsetValue();
+    breader = openReader();
     try {
-      if (m_sourceFile.getName().endsWith(".gz") || m_ForceCompression) {
-	fis     = new FileInputStream(m_sourceFile.getAbsolutePath());
-	gis     = new GZIPInputStream(fis);
-	isr     = new InputStreamReader(gis, charset.newDecoder());
-	breader = new BufferedReader(isr);
-      }
-      else {
-	fis     = new FileInputStream(m_sourceFile.getAbsolutePath());
-	isr     = new InputStreamReader(fis, charset.newDecoder());
-        breader = new BufferedReader(isr);
-      }
-      result  = read(breader);
+      result = read(breader);
     }
     catch (Exception e) {
       System.err.println("Failed to read: " + m_sourceFile);
@@ -728,24 +1175,49 @@ public class SimpleArffLoader
     }
     finally {
       FileUtils.closeQuietly(breader);
-      FileUtils.closeQuietly(isr);
-      FileUtils.closeQuietly(gis);
-      FileUtils.closeQuietly(fis);
     }
 
     return result;
   }
 
   /**
-   * Not supported.
+   * Reads the next instance from the file. The reader only keeps the
+   * current row in memory.
    *
    * @param structure	the structure
-   * @return		the instance
-   * @throws IOException	always
+   * @return		the instance, null if no more data available
+   * @throws IOException	if reading or parsing fails
    */
   @Override
   public Instance getNextInstance(Instances structure) throws IOException {
-    throw new IOException("Incremental mode not supported!");
+    String	line;
+    Instance	result;
+
+    if (getRetrieval() == BATCH)
+      throw new IOException("Cannot mix getting instances in both incremental and batch modes!");
+    setRetrieval(INCREMENTAL);
+
+    if (m_Structure == null)
+      getStructure();
+    if (m_Reader == null)
+      return null;
+
+    line = readDataLine(m_Reader);
+    if (line == null) {
+      closeReader();
+      return null;
+    }
+
+    try {
+      result = parseRow(m_Structure, line, m_FastParsing);
+    }
+    catch (Exception e) {
+      closeReader();
+      throw new IOException("Failed to parse line #" + m_LineIndex + ": " + line, e);
+    }
+    result.setDataset(structure);
+
+    return result;
   }
 
   /**
@@ -26,6 +26,7 @@ import adams.core.io.EncodingSupporter;
 import adams.core.io.FileUtils;
 import weka.core.Capabilities;
 import weka.core.Capabilities.Capability;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.RevisionUtils;
@@ -45,7 +46,7 @@ import java.util.zip.GZIPOutputStream;
 
 /**
  <!-- globalinfo-start -->
- * Writes the Instances to an ARFF file in batch mode.
+ * Writes the Instances to an ARFF file in batch or incremental mode.
  * <br><br>
  <!-- globalinfo-end -->
  *
@@ -72,7 +73,7 @@ import java.util.zip.GZIPOutputStream;
  */
 public class SimpleArffSaver
   extends AbstractFileSaver
-  implements BatchConverter, WeightedInstancesHandler, EncodingSupporter {
+  implements BatchConverter, IncrementalConverter, WeightedInstancesHandler, EncodingSupporter {
 
   /** for serialization */
   private static final long serialVersionUID = -6155802217430401683L;
@@ -80,6 +81,9 @@ public class SimpleArffSaver
   /** the default number of decimal places. */
   public final static int DEFAULT_MAX_DECIMAL_PLACES = 6;
 
+  /** the size of the write buffer. */
+  public final static int BUFFER_SIZE = 1024 * 1024;
+
   /** the file to write to. */
   protected File m_OutputFile;
 
@@ -89,6 +93,9 @@ public class SimpleArffSaver
   /** the encoding to use. */
   protected BaseCharset m_Encoding = new BaseCharset();
 
+  /** the writer in use (incremental mode). */
+  protected transient BufferedWriter m_Writer;
+
   /**
    * Constructor
    */
@@ -104,7 +111,7 @@ public class SimpleArffSaver
    * 			displaying in the explorer/experimenter gui
    */
   public String globalInfo() {
-    return "Writes the Instances to an ARFF file in batch mode.";
+    return "Writes the Instances to an ARFF file in batch or incremental mode.";
   }
 
   /**
@@ -316,6 +323,67 @@ public class SimpleArffSaver
     throw new IOException("Writing to an outputstream not supported");
   }
 
+  /**
+   * Opens the output file for writing, compressing it if necessary.
+   *
+   * @return		the writer
+   * @throws IOException	if opening fails
+   */
+  protected BufferedWriter openWriter() throws IOException {
+    FileOutputStream	fos;
+    Charset 		charset;
+
+    fos     = new FileOutputStream(m_OutputFile.getAbsoluteFile());
+    charset = m_Encoding.charsetValue();
+    try {
+      if (m_OutputFile.getName().endsWith(".gz"))
+	return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fos, BUFFER_SIZE), charset.newEncoder()), BUFFER_SIZE);
+      else
+	return new BufferedWriter(new OutputStreamWriter(fos, charset.newEncoder()), BUFFER_SIZE);
+    }
+    catch (IOException e) {
+      FileUtils.closeQuietly(fos);
+      throw e;
+    }
+  }
+
+  /**
+   * Writes the header of the dataset, including the @data line.
+   *
+   * @param writer	the writer to use
+   * @param data	the dataset to write the header for
+   * @throws IOException	if writing fails
+   */
+  protected void writeHeader(BufferedWriter writer, Instances data) throws IOException {
+    int		i;
+
+    writer.write(Instances.ARFF_RELATION);
+    writer.write(" ");
+    writer.write(Utils.quote(data.relationName()));
+    writer.write("\n\n");
+
+    for (i = 0; i < data.numAttributes(); i++) {
+      writer.write(data.attribute(i).toString());
+      writer.write("\n");
+    }
+    writer.write("\n");
+
+    writer.write(Instances.ARFF_DATA);
+    writer.write("\n");
+  }
+
+  /**
+   * Writes a single data row.
+   *
+   * @param writer	the writer to use
+   * @param inst	the row to write
+   * @throws IOException	if writing fails
+   */
+  protected void writeInstance(BufferedWriter writer, Instance inst) throws IOException {
+    writer.write(inst.toStringMaxDecimalDigits(m_MaxDecimalPlaces));
+    writer.write("\n");
+  }
+
   /**
    * Writes a Batch of instances
    *
@@ -324,13 +392,9 @@ public class SimpleArffSaver
    */
   @Override
   public void writeBatch() throws IOException {
-    FileOutputStream		fos;
-    GZIPOutputStream		gos;
-    OutputStreamWriter		ow;
     BufferedWriter		bw;
     Instances			data;
     int				i;
-    Charset 			charset;
 
     if (getInstances() == null)
       throw new IOException("No instances to save!");
@@ -344,53 +408,93 @@ public class SimpleArffSaver
     setRetrieval(BATCH);
     setWriteMode(WRITE);
 
-    fos     = null;
-    gos     = null;
-    ow      = null;
-    bw      = null;
-    data    = getInstances();
-    charset = m_Encoding.charsetValue();
+    bw   = null;
+    data = getInstances();
     try {
-      fos = new FileOutputStream(m_OutputFile.getAbsoluteFile());
-      if (m_OutputFile.getName().endsWith(".gz")) {
-	gos = new GZIPOutputStream(fos);
-	ow  = new OutputStreamWriter(gos, charset.newEncoder());
-	bw  = new BufferedWriter(ow);
+      bw = openWriter();
+      writeHeader(bw, data);
+      for (i = 0; i < data.numInstances(); i++)
+	writeInstance(bw, data.instance(i));
+    }
+    catch (Exception e) {
+      System.err.println("Failed to write data to: " + m_OutputFile);
+      e.printStackTrace();
+    }
+    finally {
+      FileUtils.closeQuietly(bw);
+    }
+  }
+
+  /**
+   * Writes the instance to the file, the header gets written before the
+   * first instance. A null instance finishes the file.
+   *
+   * @param inst	the instance to write, null to finish
+   * @throws IOException	if writing fails
+   */
+  @Override
+  public void writeIncremental(Instance inst) throws IOException {
+    int		writeMode;
+    Instances	structure;
+
+    if ((getRetrieval() == BATCH) || (getRetrieval() == NONE))
+      throw new IOException("Batch and incremental saving cannot be mixed.");
+
+    writeMode = getWriteMode();
+    structure = getInstances();
+
+    if (writeMode == WAIT) {
+      if (structure == null) {
+	setWriteMode(CANCEL);
+	if (inst != null)
+	  System.err.println("Structure (header information) has to be set in advance");
       }
       else {
-	ow  = new OutputStreamWriter(fos, charset.newEncoder());
-	bw  = new BufferedWriter(ow);
+	setWriteMode(STRUCTURE_READY);
       }
+      writeMode = getWriteMode();
+    }
 
-      // header
-      bw.write(Instances.ARFF_RELATION);
-      bw.write(" ");
-      bw.write(Utils.quote(data.relationName()));
-      bw.write("\n\n");
-
-      for (i = 0; i < data.numAttributes(); i++) {
-	bw.write(data.attribute(i).toString());
-	bw.write("\n");
-      }
-      bw.write("\n");
+    if (writeMode == CANCEL) {
+      closeWriter();
+      cancel();
+      return;
+    }
 
-      bw.write(Instances.ARFF_DATA);
-      bw.write("\n");
+    if (writeMode == STRUCTURE_READY) {
+      if (m_OutputFile == null)
+	throw new IOException("No output file set!");
+      setWriteMode(WRITE);
+      closeWriter();
+      m_Writer = openWriter();
+      writeHeader(m_Writer, structure);
+      writeMode = getWriteMode();
+    }
 
-      for (i = 0; i < data.numInstances(); i++) {
-	bw.write(data.instance(i).toStringMaxDecimalDigits(m_MaxDecimalPlaces));
-	bw.write("\n");
+    if (writeMode == WRITE) {
+      if (structure == null)
+	throw new IOException("No instances information available.");
+      if (inst != null) {
+	if (inst.dataset() == null) {
+	  inst = (Instance) inst.copy();
+	  inst.setDataset(structure);
+	}
+	writeInstance(m_Writer, inst);
+      }
+      else {
+	closeWriter();
+	resetStructure();
       }
     }
-    catch (Exception e) {
-      System.err.println("Failed to write data to: " + m_OutputFile);
-      e.printStackTrace();
-    }
-    finally {
-      FileUtils.closeQuietly(bw);
-      FileUtils.closeQuietly(ow);
-      FileUtils.closeQuietly(gos);
-      FileUtils.closeQuietly(fos);
+  }
+
+  /**
+   * Closes the writer used for incremental saving, if any.
+   */
+  protected void closeWriter() {
+    if (m_Writer != null) {
+      FileUtils.closeQuietly(m_Writer);
+      m_Writer = null;
     }
   }
 
@@ -21,7 +21,6 @@
 package weka.core.neighboursearch;
 
 import java.util.Enumeration;
-import java.util.Iterator;
 import java.util.Vector;
 
 import weka.core.Instance;
@@ -119,64 +118,6 @@ public class FilteredSearch
   }
   
   
-  
-  /**
-   * Returns k nearest instances in the current neighbourhood to the supplied
-   * instance.
-   *  
-   * @param target 	The instance to find the k nearest neighbours for.
-   * @param kNN		The number of nearest neighbours to find.
-   * @return		the k nearest neighbors
-   * @throws Exception  if the neighbours could not be found.
-   */
-  @Override
-  public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
-  
-    if(m_Stats!=null)
-      m_Stats.searchStart();
-    m_neighbours.clear();
-    double distance; 
-    double last_distance=Double.POSITIVE_INFINITY;
-    Instance t_instance=transformInstance(target);
-    for(int i=0; i<m_Instances.numInstances(); i++) {
-      if(target == m_Instances.instance(i)) {//for hold-one-out cross-validation
-        continue;
-      }
-      if(m_Stats!=null) {
-        m_Stats.incrPointCount();
-      }
-      distance = m_DistanceFunction.distance(t_instance, m_myInstances.instance(i), last_distance, m_Stats);
-      if(distance == 0.0 && m_SkipIdentical) {
-	continue;
-      }
-      if (distance < last_distance){
-	this.m_neighbours.add(new InstanceNode(i,distance));
-	if (m_neighbours.size() > kNN){
-	  m_neighbours.remove(m_neighbours.size()-1);
-	  last_distance=m_neighbours.get(m_neighbours.size() - 1).distance;
-	}
-      }      
-    }
-    Instances neighbours = new Instances(m_Instances,m_neighbours.size() );   
-    int index=0;
-    m_Distances = new double[m_neighbours.size()];
-    Iterator<InstanceNode> iter = m_neighbours.iterator();
-
-    while(iter.hasNext()){
-      InstanceNode in=iter.next();
-      m_Distances[index++]=in.distance;
-      //System.err.print(in.distance+" ");
-      neighbours.add(m_Instances.instance(in.instance_index));
-    }
-    //System.err.println("\n"+neighbours.toString()+"\n");
-    m_DistanceFunction.postProcessDistances(m_Distances);
-    if(m_Stats!=null)
-      m_Stats.searchFinish();
-    
-    return neighbours;    
-  }
-  
-  
   /** 
    * Sets the instances comprising the current neighbourhood.
    * 
@@ -193,24 +134,6 @@ public class FilteredSearch
     m_DistanceFunction.setInstances(t_instances);
   }
   
-  /** 
-   * Updates the LinearNNSearch to cater for the new added instance. This 
-   * implementation only updates the ranges of the DistanceFunction class, 
-   * since our set of instances is passed by reference and should already have 
-   * the newly added instance.
-   * 
-   * @param ins 	The instance to add. Usually this is the instance that 
-   * 			is added to our neighbourhood i.e. the training 
-   * 			instances.
-   * @throws Exception	if the given instances are null
-   */
-  @Override
-  public void update(Instance ins) throws Exception {
-    if(m_Instances==null)
-      throw new Exception("No instances supplied yet. Cannot update without"+
-                          "supplying a set of instances first.");
-    m_DistanceFunction.update(this.transformInstance(ins));
-  }
   
   /** 
    * Adds the given instance info. This implementation updates the range
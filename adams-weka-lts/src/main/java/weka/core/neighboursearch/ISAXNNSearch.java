@@ -0,0 +1,837 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ISAXNNSearch.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.neighboursearch;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.RevisionUtils;
+import weka.core.SAXDistance;
+import weka.core.Utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ <!-- globalinfo-start -->
+ * Nearest neighbour search for SAX words (eg generated by the SAX filter) using an iSAX-style index: the words get packed into bit strings and stored in a binary tree, with each split increasing the cardinality of a single position of the word by one bit. Queries visit the nodes best-first, pruning nodes whose lower bound (MINDIST) exceeds the distance of the current k-th neighbour. The search is exact, returning the same neighbours as a brute force search with weka.core.SAXDistance (ties are resolved using the instance index).<br>
+ * <br>
+ * For more information see:<br>
+ * <br>
+ * Jin Shieh, Eamonn Keogh: iSAX: Indexing and Mining Terabyte Sized Time Series. In: Proceedings of the 14th ACM SIGKDD International Conference on Knowledge Discovery and Data Mining, 623-631, 2008.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <br><br>
+ *
+ * <pre> -leaf-size &lt;int&gt;
+ *  The maximum number of instances in a leaf before it gets split.
+ *  (default: 100)
+ * </pre>
+ *
+ * <pre> -S
+ *  Skip identical instances (distances equal to zero).
+ * </pre>
+ *
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for scanning the instances;
+ *  -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)
+ * </pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ISAXNNSearch
+  extends NewNNSearch {
+
+  /** for serialization. */
+  private static final long serialVersionUID = -5197441466380497313L;
+
+  /** the default maximum number of instances per leaf. */
+  public final static int DEFAULT_LEAF_SIZE = 100;
+
+  /**
+   * A node of the index. The region of the node is given by a prefix of
+   * the bits of the symbols at each position of the word.
+   */
+  protected static class Node
+    implements Serializable {
+
+    private static final long serialVersionUID = 4766093427412599186L;
+
+    /** the number of bits of each position (shared with the sibling). */
+    protected byte[] m_Bits;
+
+    /** the prefix of each position. */
+    protected int[] m_Prefix;
+
+    /** the position used for splitting, -1 for leaves. */
+    protected int m_SplitPosition;
+
+    /** the child with the next bit 0. */
+    protected Node m_Zero;
+
+    /** the child with the next bit 1. */
+    protected Node m_One;
+
+    /** the rows stored in the leaf. */
+    protected int[] m_Rows;
+
+    /** the number of rows stored in the leaf. */
+    protected int m_Size;
+
+    /** whether the leaf can be split (false if all its words are identical). */
+    protected boolean m_Splittable;
+
+    /**
+     * Initializes the leaf.
+     *
+     * @param bits	the number of bits of each position
+     * @param prefix	the prefix of each position
+     */
+    public Node(byte[] bits, int[] prefix) {
+      m_Bits          = bits;
+      m_Prefix        = prefix;
+      m_SplitPosition = -1;
+      m_Rows          = new int[8];
+      m_Size          = 0;
+      m_Splittable    = true;
+    }
+
+    /**
+     * Returns whether the node is a leaf.
+     *
+     * @return		true if a leaf
+     */
+    public boolean isLeaf() {
+      return (m_SplitPosition == -1);
+    }
+
+    /**
+     * Adds the row to the leaf.
+     *
+     * @param row	the row to add
+     */
+    public void add(int row) {
+      if (m_Size == m_Rows.length)
+	m_Rows = Arrays.copyOf(m_Rows, m_Rows.length * 2);
+      m_Rows[m_Size++] = row;
+    }
+  }
+
+  /**
+   * A node waiting to be visited, ordered by its lower bound.
+   */
+  protected static class Candidate
+    implements Comparable<Candidate> {
+
+    /** the node. */
+    protected Node m_Node;
+
+    /** the lower bound of the (squared) distance. */
+    protected double m_Bound;
+
+    /**
+     * Initializes the candidate.
+     *
+     * @param node	the node
+     * @param bound	the lower bound
+     */
+    public Candidate(Node node, double bound) {
+      m_Node  = node;
+      m_Bound = bound;
+    }
+
+    /**
+     * Compares the lower bounds.
+     *
+     * @param o		the other candidate
+     * @return		less than, equal to or greater than zero
+     */
+    @Override
+    public int compareTo(Candidate o) {
+      return Double.compare(m_Bound, o.m_Bound);
+    }
+  }
+
+  /** the maximum number of instances per leaf. */
+  protected int m_LeafSize = DEFAULT_LEAF_SIZE;
+
+  /** the indices of the attributes making up the words. */
+  protected int[] m_Positions;
+
+  /** the number of symbols. */
+  protected int m_Bins;
+
+  /** the number of bits per symbol. */
+  protected int m_BitsPerSymbol;
+
+  /** the mask for a single symbol. */
+  protected long m_Mask;
+
+  /** the number of symbols per long. */
+  protected int m_SymbolsPerLong;
+
+  /** the number of longs per word. */
+  protected int m_WordLength;
+
+  /** the packed words of all the indexed rows. */
+  protected long[] m_Words;
+
+  /** the number of rows that have been indexed. */
+  protected int m_NumIndexed;
+
+  /** the squared distances between the symbols. */
+  protected double[][] m_SqDist;
+
+  /** the root of the index. */
+  protected Node m_Root;
+
+  /**
+   * Constructor. Needs setInstances(Instances)
+   * to be called before the class is usable.
+   */
+  public ISAXNNSearch() {
+    super();
+    m_DistanceFunction = new SAXDistance();
+  }
+
+  /**
+   * Constructor that indexes the supplied set of instances.
+   *
+   * @param insts	the instances to use
+   * @throws Exception	if indexing fails
+   */
+  public ISAXNNSearch(Instances insts) throws Exception {
+    this();
+    setInstances(insts);
+  }
+
+  /**
+   * Returns a string describing this nearest neighbour search algorithm.
+   *
+   * @return 		a description of the algorithm for displaying in the
+   * 			explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return
+        "Nearest neighbour search for SAX words (eg generated by the SAX "
+      + "filter) using an iSAX-style index: the words get packed into bit "
+      + "strings and stored in a binary tree, with each split increasing the "
+      + "cardinality of a single position of the word by one bit. Queries "
+      + "visit the nodes best-first, pruning nodes whose lower bound (MINDIST) "
+      + "exceeds the distance of the current k-th neighbour. The search is "
+      + "exact, returning the same neighbours as a brute force search with "
+      + SAXDistance.class.getName() + " (ties are resolved using the instance "
+      + "index).\n\n"
+      + "For more information see:\n\n"
+      + "Jin Shieh, Eamonn Keogh: iSAX: Indexing and Mining Terabyte Sized "
+      + "Time Series. In: Proceedings of the 14th ACM SIGKDD International "
+      + "Conference on Knowledge Discovery and Data Mining, 623-631, 2008.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return 		an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration listOptions() {
+    Vector	result;
+    Enumeration	enm;
+
+    result = new Vector();
+
+    result.add(new Option(
+	"\tThe maximum number of instances in a leaf before it gets split.\n"
+	+ "\t(default: " + DEFAULT_LEAF_SIZE + ")",
+	"leaf-size", 1, "-leaf-size <int>"));
+
+    enm = super.listOptions();
+    while (enm.hasMoreElements())
+      result.add(enm.nextElement());
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options. <br><br>
+   *
+   <!-- options-start -->
+   * Valid options are: <br><br>
+   *
+   * <pre> -leaf-size &lt;int&gt;
+   *  The maximum number of instances in a leaf before it gets split.
+   *  (default: 100)
+   * </pre>
+   *
+   * <pre> -S
+   *  Skip identical instances (distances equal to zero).
+   * </pre>
+   *
+   * <pre> -num-threads &lt;int&gt;
+   *  The number of threads to use for scanning the instances;
+   *  -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+   *  (default: 1)
+   * </pre>
+   *
+   <!-- options-end -->
+   *
+   * @param options 	the list of options as an array of strings
+   * @throws Exception 	if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+    boolean	hasDistance;
+
+    hasDistance = (Utils.getOptionPos('A', options) > -1);
+
+    tmpStr = Utils.getOption("leaf-size", options);
+    if (tmpStr.length() != 0)
+      setLeafSize(Integer.parseInt(tmpStr));
+    else
+      setLeafSize(DEFAULT_LEAF_SIZE);
+
+    super.setOptions(options);
+
+    // the superclass defaults to the Euclidean distance
+    if (!hasDistance)
+      setDistanceFunction(new SAXDistance());
+  }
+
+  /**
+   * Gets the current settings.
+   *
+   * @return 		an array of strings suitable for passing to setOptions()
+   */
+  @Override
+  public String[] getOptions() {
+    Vector<String>	result;
+    String[]		options;
+    int			i;
+
+    result = new Vector<String>();
+
+    result.add("-leaf-size");
+    result.add("" + getLeafSize());
+
+    options = super.getOptions();
+    for (i = 0; i < options.length; i++)
+      result.add(options[i]);
+
+    return result.toArray(new String[result.size()]);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String leafSizeTipText() {
+    return "The maximum number of instances in a leaf before it gets split.";
+  }
+
+  /**
+   * Sets the maximum number of instances in a leaf before it gets split.
+   *
+   * @param value 	the maximum number
+   */
+  public void setLeafSize(int value) {
+    if (value > 0)
+      m_LeafSize = value;
+    else
+      throw new IllegalArgumentException("Leaf size must be at least 1, provided: " + value);
+  }
+
+  /**
+   * Returns the maximum number of instances in a leaf before it gets split.
+   *
+   * @return 		the maximum number
+   */
+  public int getLeafSize() {
+    return m_LeafSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  @Override
+  public String numThreadsTipText() {
+    return "Not used, as the queries use the index rather than scanning the instances.";
+  }
+
+  /**
+   * Sets the instances comprising the current neighbourhood and builds
+   * the index.
+   *
+   * @param insts 	The set of instances on which the nearest neighbour
+   * 			search is carried out. Usually this set is the
+   * 			training set.
+   * @throws Exception	if setting of instances fails
+   */
+  @Override
+  public void setInstances(Instances insts) throws Exception {
+    super.setInstances(insts);
+    buildIndex();
+  }
+
+  /**
+   * Initializes the index and adds all the instances.
+   *
+   * @throws Exception	if the distance function is not SAXDistance or the
+   * 			instances don't contain SAX symbols
+   */
+  protected void buildIndex() throws Exception {
+    SAXDistance		distance;
+    double[][]		matrix;
+    Range		range;
+    int[]		positions;
+    int			numPositions;
+    int			i;
+    int			n;
+
+    if (!(m_DistanceFunction instanceof SAXDistance))
+      throw new IllegalStateException(
+	"Distance function must be " + SAXDistance.class.getName() + ", found: "
+	  + m_DistanceFunction.getClass().getName());
+    distance = (SAXDistance) m_DistanceFunction;
+
+    // squared distances between symbols
+    m_Bins   = distance.getBins();
+    matrix   = distance.getDistanceMatrix();
+    m_SqDist = new double[m_Bins][m_Bins];
+    for (i = 0; i < m_Bins; i++) {
+      for (n = 0; n < m_Bins; n++)
+	m_SqDist[i][n] = matrix[i][n] * matrix[i][n];
+    }
+
+    // positions: same attributes as the distance function
+    range = new Range(distance.getAttributeIndices());
+    range.setInvert(distance.getInvertSelection());
+    range.setUpper(m_Instances.numAttributes() - 1);
+    positions    = new int[m_Instances.numAttributes()];
+    numPositions = 0;
+    for (i = 0; i < m_Instances.numAttributes(); i++) {
+      if ((i != m_Instances.classIndex()) && range.isInRange(i))
+	positions[numPositions++] = i;
+    }
+    m_Positions = Arrays.copyOf(positions, numPositions);
+
+    // packing
+    m_BitsPerSymbol  = Math.max(1, 32 - Integer.numberOfLeadingZeros(m_Bins - 1));
+    m_Mask           = (1L << m_BitsPerSymbol) - 1;
+    m_SymbolsPerLong = 64 / m_BitsPerSymbol;
+    m_WordLength     = Math.max(1, (m_Positions.length + m_SymbolsPerLong - 1) / m_SymbolsPerLong);
+    m_Words          = new long[Math.max(1, m_Instances.numInstances()) * m_WordLength];
+    m_NumIndexed     = 0;
+    m_Root           = new Node(new byte[m_Positions.length], new int[m_Positions.length]);
+
+    indexNewRows();
+  }
+
+  /**
+   * Adds the rows of the instances that haven't been indexed yet.
+   *
+   * @throws Exception	if the instances don't contain SAX symbols
+   */
+  protected void indexNewRows() throws Exception {
+    int		row;
+
+    for (row = m_NumIndexed; row < m_Instances.numInstances(); row++)
+      add(row);
+  }
+
+  /**
+   * Turns the value into a symbol.
+   *
+   * @param value	the value
+   * @param pos		the position in the word
+   * @return		the symbol
+   */
+  protected int toSymbol(double value, int pos) {
+    if (Double.isNaN(value) || (value < 0) || (value >= m_Bins))
+      throw new IllegalArgumentException(
+	"Not a SAX symbol (0-" + (m_Bins - 1) + ") at attribute #" + (m_Positions[pos] + 1) + ": " + value);
+    return (int) value;
+  }
+
+  /**
+   * Returns the symbols of the instance.
+   *
+   * @param inst	the instance
+   * @return		the symbols
+   */
+  protected int[] symbols(Instance inst) {
+    int[]	result;
+    int		i;
+
+    result = new int[m_Positions.length];
+    for (i = 0; i < m_Positions.length; i++)
+      result[i] = toSymbol(inst.value(m_Positions[i]), i);
+
+    return result;
+  }
+
+  /**
+   * Returns the symbol of a stored row.
+   *
+   * @param row		the row
+   * @param pos		the position in the word
+   * @return		the symbol
+   */
+  protected int symbol(int row, int pos) {
+    return (int) ((m_Words[row * m_WordLength + pos / m_SymbolsPerLong] >>> ((pos % m_SymbolsPerLong) * m_BitsPerSymbol)) & m_Mask);
+  }
+
+  /**
+   * Returns whether two stored rows have the same word.
+   *
+   * @param row1	the first row
+   * @param row2	the second row
+   * @return		true if the same
+   */
+  protected boolean sameWord(int row1, int row2) {
+    int		i;
+
+    for (i = 0; i < m_WordLength; i++) {
+      if (m_Words[row1 * m_WordLength + i] != m_Words[row2 * m_WordLength + i])
+	return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Packs the word of the row and adds the row to the index.
+   *
+   * @param row		the row to add
+   */
+  protected void add(int row) {
+    int[]	symbols;
+    Node	node;
+    int		offset;
+    int		pos;
+    int		i;
+
+    if ((row + 1) * m_WordLength > m_Words.length)
+      m_Words = Arrays.copyOf(m_Words, Math.max((row + 1) * m_WordLength, m_Words.length + m_Words.length / 2));
+    symbols = symbols(m_Instances.instance(row));
+    offset  = row * m_WordLength;
+    for (i = 0; i < m_WordLength; i++)
+      m_Words[offset + i] = 0L;
+    for (i = 0; i < symbols.length; i++)
+      m_Words[offset + i / m_SymbolsPerLong] |= ((long) symbols[i]) << ((i % m_SymbolsPerLong) * m_BitsPerSymbol);
+
+    node = m_Root;
+    while (!node.isLeaf()) {
+      pos = node.m_SplitPosition;
+      if (((symbols[pos] >> (m_BitsPerSymbol - node.m_Bits[pos] - 1)) & 1) == 0)
+	node = node.m_Zero;
+      else
+	node = node.m_One;
+    }
+
+    node.add(row);
+    if (!node.m_Splittable && !sameWord(row, node.m_Rows[0]))
+      node.m_Splittable = true;
+    if (node.m_Size > m_LeafSize)
+      split(node);
+
+    m_NumIndexed = row + 1;
+  }
+
+  /**
+   * Splits the leaf, using the position that divides the rows most evenly.
+   * If the rows agree on the next bit of all positions, a position where
+   * the symbols differ gets refined (one child stays empty). Leaves with
+   * identical words only don't get split.
+   *
+   * @param leaf	the leaf to split
+   */
+  protected void split(Node leaf) {
+    byte[]	bits;
+    int[]	zero;
+    int[]	one;
+    int		best;
+    int		bestBalance;
+    int		firstDiffering;
+    int		ones;
+    int		shift;
+    int		pos;
+    int		i;
+    boolean	differs;
+
+    if (!leaf.m_Splittable)
+      return;
+
+    best           = -1;
+    bestBalance    = 0;
+    firstDiffering = -1;
+    for (pos = 0; pos < m_Positions.length; pos++) {
+      if (leaf.m_Bits[pos] >= m_BitsPerSymbol)
+	continue;
+      shift   = m_BitsPerSymbol - leaf.m_Bits[pos] - 1;
+      ones    = 0;
+      differs = false;
+      for (i = 0; i < leaf.m_Size; i++) {
+	ones += (symbol(leaf.m_Rows[i], pos) >> shift) & 1;
+	if (!differs && (symbol(leaf.m_Rows[i], pos) != symbol(leaf.m_Rows[0], pos)))
+	  differs = true;
+      }
+      if (differs && (firstDiffering == -1))
+	firstDiffering = pos;
+      if (Math.min(ones, leaf.m_Size - ones) > bestBalance) {
+	best        = pos;
+	bestBalance = Math.min(ones, leaf.m_Size - ones);
+      }
+    }
+    if (best == -1)
+      best = firstDiffering;
+    if (best == -1) {
+      leaf.m_Splittable = false;
+      return;
+    }
+
+    bits       = leaf.m_Bits.clone();
+    bits[best]++;
+    zero       = leaf.m_Prefix.clone();
+    zero[best] = leaf.m_Prefix[best] << 1;
+    one        = leaf.m_Prefix.clone();
+    one[best]  = (leaf.m_Prefix[best] << 1) | 1;
+    leaf.m_Zero          = new Node(bits, zero);
+    leaf.m_One           = new Node(bits, one);
+    leaf.m_SplitPosition = best;
+
+    shift = m_BitsPerSymbol - bits[best];
+    for (i = 0; i < leaf.m_Size; i++) {
+      if (((symbol(leaf.m_Rows[i], best) >> shift) & 1) == 0)
+	leaf.m_Zero.add(leaf.m_Rows[i]);
+      else
+	leaf.m_One.add(leaf.m_Rows[i]);
+    }
+    leaf.m_Rows = null;
+    leaf.m_Size = 0;
+
+    if (leaf.m_Zero.m_Size > m_LeafSize)
+      split(leaf.m_Zero);
+    if (leaf.m_One.m_Size > m_LeafSize)
+      split(leaf.m_One);
+  }
+
+  /**
+   * Computes the lower bound (MINDIST) of the squared distance between the
+   * query and any word in the region of the node: the distance to the
+   * closest symbol of the range at each position.
+   *
+   * @param node	the node
+   * @param symbols	the symbols of the query
+   * @return		the lower bound
+   */
+  protected double lowerBound(Node node, int[] symbols) {
+    double	result;
+    int		shift;
+    int		low;
+    int		high;
+    int		pos;
+
+    result = 0.0;
+    for (pos = 0; pos < symbols.length; pos++) {
+      if (node.m_Bits[pos] == 0)
+	continue;
+      shift = m_BitsPerSymbol - node.m_Bits[pos];
+      low   = node.m_Prefix[pos] << shift;
+      high  = Math.min(m_Bins - 1, ((node.m_Prefix[pos] + 1) << shift) - 1);
+      if (symbols[pos] < low)
+	result += m_SqDist[symbols[pos]][low];
+      else if (symbols[pos] > high)
+	result += m_SqDist[symbols[pos]][high];
+    }
+
+    return result;
+  }
+
+  /**
+   * Queues the node, unless it is empty or its lower bound exceeds the
+   * distance of the current k-th neighbour.
+   *
+   * @param queue	the queue
+   * @param node	the node
+   * @param symbols	the symbols of the query
+   * @param heap	the current neighbours
+   */
+  protected void enqueue(PriorityQueue<Candidate> queue, Node node, int[] symbols, NeighbourHeap heap) {
+    double	bound;
+
+    if (node.isLeaf() && (node.m_Size == 0))
+      return;
+    bound = lowerBound(node, symbols);
+    if (bound <= heap.threshold())
+      queue.add(new Candidate(node, bound));
+  }
+
+  /**
+   * Computes the squared distance between the query and the stored row and
+   * offers the row to the heap. Uses the same summation as
+   * {@link SAXDistance}, abandoning the computation once the distance
+   * exceeds the current k-th neighbour.
+   *
+   * @param target	the query instance as provided by the caller, used for
+   * 			skipping itself (hold-one-out)
+   * @param symbols	the symbols of the query
+   * @param row		the row
+   * @param heap	the current neighbours
+   */
+  protected void check(Instance target, int[] symbols, int row, NeighbourHeap heap) {
+    double	threshold;
+    double	distance;
+    int		pos;
+
+    if (target == m_Instances.instance(row))  // for hold-one-out cross-validation
+      return;
+    if (m_Stats != null)
+      m_Stats.incrPointCount();
+
+    threshold = heap.threshold();
+    distance  = 0.0;
+    for (pos = 0; pos < symbols.length; pos++) {
+      distance += m_SqDist[symbols[pos]][symbol(row, pos)];
+      if (distance > threshold)
+	return;
+    }
+    if ((distance == 0.0) && m_SkipIdentical)
+      return;
+
+    heap.offer(distance, row);
+  }
+
+  /**
+   * Determines the k nearest neighbours using the index. Instances that
+   * were added to the dataset without calling {@link #update(Instance)}
+   * get scanned.
+   *
+   * @param target	the query instance as provided by the caller, used for
+   * 			skipping itself (hold-one-out)
+   * @param query	the (possibly transformed) query instance to compute
+   * 			the distances with
+   * @param reference	the (possibly transformed) reference instances,
+   * 			must have the same order as m_Instances
+   * @param kNN		the number of neighbours to find
+   * @return		the k nearest neighbours (from m_Instances) and their distances
+   * @throws Exception	if the neighbours could not be found
+   */
+  @Override
+  protected QueryResult search(Instance target, Instance query, Instances reference, int kNN) throws Exception {
+    QueryResult			result;
+    NeighbourHeap		heap;
+    PriorityQueue<Candidate>	queue;
+    Candidate			current;
+    Node			node;
+    int[]			symbols;
+    int				numInst;
+    int				i;
+
+    if (m_Root == null)
+      throw new IllegalStateException("No instances indexed yet!");
+    numInst = m_Instances.numInstances();
+    if (numInst < m_NumIndexed)
+      throw new IllegalStateException("Instances have been removed since indexing, please set them again!");
+
+    if (m_Stats != null)
+      m_Stats.searchStart();
+
+    heap = new NeighbourHeap(Math.max(0, Math.min(kNN, numInst)));
+    if (heap.capacity() > 0) {
+      symbols = symbols(query);
+      queue   = new PriorityQueue<Candidate>();
+      queue.add(new Candidate(m_Root, 0.0));
+      while (!queue.isEmpty()) {
+	current = queue.poll();
+	if (current.m_Bound > heap.threshold())
+	  break;
+	node = current.m_Node;
+	if (node.isLeaf()) {
+	  for (i = 0; i < node.m_Size; i++)
+	    check(target, symbols, node.m_Rows[i], heap);
+	}
+	else {
+	  enqueue(queue, node.m_Zero, symbols, heap);
+	  enqueue(queue, node.m_One, symbols, heap);
+	}
+      }
+      if (m_NumIndexed < numInst)
+	scan(target, query, reference, m_NumIndexed, numInst, heap, m_Stats);
+    }
+
+    result = createResult(heap);
+    if (m_Stats != null)
+      m_Stats.searchFinish();
+
+    return result;
+  }
+
+  /**
+   * Updates the ranges of the distance function and adds the rows to the
+   * index that have been added to the instances since.
+   *
+   * @param ins 	The instance to add. Usually this is the instance that
+   * 			is added to our neighbourhood i.e. the training
+   * 			instances.
+   * @throws Exception	if the given instances are null
+   */
+  @Override
+  public void update(Instance ins) throws Exception {
+    ReentrantReadWriteLock	lock;
+
+    super.update(ins);
+    lock = getLock();
+    lock.writeLock().lock();
+    try {
+      indexNewRows();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the revision string.
+   *
+   * @return		the revision
+   */
+  @Override
+  public String getRevision() {
+    return RevisionUtils.extract("$Revision$");
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NeighbourHeap.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.neighboursearch;
+
+import java.io.Serializable;
+
+/**
+ * Bounded max-heap for keeping track of the k nearest neighbours, backed by
+ * primitive arrays. Neighbours are ordered by distance, ties are broken by
+ * the index of the neighbour (smaller index wins), which makes the outcome
+ * independent of the order in which the candidates are offered.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class NeighbourHeap
+  implements Serializable {
+
+  private static final long serialVersionUID = -3626264780398196463L;
+
+  /** the maximum number of neighbours. */
+  protected int m_Capacity;
+
+  /** the distances. */
+  protected double[] m_Distances;
+
+  /** the indices of the neighbours. */
+  protected int[] m_Indices;
+
+  /** the number of neighbours stored. */
+  protected int m_Size;
+
+  /** whether the arrays are sorted (ascending) rather than a heap. */
+  protected boolean m_Sorted;
+
+  /**
+   * Initializes the heap.
+   *
+   * @param capacity	the maximum number of neighbours to keep
+   */
+  public NeighbourHeap(int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+    m_Capacity  = capacity;
+    m_Distances = new double[capacity];
+    m_Indices   = new int[capacity];
+    clear();
+  }
+
+  /**
+   * Removes all neighbours.
+   */
+  public void clear() {
+    m_Size   = 0;
+    m_Sorted = false;
+  }
+
+  /**
+   * Returns the maximum number of neighbours.
+   *
+   * @return		the capacity
+   */
+  public int capacity() {
+    return m_Capacity;
+  }
+
+  /**
+   * Returns the number of neighbours stored.
+   *
+   * @return		the number of neighbours
+   */
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns whether the heap holds the maximum number of neighbours.
+   *
+   * @return		true if full
+   */
+  public boolean isFull() {
+    return (m_Size == m_Capacity);
+  }
+
+  /**
+   * Returns the distance a candidate has to beat to get added, ie the
+   * distance of the current k-th neighbour or infinity if not yet full.
+   * Can be used as cut-off value for distance functions.
+   *
+   * @return		the threshold
+   */
+  public double threshold() {
+    if (m_Size < m_Capacity)
+      return Double.POSITIVE_INFINITY;
+    else
+      return m_Distances[0];
+  }
+
+  /**
+   * Returns whether the first neighbour is further away than the second one.
+   *
+   * @param dist1	the distance of the first neighbour
+   * @param index1	the index of the first neighbour
+   * @param dist2	the distance of the second neighbour
+   * @param index2	the index of the second neighbour
+   * @return		true if the first one is further away
+   */
+  protected static boolean further(double dist1, int index1, double dist2, int index2) {
+    return (dist1 > dist2) || ((dist1 == dist2) && (index1 > index2));
+  }
+
+  /**
+   * Moves the element at the position up the heap.
+   *
+   * @param pos		the position of the element
+   */
+  protected void siftUp(int pos) {
+    double	dist;
+    int		index;
+    int		parent;
+
+    dist  = m_Distances[pos];
+    index = m_Indices[pos];
+    while (pos > 0) {
+      parent = (pos - 1) >>> 1;
+      if (!further(dist, index, m_Distances[parent], m_Indices[parent]))
+	break;
+      m_Distances[pos] = m_Distances[parent];
+      m_Indices[pos]   = m_Indices[parent];
+      pos = parent;
+    }
+    m_Distances[pos] = dist;
+    m_Indices[pos]   = index;
+  }
+
+  /**
+   * Moves the element at the position down the heap.
+   *
+   * @param pos		the position of the element
+   * @param size	the size of the heap
+   */
+  protected void siftDown(int pos, int size) {
+    double	dist;
+    int		index;
+    int		child;
+
+    dist  = m_Distances[pos];
+    index = m_Indices[pos];
+    while ((child = 2 * pos + 1) < size) {
+      if ((child + 1 < size) && further(m_Distances[child + 1], m_Indices[child + 1], m_Distances[child], m_Indices[child]))
+	child++;
+      if (!further(m_Distances[child], m_Indices[child], dist, index))
+	break;
+      m_Distances[pos] = m_Distances[child];
+      m_Indices[pos]   = m_Indices[child];
+      pos = child;
+    }
+    m_Distances[pos] = dist;
+    m_Indices[pos]   = index;
+  }
+
+  /**
+   * Offers the neighbour. Gets added if the heap is not full yet or if it
+   * is closer than the current k-th neighbour (which gets removed).
+   * NaN distances are ignored.
+   *
+   * @param distance	the distance of the neighbour
+   * @param index	the index of the neighbour
+   * @return		true if added
+   */
+  public boolean offer(double distance, int index) {
+    if (m_Sorted)
+      throw new IllegalStateException("Heap has been sorted already, call clear() first!");
+    if (Double.isNaN(distance) || (m_Capacity == 0))
+      return false;
+
+    if (m_Size < m_Capacity) {
+      m_Distances[m_Size] = distance;
+      m_Indices[m_Size]   = index;
+      siftUp(m_Size);
+      m_Size++;
+      return true;
+    }
+
+    if (!further(m_Distances[0], m_Indices[0], distance, index))
+      return false;
+
+    m_Distances[0] = distance;
+    m_Indices[0]   = index;
+    siftDown(0, m_Size);
+    return true;
+  }
+
+  /**
+   * Offers all the neighbours of the other heap.
+   *
+   * @param other	the heap to merge
+   */
+  public void merge(NeighbourHeap other) {
+    int		i;
+
+    for (i = 0; i < other.m_Size; i++)
+      offer(other.m_Distances[i], other.m_Indices[i]);
+  }
+
+  /**
+   * Sorts the neighbours in place by ascending distance (heap sort). No more
+   * neighbours can be offered afterwards, unless the heap gets cleared.
+   */
+  public void sort() {
+    double	dist;
+    int		index;
+    int		i;
+
+    if (m_Sorted)
+      return;
+
+    for (i = m_Size - 1; i > 0; i--) {
+      dist           = m_Distances[0];
+      index          = m_Indices[0];
+      m_Distances[0] = m_Distances[i];
+      m_Indices[0]   = m_Indices[i];
+      m_Distances[i] = dist;
+      m_Indices[i]   = index;
+      siftDown(0, i);
+    }
+    m_Sorted = true;
+  }
+
+  /**
+   * Returns the distance at the specified position. Neighbours are only
+   * ordered after calling {@link #sort()}.
+   *
+   * @param pos		the position
+   * @return		the distance
+   */
+  public double distance(int pos) {
+    return m_Distances[pos];
+  }
+
+  /**
+   * Returns the neighbour index at the specified position. Neighbours are
+   * only ordered after calling {@link #sort()}.
+   *
+   * @param pos		the position
+   * @return		the index
+   */
+  public int index(int pos) {
+    return m_Indices[pos];
+  }
+}
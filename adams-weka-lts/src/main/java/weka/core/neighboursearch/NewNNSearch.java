@@ -20,7 +20,8 @@
 
 package weka.core.neighboursearch;
 
-import adams.data.SortedList;
+import adams.multiprocess.Performance;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
@@ -28,9 +29,12 @@ import weka.core.RevisionUtils;
 import weka.core.Utils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  <!-- globalinfo-start -->
@@ -45,6 +49,12 @@ import java.util.Vector;
  *  Skip identical instances (distances equal to zero).
  * </pre>
  * 
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for scanning the instances;
+ *  -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)
+ * </pre>
+ * 
  <!-- options-end -->
  *
  * @author Dale
@@ -64,19 +74,56 @@ public class NewNNSearch
   /** Whether to skip instances from the neighbours that are identical to the query instance. */
   protected boolean m_SkipIdentical = false;
 
-  protected SortedList<InstanceNode> m_neighbours=new SortedList<InstanceNode>();
+  /** The number of threads to use for scanning the instances. */
+  protected int m_NumThreads = 1;
+
+  /** The minimum number of instances per thread. */
+  public final static int MIN_INSTANCES_PER_THREAD = 1000;
+
+  /** The lock for guarding updates of the distance function against queries. */
+  protected transient volatile ReentrantReadWriteLock m_Lock;
+
+  /**
+   * Container for the neighbours and distances of a single query.
+   */
+  public static class QueryResult
+    implements Serializable {
+
+    private static final long serialVersionUID = 2917400512478318346L;
+
+    /** the neighbours. */
+    protected Instances m_Neighbours;
 
-  public class InstanceNode implements Comparable, Serializable{
-    int instance_index;
-    Double distance;
+    /** the distances. */
+    protected double[] m_Distances;
+
+    /**
+     * Initializes the container.
+     *
+     * @param neighbours	the neighbours
+     * @param distances		the distances
+     */
+    public QueryResult(Instances neighbours, double[] distances) {
+      m_Neighbours = neighbours;
+      m_Distances  = distances;
+    }
 
-    public InstanceNode(int ins,Double dist) {
-      instance_index=ins;
-      distance=dist;
+    /**
+     * Returns the neighbours, sorted by distance.
+     *
+     * @return		the neighbours
+     */
+    public Instances getNeighbours() {
+      return m_Neighbours;
     }
 
-    public int compareTo(Object o) {
-      return Double.compare(distance,((InstanceNode)o).distance);
+    /**
+     * Returns the (post-processed) distances of the neighbours.
+     *
+     * @return		the distances
+     */
+    public double[] getDistances() {
+      return m_Distances;
     }
   }
 
@@ -126,6 +173,12 @@ public class NewNNSearch
 	"\tSkip identical instances (distances equal to zero).\n",
 	"S", 1,"-S"));
     
+    result.add(new Option(
+	"\tThe number of threads to use for scanning the instances;\n"
+	+ "\t-1 = number of CPUs/cores; 0 or 1 = sequential execution.\n"
+	+ "\t(default: 1)",
+	"num-threads", 1, "-num-threads <int>"));
+    
     return result.elements();
   }
   
@@ -139,6 +192,12 @@ public class NewNNSearch
    *  Skip identical instances (distances equal to zero).
    * </pre>
    * 
+   * <pre> -num-threads &lt;int&gt;
+   *  The number of threads to use for scanning the instances;
+   *  -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+   *  (default: 1)
+   * </pre>
+   * 
    <!-- options-end -->
    *
    * @param options 	the list of options as an array of strings
@@ -146,7 +205,16 @@ public class NewNNSearch
    */
   @Override
   public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+
     setSkipIdentical(Utils.getFlag('S', options));
+
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() != 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
     super.setOptions(options);
   }
 
@@ -170,6 +238,11 @@ public class NewNNSearch
     if (getSkipIdentical())
       result.add("-S");
 
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
+
     return result.toArray(new String[result.size()]);
   }
 
@@ -202,6 +275,37 @@ public class NewNNSearch
     return m_SkipIdentical;
   }
 
+
+  /**
+   * Returns the tip text for this property.
+   * 
+   * @return 		tip text for this property suitable for
+   * 			displaying in the explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return 
+        "The number of threads to use for scanning the instances; -1 = number "
+      + "of CPUs/cores; 0 or 1 = sequential execution; the distance function "
+      + "must be thread-safe for parallel execution.";
+  }
+
+  /**
+   * Sets the number of threads to use for scanning the instances.
+   * 
+   * @param value 	the number of threads, -1 = number of CPUs/cores
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for scanning the instances.
+   * 
+   * @return 		the number of threads, -1 = number of CPUs/cores
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
   
   /** 
    * Returns the nearest instance in the current neighbourhood to the supplied
@@ -227,48 +331,210 @@ public class NewNNSearch
    */
   @Override
   public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
-  
-    if(m_Stats!=null)
-      m_Stats.searchStart();
-    m_neighbours.clear();
-    double distance; 
-    double last_distance=Double.POSITIVE_INFINITY;
-    for(int i=0; i<m_Instances.numInstances(); i++) {
-      if(target == m_Instances.instance(i)) {//for hold-one-out cross-validation
-        continue;
+    QueryResult	result;
+
+    result      = query(target, kNN);
+    m_Distances = result.getDistances();
+
+    return result.getNeighbours();
+  }
+
+  /**
+   * Returns the k nearest instances and their distances in the current
+   * neighbourhood to the supplied instance. Unlike {@link #kNearestNeighbours(Instance, int)},
+   * this method does not store any state and can therefore be called from
+   * multiple threads concurrently, provided the distance function is
+   * thread-safe. Updates of the distance function (see {@link #update(Instance)})
+   * wait for the queries to finish.
+   *
+   * @param target 	The instance to find the k nearest neighbours for.
+   * @param kNN		The number of nearest neighbours to find.
+   * @return		the k nearest neighbors and their distances
+   * @throws Exception  if the neighbours could not be found.
+   */
+  public QueryResult query(Instance target, int kNN) throws Exception {
+    ReentrantReadWriteLock	lock;
+    Instance			query;
+
+    lock = getLock();
+    lock.readLock().lock();
+    try {
+      query = transformQuery(target);
+      if (m_Stats != null) {
+	synchronized(m_Stats) {
+	  return search(target, query, referenceInstances(), kNN);
+	}
       }
-      if(m_Stats!=null) {
-        m_Stats.incrPointCount();
+      return search(target, query, referenceInstances(), kNN);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the lock for guarding updates of the distance function,
+   * instantiates it if necessary.
+   *
+   * @return		the lock
+   */
+  protected ReentrantReadWriteLock getLock() {
+    ReentrantReadWriteLock	result;
+
+    result = m_Lock;
+    if (result == null) {
+      synchronized(this) {
+	if (m_Lock == null)
+	  m_Lock = new ReentrantReadWriteLock();
+	result = m_Lock;
       }
-      distance = m_DistanceFunction.distance(target, m_Instances.instance(i), last_distance, m_Stats);
-      if(distance == 0.0 && m_SkipIdentical) {
+    }
+
+    return result;
+  }
+
+  /**
+   * Turns the query instance into the space of the reference instances.
+   * Default implementation returns the instance as is.
+   *
+   * @param target	the query instance
+   * @return		the instance to compute the distances with
+   * @throws Exception	if transformation fails
+   */
+  protected Instance transformQuery(Instance target) throws Exception {
+    return target;
+  }
+
+  /**
+   * Returns the reference instances to compute the distances with. Must
+   * have the same order as m_Instances. Default implementation returns
+   * m_Instances.
+   *
+   * @return		the reference instances
+   */
+  protected Instances referenceInstances() {
+    return m_Instances;
+  }
+
+  /**
+   * Scans the specified range of the reference instances and keeps track of
+   * the nearest ones in the heap.
+   *
+   * @param target	the query instance as provided by the caller, used for
+   * 			skipping itself (hold-one-out)
+   * @param query	the (possibly transformed) query instance to compute
+   * 			the distances with
+   * @param reference	the (possibly transformed) reference instances
+   * @param from	the first index (incl)
+   * @param to		the last index (excl)
+   * @param heap	the heap to add the neighbours to
+   * @param stats	the performance statistics to update, can be null
+   */
+  protected void scan(Instance target, Instance query, Instances reference, int from, int to, NeighbourHeap heap, PerformanceStats stats) {
+    double	distance;
+    int		i;
+
+    for (i = from; i < to; i++) {
+      if (target == m_Instances.instance(i))  // for hold-one-out cross-validation
 	continue;
-      }
-      if (distance < last_distance) {
-	this.m_neighbours.add(new InstanceNode(i,distance));
-	if (m_neighbours.size() > kNN) {
-	  m_neighbours.remove(m_neighbours.size()-1);
-	  last_distance=m_neighbours.get(m_neighbours.size() - 1).distance;
-	}
-      }      
+      if (stats != null)
+	stats.incrPointCount();
+      distance = m_DistanceFunction.distance(query, reference.instance(i), heap.threshold(), stats);
+      if ((distance == 0.0) && m_SkipIdentical)
+	continue;
+      heap.offer(distance, i);
     }
-    Instances neighbours = new Instances(m_Instances,m_neighbours.size() );   
-    int index=0;
-    m_Distances = new double[m_neighbours.size()];
-    
-    Iterator<InstanceNode> iter = m_neighbours.iterator();
-    while(iter.hasNext()) {
-      InstanceNode in=iter.next();
-      m_Distances[index++]=in.distance;
-      //System.err.print(in.distance+" ");
-      neighbours.add(m_Instances.instance(in.instance_index));
+  }
+
+  /**
+   * Determines the k nearest neighbours using a brute force scan. The
+   * instances get split into chunks that are processed on the shared
+   * executor, each keeping the nearest neighbours of its chunk in a bounded
+   * heap, the heaps get merged at the end. Ties are resolved using the instance index,
+   * making the result independent of the number of threads. Performance
+   * statistics force sequential execution.
+   *
+   * @param target	the query instance as provided by the caller, used for
+   * 			skipping itself (hold-one-out)
+   * @param query	the (possibly transformed) query instance to compute
+   * 			the distances with
+   * @param reference	the (possibly transformed) reference instances,
+   * 			must have the same order as m_Instances
+   * @param kNN		the number of neighbours to find
+   * @return		the k nearest neighbours (from m_Instances) and their distances
+   * @throws Exception	if the neighbours could not be found
+   */
+  protected QueryResult search(final Instance target, final Instance query, final Instances reference, int kNN) throws Exception {
+    QueryResult				result;
+    NeighbourHeap			heap;
+    List<Callable<NeighbourHeap>>	jobs;
+    int					numInst;
+    int					numThreads;
+    int					chunk;
+    int					from;
+
+    if (m_Stats != null)
+      m_Stats.searchStart();
+
+    numInst    = m_Instances.numInstances();
+    heap       = new NeighbourHeap(Math.max(0, Math.min(kNN, numInst)));
+    numThreads = Performance.determineNumThreads(m_NumThreads);
+    numThreads = Math.min(numThreads, numInst / MIN_INSTANCES_PER_THREAD);
+
+    if ((numThreads <= 1) || (m_Stats != null) || (heap.capacity() == 0)) {
+      scan(target, query, reference, 0, numInst, heap, m_Stats);
     }
-    
-    m_DistanceFunction.postProcessDistances(m_Distances);
-    if(m_Stats!=null)
+    else {
+      // ensures that the distance function is initialized before going parallel
+      m_DistanceFunction.distance(query, reference.instance(0), Double.POSITIVE_INFINITY, null);
+      jobs  = new ArrayList<>();
+      chunk = (numInst + numThreads - 1) / numThreads;
+      for (from = 0; from < numInst; from += chunk) {
+	final int start = from;
+	final int end   = Math.min(numInst, from + chunk);
+	final int capacity = heap.capacity();
+	jobs.add(new Callable<NeighbourHeap>() {
+	  @Override
+	  public NeighbourHeap call() throws Exception {
+	    NeighbourHeap local = new NeighbourHeap(capacity);
+	    scan(target, query, reference, start, end, local, null);
+	    return local;
+	  }
+	});
+      }
+      for (NeighbourHeap local: WekaSharedExecutor.invokeAll(jobs, numThreads))
+	heap.merge(local);
+    }
+
+    result = createResult(heap);
+    if (m_Stats != null)
       m_Stats.searchFinish();
-    
-    return neighbours;    
+
+    return result;
+  }
+
+  /**
+   * Turns the heap into the sorted neighbours (from m_Instances) and their
+   * post-processed distances.
+   *
+   * @param heap	the heap with the nearest neighbours
+   * @return		the neighbours and distances
+   */
+  protected QueryResult createResult(NeighbourHeap heap) {
+    Instances	neighbours;
+    double[]	distances;
+    int		i;
+
+    heap.sort();
+    neighbours = new Instances(m_Instances, heap.size());
+    distances  = new double[heap.size()];
+    for (i = 0; i < heap.size(); i++) {
+      distances[i] = heap.distance(i);
+      neighbours.add(m_Instances.instance(heap.index(i)));
+    }
+    m_DistanceFunction.postProcessDistances(distances);
+
+    return new QueryResult(neighbours, distances);
   }
   
   /** 
@@ -323,10 +589,19 @@ public class NewNNSearch
    */
   @Override
   public void update(Instance ins) throws Exception {
+    ReentrantReadWriteLock	lock;
+
     if(m_Instances==null)
       throw new Exception("No instances supplied yet. Cannot update without"+
                           "supplying a set of instances first.");
-    m_DistanceFunction.update(ins);
+    lock = getLock();
+    lock.writeLock().lock();
+    try {
+      m_DistanceFunction.update(transformQuery(ins));
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
   }
   
   /** 
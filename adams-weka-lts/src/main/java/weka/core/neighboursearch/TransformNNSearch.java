@@ -42,6 +42,29 @@ public abstract class TransformNNSearch extends NewNNSearch {
   }
 
   public abstract Instance transformInstance(Instance in) throws Exception;
+
+  /**
+   * Turns the query instance into the space of the transformed instances.
+   * Synchronized, as the transformation is not thread-safe.
+   *
+   * @param target	the query instance
+   * @return		the transformed instance
+   * @throws Exception	if transformation fails
+   */
+  @Override
+  protected synchronized Instance transformQuery(Instance target) throws Exception {
+    return transformInstance(target);
+  }
+
+  /**
+   * Returns the transformed instances to compute the distances with.
+   *
+   * @return		the transformed instances
+   */
+  @Override
+  protected Instances referenceInstances() {
+    return m_myInstances;
+  }
   
 }
  
\ No newline at end of file
@@ -0,0 +1,197 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RowParallelHelper.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters;
+
+import adams.core.Performance;
+import adams.multiprocess.WekaSharedExecutor;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Helper for filters that process rows independently of each other: splits
+ * the data into contiguous chunks, processes them on the shared executor
+ * and returns the processed rows in their original order. Nested within
+ * other parallel schemes, the chunks get processed by the already running
+ * worker threads, no additional threads get started.
+ * <br>
+ * Each chunk gets its own {@link RowWorker}, which can hold scratch arrays
+ * that get reused for all the rows of that chunk.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class RowParallelHelper {
+
+  /** the option for the number of threads. */
+  public static final String NUM_THREADS = "num-threads";
+
+  /** the minimum number of rows per chunk. */
+  public static final int MIN_CHUNK_SIZE = 64;
+
+  /** the number of chunks per thread (for balancing the load). */
+  public static final int CHUNKS_PER_THREAD = 4;
+
+  /**
+   * Processes rows, may keep scratch data between rows. Only ever used
+   * by a single thread.
+   */
+  public interface RowWorker {
+
+    /**
+     * Processes the row.
+     *
+     * @param instance	the row to process
+     * @return		the processed row
+     * @throws Exception	if processing fails
+     */
+    public Instance process(Instance instance) throws Exception;
+  }
+
+  /**
+   * Creates a worker for a chunk of rows.
+   */
+  public interface RowWorkerFactory {
+
+    /**
+     * Returns a new worker.
+     *
+     * @return		the worker
+     * @throws Exception	if the worker cannot be created
+     */
+    public RowWorker newWorker() throws Exception;
+  }
+
+  /**
+   * Returns the tip text for the number of threads.
+   *
+   * @return		the tip text
+   */
+  public static String numThreadsTipText() {
+    return "The number of threads to use for processing the rows of a batch; -1 = number of CPUs/cores; 0 or 1 = sequential execution.";
+  }
+
+  /**
+   * Checks whether rows can be processed in parallel for the output format.
+   * Processing rows adds string and relational values to the output format,
+   * which is not thread-safe.
+   *
+   * @param outputFormat	the output format, can be null
+   * @return			true if possible
+   */
+  public static boolean canProcessInParallel(Instances outputFormat) {
+    if (outputFormat == null)
+      return false;
+    if (outputFormat.checkForStringAttributes())
+      return false;
+    if (outputFormat.checkForAttributeType(Attribute.RELATIONAL))
+      return false;
+    return true;
+  }
+
+  /**
+   * Processes the rows, in parallel if more than one thread is to be used,
+   * there are enough rows and the output format permits it.
+   *
+   * @param data		the rows to process
+   * @param outputFormat	the output format of the filter
+   * @param numThreads		the number of threads (-1 = # of cores, 0/1 = sequential)
+   * @param factory		for creating the workers
+   * @return			the processed rows, in the original order
+   * @throws Exception		if processing fails
+   */
+  public static Instance[] process(Instances data, Instances outputFormat, int numThreads, RowWorkerFactory factory) throws Exception {
+    Instance[]				result;
+    int					numChunks;
+    int					chunkSize;
+    List<Callable<Boolean>>		jobs;
+    int					i;
+
+    result     = new Instance[data.numInstances()];
+    numThreads = Performance.determineNumThreads(numThreads);
+    numChunks  = Math.min(numThreads * CHUNKS_PER_THREAD, data.numInstances() / MIN_CHUNK_SIZE);
+
+    if ((numThreads <= 1) || (numChunks < 2) || !canProcessInParallel(outputFormat)) {
+      processChunk(data, 0, data.numInstances(), factory.newWorker(), result);
+      return result;
+    }
+
+    chunkSize = (int) Math.ceil((double) data.numInstances() / numChunks);
+    jobs      = new ArrayList<>();
+    for (i = 0; i < data.numInstances(); i += chunkSize) {
+      final int from = i;
+      final int to   = Math.min(i + chunkSize, data.numInstances());
+      jobs.add(new Callable<Boolean>() {
+	@Override
+	public Boolean call() throws Exception {
+	  processChunk(data, from, to, factory.newWorker(), result);
+	  return true;
+	}
+      });
+    }
+    WekaSharedExecutor.invokeAll(jobs, numThreads);
+
+    return result;
+  }
+
+  /**
+   * Processes a chunk of rows.
+   *
+   * @param data	the rows to process
+   * @param from	the first row (incl)
+   * @param to		the last row (excl)
+   * @param worker	the worker to use
+   * @param output	for storing the processed rows
+   * @throws Exception	if processing fails
+   */
+  protected static void processChunk(Instances data, int from, int to, RowWorker worker, Instance[] output) throws Exception {
+    int		i;
+
+    for (i = from; i < to; i++)
+      output[i] = worker.process(data.instance(i));
+  }
+
+  /**
+   * Processes the rows and adds them to a new dataset with the given format.
+   *
+   * @param data		the rows to process
+   * @param outputFormat	the output format of the filter
+   * @param numThreads		the number of threads (-1 = # of cores, 0/1 = sequential)
+   * @param factory		for creating the workers
+   * @return			the processed dataset
+   * @throws Exception		if processing fails
+   * @see			#process(Instances, Instances, int, RowWorkerFactory)
+   */
+  public static Instances processToInstances(Instances data, Instances outputFormat, int numThreads, RowWorkerFactory factory) throws Exception {
+    Instances	result;
+    Instance[]	rows;
+
+    rows   = process(data, outputFormat, numThreads, factory);
+    result = new Instances(outputFormat, rows.length);
+    for (Instance row: rows)
+      result.add(row);
+
+    return result;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PLSFilterHelper.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.supervised.attribute;
+
+import adams.data.instancesanalysis.pls.LinearPLSScorer;
+import weka.core.Instances;
+import weka.core.matrix.Matrix;
+
+/**
+ * Helper methods for {@link PLSFilter}, accessing its internal state.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PLSFilterHelper {
+
+  /**
+   * Compiles the trained filter into a linear scorer. Only plain
+   * {@link PLSFilter} and {@link PLSFilterWithLoadings} filters are supported,
+   * as derived classes may alter the processing.
+   *
+   * @param filter	the trained filter
+   * @param header	the header of the training data
+   * @return		the scorer, null if not supported or not trained
+   * @throws Exception	if compiling fails
+   */
+  public static LinearPLSScorer compileScorer(PLSFilter filter, Instances header) throws Exception {
+    Matrix	coefficients;
+
+    if ((filter.getClass() != PLSFilter.class) && (filter.getClass() != PLSFilterWithLoadings.class))
+      return null;
+    if (!filter.isFirstBatchDone())
+      return null;
+
+    switch (filter.m_Algorithm) {
+      case PLSFilter.ALGORITHM_PLS1:
+	coefficients = filter.m_PLS1_RegVector;
+	break;
+      case PLSFilter.ALGORITHM_SIMPLS:
+	coefficients = filter.m_SIMPLS_B;
+	break;
+      default:
+	return null;
+    }
+    if (coefficients == null)
+      return null;
+
+    return LinearPLSScorer.compile(
+      header,
+      filter.m_ReplaceMissing ? filter.m_Missing : null,
+      filter.m_Filter,
+      coefficients.getColumnPackedCopy(),
+      filter.m_ClassMean,
+      filter.m_ClassStdDev);
+  }
+}
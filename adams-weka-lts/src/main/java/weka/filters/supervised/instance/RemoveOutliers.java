@@ -20,6 +20,7 @@
 
 package weka.filters.supervised.instance;
 
+import adams.core.ObjectCopyHelper;
 import adams.core.Performance;
 import adams.data.spreadsheet.SpreadSheet;
 import adams.data.spreadsheet.SpreadSheetColumnIndex;
@@ -28,9 +29,7 @@ import adams.flow.control.removeoutliers.AbstractOutlierDetector;
 import adams.flow.control.removeoutliers.Null;
 import adams.flow.core.Token;
 import adams.flow.transformer.WekaPredictionsToSpreadSheet;
-import adams.multiprocess.JobList;
-import adams.multiprocess.LocalJobRunner;
-import adams.multiprocess.WekaCrossValidationJob;
+import adams.multiprocess.WekaSharedExecutor;
 import weka.classifiers.AggregateEvaluations;
 import weka.classifiers.Classifier;
 import weka.classifiers.DefaultCrossValidationFoldGenerator;
@@ -52,6 +51,7 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 /**
  <!-- globalinfo-start -->
@@ -421,13 +421,12 @@ public class RemoveOutliers
     Evaluation				eval;
     AggregateEvaluations 		evalAgg;
     DefaultCrossValidationFoldGenerator generator;
-    JobList<WekaCrossValidationJob> 	list;
-    WekaCrossValidationJob 		job;
+    List<Callable<Evaluation>>		jobs;
+    List<Evaluation>			evals;
     WekaTrainTestSetContainer 		cont;
     int					i;
-    LocalJobRunner 			jobRunner;
 
-    numThreads = Performance.determineNumThreads(m_NumThreads);
+    numThreads = Performance.determineNumThreads(WekaSharedExecutor.limitNumThreads(m_NumThreads));
 
     if (numThreads == 1) {
       eval = new Evaluation(data);
@@ -437,44 +436,30 @@ public class RemoveOutliers
     }
     else {
       generator = new DefaultCrossValidationFoldGenerator(data, folds, m_Seed, true);
-      jobRunner = new LocalJobRunner<WekaCrossValidationJob>();
-      jobRunner.setNumThreads(m_NumThreads);
-      list = new JobList<>();
+      jobs      = new ArrayList<>();
       while (generator.hasNext()) {
 	cont = generator.next();
-	job = new WekaCrossValidationJob(
-	  m_Classifier,
-	  (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN),
-	  (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST),
-	  (Integer) cont.getValue(WekaTrainTestSetContainer.VALUE_FOLD_NUMBER),
-	  false);
-	list.add(job);
+	final Instances train = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN);
+	final Instances test  = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST);
+	jobs.add(() -> {
+	  Classifier cls = ObjectCopyHelper.copyObject(m_Classifier);
+	  cls.buildClassifier(train);
+	  Evaluation foldEval = new Evaluation(train);
+	  foldEval.setDiscardPredictions(false);
+	  foldEval.evaluateModel(cls, test);
+	  return foldEval;
+	});
       }
-      jobRunner.add(list);
-      jobRunner.start();
-      jobRunner.stop();
+      evals = WekaSharedExecutor.invokeAll(jobs, numThreads);
       // aggregate data
-      msg     = null;
       evalAgg = new AggregateEvaluations();
-      for (i = 0; i < jobRunner.getJobs().size(); i++) {
-	job = (WekaCrossValidationJob) jobRunner.getJobs().get(i);
-	if (job.getEvaluation() == null) {
-	  msg = "Fold #" + (i + 1) + " failed to evaluate";
-	  if (!job.hasExecutionError())
-	    msg += "?";
-	  else
-	    msg += ":\n" + job.getExecutionError();
-	  break;
-	}
-	evalAgg.add(job.getEvaluation());
-	job.cleanUp();
+      for (i = 0; i < evals.size(); i++) {
+	msg = evalAgg.add(evals.get(i));
+	if (msg != null)
+	  throw new Exception("Fold #" + (i + 1) + " failed to aggregate: " + msg);
       }
-      if (msg != null)
-	throw new Exception(msg);
-      list.cleanUp();
-      jobRunner.cleanUp();
       result = evalAgg.aggregated();
-      if (result != null)
+      if (result == null)
         throw new IllegalStateException(
           evalAgg.hasLastError() ? evalAgg.getLastError() : "Failed to aggregate evaluations!");
       return result;
@@ -29,6 +29,7 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.Utils;
+import weka.filters.RowParallelHelper;
 import weka.filters.SimpleStreamFilter;
 import weka.filters.UnsupervisedFilter;
 
@@ -53,6 +54,10 @@ import java.util.Vector;
  *  Only every n-th point will be output (&gt;0).
  *  (default: 1)</pre>
  *
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for processing the rows of a batch; -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)</pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -68,6 +73,9 @@ public class DownSample
   /** the nth point. */
   protected int m_NthPoint = 1;
 
+  /** the number of threads to use for processing the rows of a batch. */
+  protected int m_NumThreads = 1;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -98,6 +106,11 @@ public class DownSample
 	+ "\t(default: 1)",
 	"nth", 1, "-nth <int>"));
 
+    result.addElement(new Option(
+	"\t" + RowParallelHelper.numThreadsTipText() + "\n"
+	+ "\t(default: 1)",
+	"num-threads", 1, "-num-threads <int>"));
+
     return result.elements();
   }
 
@@ -115,6 +128,12 @@ public class DownSample
 
     reset();
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() > 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
     tmpStr = Utils.getOption("nth", options);
     if (tmpStr.length() > 0)
       setNthPoint(Integer.parseInt(tmpStr));
@@ -137,6 +156,11 @@ public class DownSample
     result.add("-nth");
     result.add("" + getNthPoint());
 
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
+
     return result.toArray(new String[result.size()]);
   }
 
@@ -175,6 +199,34 @@ public class DownSample
     return "Only every n-th point will be output (>0).";
   }
 
+  /**
+   * Sets the number of threads to use for processing the rows of a batch.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for processing the rows of a batch.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return RowParallelHelper.numThreadsTipText();
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to
    * override this method to enable capabilities.
@@ -291,6 +343,18 @@ public class DownSample
     return result;
   }
 
+  /**
+   * Processes the given data, in parallel if multiple threads are to be used.
+   *
+   * @param instances   the data to process
+   * @return            the modified data
+   * @throws Exception  in case the processing goes wrong
+   */
+  @Override
+  protected Instances process(Instances instances) throws Exception {
+    return RowParallelHelper.processToInstances(instances, getOutputFormat(), m_NumThreads, () -> this::process);
+  }
+
   /**
    * Returns the revision string.
    *
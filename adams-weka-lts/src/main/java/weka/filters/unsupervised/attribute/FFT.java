@@ -20,8 +20,7 @@
 
 package weka.filters.unsupervised.attribute;
 
-import JSci.maths.Complex;
-import JSci.maths.FourierMath;
+import adams.data.fft.RadixTwoFFT;
 import adams.data.padding.PaddingHelper;
 import adams.data.padding.PaddingType;
 import weka.core.Attribute;
@@ -35,6 +34,7 @@ import weka.core.RevisionUtils;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformationHandler;
 import weka.core.Utils;
+import weka.filters.RowParallelHelper;
 import weka.filters.SimpleStreamFilter;
 import weka.filters.UnsupervisedFilter;
 
@@ -78,6 +78,10 @@ import java.util.Vector;
  *  Whether to return imaginary or real part is returned.
  *  (default: imaginary)</pre>
  *
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for processing the rows of a batch; -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)</pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -99,6 +103,12 @@ public class FFT
   /** whether to return complex or real part of the transformation. */
   protected boolean m_Real;
 
+  /** the number of threads to use for processing the rows of a batch. */
+  protected int m_NumThreads = 1;
+
+  /** the FFT kernel for the current output format. */
+  protected RadixTwoFFT m_Kernel;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -152,6 +162,11 @@ public class FFT
 	+ "\t(default: imaginary)",
 	"real", 0, "-real"));
 
+    result.addElement(new Option(
+	"\t" + RowParallelHelper.numThreadsTipText() + "\n"
+	+ "\t(default: 1)",
+	"num-threads", 1, "-num-threads <int>"));
+
     return result.elements();
   }
 
@@ -165,8 +180,16 @@ public class FFT
    * @see    		#reset()
    */
   public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+
     reset();
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() > 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
     setInverseTransform(Utils.getFlag("inverse", options));
 
     setReal(Utils.getFlag("real", options));
@@ -190,6 +213,11 @@ public class FFT
     if (m_Real)
       result.add("-real");
 
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
+
     return result.toArray(new String[0]);
   }
 
@@ -251,6 +279,34 @@ public class FFT
     return "If enabled, the real part instead of imaginary one is returned.";
   }
 
+  /**
+   * Sets the number of threads to use for processing the rows of a batch.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for processing the rows of a batch.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return RowParallelHelper.numThreadsTipText();
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to
    * override this method to enable capabilities.
@@ -301,6 +357,7 @@ public class FFT
     if (hasClass)
       count--;
     count = PaddingHelper.nextPowerOf2(count);
+    m_Kernel = new RadixTwoFFT(count);
 
     // create new attributes
     atts = new ArrayList<>();
@@ -328,47 +385,48 @@ public class FFT
    * @throws Exception  in case the processing goes wrong
    */
   protected Instance process(Instance instance) throws Exception {
+    return process(instance, m_Kernel, m_Kernel.newBuffer());
+  }
+
+  /**
+   * Transforms the instance using the provided kernel and buffer.
+   *
+   * @param instance    the instance to process
+   * @param kernel      the FFT kernel to use
+   * @param buffer      the interleaved buffer for the kernel
+   * @return            the transformed instance
+   * @throws Exception  in case the processing goes wrong
+   */
+  protected Instance process(Instance instance, RadixTwoFFT kernel, double[] buffer) throws Exception {
     Instance	result;
-    double[]	valuesOld;
     double[]	values;
-    Complex[]	transformed;
     boolean	hasClass;
-    int		count;
+    int		offset;
     int		i;
     int		n;
 
     hasClass = (instance.classIndex() > -1);
-    count    = instance.numAttributes();
-    if (hasClass)
-      count--;
 
-    // get original values
-    valuesOld = new double[count];
-    n         = 0;
+    // get original values (zero padded)
+    n = 0;
     for (i = 0; i < instance.numAttributes(); i++) {
       if (i == instance.classIndex())
 	continue;
-      valuesOld[n] = instance.value(i);
+      buffer[2 * n]     = instance.value(i);
+      buffer[2 * n + 1] = 0.0;
       n++;
     }
-
-    // pad
-    valuesOld = PaddingHelper.padPow2(valuesOld, PaddingType.ZERO);
+    for (i = 2 * n; i < buffer.length; i++)
+      buffer[i] = 0.0;
 
     // transform
-    if (m_InverseTransform)
-      transformed = FourierMath.inverseTransform(valuesOld);
-    else
-      transformed = FourierMath.transform(valuesOld);
+    kernel.transform(buffer, m_InverseTransform);
 
     // generate output
-    values = new double[valuesOld.length + (hasClass ? 1 : 0)];
-    for (i = 0; i < transformed.length; i++) {
-      if (m_Real)
-	values[i] = transformed[i].real();
-      else
-	values[i] = transformed[i].imag();
-    }
+    values = new double[kernel.getSize() + (hasClass ? 1 : 0)];
+    offset = m_Real ? 0 : 1;
+    for (i = 0; i < kernel.getSize(); i++)
+      values[i] = buffer[2 * i + offset];
 
     // add class value
     if (hasClass) {
@@ -387,6 +445,22 @@ public class FFT
     return result;
   }
 
+  /**
+   * Processes the given data, in parallel if multiple threads are to be used.
+   * Each worker uses its own buffer for the shared kernel.
+   *
+   * @param instances   the data to process
+   * @return            the modified data
+   * @throws Exception  in case the processing goes wrong
+   */
+  @Override
+  protected Instances process(Instances instances) throws Exception {
+    return RowParallelHelper.processToInstances(instances, getOutputFormat(), m_NumThreads, () -> {
+      double[] buffer = m_Kernel.newBuffer();
+      return (Instance row) -> process(row, m_Kernel, buffer);
+    });
+  }
+
   /**
    * Returns the revision string.
    *
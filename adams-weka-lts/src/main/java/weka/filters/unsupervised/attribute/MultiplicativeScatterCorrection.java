@@ -33,6 +33,7 @@ import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
 import weka.core.WekaOptionUtils;
+import weka.filters.RowParallelHelper;
 import weka.filters.SimpleBatchFilter;
 import weka.filters.unsupervised.attribute.multiplicativescattercorrection.AbstractMultiplicativeScatterCorrection;
 import weka.filters.unsupervised.attribute.multiplicativescattercorrection.RangeBased;
@@ -64,9 +65,14 @@ public class MultiplicativeScatterCorrection
 
   public final static String CORRECTION = "correction";
 
+  public final static String NUM_THREADS = RowParallelHelper.NUM_THREADS;
+
   /** the correction to use. */
   protected AbstractMultiplicativeScatterCorrection m_Correction = getDefaultCorrection();
 
+  /** the number of threads to use for processing the rows. */
+  protected int m_NumThreads = getDefaultNumThreads();
+
   /** the determined indices. */
   protected TIntList m_AttIndices = null;
 
@@ -101,6 +107,7 @@ public class MultiplicativeScatterCorrection
     WekaOptionUtils.addOption(result, attRegExpTipText(), getDefaultAttRegExp().stringValue(), ATT_REGEXP);
     WekaOptionUtils.addOption(result, waveNoRegExpTipText(), getDefaultWaveNoRegExp().stringValue(), WAVENO_REGEXP);
     WekaOptionUtils.addOption(result, correctionTipText(), getDefaultCorrection().toCommandLine(), CORRECTION);
+    WekaOptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), NUM_THREADS);
     WekaOptionUtils.add(result, super.listOptions());
     return WekaOptionUtils.toEnumeration(result);
   }
@@ -118,6 +125,7 @@ public class MultiplicativeScatterCorrection
     setAttRegExp((BaseRegExp) WekaOptionUtils.parse(options, ATT_REGEXP, getDefaultAttRegExp()));
     setWaveNoRegExp((BaseRegExp) WekaOptionUtils.parse(options, WAVENO_REGEXP, getDefaultWaveNoRegExp()));
     setCorrection((AbstractMultiplicativeScatterCorrection) WekaOptionUtils.parse(options, CORRECTION, (adams.core.option.OptionHandler) getDefaultCorrection()));
+    setNumThreads(WekaOptionUtils.parse(options, NUM_THREADS, getDefaultNumThreads()));
     super.setOptions(options);
   }
 
@@ -132,6 +140,7 @@ public class MultiplicativeScatterCorrection
     WekaOptionUtils.add(result, ATT_REGEXP, getAttRegExp());
     WekaOptionUtils.add(result, WAVENO_REGEXP, getWaveNoRegExp());
     WekaOptionUtils.add(result, CORRECTION, (adams.core.option.OptionHandler) getCorrection());
+    WekaOptionUtils.add(result, NUM_THREADS, getNumThreads());
     WekaOptionUtils.add(result, super.getOptions());
     return WekaOptionUtils.toArray(result);
   }
@@ -252,6 +261,43 @@ public class MultiplicativeScatterCorrection
     return "The correction scheme to apply.";
   }
 
+  /**
+   * Returns the default number of threads to use for processing the rows.
+   *
+   * @return 		the default number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  protected int getDefaultNumThreads() {
+    return 1;
+  }
+
+  /**
+   * Sets the number of threads to use for processing the rows.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for processing the rows.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return RowParallelHelper.numThreadsTipText();
+  }
+
   @Override
   public Capabilities getCapabilities() {
     Capabilities result;
@@ -344,9 +390,6 @@ public class MultiplicativeScatterCorrection
     int		i;
     int		n;
     Instance 	inst;
-    Instance	instNew;
-    double[]	data;
-    double[]	values;
 
     if (instances.numInstances() == 0)
       return instances;
@@ -366,20 +409,37 @@ public class MultiplicativeScatterCorrection
     }
 
     // correct data
-    result = new Instances(instances, instances.numInstances());
-    for (n = 0; n < instances.numInstances(); n++) {
-      inst = instances.instance(n);
-      data = new double[m_AttIndices.size()];
-      for (i = 0; i < m_AttIndices.size(); i++)
-	data[i] = inst.value(m_AttIndices.get(i));
-      data   = m_Correction.correct(m_WaveNo, m_Average, data);
-      values = inst.toDoubleArray();
-      for (i = 0; i < m_AttIndices.size(); i++)
-        values[m_AttIndices.get(i)] = data[i];
-      instNew = inst.copy(values);
-      copyValues(instNew, true, inst.dataset(), getOutputFormat());
-      result.add(instNew);
-    }
+    result = RowParallelHelper.processToInstances(instances, getOutputFormat(), m_NumThreads, () -> {
+      int[] indices = m_AttIndices.toArray();
+      double[] buffer = new double[indices.length];
+      return (Instance row) -> correct(row, indices, buffer);
+    });
+
+    return result;
+  }
+
+  /**
+   * Corrects a single row.
+   *
+   * @param inst	the row to correct
+   * @param indices	the indices of the attributes to correct
+   * @param buffer	the buffer for the attribute values to correct
+   * @return		the corrected row
+   */
+  protected Instance correct(Instance inst, int[] indices, double[] buffer) {
+    Instance	result;
+    int		i;
+    double[]	data;
+    double[]	values;
+
+    for (i = 0; i < indices.length; i++)
+      buffer[i] = inst.value(indices[i]);
+    data   = m_Correction.correct(m_WaveNo, m_Average, buffer);
+    values = inst.toDoubleArray();
+    for (i = 0; i < indices.length; i++)
+      values[indices[i]] = data[i];
+    result = inst.copy(values);
+    copyValues(result, true, inst.dataset(), getOutputFormat());
 
     return result;
   }
@@ -33,6 +33,7 @@ import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
 import weka.core.TechnicalInformationHandler;
 import weka.core.Utils;
+import weka.filters.RowParallelHelper;
 import weka.filters.SimpleStreamFilter;
 import weka.filters.UnsupervisedFilter;
 
@@ -105,6 +106,10 @@ import java.util.Vector;
  *  Whether to keep the original attribute names or use new ones ('att-XYZ').
  *  (default: don't keep)</pre>
  *
+ * <pre> -num-threads &lt;int&gt;
+ *  The number of threads to use for processing the rows of a batch; -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)</pre>
+ *
  <!-- options-end -->
  *
  * @author  fracpete (fracpete at waikato dot ac dot nz)
@@ -131,6 +136,9 @@ public class SavitzkyGolay2
   /** the calculated coefficients. */
   protected double[] m_Coefficients;
 
+  /** the number of threads to use for processing the rows of a batch. */
+  protected int m_NumThreads = 1;
+
   /**
    * Returns a string describing this classifier.
    *
@@ -214,6 +222,11 @@ public class SavitzkyGolay2
 	+ "\t(default: don't keep)",
 	"keep-attribute-names", 0, "-keep-attribute-names"));
 
+    result.addElement(new Option(
+	"\t" + RowParallelHelper.numThreadsTipText() + "\n"
+	+ "\t(default: 1)",
+	"num-threads", 1, "-num-threads <int>"));
+
     return result.elements();
   }
 
@@ -231,6 +244,12 @@ public class SavitzkyGolay2
 
     reset();
 
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() > 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
     tmpStr = Utils.getOption("points", options);
     if (tmpStr.length() > 0)
       setNumPoints(Integer.parseInt(tmpStr));
@@ -276,6 +295,11 @@ public class SavitzkyGolay2
     if (getKeepAttributeNames())
       result.add("-keep-attribute-names");
 
+    if (getNumThreads() != 1) {
+      result.add("-num-threads");
+      result.add("" + getNumThreads());
+    }
+
     return result.toArray(new String[0]);
   }
 
@@ -422,6 +446,34 @@ public class SavitzkyGolay2
     return "If enabled, the original attribute names are kept rather than using new ones ('att-XYZ').";
   }
 
+  /**
+   * Sets the number of threads to use for processing the rows of a batch.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for processing the rows of a batch.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return RowParallelHelper.numThreadsTipText();
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to
    * override this method to enable capabilities.
@@ -563,6 +615,23 @@ public class SavitzkyGolay2
     return result;
   }
 
+  /**
+   * Processes the given data, in parallel if multiple threads are to be used.
+   * The coefficients get initialized beforehand, as the rows may get
+   * processed by multiple threads.
+   *
+   * @param instances   the data to process
+   * @return            the modified data
+   * @throws Exception  in case the processing goes wrong
+   */
+  @Override
+  protected Instances process(Instances instances) throws Exception {
+    if (m_Coefficients == null)
+      m_Coefficients = adams.data.utils.SavitzkyGolay.determineCoefficients(m_NumPoints, m_NumPoints, m_PolynomialOrder, m_DerivativeOrder);
+
+    return RowParallelHelper.processToInstances(instances, getOutputFormat(), m_NumThreads, () -> this::process);
+  }
+
   /**
    * Returns the revision string.
    *
@@ -25,10 +25,17 @@ import weka.core.Capabilities.Capability;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.RevisionUtils;
+import weka.core.WekaOptionUtils;
+import weka.filters.RowParallelHelper;
 import weka.filters.SimpleStreamFilter;
 import weka.filters.UnsupervisedFilter;
 import adams.data.statistics.StatCalc;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
 /**
  <!-- globalinfo-start -->
  * Row wise normalization.
@@ -38,6 +45,10 @@ import adams.data.statistics.StatCalc;
  <!-- options-start -->
  * Valid options are: <br><br>
  *
+ * <pre> -num-threads &lt;value&gt;
+ *  The number of threads to use for processing the rows of a batch; -1 = number of CPUs/cores; 0 or 1 = sequential execution.
+ *  (default: 1)</pre>
+ *
  * <pre> -D
  *  Turns on output of debugging information.</pre>
  *
@@ -53,6 +64,11 @@ public class RowNorm
   /** for serialization. */
   private static final long serialVersionUID = 6812351429964183179L;
 
+  public final static String NUM_THREADS = RowParallelHelper.NUM_THREADS;
+
+  /** the number of threads to use for processing the rows. */
+  protected int m_NumThreads = getDefaultNumThreads();
+
   /**
    * Returns a string describing this filter.
    *
@@ -63,6 +79,83 @@ public class RowNorm
     return "Row wise normalization.";
   }
 
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration listOptions() {
+    Vector result = new Vector();
+    WekaOptionUtils.addOption(result, numThreadsTipText(), "" + getDefaultNumThreads(), NUM_THREADS);
+    WekaOptionUtils.add(result, super.listOptions());
+    return WekaOptionUtils.toEnumeration(result);
+  }
+
+  /**
+   * Sets the OptionHandler's options using the given list. All options
+   * will be set (or reset) during this call (i.e. incremental setting
+   * of options is not possible).
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    setNumThreads(WekaOptionUtils.parse(options, NUM_THREADS, getDefaultNumThreads()));
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current option settings for the OptionHandler.
+   *
+   * @return the list of current option settings as an array of strings
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<>();
+    WekaOptionUtils.add(result, NUM_THREADS, getNumThreads());
+    WekaOptionUtils.add(result, super.getOptions());
+    return WekaOptionUtils.toArray(result);
+  }
+
+  /**
+   * Returns the default number of threads to use for processing the rows.
+   *
+   * @return 		the default number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  protected int getDefaultNumThreads() {
+    return 1;
+  }
+
+  /**
+   * Sets the number of threads to use for processing the rows.
+   *
+   * @param value 	the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Returns the number of threads to use for processing the rows.
+   *
+   * @return 		the number of threads: -1 = # of CPUs/cores; 0/1 = sequential execution
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return 		tip text for this property suitable for
+   * 			displaying in the GUI or for listing the options.
+   */
+  public String numThreadsTipText() {
+    return RowParallelHelper.numThreadsTipText();
+  }
+
   /**
    * Returns the Capabilities of this filter.
    *
@@ -135,6 +228,18 @@ public class RowNorm
     return result;
   }
 
+  /**
+   * Processes the given data, in parallel if multiple threads are to be used.
+   *
+   * @param instances   the data to process
+   * @return            the modified data
+   * @throws Exception  in case the processing goes wrong
+   */
+  @Override
+  protected Instances process(Instances instances) throws Exception {
+    return RowParallelHelper.processToInstances(instances, getOutputFormat(), m_NumThreads, () -> this::process);
+  }
+
   /**
    * Returns the revision string.
    *
@@ -0,0 +1,177 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RadixTwoFFTTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.fft;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.util.Random;
+
+/**
+ * Tests the RadixTwoFFT class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class RadixTwoFFTTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public RadixTwoFFTTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Computes the discrete Fourier transform the naive way.
+   *
+   * @param values	the real values
+   * @param inverse	whether to compute the inverse
+   * @return		the interleaved real/imaginary values
+   */
+  protected double[] dft(double[] values, boolean inverse) {
+    double[]	result;
+    double	sign;
+    double	angle;
+    int		k;
+    int		n;
+
+    result = new double[2 * values.length];
+    sign   = inverse ? -1.0 : 1.0;
+    for (k = 0; k < values.length; k++) {
+      for (n = 0; n < values.length; n++) {
+	angle = sign * 2.0 * Math.PI * k * n / values.length;
+	result[2 * k]     += values[n] * Math.cos(angle);
+	result[2 * k + 1] += values[n] * Math.sin(angle);
+      }
+      if (inverse) {
+	result[2 * k]     /= values.length;
+	result[2 * k + 1] /= values.length;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Compares the kernel against the naive transform.
+   *
+   * @param size	the size to test
+   * @param inverse	whether to test the inverse
+   */
+  protected void check(int size, boolean inverse) {
+    RadixTwoFFT	fft;
+    double[]	values;
+    double[]	buffer;
+    double[]	expected;
+    Random	rnd;
+    int		i;
+
+    rnd    = new Random(size);
+    values = new double[size];
+    for (i = 0; i < size; i++)
+      values[i] = rnd.nextGaussian();
+    fft    = new RadixTwoFFT(size);
+    buffer = fft.newBuffer();
+    fft.transformReal(values, buffer, inverse);
+    expected = dft(values, inverse);
+    for (i = 0; i < expected.length; i++)
+      assertEquals("size " + size + ", index " + i, expected[i], buffer[i], 1e-9);
+  }
+
+  /**
+   * Tests the forward transform.
+   */
+  public void testForward() {
+    int		size;
+
+    for (size = 1; size <= 256; size *= 2)
+      check(size, false);
+  }
+
+  /**
+   * Tests the inverse transform.
+   */
+  public void testInverse() {
+    int		size;
+
+    for (size = 1; size <= 256; size *= 2)
+      check(size, true);
+  }
+
+  /**
+   * Tests that the inverse reverts the forward transform.
+   */
+  public void testRoundTrip() {
+    RadixTwoFFT	fft;
+    double[]	buffer;
+    double[]	original;
+    Random	rnd;
+    int		i;
+
+    rnd    = new Random(1);
+    fft    = new RadixTwoFFT(64);
+    buffer = fft.newBuffer();
+    for (i = 0; i < buffer.length; i++)
+      buffer[i] = rnd.nextDouble();
+    original = buffer.clone();
+    fft.transform(buffer, false);
+    fft.transform(buffer, true);
+    for (i = 0; i < buffer.length; i++)
+      assertEquals("index " + i, original[i], buffer[i], 1e-12);
+  }
+
+  /**
+   * Tests that invalid sizes get rejected.
+   */
+  public void testInvalidSize() {
+    try {
+      new RadixTwoFFT(12);
+      fail("size 12 accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(RadixTwoFFTTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompactInstanceTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.instance;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the CompactInstance class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CompactInstanceTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public CompactInstanceTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with a single row.
+   *
+   * @param numAtts	the number of attributes
+   * @return		the data
+   */
+  protected Instances generate(int numAtts) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    double[]			values;
+    Random			rand;
+    int				i;
+
+    atts = new ArrayList<>();
+    for (i = 0; i < numAtts; i++)
+      atts.add(new Attribute("att-" + (i + 1)));
+    result = new Instances("compact", atts, 1);
+    rand   = new Random(1);
+    values = new double[numAtts];
+    for (i = 0; i < numAtts; i++)
+      values[i] = rand.nextGaussian();
+    result.add(new DenseInstance(1.0, values));
+    result.setClassIndex(numAtts - 1);
+
+    return result;
+  }
+
+  /**
+   * Compares the points of the two containers.
+   *
+   * @param expected	the expected points
+   * @param actual	the actual points
+   */
+  protected void compare(Instance expected, Instance actual) {
+    List<InstancePoint>	listExp;
+    List<InstancePoint>	listAct;
+    int			i;
+
+    assertEquals("size", expected.size(), actual.size());
+    listExp = expected.toList();
+    listAct = actual.toList();
+    for (i = 0; i < listExp.size(); i++) {
+      assertEquals("x #" + i, listExp.get(i).getX(), listAct.get(i).getX());
+      assertEquals("y #" + i, listExp.get(i).getY(), listAct.get(i).getY());
+    }
+  }
+
+  /**
+   * Tests setting the values from a weka.core.Instance.
+   */
+  public void testSet() {
+    Instances		data;
+    Instance		expected;
+    CompactInstance	actual;
+    int[]		indices;
+    double[]		values;
+    int			i;
+
+    data     = generate(1000);
+    expected = new Instance();
+    expected.set(data.instance(0));
+    actual   = new CompactInstance();
+    actual.set(data.instance(0));
+    compare(expected, actual);
+
+    indices = actual.toIndexArray();
+    values  = actual.toDoubleArray();
+    assertEquals("number of indices", 999, indices.length);
+    for (i = 0; i < indices.length; i++) {
+      assertEquals("index #" + i, i, indices[i]);
+      assertEquals("value #" + i, data.instance(0).value(i), values[i], 0.0);
+      assertEquals("attribute index #" + i, i, actual.getAttributeIndex(i));
+      assertEquals("getValue #" + i, values[i], actual.getValue(i), 0.0);
+    }
+
+    assertNotNull("toInstance", actual.toInstance());
+    assertEquals("toInstance", expected.toInstance().toString(), actual.toInstance().toString());
+  }
+
+  /**
+   * Tests adding and removing points.
+   */
+  public void testModify() {
+    Instance			expected;
+    CompactInstance		actual;
+    Random			rand;
+    InstancePoint		point;
+    Iterator<InstancePoint>	iter;
+    int				i;
+
+    expected = new Instance();
+    actual   = new CompactInstance();
+    rand     = new Random(42);
+    for (i = 0; i < 500; i++) {
+      point = new InstancePoint(rand.nextInt(200), rand.nextDouble());
+      assertEquals("add #" + i, expected.add(point), actual.add(point));
+    }
+    compare(expected, actual);
+
+    for (i = 0; i < 100; i++) {
+      point = new InstancePoint(rand.nextInt(200), 0.0);
+      assertEquals("contains #" + i, expected.contains(point), actual.contains(point));
+      assertEquals("remove #" + i, expected.remove(point), actual.remove(point));
+    }
+    compare(expected, actual);
+
+    iter = actual.iterator();
+    while (iter.hasNext()) {
+      point = iter.next();
+      if (point.getX() % 2 == 0)
+	iter.remove();
+    }
+    iter = expected.iterator();
+    while (iter.hasNext()) {
+      point = iter.next();
+      if (point.getX() % 2 == 0)
+	iter.remove();
+    }
+    compare(expected, actual);
+
+    actual.clear();
+    assertTrue("empty", actual.isEmpty());
+    assertEquals("no indices", 0, actual.toIndexArray().length);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(CompactInstanceTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
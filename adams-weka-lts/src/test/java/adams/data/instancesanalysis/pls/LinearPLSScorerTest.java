@@ -0,0 +1,164 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LinearPLSScorerTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.instancesanalysis.pls;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests the LinearPLSScorer class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LinearPLSScorerTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public LinearPLSScorerTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with a numeric class as second attribute and
+   * some missing values.
+   *
+   * @return		the dataset
+   */
+  protected Instances generate() {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    Random			rnd;
+    double[]			values;
+    int				i;
+    int				n;
+
+    atts = new ArrayList<>();
+    for (i = 0; i < 6; i++)
+      atts.add(new Attribute("att" + (i + 1)));
+    result = new Instances("test", atts, 40);
+    result.setClassIndex(1);
+    rnd = new Random(1);
+    for (i = 0; i < 40; i++) {
+      values = new double[result.numAttributes()];
+      for (n = 0; n < values.length; n++)
+	values[n] = rnd.nextDouble() * (n + 1);
+      values[1] = 2.0 * values[0] - values[3] + 0.5 * values[5] + rnd.nextGaussian() * 0.1;
+      if (i % 7 == 3)
+	values[2 + (i % 3)] = Utils.missingValue();
+      result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Compares the scorer against the predictions of the trained scheme.
+   *
+   * @param pls		the scheme to check
+   * @throws Exception	if training or predicting fails
+   */
+  protected void check(AbstractSingleClassPLS pls) throws Exception {
+    Instances		data;
+    Instances		pred;
+    LinearPLSScorer	scorer;
+    int			i;
+
+    data = generate();
+    pls.setNumComponents(3);
+    pls.setReplaceMissing(true);
+    pls.setPredictionType(PredictionType.EXCEPT_CLASS);
+    pls.determineOutputFormat(data);
+    pls.transform(data);
+    pls.setPredictionType(PredictionType.ALL);
+    pred   = pls.transform(data);
+    scorer = pls.compileScorer(new Instances(data, 0));
+    assertNotNull("scorer", scorer);
+    for (i = 0; i < data.numInstances(); i++)
+      assertEquals("row " + i, pred.instance(i).classValue(), scorer.score(data.instance(i)), 1e-8);
+  }
+
+  /**
+   * Tests PLS1 with standardizing.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testPLS1() throws Exception {
+    PLS1	pls;
+
+    pls = new PLS1();
+    pls.setPreprocessingType(PreprocessingType.STANDARDIZE);
+    check(pls);
+  }
+
+  /**
+   * Tests SIMPLS with centering.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testSIMPLS() throws Exception {
+    SIMPLS	pls;
+
+    pls = new SIMPLS();
+    pls.setPreprocessingType(PreprocessingType.CENTER);
+    check(pls);
+  }
+
+  /**
+   * Tests that untrained schemes don't get compiled.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testNotInitialized() throws Exception {
+    assertNull("not initialized", new PLS1().compileScorer(generate()));
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(LinearPLSScorerTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstancesUndoStoreTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.data.weka;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+
+/**
+ * Tests the InstancesUndoStore class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InstancesUndoStoreTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public InstancesUndoStoreTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a simple dataset.
+   *
+   * @return		the dataset
+   */
+  protected Instances generate() {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    int				i;
+
+    atts = new ArrayList<>();
+    atts.add(new Attribute("a"));
+    atts.add(new Attribute("b"));
+    result = new Instances("test", atts, 10);
+    result.setClassIndex(1);
+    for (i = 0; i < 10; i++)
+      result.add(new DenseInstance(1.0, new double[]{i, i * 2}));
+
+    return result;
+  }
+
+  /**
+   * Tests that modifications of the data don't affect the snapshots.
+   */
+  public void testCopyOnWrite() {
+    InstancesUndoStore	store;
+    Instances		data;
+    Instances		restored;
+    long		key;
+
+    store = new InstancesUndoStore(-1, -1);
+    data  = generate();
+    key   = store.add(data);
+    data.instance(3).setValue(0, 42.0);
+    data.instance(4).setWeight(2.0);
+    data.attribute(1).setWeight(3.0);
+    data.delete(0);
+
+    restored = store.remove(key);
+    assertNotNull("snapshot", restored);
+    assertEquals("rows", 10, restored.numInstances());
+    assertEquals("class", 1, restored.classIndex());
+    assertEquals("value", 3.0, restored.instance(3).value(0));
+    assertEquals("instance weight", 1.0, restored.instance(4).weight());
+    assertEquals("attribute weight", 1.0, restored.attribute(1).weight());
+    assertEquals("size", 0, store.size());
+    assertNull("removed", store.remove(key));
+  }
+
+  /**
+   * Tests spilling to and discarding from disk.
+   */
+  public void testBudgets() {
+    InstancesUndoStore	store;
+    Instances		data;
+    Instances		restored;
+    long		first;
+    long		second;
+
+    store  = new InstancesUndoStore(0, -1);
+    data   = generate();
+    first  = store.add(data);
+    data.instance(0).setValue(1, -1.0);
+    second = store.add(data);
+    assertEquals("memory", 0, store.getMemoryUsed());
+    assertTrue("disk", store.getDiskUsed() > 0);
+    restored = store.remove(second);
+    assertEquals("value", -1.0, restored.instance(0).value(1));
+    restored = store.remove(first);
+    assertEquals("value", 0.0, restored.instance(0).value(1));
+    assertEquals("disk", 0, store.getDiskUsed());
+
+    store = new InstancesUndoStore(0, 0);
+    first = store.add(data);
+    assertFalse("discarded", store.contains(first));
+    assertEquals("disk", 0, store.getDiskUsed());
+    store.cleanUp();
+  }
+
+  /**
+   * Generates a dataset with many attributes.
+   *
+   * @param rows	the number of rows
+   * @param cols	the number of attributes
+   * @return		the dataset
+   */
+  protected Instances generate(int rows, int cols) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    double[]			values;
+    int				i;
+    int				n;
+
+    atts = new ArrayList<>();
+    for (i = 0; i < cols; i++)
+      atts.add(new Attribute("att" + i));
+    result = new Instances("test", atts, rows);
+    for (i = 0; i < rows; i++) {
+      values = new double[cols];
+      for (n = 0; n < cols; n++)
+	values[n] = i * cols + n;
+      result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Tests that a single cell edit on a dataset larger than the memory budget
+   * only costs about one row of memory or disk.
+   */
+  public void testSharedRows() {
+    InstancesUndoStore	store;
+    Instances		data;
+    Instances		restored;
+    long		rowSize;
+    long		used;
+    long		first;
+    long		second;
+    int			cols;
+
+    cols    = 5000;
+    rowSize = cols * 8L;
+
+    // memory
+    store  = new InstancesUndoStore(1024 * 1024, 0);
+    data   = generate(100, cols);
+    assertTrue("dataset bigger than budget", data.numInstances() * rowSize > store.getMaxMemory());
+    first  = store.add(data);
+    assertEquals("disk", 0, store.getDiskUsed());
+    used   = store.getMemoryUsed();
+    assertTrue("memory within budget", used <= store.getMaxMemory());
+    data.instance(10).setValue(3, -1.0);
+    second = store.add(data);
+    assertEquals("disk", 0, store.getDiskUsed());
+    assertTrue("memory at least one row", store.getMemoryUsed() - used >= rowSize);
+    assertTrue("memory about one row", store.getMemoryUsed() - used < 2 * rowSize);
+    restored = store.remove(second);
+    assertEquals("value", -1.0, restored.instance(10).value(3));
+    restored = store.remove(first);
+    assertEquals("value", 10.0 * cols + 3, restored.instance(10).value(3));
+    assertEquals("rows", 100, restored.numInstances());
+    assertEquals("memory", 0, store.getMemoryUsed());
+
+    // disk
+    store  = new InstancesUndoStore(0, -1);
+    data   = generate(100, cols);
+    first  = store.add(data);
+    assertEquals("memory", 0, store.getMemoryUsed());
+    used   = store.getDiskUsed();
+    data.instance(10).setValue(3, -1.0);
+    second = store.add(data);
+    assertEquals("memory", 0, store.getMemoryUsed());
+    assertTrue("disk at least one row", store.getDiskUsed() - used >= rowSize);
+    assertTrue("disk about one row", store.getDiskUsed() - used < 2 * rowSize);
+    restored = store.remove(second);
+    assertEquals("value", -1.0, restored.instance(10).value(3));
+    restored = store.remove(first);
+    assertEquals("value", 10.0 * cols + 3, restored.instance(10).value(3));
+    assertEquals("disk", 0, store.getDiskUsed());
+    store.cleanUp();
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(InstancesUndoStoreTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -29,7 +29,13 @@ import adams.flow.control.Flow;
 import adams.flow.core.Actor;
 import adams.flow.sink.DumpFile;
 import adams.flow.source.StringConstants;
+import adams.flow.core.Token;
 import adams.test.TmpFile;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
 
 /**
  * Tests the WekaInstancesMerge actor.
@@ -103,6 +109,167 @@ public class WekaInstancesMergeTest
     return flow;
   }
 
+  /**
+   * Generates a dataset with a numeric ID, a numeric and a string attribute.
+   *
+   * @param name	the relation name
+   * @param ids		the IDs
+   * @param values	the numeric values
+   * @return		the dataset
+   */
+  protected Instances newDataset(String name, double[] ids, double[] values) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    double[]			row;
+    int				i;
+
+    atts = new ArrayList<>();
+    atts.add(new Attribute("id"));
+    atts.add(new Attribute("value"));
+    atts.add(new Attribute("text", (ArrayList<String>) null));
+    result = new Instances(name, atts, ids.length);
+    for (i = 0; i < ids.length; i++) {
+      row    = new double[3];
+      row[0] = ids[i];
+      row[1] = values[i];
+      row[2] = result.attribute(2).addStringValue(name + "-" + ids[i]);
+      result.add(new DenseInstance(1.0, row));
+    }
+
+    return result;
+  }
+
+  /**
+   * Merges the datasets on the "id" attribute.
+   *
+   * @param data	the datasets to merge
+   * @param remove	whether to remove incomplete rows
+   * @param strict	whether to enforce unique IDs
+   * @param numThreads	the number of threads to use
+   * @return		the merged dataset, or the error message (String)
+   */
+  protected Object merge(Instances[] data, boolean remove, boolean strict, int numThreads) {
+    WekaInstancesMerge	actor;
+    String		result;
+    Token		output;
+
+    actor = new WekaInstancesMerge();
+    actor.setUniqueID("id");
+    actor.setUsePrefix(true);
+    actor.setAddIndex(true);
+    actor.setRemove(remove);
+    actor.setStrict(strict);
+    actor.setNumThreads(numThreads);
+
+    result = actor.setUp();
+    assertNull("setUp() of actor failed: " + result, result);
+    actor.input(new Token(data));
+    result = actor.execute();
+    output = actor.hasPendingOutput() ? actor.output() : null;
+    actor.wrapUp();
+    actor.cleanUp();
+    if (result != null)
+      return result;
+    assertNotNull("No output generated", output);
+
+    return output.getPayload();
+  }
+
+  /**
+   * Tests merging on a unique ID: sorted IDs, missing values for IDs not
+   * present in all datasets, removal of incomplete rows.
+   */
+  public void testUniqueID() {
+    Instances[]	data;
+    Instances	merged;
+
+    data = new Instances[]{
+      newDataset("a", new double[]{3, 1, 2, 5}, new double[]{30, 10, 20, 50}),
+      newDataset("b", new double[]{2, 3, 1, 4}, new double[]{-2, -3, -1, -4}),
+    };
+
+    merged = (Instances) merge(data, false, false, 1);
+    assertEquals("attributes", 6, merged.numAttributes());
+    assertEquals("name", "dataset-1-id", merged.attribute(0).name());
+    assertEquals("name", "dataset-2-value", merged.attribute(4).name());
+    assertEquals("rows", 5, merged.numInstances());
+    // sorted by ID
+    assertEquals("id", 1.0, merged.instance(0).value(0));
+    assertEquals("id", 2.0, merged.instance(1).value(0));
+    assertEquals("id", 3.0, merged.instance(2).value(0));
+    assertEquals("id", 4.0, merged.instance(3).value(3));
+    assertEquals("id", 5.0, merged.instance(4).value(0));
+    assertEquals("value", 30.0, merged.instance(2).value(1));
+    assertEquals("value", -3.0, merged.instance(2).value(4));
+    assertEquals("text", "a-3.0", merged.instance(2).stringValue(2));
+    assertEquals("text", "b-3.0", merged.instance(2).stringValue(5));
+    // incomplete rows
+    assertTrue("missing", merged.instance(3).isMissing(0));
+    assertTrue("missing", merged.instance(3).isMissing(1));
+    assertTrue("missing", merged.instance(3).isMissing(2));
+    assertEquals("value", -4.0, merged.instance(3).value(4));
+    assertTrue("missing", merged.instance(4).isMissing(3));
+    assertTrue("missing", merged.instance(4).isMissing(5));
+
+    merged = (Instances) merge(data, true, false, 1);
+    assertEquals("rows", 3, merged.numInstances());
+    assertEquals("id", 1.0, merged.instance(0).value(0));
+    assertEquals("id", 2.0, merged.instance(1).value(3));
+    assertEquals("id", 3.0, merged.instance(2).value(0));
+    assertEquals("value", -1.0, merged.instance(0).value(4));
+  }
+
+  /**
+   * Tests that strict mode rejects duplicate IDs, while non-strict mode
+   * uses the last occurrence.
+   */
+  public void testStrict() {
+    Instances[]	data;
+    Object	merged;
+
+    data = new Instances[]{
+      newDataset("a", new double[]{1, 2, 1}, new double[]{10, 20, 11}),
+      newDataset("b", new double[]{1, 2}, new double[]{-1, -2}),
+    };
+
+    merged = merge(data, false, true, 1);
+    assertTrue("error expected", merged instanceof String);
+
+    merged = merge(data, false, false, 1);
+    assertTrue("dataset expected", merged instanceof Instances);
+    assertEquals("rows", 2, ((Instances) merged).numInstances());
+    assertEquals("value", 11.0, ((Instances) merged).instance(0).value(1));
+  }
+
+  /**
+   * Tests that filling the datasets in parallel generates the same output
+   * as sequential execution.
+   */
+  public void testNumThreads() {
+    Instances[]	data;
+    double[]	ids;
+    double[]	values;
+    String	sequential;
+    int		i;
+    int		n;
+
+    data = new Instances[5];
+    for (i = 0; i < data.length; i++) {
+      ids    = new double[500];
+      values = new double[ids.length];
+      for (n = 0; n < ids.length; n++) {
+	ids[n]    = (n * 7 + i * 13) % 600;
+	values[n] = i * 1000 + n;
+      }
+      data[i] = newDataset("d" + i, ids, values);
+    }
+
+    sequential = merge(data, false, false, 1).toString();
+    assertEquals("2 threads", sequential, merge(data, false, false, 2).toString());
+    assertEquals("4 threads", sequential, merge(data, false, false, 4).toString());
+    assertEquals("removed", merge(data, true, false, 1).toString(), merge(data, true, false, 4).toString());
+  }
+
   /**
    * Performs a regression test, comparing against previously generated output.
    */
@@ -0,0 +1,209 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BootstrapPredictionsTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.flow.transformer.wekabootstrapping;
+
+import adams.env.Environment;
+import adams.flow.core.EvaluationStatistic;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.classifiers.Evaluation;
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.evaluation.NumericPrediction;
+import weka.classifiers.evaluation.Prediction;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests BootstrapPredictions, comparing the directly calculated statistics
+ * against the ones of a "fake" Evaluation.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BootstrapPredictionsTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public BootstrapPredictionsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a random sub-sample (with replacement).
+   *
+   * @param rand	the random number generator to use
+   * @param num		the number of predictions
+   * @return		the indices
+   */
+  protected int[] subset(Random rand, int num) {
+    int[]	result;
+    int		i;
+
+    result = new int[num * 2 / 3];
+    for (i = 0; i < result.length; i++)
+      result[i] = rand.nextInt(num);
+
+    return result;
+  }
+
+  /**
+   * Tests a numeric class.
+   *
+   * @throws Exception	if evaluation fails
+   */
+  public void testNumeric() throws Exception {
+    ArrayList<Attribute>	atts;
+    Instances			header;
+    List<Prediction>		preds;
+    BootstrapPredictions	bp;
+    Random			rand;
+    int[]			subset;
+    double[]			values;
+    Evaluation			eval;
+    double			actual;
+    int				i;
+    EvaluationStatistic[]	stats;
+
+    atts = new ArrayList<>();
+    atts.add(new Attribute("class"));
+    header = new Instances("numeric", atts, 0);
+    header.setClassIndex(0);
+    rand  = new Random(1);
+    preds = new ArrayList<>();
+    for (i = 0; i < 200; i++) {
+      actual = rand.nextGaussian() * 10;
+      preds.add(new NumericPrediction(actual, actual + rand.nextGaussian(), 0.5 + rand.nextDouble()));
+    }
+    stats = new EvaluationStatistic[]{
+      EvaluationStatistic.MEAN_ABSOLUTE_ERROR,
+      EvaluationStatistic.ROOT_MEAN_SQUARED_ERROR,
+      EvaluationStatistic.RELATIVE_ABSOLUTE_ERROR,
+      EvaluationStatistic.ROOT_RELATIVE_SQUARED_ERROR,
+      EvaluationStatistic.CORRELATION_COEFFICIENT,
+    };
+
+    bp = new BootstrapPredictions(header, preds);
+    assertTrue("supported", bp.isSupported(stats));
+    for (i = 0; i < 5; i++) {
+      subset = subset(rand, preds.size());
+      values = bp.calculate(subset, stats, -1);
+      eval   = bp.toEvaluation(subset, "test");
+      assertEquals("MAE", eval.meanAbsoluteError(), values[0], 1E-10);
+      assertEquals("RMSE", eval.rootMeanSquaredError(), values[1], 1E-10);
+      assertEquals("RAE", eval.relativeAbsoluteError(), values[2], 1E-10);
+      assertEquals("RRSE", eval.rootRelativeSquaredError(), values[3], 1E-10);
+      assertEquals("CC", eval.correlationCoefficient(), values[4], 1E-10);
+    }
+  }
+
+  /**
+   * Tests a nominal class.
+   *
+   * @throws Exception	if evaluation fails
+   */
+  public void testNominal() throws Exception {
+    ArrayList<Attribute>	atts;
+    ArrayList<String>		labels;
+    Instances			header;
+    List<Prediction>		preds;
+    BootstrapPredictions	bp;
+    Random			rand;
+    int[]			subset;
+    double[]			values;
+    double[]			dist;
+    Evaluation			eval;
+    int				i;
+    int				n;
+    EvaluationStatistic[]	stats;
+
+    labels = new ArrayList<>();
+    labels.add("a");
+    labels.add("b");
+    labels.add("c");
+    atts = new ArrayList<>();
+    atts.add(new Attribute("class", labels));
+    header = new Instances("nominal", atts, 0);
+    header.setClassIndex(0);
+    rand  = new Random(2);
+    preds = new ArrayList<>();
+    for (i = 0; i < 200; i++) {
+      dist = new double[labels.size()];
+      // every 20th prediction is unclassified
+      if (i % 20 != 0) {
+	for (n = 0; n < dist.length; n++)
+	  dist[n] = rand.nextDouble();
+      }
+      preds.add(new NominalPrediction(rand.nextInt(labels.size()), dist, 0.5 + rand.nextDouble()));
+    }
+    stats = new EvaluationStatistic[]{
+      EvaluationStatistic.PERCENT_CORRECT,
+      EvaluationStatistic.PERCENT_UNCLASSIFIED,
+      EvaluationStatistic.KAPPA_STATISTIC,
+      EvaluationStatistic.FALSE_POSITIVE_RATE,
+      EvaluationStatistic.TRUE_NEGATIVE_RATE,
+      EvaluationStatistic.IR_PRECISION,
+      EvaluationStatistic.F_MEASURE,
+    };
+
+    bp = new BootstrapPredictions(header, preds);
+    assertTrue("supported", bp.isSupported(stats));
+    assertFalse("AUC not supported", bp.isSupported(EvaluationStatistic.AREA_UNDER_ROC));
+    for (i = 0; i < 5; i++) {
+      subset = subset(rand, preds.size());
+      values = bp.calculate(subset, stats, 1);
+      eval   = bp.toEvaluation(subset, "test");
+      assertEquals("% correct", eval.pctCorrect(), values[0], 1E-10);
+      assertEquals("% unclassified", eval.pctUnclassified(), values[1], 1E-10);
+      assertEquals("kappa", eval.kappa(), values[2], 1E-10);
+      assertEquals("FPR", eval.falsePositiveRate(1), values[3], 1E-10);
+      assertEquals("TNR", eval.trueNegativeRate(1), values[4], 1E-10);
+      assertEquals("precision", eval.precision(1), values[5], 1E-10);
+      assertEquals("F", eval.fMeasure(1), values[6], 1E-10);
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(BootstrapPredictionsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
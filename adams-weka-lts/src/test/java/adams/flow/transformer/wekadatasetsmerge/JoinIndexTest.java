@@ -0,0 +1,177 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JoinIndexTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.flow.transformer.wekadatasetsmerge;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the JoinIndex class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JoinIndexTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public JoinIndexTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Tests numeric IDs, including -0.0 and NaN (Double.equals semantics).
+   */
+  public void testNumeric() {
+    JoinIndex	index;
+
+    index = new JoinIndex(2, true, 0);
+    assertTrue("numeric", index.isNumeric());
+    assertEquals("datasets", 2, index.getNumDatasets());
+
+    // slots in order of first occurrence
+    assertEquals("slot", 0, index.add(0, 3.0, 0));
+    assertEquals("slot", 1, index.add(0, 1.0, 1));
+    assertEquals("slot", 2, index.add(0, 0.0, 2));
+    assertEquals("slot", 3, index.add(0, -0.0, 3));
+    assertEquals("slot", 4, index.add(0, Double.NaN, 4));
+    assertEquals("slot", 4, index.add(1, Double.NaN, 0));
+    assertEquals("slot", 0, index.add(1, 3.0, 1));
+    assertEquals("slot", 2, index.add(1, 0.0, 2));
+    assertEquals("size", 5, index.size());
+
+    assertEquals("ID", 3.0, index.getNumericID(0));
+    assertEquals("ID", 1.0, index.getNumericID(1));
+    assertEquals("ID", 0.0, index.getNumericID(2));
+    assertEquals("ID", -0.0, index.getNumericID(3));
+    assertTrue("ID", Double.isNaN(index.getNumericID(4)));
+
+    assertEquals("indexOf", 2, index.indexOf(0.0));
+    assertEquals("indexOf", 3, index.indexOf(-0.0));
+    assertEquals("indexOf", 4, index.indexOf(Double.NaN));
+    assertEquals("indexOf", 4, index.indexOf(0.0 / 0.0));
+    assertEquals("indexOf", JoinIndex.MISSING, index.indexOf(2.0));
+
+    assertEquals("row", 1, index.getRow(0, 1));
+    assertEquals("row", JoinIndex.MISSING, index.getRow(1, 1));
+    assertEquals("row", JoinIndex.MISSING, index.getRow(3, 1));
+    assertTrue("complete", index.isComplete(0));
+    assertFalse("complete", index.isComplete(1));
+    assertTrue("complete", index.isComplete(4));
+    assertEquals("row set", 4, index.getRowSet(4)[0]);
+    assertEquals("row set", 0, index.getRowSet(4)[1]);
+
+    // replacing a row doesn't add a slot
+    assertEquals("slot", 1, index.add(0, 1.0, 7));
+    assertEquals("row", 7, index.getRow(1, 0));
+    assertEquals("size", 5, index.size());
+  }
+
+  /**
+   * Tests string IDs.
+   */
+  public void testString() {
+    JoinIndex	index;
+
+    index = new JoinIndex(2, false, 0);
+    assertFalse("numeric", index.isNumeric());
+    assertEquals("slot", 0, index.add(0, "b", 0));
+    assertEquals("slot", 1, index.add(0, "a", 1));
+    assertEquals("slot", 1, index.add(1, "a", 0));
+    assertEquals("slot", 2, index.add(1, "c", 1));
+    assertEquals("slot", 0, index.add(1, new String("b"), 2));
+    assertEquals("size", 3, index.size());
+
+    assertEquals("ID", "b", index.getStringID(0));
+    assertEquals("ID", "a", index.getStringID(1));
+    assertEquals("ID", "c", index.getStringID(2));
+    assertEquals("indexOf", 2, index.indexOf("c"));
+    assertEquals("indexOf", JoinIndex.MISSING, index.indexOf("d"));
+
+    assertTrue("complete", index.isComplete(0));
+    assertTrue("complete", index.isComplete(1));
+    assertFalse("complete", index.isComplete(2));
+    assertEquals("row", 2, index.getRow(0, 1));
+    assertEquals("row", JoinIndex.MISSING, index.getRow(2, 0));
+  }
+
+  /**
+   * Tests the slots sorted by ID.
+   */
+  public void testSortedSlots() {
+    JoinIndex	index;
+    int[]	sorted;
+
+    index = new JoinIndex(1, true, 0);
+    index.add(0, 3.0, 0);
+    index.add(0, Double.NaN, 1);
+    index.add(0, 1.0, 2);
+    index.add(0, 0.0, 3);
+    index.add(0, -0.0, 4);
+    index.add(0, -5.0, 5);
+    sorted = index.sortedSlots();
+    // -5.0, -0.0, 0.0, 1.0, 3.0, NaN
+    assertEquals("length", 6, sorted.length);
+    assertEquals("slot", 5, sorted[0]);
+    assertEquals("slot", 4, sorted[1]);
+    assertEquals("slot", 3, sorted[2]);
+    assertEquals("slot", 2, sorted[3]);
+    assertEquals("slot", 0, sorted[4]);
+    assertEquals("slot", 1, sorted[5]);
+
+    index = new JoinIndex(1, false, 0);
+    index.add(0, "b", 0);
+    index.add(0, "c", 1);
+    index.add(0, "a", 2);
+    index.add(0, "B", 3);
+    sorted = index.sortedSlots();
+    // B, a, b, c
+    assertEquals("length", 4, sorted.length);
+    assertEquals("slot", 3, sorted[0]);
+    assertEquals("slot", 2, sorted[1]);
+    assertEquals("slot", 0, sorted[2]);
+    assertEquals("slot", 1, sorted[3]);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(JoinIndexTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstancesViewTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.ml.data;
+
+import adams.data.spreadsheet.Cell;
+import adams.data.spreadsheet.Cell.ContentType;
+import adams.data.spreadsheet.DataRow;
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the InstancesView class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InstancesViewTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public InstancesViewTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a simple dataset.
+   *
+   * @return		the dataset
+   */
+  protected Instances generate() {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    List<String>		labels;
+    int				i;
+
+    labels = new ArrayList<>();
+    labels.add("yes");
+    labels.add("no");
+    atts = new ArrayList<>();
+    atts.add(new Attribute("num"));
+    atts.add(new Attribute("nom", labels));
+    result = new Instances("test", atts, 10);
+    for (i = 0; i < 10; i++)
+      result.add(new DenseInstance(1.0, new double[]{i, i % 2}));
+
+    return result;
+  }
+
+  /**
+   * Tests the cursors.
+   */
+  public void testCursors() {
+    InstancesView	view;
+    int			count;
+    double		sum;
+
+    view  = new InstancesView(generate());
+    count = 0;
+    for (DataRow row: view.rowCursor()) {
+      assertEquals("row " + count, (double) count, row.getCell(0).toDouble());
+      count++;
+    }
+    assertEquals("rows", 10, count);
+
+    sum = 0;
+    for (Cell cell: view.columnCursor(0))
+      sum += cell.toDouble();
+    assertEquals("sum", 45.0, sum);
+
+    assertEquals("row keys", 10, view.rowKeys().size());
+    assertEquals("rows", 10, view.rows().size());
+    assertEquals("labels", 2, view.getCellValues(1).size());
+  }
+
+  /**
+   * Tests that modifications invalidate the cached metadata.
+   */
+  public void testMetadata() {
+    InstancesView	view;
+
+    view = new InstancesView(generate());
+    assertTrue("numeric", view.isNumeric(0));
+    assertEquals("type", ContentType.DOUBLE, view.getContentType(0));
+
+    view.getCell(3, 0).setMissing();
+    assertFalse("numeric with missing", view.isNumeric(0));
+    assertTrue("numeric allowing missing", view.isNumeric(0, true));
+    assertNull("mixed type", view.getContentType(0));
+
+    view.getCell(3, 0).setContent(3.0);
+    assertTrue("numeric again", view.isNumeric(0));
+
+    view.getData().instance(4).setMissing(0);
+    view.invalidateMetadata();
+    assertFalse("external modification", view.isNumeric(0));
+
+    view.removeRow(4);
+    assertTrue("row removed", view.isNumeric(0));
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(InstancesViewTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
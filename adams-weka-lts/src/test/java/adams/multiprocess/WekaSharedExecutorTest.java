@@ -0,0 +1,119 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WekaSharedExecutorTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.multiprocess;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Tests the WekaSharedExecutor class.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WekaSharedExecutorTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public WekaSharedExecutorTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Tests that nested batches get executed and the results are in order.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testNested() throws Exception {
+    List<Callable<Integer>>	outer;
+    List<Integer>		results;
+    int				i;
+
+    outer = new ArrayList<>();
+    for (i = 0; i < 8; i++) {
+      final int index = i;
+      outer.add(() -> {
+	List<Callable<Integer>> inner = new ArrayList<>();
+	for (int n = 0; n < 8; n++) {
+	  final int value = index * 10 + n;
+	  inner.add(() -> value);
+	}
+	int sum = 0;
+	for (int value: WekaSharedExecutor.invokeAll(inner, 4))
+	  sum += value;
+	return sum;
+      });
+    }
+
+    results = WekaSharedExecutor.invokeAll(outer, -1);
+    assertEquals("number of results", 8, results.size());
+    for (i = 0; i < results.size(); i++)
+      assertEquals("result " + i, i * 80 + 28, (int) results.get(i));
+  }
+
+  /**
+   * Tests that exceptions get passed on.
+   */
+  public void testException() {
+    List<Callable<Integer>>	jobs;
+
+    jobs = new ArrayList<>();
+    jobs.add(() -> 1);
+    jobs.add(() -> {
+      throw new IllegalStateException("failed");
+    });
+    try {
+      WekaSharedExecutor.invokeAll(jobs, 2);
+      fail("exception not passed on");
+    }
+    catch (Exception e) {
+      assertEquals("message", "failed", e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(WekaSharedExecutorTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
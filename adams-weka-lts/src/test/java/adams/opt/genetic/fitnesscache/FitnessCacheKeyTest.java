@@ -0,0 +1,126 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FitnessCacheKeyTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package adams.opt.genetic.fitnesscache;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.util.Random;
+
+/**
+ * Tests FitnessCacheKey.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FitnessCacheKeyTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public FitnessCacheKeyTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates random weights.
+   *
+   * @param rand	the random number generator to use
+   * @param num		the number of weights
+   * @param bits	the bits per weight
+   * @return		the weights
+   */
+  protected int[] weights(Random rand, int num, int bits) {
+    int[]	result;
+    int		i;
+
+    result = new int[num];
+    for (i = 0; i < num; i++)
+      result[i] = (int) (rand.nextLong() & ((1L << bits) - 1));
+
+    return result;
+  }
+
+  /**
+   * Tests that keys can be turned into strings and parsed again.
+   */
+  public void testParse() {
+    FitnessCacheKey	key;
+    FitnessCacheKey	parsed;
+    Random		rand;
+
+    rand = new Random(1);
+    for (int bits: new int[]{1, 5, 13, 32}) {
+      for (int num: new int[]{0, 1, 63, 64, 65, 200}) {
+	key    = FitnessCacheKey.fromWeights(weights(rand, num, bits), bits);
+	parsed = FitnessCacheKey.parse(key.toString());
+	assertEquals("bits=" + bits + ", num=" + num, key, parsed);
+	assertEquals("hashcode, bits=" + bits + ", num=" + num, key.hashCode(), parsed.hashCode());
+	assertEquals("length, bits=" + bits + ", num=" + num, num, parsed.length());
+      }
+    }
+  }
+
+  /**
+   * Tests that different weights result in different keys.
+   */
+  public void testDifferent() {
+    int[]	weights;
+    int[]	other;
+    Random	rand;
+    int		i;
+
+    rand = new Random(2);
+    for (int bits: new int[]{1, 5, 13, 32}) {
+      weights = weights(rand, 100, bits);
+      assertEquals("bits=" + bits, FitnessCacheKey.fromWeights(weights, bits), FitnessCacheKey.fromWeights(weights.clone(), bits));
+      for (i = 0; i < weights.length; i++) {
+	other     = weights.clone();
+	other[i] ^= 1;
+	assertFalse("bits=" + bits + ", index=" + i, FitnessCacheKey.fromWeights(weights, bits).equals(FitnessCacheKey.fromWeights(other, bits)));
+      }
+    }
+    assertFalse("length", FitnessCacheKey.fromWeights(new int[3], 1).equals(FitnessCacheKey.fromWeights(new int[4], 1)));
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(FitnessCacheKeyTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MergeEvaluationsTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.classifiers;
+
+import adams.env.Environment;
+import adams.flow.container.WekaTrainTestSetContainer;
+import adams.test.AbstractTestHelper;
+import adams.test.AdamsTestCase;
+import adams.test.TestHelper;
+import adams.test.TmpFile;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.classifiers.functions.LinearRegression;
+import weka.classifiers.trees.J48;
+import weka.core.Instances;
+import weka.core.converters.ConverterUtils.DataSource;
+
+/**
+ * Tests weka.classifiers.MergeEvaluations.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class MergeEvaluationsTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public MergeEvaluationsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the test helper class to use.
+   *
+   * @return		the helper class instance
+   */
+  @Override
+  protected AbstractTestHelper newTestHelper() {
+    return new TestHelper(this, "weka/classifiers/data");
+  }
+
+  /**
+   * Loads the data to process.
+   *
+   * @param filename	the filename to load (without path)
+   * @return		the data, null if failed to load
+   */
+  protected Instances load(String filename) {
+    Instances	result;
+
+    m_TestHelper.copyResourceToTmp(filename);
+    try {
+      result = DataSource.read(new TmpFile(filename).getAbsolutePath());
+      result.setClassIndex(result.numAttributes() - 1);
+    }
+    catch (Exception e) {
+      result = null;
+    }
+    m_TestHelper.deleteFileFromTmp(filename);
+
+    return result;
+  }
+
+  /**
+   * Cross-validates the classifier, once with a single Evaluation object
+   * and once with merging per-fold Evaluation objects.
+   *
+   * @param data	the data to use
+   * @param cls		the classifier template
+   * @return		the evaluations: sequential, merged
+   * @throws Exception	if evaluation fails
+   */
+  protected Evaluation[] crossValidate(Instances data, Classifier cls) throws Exception {
+    DefaultCrossValidationFoldGenerator	generator;
+    WekaTrainTestSetContainer		cont;
+    Instances				train;
+    Instances				test;
+    Evaluation				eval;
+    Evaluation				evalFold;
+    MergeEvaluations			merge;
+    Classifier				copy;
+
+    generator = new DefaultCrossValidationFoldGenerator(data, 5, 42, true);
+    eval      = new Evaluation(data);
+    eval.setDiscardPredictions(true);
+    merge     = new MergeEvaluations();
+    while (generator.hasNext()) {
+      cont  = generator.next();
+      train = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TRAIN);
+      test  = (Instances) cont.getValue(WekaTrainTestSetContainer.VALUE_TEST);
+      copy  = AbstractClassifier.makeCopy(cls);
+      copy.buildClassifier(train);
+      eval.setPriors(train);
+      eval.evaluateModel(copy, test);
+      evalFold = new Evaluation(train);
+      evalFold.setDiscardPredictions(true);
+      evalFold.evaluateModel(copy, test);
+      assertNull("Failed to merge", merge.add(evalFold));
+    }
+    assertEquals("# of merged evaluations", 5, merge.count());
+    assertNotNull("No merged evaluation", merge.aggregated());
+
+    return new Evaluation[]{eval, merge.aggregated()};
+  }
+
+  /**
+   * Tests merging of nominal class statistics.
+   *
+   * @throws Exception	if evaluation fails
+   */
+  public void testNominal() throws Exception {
+    Evaluation[]	evals;
+    double[][]		matrix1;
+    double[][]		matrix2;
+    int			i;
+    int			n;
+
+    evals = crossValidate(load("anneal.arff"), new J48());
+    assertEquals("# instances", evals[0].numInstances(), evals[1].numInstances(), 1e-6);
+    assertEquals("% correct", evals[0].pctCorrect(), evals[1].pctCorrect(), 1e-6);
+    matrix1 = evals[0].confusionMatrix();
+    matrix2 = evals[1].confusionMatrix();
+    for (i = 0; i < matrix1.length; i++) {
+      for (n = 0; n < matrix1[i].length; n++)
+	assertEquals("confusion matrix cell " + (i+1) + "/" + (n+1), matrix1[i][n], matrix2[i][n], 1e-6);
+    }
+  }
+
+  /**
+   * Tests merging of numeric class statistics.
+   *
+   * @throws Exception	if evaluation fails
+   */
+  public void testNumeric() throws Exception {
+    Evaluation[]	evals;
+
+    evals = crossValidate(load("bodyfat.arff"), new LinearRegression());
+    assertEquals("# instances", evals[0].numInstances(), evals[1].numInstances(), 1e-6);
+    assertEquals("MAE", evals[0].meanAbsoluteError(), evals[1].meanAbsoluteError(), 1e-6);
+    assertEquals("RMSE", evals[0].rootMeanSquaredError(), evals[1].rootMeanSquaredError(), 1e-6);
+    assertEquals("CC", evals[0].correlationCoefficient(), evals[1].correlationCoefficient(), 1e-6);
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(MergeEvaluationsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
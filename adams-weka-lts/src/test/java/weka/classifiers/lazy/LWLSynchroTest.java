@@ -24,6 +24,17 @@ import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 import weka.classifiers.AbstractAdamsClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.TestInstances;
+import weka.core.neighboursearch.NewNNSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Tests LWLSynchro. Run from the command line with:<p>
@@ -54,6 +65,65 @@ public class LWLSynchroTest
     return new LWLSynchro();
   }
 
+  /**
+   * Tests whether concurrent predictions (lock-free with NewNNSearch) are
+   * the same as sequential ones.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testConcurrentPredictions() throws Exception {
+    TestInstances			test;
+    final Instances			data;
+    final LWLSynchro			cls;
+    double[]				expected;
+    ExecutorService			executor;
+    List<Future<double[]>>		results;
+    double[]				actual;
+    int					i;
+    int					n;
+
+    test = new TestInstances();
+    test.setNumNominal(0);
+    test.setNumNumeric(5);
+    test.setClassType(Attribute.NUMERIC);
+    test.setNumInstances(100);
+    data = test.generate();
+
+    cls = new LWLSynchro();
+    cls.setNearestNeighbourSearchAlgorithm(new NewNNSearch());
+    cls.setNoUpdate(true);
+    cls.setKNN(10);
+    cls.buildClassifier(data);
+
+    expected = new double[data.numInstances()];
+    for (i = 0; i < data.numInstances(); i++)
+      expected[i] = cls.classifyInstance(data.instance(i));
+
+    executor = Executors.newFixedThreadPool(4);
+    results  = new ArrayList<>();
+    for (n = 0; n < 4; n++) {
+      results.add(executor.submit(new Callable<double[]>() {
+	@Override
+	public double[] call() throws Exception {
+	  double[] result = new double[data.numInstances()];
+	  for (int i = 0; i < data.numInstances(); i++)
+	    result[i] = cls.classifyInstance(data.instance(i));
+	  return result;
+	}
+      }));
+    }
+    try {
+      for (n = 0; n < results.size(); n++) {
+	actual = results.get(n).get();
+	for (i = 0; i < expected.length; i++)
+	  assertEquals("thread " + (n+1) + ", instance " + (i+1), expected[i], actual[i], 1e-10);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
   /**
    * Returns the test suite.
    *
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractRandomTreeEnsembleTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, New Zealand
+ */
+
+package weka.classifiers.trees;
+
+import weka.classifiers.AbstractAdamsClassifierTest;
+import weka.classifiers.AbstractClassifier;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.TestInstances;
+import weka.core.Utils;
+
+/**
+ * Ancestor for ensembles of random trees that grow their trees and make
+ * batch predictions in parallel.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractRandomTreeEnsembleTest
+  extends AbstractAdamsClassifierTest {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name	the name of the test
+   */
+  public AbstractRandomTreeEnsembleTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a regression dataset.
+   *
+   * @return		the dataset
+   * @throws Exception	if generation fails
+   */
+  protected Instances generateData() throws Exception {
+    TestInstances	test;
+
+    test = new TestInstances();
+    test.setNumNominal(0);
+    test.setNumNumeric(10);
+    test.setClassType(Attribute.NUMERIC);
+    test.setNumInstances(500);
+
+    return test.generate();
+  }
+
+  /**
+   * Returns a small, configured ensemble.
+   *
+   * @param numThreads	the number of threads to use
+   * @return		the classifier
+   */
+  protected abstract AbstractClassifier newEnsemble(int numThreads);
+
+  /**
+   * Tests that growing the trees with different numbers of threads
+   * (including sequential) generates the same model.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testNumThreads() throws Exception {
+    Instances		data;
+    AbstractClassifier	sequential;
+    AbstractClassifier	parallel;
+    int			i;
+
+    data       = generateData();
+    sequential = newEnsemble(1);
+    sequential.buildClassifier(data);
+    for (int numThreads: new int[]{2, 4}) {
+      parallel = newEnsemble(numThreads);
+      parallel.buildClassifier(data);
+      assertEquals("model, threads " + numThreads, sequential.toString(), parallel.toString());
+      for (i = 0; i < data.numInstances(); i++)
+	assertEquals("row " + i + ", threads " + numThreads, sequential.classifyInstance(data.instance(i)), parallel.classifyInstance(data.instance(i)));
+    }
+  }
+
+  /**
+   * Tests that batch predictions are identical to predictions of single rows.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testBatchPredictions() throws Exception {
+    Instances		data;
+    AbstractClassifier	classifier;
+    double[][]		batch;
+    int			i;
+
+    data = generateData();
+    for (int numThreads: new int[]{1, 4}) {
+      classifier = newEnsemble(numThreads);
+      classifier.buildClassifier(data);
+      assertTrue("batch", classifier.implementsMoreEfficientBatchPrediction());
+      batch = classifier.distributionsForInstances(data);
+      assertEquals("rows", data.numInstances(), batch.length);
+      for (i = 0; i < data.numInstances(); i++)
+	assertEquals("row " + i + ", threads " + numThreads, classifier.classifyInstance(data.instance(i)), batch[i][0]);
+    }
+  }
+
+  /**
+   * Tests that the number of threads only gets output if not the default.
+   */
+  public void testNumThreadsOption() {
+    assertFalse("default", Utils.joinOptions(newEnsemble(1).getOptions()).contains("-num-threads"));
+    assertTrue("non-default", Utils.joinOptions(newEnsemble(4).getOptions()).contains("-num-threads 4"));
+  }
+}
@@ -24,6 +24,9 @@ import junit.framework.TestSuite;
 import junit.textui.TestRunner;
 import weka.classifiers.AbstractAdamsClassifierTest;
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.TestInstances;
 
 /**
  * Tests M5P2. Run from the command line with:<br><br>
@@ -54,6 +57,40 @@ public class M5P2Test
     return new M5P2();
   }
 
+  /**
+   * Tests that presorted indices (sequential and multi-threaded) generate
+   * the same tree as sorting at each node (no ties in the data).
+   *
+   * @throws Exception	if test fails
+   */
+  public void testPresorted() throws Exception {
+    TestInstances	test;
+    Instances		data;
+    M5P2		plain;
+    M5P2		presorted;
+
+    test = new TestInstances();
+    test.setNumNominal(0);
+    test.setNumNumeric(5);
+    test.setClassType(Attribute.NUMERIC);
+    test.setNumInstances(2000);
+    data = test.generate();
+
+    plain = new M5P2();
+    plain.buildClassifier(data);
+
+    presorted = new M5P2();
+    presorted.setPresort(true);
+    presorted.buildClassifier(data);
+    assertEquals("sequential", plain.toString(), presorted.toString());
+
+    presorted = new M5P2();
+    presorted.setPresort(true);
+    presorted.setNumThreads(4);
+    presorted.buildClassifier(data);
+    assertEquals("4 threads", plain.toString(), presorted.toString());
+  }
+
   /**
    * Returns the test suite.
    *
@@ -22,7 +22,7 @@ package weka.classifiers.trees;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import junit.textui.TestRunner;
-import weka.classifiers.AbstractAdamsClassifierTest;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.rules.ZeroR;
 
@@ -34,7 +34,7 @@ import weka.classifiers.rules.ZeroR;
  * @version $Revision$
  */
 public class RandomModelTreesTest
-  extends AbstractAdamsClassifierTest {
+  extends AbstractRandomTreeEnsembleTest {
 
   /**
    * Initializes the test.
@@ -64,6 +64,23 @@ public class RandomModelTreesTest
   public void testInstanceWeights() {
   }
 
+  /**
+   * Returns a small, configured ensemble.
+   *
+   * @param numThreads	the number of threads to use
+   * @return		the classifier
+   */
+  @Override
+  protected AbstractClassifier newEnsemble(int numThreads) {
+    RandomModelTrees	result;
+
+    result = new RandomModelTrees();
+    result.setNumIterations(10);
+    result.setNumThreads(numThreads);
+
+    return result;
+  }
+
   /**
    * Returns the test suite.
    *
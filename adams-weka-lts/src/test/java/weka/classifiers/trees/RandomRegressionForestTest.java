@@ -22,7 +22,7 @@ package weka.classifiers.trees;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import junit.textui.TestRunner;
-import weka.classifiers.AbstractAdamsClassifierTest;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.rules.ZeroR;
 
@@ -34,7 +34,7 @@ import weka.classifiers.rules.ZeroR;
  * @version $Revision$
  */
 public class RandomRegressionForestTest
-  extends AbstractAdamsClassifierTest {
+  extends AbstractRandomTreeEnsembleTest {
 
   /**
    * Initializes the test.
@@ -57,6 +57,25 @@ public class RandomRegressionForestTest
     return new ZeroR();
   }
 
+  /**
+   * Returns a small, configured ensemble.
+   *
+   * @param numThreads	the number of threads to use
+   * @return		the classifier
+   */
+  @Override
+  protected AbstractClassifier newEnsemble(int numThreads) {
+    RandomRegressionForest	result;
+
+    result = new RandomRegressionForest();
+    result.setNumIterations(10);
+    result.setPLS(5);
+    result.setMin(50);
+    result.setNumThreads(numThreads);
+
+    return result;
+  }
+
   /**
    * Returns the test suite.
    *
@@ -68,6 +68,21 @@ public class SimpleArffTest
   public void testLoaderWithStream() {
   }
 
+  /**
+   * Tests the parsing of numbers without intermediate strings.
+   */
+  public void testParseNumber() {
+    String[]	numbers;
+
+    numbers = new String[]{
+      "0", "-0", "1", "-1", "+3", "0.1", "-0.25", ".5", "5.", "123456789.123456789",
+      "1e10", "1.5E-7", "-2.5e+3", "3.141592653589793", "0.000000000000000000001",
+      "9007199254740993", "12345678901234567890", "1e-400", "1e400", "Infinity"};
+    for (String number: numbers)
+      assertEquals(number, Double.parseDouble(number), SimpleArffLoader.parseNumber(number, 0, number.length()), 0.0);
+    assertEquals("sub-region", 2.75, SimpleArffLoader.parseNumber("1,2.75,3", 2, 6), 0.0);
+  }
+
   /**
    * returns a test suite
    * 
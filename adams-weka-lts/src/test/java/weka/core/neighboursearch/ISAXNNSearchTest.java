@@ -0,0 +1,194 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ISAXNNSearchTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.neighboursearch;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SAXDistance;
+import weka.core.neighboursearch.NewNNSearch.QueryResult;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Tests ISAXNNSearch.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ISAXNNSearchTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public ISAXNNSearchTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates random SAX words, with neighbouring symbols and duplicates.
+   *
+   * @param num		the number of words
+   * @param length	the length of the words
+   * @param bins	the number of symbols
+   * @param seed	the seed value
+   * @return		the data
+   */
+  protected Instances generate(int num, int length, int bins, long seed) {
+    Instances			result;
+    ArrayList<Attribute>	atts;
+    double[]			values;
+    Random			rand;
+    int				base;
+    int				i;
+    int				n;
+
+    atts = new ArrayList<>();
+    for (i = 0; i < length; i++)
+      atts.add(new Attribute("SAX_" + (i + 1)));
+    result = new Instances("sax", atts, num);
+    rand   = new Random(seed);
+    for (i = 0; i < num; i++) {
+      if ((i > 10) && (rand.nextInt(10) == 0)) {
+	result.add((Instance) result.instance(rand.nextInt(i)).copy());
+	continue;
+      }
+      values = new double[length];
+      base   = rand.nextInt(bins);
+      for (n = 0; n < length; n++)
+	values[n] = Math.max(0, Math.min(bins - 1, base + rand.nextInt(3) - 1));
+      result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Compares the index against the brute force search.
+   *
+   * @param bins	the number of symbols
+   * @param leafSize	the leaf size
+   * @throws Exception	if test fails
+   */
+  protected void compare(int bins, int leafSize) throws Exception {
+    Instances		data;
+    SAXDistance		distance;
+    ISAXNNSearch	index;
+    NewNNSearch		brute;
+    QueryResult		expected;
+    QueryResult		actual;
+    Instance		query;
+    Random		rand;
+    int			i;
+    int			n;
+    int			k;
+
+    data = generate(2000, 16, bins, bins);
+
+    index    = new ISAXNNSearch();
+    distance = new SAXDistance();
+    distance.setBins(bins);
+    distance.setN(16);
+    index.setDistanceFunction(distance);
+    index.setLeafSize(leafSize);
+    index.setInstances(data);
+
+    brute    = new NewNNSearch();
+    distance = new SAXDistance();
+    distance.setBins(bins);
+    distance.setN(16);
+    brute.setDistanceFunction(distance);
+    brute.setInstances(data);
+
+    rand = new Random(leafSize);
+    for (i = 0; i < 100; i++) {
+      query    = data.instance(rand.nextInt(data.numInstances()));
+      k        = 1 + rand.nextInt(10);
+      expected = brute.query(query, k);
+      actual   = index.query(query, k);
+      assertEquals("number of neighbours", expected.getNeighbours().numInstances(), actual.getNeighbours().numInstances());
+      for (n = 0; n < expected.getDistances().length; n++) {
+	assertEquals("distance #" + n, expected.getDistances()[n], actual.getDistances()[n], 0.0);
+	assertEquals("neighbour #" + n, expected.getNeighbours().instance(n).toString(), actual.getNeighbours().instance(n).toString());
+      }
+    }
+  }
+
+  /**
+   * Tests the search with different settings.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testSearch() throws Exception {
+    compare(5, 100);
+    compare(5, 4);
+    compare(8, 20);
+    compare(10, 1);
+  }
+
+  /**
+   * Tests that non-SAX values get rejected.
+   *
+   * @throws Exception	if test fails
+   */
+  public void testInvalidSymbols() throws Exception {
+    Instances		data;
+    ISAXNNSearch	index;
+
+    data = generate(10, 4, 5, 1);
+    data.instance(3).setValue(2, 5.0);
+    index = new ISAXNNSearch();
+    try {
+      index.setInstances(data);
+      fail("invalid symbol accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(ISAXNNSearchTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
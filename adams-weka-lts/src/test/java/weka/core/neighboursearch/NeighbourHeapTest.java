@@ -0,0 +1,174 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NeighbourHeapTest.java
+ * Copyright (C) 2023 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.neighboursearch;
+
+import adams.env.Environment;
+import adams.test.AdamsTestCase;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests NeighbourHeap.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class NeighbourHeapTest
+  extends AdamsTestCase {
+
+  /**
+   * Initializes the test.
+   *
+   * @param name 	the name of the test
+   */
+  public NeighbourHeapTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates random distances, with duplicates.
+   *
+   * @param num		the number of distances
+   * @param seed	the seed value
+   * @return		the distances
+   */
+  protected double[] distances(int num, long seed) {
+    double[]	result;
+    Random	rand;
+    int		i;
+
+    rand   = new Random(seed);
+    result = new double[num];
+    for (i = 0; i < num; i++)
+      result[i] = rand.nextInt(num / 4);
+
+    return result;
+  }
+
+  /**
+   * Returns the expected indices of the k nearest neighbours: sorted by
+   * distance, ties resolved by index.
+   *
+   * @param dists	the distances
+   * @param k		the number of neighbours
+   * @return		the indices
+   */
+  protected int[] expected(final double[] dists, int k) {
+    Integer[]	indices;
+    int[]	result;
+    int		i;
+
+    indices = new Integer[dists.length];
+    for (i = 0; i < dists.length; i++)
+      indices[i] = i;
+    Arrays.sort(indices, (o1, o2) -> {
+      int res = Double.compare(dists[o1], dists[o2]);
+      if (res == 0)
+	res = Integer.compare(o1, o2);
+      return res;
+    });
+    result = new int[Math.min(k, dists.length)];
+    for (i = 0; i < result.length; i++)
+      result[i] = indices[i];
+
+    return result;
+  }
+
+  /**
+   * Compares the heap against the expected indices.
+   *
+   * @param heap	the sorted heap
+   * @param dists	the distances
+   * @param expected	the expected indices
+   */
+  protected void check(NeighbourHeap heap, double[] dists, int[] expected) {
+    int		i;
+
+    assertEquals("size", expected.length, heap.size());
+    for (i = 0; i < expected.length; i++) {
+      assertEquals("index #" + i, expected[i], heap.index(i));
+      assertEquals("distance #" + i, dists[expected[i]], heap.distance(i), 0.0);
+    }
+  }
+
+  /**
+   * Tests offering the distances sequentially.
+   */
+  public void testSequential() {
+    NeighbourHeap	heap;
+    double[]		dists;
+    int			i;
+
+    dists = distances(1000, 1);
+    for (int k: new int[]{0, 1, 5, 50, 1000, 2000}) {
+      heap = new NeighbourHeap(Math.min(k, dists.length));
+      for (i = 0; i < dists.length; i++)
+	heap.offer(dists[i], i);
+      heap.sort();
+      check(heap, dists, expected(dists, k));
+    }
+  }
+
+  /**
+   * Tests merging of heaps for chunks, as performed in the parallel search.
+   */
+  public void testMerge() {
+    NeighbourHeap	heap;
+    NeighbourHeap	chunk;
+    double[]		dists;
+    int			from;
+    int			i;
+
+    dists = distances(1000, 2);
+    for (int k: new int[]{1, 5, 50}) {
+      heap = new NeighbourHeap(k);
+      for (from = 0; from < dists.length; from += 300) {
+	chunk = new NeighbourHeap(k);
+	for (i = from; i < Math.min(dists.length, from + 300); i++)
+	  chunk.offer(dists[i], i);
+	heap.merge(chunk);
+      }
+      heap.sort();
+      check(heap, dists, expected(dists, k));
+    }
+  }
+
+  /**
+   * Returns the test suite.
+   *
+   * @return		the suite
+   */
+  public static Test suite() {
+    return new TestSuite(NeighbourHeapTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    Environment.setEnvironmentClass(Environment.class);
+    runTest(suite());
+  }
+}
@@ -172,6 +172,41 @@ public class SavitzkyGolayTest
     performTest();
   }
 
+  /**
+   * Test that processing the rows with multiple threads generates the same
+   * output as sequential processing.
+   *
+   * @throws Exception	if generation of data or filtering fails
+   */
+  public void testParallel() throws Exception {
+    TestInstances	testinst;
+    Instances		data;
+    SavitzkyGolay	filter;
+    Instances		sequential;
+    Instances		parallel;
+    int			i;
+
+    testinst = new TestInstances();
+    testinst.setNumNominal(0);
+    testinst.setNumNumeric(20);
+    testinst.setClassType(Attribute.NOMINAL);
+    testinst.setNumInstances(1000);
+    data = testinst.generate();
+
+    filter = (SavitzkyGolay) getFilter();
+    filter.setInputFormat(data);
+    sequential = Filter.useFilter(data, filter);
+
+    filter = (SavitzkyGolay) getFilter();
+    filter.setNumThreads(4);
+    filter.setInputFormat(data);
+    parallel = Filter.useFilter(data, filter);
+
+    assertEquals("rows", sequential.numInstances(), parallel.numInstances());
+    for (i = 0; i < sequential.numInstances(); i++)
+      assertEquals("row " + i, sequential.instance(i).toString(), parallel.instance(i).toString());
+  }
+
   /**
    * Returns a test suite.
    *